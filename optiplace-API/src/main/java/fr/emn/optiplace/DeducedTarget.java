@@ -4,8 +4,12 @@
 
 package fr.emn.optiplace;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import fr.emn.optiplace.actions.ActionGraph;
 import fr.emn.optiplace.configuration.IConfiguration;
+import fr.emn.optiplace.solver.SolvingStatistics;
 import fr.emn.optiplace.solver.choco.IReconfigurationProblem;
 
 
@@ -32,6 +36,8 @@ public class DeducedTarget {
 
 	private long searchTime = -1;
 
+	private long queueTime = -1;
+
 	private IReconfigurationProblem problem;
 
 	private int objective = -1;
@@ -42,6 +48,12 @@ public class DeducedTarget {
 
 	private long searchSolutions = -1;
 
+	private final List<SolvingStatistics> workersStats = new ArrayList<>();
+
+	private int winner = -1;
+
+	private String searchPolicy = null;
+
 	/**
 	 * @return the destination
 	 */
@@ -109,6 +121,22 @@ public class DeducedTarget {
 		this.searchTime = searchTime;
 	}
 
+	/**
+	 * @return the time the request waited before being solved, in nanosecond,
+	 *         or -1 if it was not queued.
+	 */
+	public long getQueueTime() {
+		return queueTime;
+	}
+
+	/**
+	 * @param queueTime
+	 *          the queueTime to set
+	 */
+	public void setQueueTime(long queueTime) {
+		this.queueTime = queueTime;
+	}
+
 	/**
 	 *
 	 * @return the total time to build the problem, configure the search and
@@ -193,12 +221,63 @@ public class DeducedTarget {
 		this.searchSolutions = searchSolutions;
 	}
 
+	/**
+	 * @return the statistics of each search of the portfolio, in the order of
+	 *         the searches. Empty if a single search was used. The time counts
+	 *         are in ms.
+	 */
+	public List<SolvingStatistics> getWorkersStats() {
+		return workersStats;
+	}
+
+	/**
+	 * @return the index of the portfolio search which found the destination, or
+	 *         -1 if a single search was used.
+	 */
+	public int getWinner() {
+		return winner;
+	}
+
+	/**
+	 * @param winner
+	 *          the winner to set
+	 */
+	public void setWinner(int winner) {
+		this.winner = winner;
+	}
+
+	/**
+	 * @return the description of the search policy used, or null if the search
+	 *         was not configured.
+	 */
+	public String getSearchPolicy() {
+		return searchPolicy;
+	}
+
+	/**
+	 * @param searchPolicy
+	 *          the searchPolicy to set
+	 */
+	public void setSearchPolicy(String searchPolicy) {
+		this.searchPolicy = searchPolicy;
+	}
+
 	@Override
 	public String toString() {
 		StringBuilder sb = new StringBuilder();
-		sb.append("time : config=" + configTime + "ns build=" + buildTime + "ns search=" + searchTime + "ns\n");
+		sb.append("time : config=" + configTime + "ns build=" + buildTime + "ns search=" + searchTime + "ns");
+		if (queueTime != -1) {
+			sb.append(" queue=" + queueTime + "ns");
+		}
+		sb.append("\n");
 		sb.append(
 		    "stats : " + searchSolutions + " solutions, " + searchNodes + " nodes, " + searchBacktracks + " backtracks\n");
+		if (searchPolicy != null) {
+			sb.append("policy : " + searchPolicy + "\n");
+		}
+		if (!workersStats.isEmpty()) {
+			sb.append("portfolio : winner=" + winner + " " + workersStats + "\n");
+		}
 		sb.append("actions (").append(actions.nbActions()).append(") :\n").append(actions).append("\ndestination : \n")
 		    .append(destination).append("\nobjective result = " + objective);
 		return sb.toString();
@@ -14,4 +14,9 @@ public class Computer extends VMLocation {
 		super(name);
 	}
 
+	/** create an element with an id. Only used by {@link ElementRegistry} */
+	Computer(String name, int id) {
+		super(name, id);
+	}
+
 }
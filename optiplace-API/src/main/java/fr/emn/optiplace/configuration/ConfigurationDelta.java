@@ -0,0 +1,164 @@
+package fr.emn.optiplace.configuration;
+
+import java.util.LinkedHashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import fr.emn.optiplace.configuration.resources.ResourceSpecification;
+
+/**
+ * The differences between two configurations : the VMs and locations added or
+ * removed, the VMs whose use of a resource changed, the locations whose
+ * capacity of a resource changed, and the VMs whose state or location changed.
+ * Other changes, on the sites, the tags or the resources types, are only
+ * flagged.
+ *
+ * @author Guillaume Le Louët [guillaume.lelouet@gmail.com] 2017
+ *
+ */
+public class ConfigurationDelta {
+
+	@SuppressWarnings("unused")
+	private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(ConfigurationDelta.class);
+
+	public final Set<VM> addedVMs = new LinkedHashSet<>();
+
+	public final Set<VM> removedVMs = new LinkedHashSet<>();
+
+	/** VMs present in both configurations, whose use of a resource changed */
+	public final Set<VM> resizedVMs = new LinkedHashSet<>();
+
+	/**
+	 * VMs present in both configurations, whose state, location or migration
+	 * target changed
+	 */
+	public final Set<VM> movedVMs = new LinkedHashSet<>();
+
+	public final Set<VMLocation> addedLocations = new LinkedHashSet<>();
+
+	public final Set<VMLocation> removedLocations = new LinkedHashSet<>();
+
+	/**
+	 * locations present in both configurations, whose capacity of a resource
+	 * changed
+	 */
+	public final Set<VMLocation> resizedLocations = new LinkedHashSet<>();
+
+	/** true if the sites, the tags or the resources types changed */
+	protected boolean otherChanges = false;
+
+	public boolean hasOtherChanges() {
+		return otherChanges;
+	}
+
+	/**
+	 * @return true if the two configurations compared are the same.
+	 */
+	public boolean isEmpty() {
+		return !otherChanges && addedVMs.isEmpty() && removedVMs.isEmpty() && resizedVMs.isEmpty() && movedVMs.isEmpty()
+				&& addedLocations.isEmpty() && removedLocations.isEmpty() && resizedLocations.isEmpty();
+	}
+
+	/**
+	 * compute the changes from a configuration to another one
+	 *
+	 * @param from
+	 *          the first configuration
+	 * @param to
+	 *          the next configuration
+	 * @return a new delta, containing the elements of to that are not the same
+	 *         in from, and the elements of from that are not present in to.
+	 */
+	public static ConfigurationDelta between(IConfiguration from, IConfiguration to) {
+		ConfigurationDelta ret = new ConfigurationDelta();
+		if (!from.resources().keySet().equals(to.resources().keySet())) {
+			ret.otherChanges = true;
+		}
+		Set<ResourceSpecification[]> specs = from.resources().entrySet().stream()
+				.filter(e -> to.resources().containsKey(e.getKey()))
+				.map(e -> new ResourceSpecification[] { e.getValue(), to.resources().get(e.getKey()) })
+				.collect(Collectors.toSet());
+
+		from.getVMs().filter(v -> !to.hasVM(v)).forEach(ret.removedVMs::add);
+		to.getVMs().forEach(v -> {
+			if (!from.hasVM(v)) {
+				ret.addedVMs.add(v);
+				return;
+			}
+			if (from.getState(v) != to.getState(v) || !Objects.equals(from.getLocation(v), to.getLocation(v))
+					|| !Objects.equals(from.getMigTarget(v), to.getMigTarget(v))) {
+				ret.movedVMs.add(v);
+			}
+			for (ResourceSpecification[] s : specs) {
+				if (s[0].getUse(v) != s[1].getUse(v)) {
+					ret.resizedVMs.add(v);
+					break;
+				}
+			}
+			if (!sameTags(from, to, v)) {
+				ret.otherChanges = true;
+			}
+		});
+
+		from.getLocations().filter(l -> !hasLocation(to, l)).forEach(ret.removedLocations::add);
+		to.getLocations().forEach(l -> {
+			if (!hasLocation(from, l)) {
+				ret.addedLocations.add(l);
+				return;
+			}
+			for (ResourceSpecification[] s : specs) {
+				if (s[0].getCapacity(l) != s[1].getCapacity(l)) {
+					ret.resizedLocations.add(l);
+					break;
+				}
+			}
+			if (!sameTags(from, to, l) || !Objects.equals(from.getSite(l), to.getSite(l))) {
+				ret.otherChanges = true;
+			}
+		});
+
+		if (from.nbSites() != to.nbSites() || from.getSites().anyMatch(s -> !to.hasSite(s) || !sameTags(from, to, s))) {
+			ret.otherChanges = true;
+		}
+		return ret;
+	}
+
+	protected static boolean hasLocation(IConfiguration c, VMLocation l) {
+		return l instanceof Computer ? c.hasComputer((Computer) l) : c.hasExtern((Extern) l);
+	}
+
+	protected static boolean sameTags(IConfiguration from, IConfiguration to, ManagedElement e) {
+		return from.getTags(e).collect(Collectors.toSet()).equals(to.getTags(e).collect(Collectors.toSet()));
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("delta(");
+		if (!addedVMs.isEmpty()) {
+			sb.append(" addedVMs=").append(addedVMs);
+		}
+		if (!removedVMs.isEmpty()) {
+			sb.append(" removedVMs=").append(removedVMs);
+		}
+		if (!resizedVMs.isEmpty()) {
+			sb.append(" resizedVMs=").append(resizedVMs);
+		}
+		if (!movedVMs.isEmpty()) {
+			sb.append(" movedVMs=").append(movedVMs);
+		}
+		if (!addedLocations.isEmpty()) {
+			sb.append(" addedLocations=").append(addedLocations);
+		}
+		if (!removedLocations.isEmpty()) {
+			sb.append(" removedLocations=").append(removedLocations);
+		}
+		if (!resizedLocations.isEmpty()) {
+			sb.append(" resizedLocations=").append(resizedLocations);
+		}
+		if (otherChanges) {
+			sb.append(" otherChanges");
+		}
+		return sb.append(" )").toString();
+	}
+}
@@ -0,0 +1,304 @@
+package fr.emn.optiplace.configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Predicate;
+
+/**
+ * Registry of canonical {@link VM}, {@link Computer}, {@link Extern} and
+ * {@link Site} instances.
+ * <p>
+ * The registry returns the same instance each time an element of the same type
+ * and name (ignoring the case) is requested, so the elements can be compared by
+ * reference and their hash is only computed once. Each element created by a
+ * registry also has an id, from 0 to the number of elements of its type in the
+ * registry, that can be used to index arrays. The computers and the externs
+ * share the same location ids, so the arrays of locations can be indexed
+ * too.
+ * </p>
+ * <p>
+ * The registry is thread-safe. A removed element keeps its id, which is never
+ * given to another element, so the arrays indexed by the ids of a registry
+ * remain valid. A registry should be shared by the data related to the same
+ * center, eg a configuration and its clones.
+ * </p>
+ *
+ * @author Guillaume Le Louët [guillaume.lelouet@gmail.com] 2017
+ *
+ */
+public class ElementRegistry {
+
+	@SuppressWarnings("unused")
+	private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(ElementRegistry.class);
+
+	/** the elements of one type, by name and by id */
+	protected static class Table<T extends ManagedElement> {
+
+		protected final ConcurrentHashMap<String, T> byKey = new ConcurrentHashMap<>();
+
+		/** the elements by id, possibly shared with the table of another type */
+		protected final List<ManagedElement> byId;
+
+		protected final Class<T> type;
+
+		protected final BiFunction<String, Integer, T> maker;
+
+		protected Table(Class<T> type, BiFunction<String, Integer, T> maker, List<ManagedElement> byId) {
+			this.type = type;
+			this.maker = maker;
+			this.byId = byId;
+		}
+
+		protected T get(String name) {
+			T ret = byKey.get(name.toLowerCase());
+			if (ret != null) {
+				return ret;
+			}
+			return byKey.computeIfAbsent(name.toLowerCase(), k -> {
+				synchronized (byId) {
+					T created = maker.apply(name, byId.size());
+					byId.add(created);
+					return created;
+				}
+			});
+		}
+
+		protected T get(int id) {
+			ManagedElement ret;
+			synchronized (byId) {
+				ret = id < 0 || id >= byId.size() ? null : byId.get(id);
+			}
+			return type.isInstance(ret) ? type.cast(ret) : null;
+		}
+
+		/** @return the element with this name, without creating it */
+		protected T find(String name) {
+			return byKey.get(name.toLowerCase());
+		}
+
+		/** remove the element if it is the instance of this table */
+		protected boolean remove(T elem) {
+			synchronized (byId) {
+				if (elem.id >= byId.size() || byId.get(elem.id) != elem) {
+					return false;
+				}
+				byId.set(elem.id, null);
+			}
+			byKey.remove(elem.name.toLowerCase(), elem);
+			return true;
+		}
+
+		protected int size() {
+			synchronized (byId) {
+				return byId.size();
+			}
+		}
+	}
+
+	/** number of elements removed */
+	protected final AtomicInteger removed = new AtomicInteger();
+
+	protected final Table<VM> vms = new Table<>(VM.class, VM::new, new ArrayList<>());
+
+	/** the locations by id, shared by the computers and the externs */
+	protected final List<ManagedElement> locations = new ArrayList<>();
+
+	protected final Table<Computer> computers = new Table<>(Computer.class, Computer::new, locations);
+
+	protected final Table<Extern> externs = new Table<>(Extern.class, Extern::new, locations);
+
+	protected final Table<Site> sites = new Table<>(Site.class, Site::new, new ArrayList<>());
+
+	protected final Table<?>[] tables = { vms, computers, externs, sites };
+
+	/** @return the VM with this name, created if needed */
+	public VM vm(String name) {
+		return vms.get(name);
+	}
+
+	/** @return the computer with this name, created if needed */
+	public Computer computer(String name) {
+		return computers.get(name);
+	}
+
+	/** @return the extern with this name, created if needed */
+	public Extern extern(String name) {
+		return externs.get(name);
+	}
+
+	/** @return the site with this name, created if needed */
+	public Site site(String name) {
+		return sites.get(name);
+	}
+
+	/** @return the VM with this id, or null */
+	public VM vm(int id) {
+		return vms.get(id);
+	}
+
+	/** @return the computer with this id, or null */
+	public Computer computer(int id) {
+		return computers.get(id);
+	}
+
+	/** @return the extern with this id, or null */
+	public Extern extern(int id) {
+		return externs.get(id);
+	}
+
+	/** @return the site with this id, or null */
+	public Site site(int id) {
+		return sites.get(id);
+	}
+
+	/** @return the computer or extern with this location id, or null */
+	public VMLocation location(int id) {
+		synchronized (locations) {
+			return id < 0 || id >= locations.size() ? null : (VMLocation) locations.get(id);
+		}
+	}
+
+	/**
+	 * @return the number of VM ids given by this registry, including those of
+	 *         the removed VMs
+	 */
+	public int nbVMs() {
+		return vms.size();
+	}
+
+	/**
+	 * @return the number of location ids given by this registry to the
+	 *         computers and the externs, including those of the removed ones
+	 */
+	public int nbLocations() {
+		return computers.size();
+	}
+
+	public int nbSites() {
+		return sites.size();
+	}
+
+	/**
+	 * get the canonical instance of an element
+	 *
+	 * @param elem
+	 *          an element of class {@link VM}, {@link Computer}, {@link Extern}
+	 *          or {@link Site}.
+	 * @return the instance of this registry equal to elem, or elem if its class
+	 *         is not handled by the registry.
+	 */
+	@SuppressWarnings("unchecked")
+	public <T extends ManagedElement> T intern(T elem) {
+		if (elem == null) {
+			return null;
+		}
+		Class<?> c = elem.getClass();
+		if (c == VM.class) {
+			return (T) vm(elem.name);
+		}
+		if (c == Computer.class) {
+			return (T) computer(elem.name);
+		}
+		if (c == Extern.class) {
+			return (T) extern(elem.name);
+		}
+		if (c == Site.class) {
+			return (T) site(elem.name);
+		}
+		return elem;
+	}
+
+	/**
+	 * @return the number of elements removed from this. While it is 0, an
+	 *         element of this registry is the only one of this registry equal to
+	 *         it.
+	 */
+	public int nbRemoved() {
+		return removed.get();
+	}
+
+	/**
+	 * find the canonical instance of an element, without creating it
+	 *
+	 * @param elem
+	 *          an element of class {@link VM}, {@link Computer}, {@link Extern}
+	 *          or {@link Site}.
+	 * @return the instance of this registry equal to elem, or null if there is
+	 *         none.
+	 */
+	@SuppressWarnings("unchecked")
+	public <T extends ManagedElement> T registered(T elem) {
+		if (elem == null) {
+			return null;
+		}
+		Class<?> c = elem.getClass();
+		if (c == VM.class) {
+			return (T) vms.find(elem.name);
+		}
+		if (c == Computer.class) {
+			return (T) computers.find(elem.name);
+		}
+		if (c == Extern.class) {
+			return (T) externs.find(elem.name);
+		}
+		if (c == Site.class) {
+			return (T) sites.find(elem.name);
+		}
+		return null;
+	}
+
+	/** @return the element of any type with this name, or null */
+	public ManagedElement registered(String name) {
+		return registered(name, e -> true);
+	}
+
+	/**
+	 * @param name
+	 *          the name of the element
+	 * @param filter
+	 *          the elements to consider, eg the ones present in a configuration
+	 * @return the element of any type with this name accepted by the filter, or
+	 *         null
+	 */
+	public ManagedElement registered(String name, Predicate<ManagedElement> filter) {
+		for (Table<?> t : tables) {
+			ManagedElement ret = t.find(name);
+			if (ret != null && filter.test(ret)) {
+				return ret;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * remove an element from this registry. The next request for its name
+	 * creates a new element with a new id.
+	 *
+	 * @param elem
+	 *          an element created by this registry
+	 * @return true if elem was an element of this registry, and was removed
+	 */
+	public boolean remove(ManagedElement elem) {
+		if (elem == null || elem.id < 0) {
+			return false;
+		}
+		Class<?> c = elem.getClass();
+		boolean ret = false;
+		if (c == VM.class) {
+			ret = vms.remove((VM) elem);
+		} else if (c == Computer.class) {
+			ret = computers.remove((Computer) elem);
+		} else if (c == Extern.class) {
+			ret = externs.remove((Extern) elem);
+		} else if (c == Site.class) {
+			ret = sites.remove((Site) elem);
+		}
+		if (ret) {
+			removed.incrementAndGet();
+		}
+		return ret;
+	}
+}
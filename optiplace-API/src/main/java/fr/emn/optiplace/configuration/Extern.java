@@ -13,4 +13,9 @@ public final class Extern extends VMLocation {
 		super(name);
 	}
 
+	/** create an element with an id. Only used by {@link ElementRegistry} */
+	Extern(String name, int id) {
+		super(name, id);
+	}
+
 }
@@ -34,20 +34,44 @@ public class ManagedElement {
 
 	public final String name;
 
+	/** the hash code of the lower case name, cached */
+	protected final int hash;
+
+	/** the id of this in its {@link ElementRegistry}, or -1 */
+	protected final int id;
+
 	public ManagedElement(String name) {
+		this(name, -1);
+	}
+
+	/**
+	 * create an element with an id. Only the {@link ElementRegistry} should
+	 * specify an id.
+	 */
+	protected ManagedElement(String name, int id) {
 		this.name = name;
 		if (name == null) {
 			throw new NullPointerException("creating an managed element with null name is not allowed");
 		}
+		hash = name.toLowerCase().hashCode();
+		this.id = id;
 	}
 
 	public String getName() {
 		return name;
 	}
 
+	/**
+	 * @return the id of this in the {@link ElementRegistry} which created it, or
+	 *         -1 if this was not created by a registry.
+	 */
+	public int getId() {
+		return id;
+	}
+
 	@Override
 	public int hashCode() {
-		return name.toLowerCase().hashCode();
+		return hash;
 	}
 
 	@Override
@@ -61,10 +85,8 @@ public class ManagedElement {
 		if (!this.getClass().equals(obj.getClass())) {
 			return false;
 		}
-		if (!((ManagedElement) obj).name.toLowerCase().equals(name.toLowerCase())) {
-			return false;
-		}
-		return true;
+		ManagedElement other = (ManagedElement) obj;
+		return other.hash == hash && other.name.equalsIgnoreCase(name);
 	}
 
 	@Override
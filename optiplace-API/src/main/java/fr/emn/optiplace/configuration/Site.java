@@ -13,4 +13,9 @@ public final class Site extends ManagedElement {
 	public Site(String name) {
 		super(name);
 	}
+
+	/** create an element with an id. Only used by {@link ElementRegistry} */
+	Site(String name, int id) {
+		super(name, id);
+	}
 }
@@ -13,4 +13,9 @@ public final class VM extends ManagedElement {
 		super(name);
 	}
 
+	/** create an element with an id. Only used by {@link ElementRegistry} */
+	VM(String name, int id) {
+		super(name, id);
+	}
+
 }
@@ -17,4 +17,9 @@ public class VMLocation extends ManagedElement {
 		super(name);
 	}
 
+	/** create an element with an id. Only used by {@link ElementRegistry} */
+	protected VMLocation(String name, int id) {
+		super(name, id);
+	}
+
 }
@@ -1,6 +1,8 @@
 
 package fr.emn.optiplace.configuration.resources;
 
+import java.util.Arrays;
+
 import org.chocosolver.solver.variables.IntVar;
 
 import fr.emn.optiplace.configuration.Computer;
@@ -31,7 +33,7 @@ import fr.emn.optiplace.solver.choco.IReconfigurationProblem;
  */
 public class ResourceHandler {
 
-	private final ResourceSpecification specs;
+	private ResourceSpecification specs;
 
 	/**
 	 * @return the internal resource specifications
@@ -42,7 +44,7 @@ public class ResourceHandler {
 
 	protected IntVar[] locationLoadsByIndex = null;
 	protected int minVMUse = Integer.MAX_VALUE;
-	protected int maxVMUse = Integer.MAX_VALUE;
+	protected int maxVMUse = Integer.MIN_VALUE;
 	protected int minComputerCapa = Integer.MAX_VALUE;
 	protected int maxComputerCapa = Integer.MIN_VALUE;
 	protected int[] nodesCapacities = null;
@@ -69,28 +71,26 @@ public class ResourceHandler {
 	public void associate(IReconfigurationProblem pb) {
 		int totalVMUse = 0;
 		minVMUse = Integer.MAX_VALUE;
-		maxVMUse = Integer.MAX_VALUE;
+		maxVMUse = Integer.MIN_VALUE;
 		minComputerCapa = Integer.MAX_VALUE;
 		maxComputerCapa = Integer.MIN_VALUE;
 		associatedPb = pb;
 		locationLoadsByIndex = new IntVar[pb.b().waitIdx() + 1];
-		vmsLoads = new int[pb.c().nbVMs()];
-		for (int i = 0; i < pb.c().nbVMs(); i++) {
-			int use = specs.getUse(pb.b().vm(i));
-			vmsLoads[i] = use;
+		// bulk copies, indexed as in the problem
+		vmsLoads = specs.getUses(pb.b().vms());
+		for (int use : vmsLoads) {
 			maxVMUse = Math.max(maxVMUse, use);
 			minVMUse = Math.min(minVMUse, use);
 			totalVMUse += use;
 		}
-		nodesCapacities = new int[pb.c().nbComputers()];
+		nodesCapacities = specs.getCapacities(pb.b().nodes());
 		for (int i = pb.b().firstComputerIdx(); i <= pb.b().waitIdx(); i++) {
 			VMLocation n = pb.b().location(i);
 			int capa = totalVMUse;
 			if (i >= pb.b().firstComputerIdx() && i <= pb.b().lastComputerIdx()) {
-				capa = specs.getCapacity(n);
+				capa = nodesCapacities[i];
 				maxComputerCapa = Math.max(maxComputerCapa, capa);
 				minComputerCapa = Math.min(minComputerCapa, capa);
-				nodesCapacities[i] = capa;
 			}
 			locationLoadsByIndex[i] = pb.v()
 					.createBoundIntVar((n != null ? n.getName() : "waitingVM") + "." + specs.getType(), 0, capa);
@@ -102,6 +102,45 @@ public class ResourceHandler {
 		}
 	}
 
+	/**
+	 * update the uses and capacities of the elements of the associated problem
+	 * to those of another specification of the resource, once the problem is
+	 * built. The variables are not modified : a computer's load keeps the
+	 * capacity of the first specification as upper bound.
+	 *
+	 * @param next
+	 *          the new specification of the resource
+	 * @return true if the use of a VM or the additional use of a computer
+	 *         changed, in which case the resource must be packed again.
+	 */
+	public boolean patch(ResourceSpecification next) {
+		specs = next;
+		IReconfigurationProblem pb = associatedPb;
+		int[] uses = next.getUses(pb.b().vms());
+		boolean changed = !Arrays.equals(uses, vmsLoads);
+		System.arraycopy(uses, 0, vmsLoads, 0, uses.length);
+		minVMUse = Integer.MAX_VALUE;
+		maxVMUse = Integer.MIN_VALUE;
+		for (int use : vmsLoads) {
+			maxVMUse = Math.max(maxVMUse, use);
+			minVMUse = Math.min(minVMUse, use);
+		}
+		int[] capacities = next.getCapacities(pb.b().nodes());
+		System.arraycopy(capacities, 0, nodesCapacities, 0, capacities.length);
+		minComputerCapa = Integer.MAX_VALUE;
+		maxComputerCapa = Integer.MIN_VALUE;
+		for (int capa : nodesCapacities) {
+			maxComputerCapa = Math.max(maxComputerCapa, capa);
+			minComputerCapa = Math.min(minComputerCapa, capa);
+		}
+		int[] previous = resourceLoad.getAdditionalUse().clone();
+		resourceLoad.clearAdditionalUse();
+		for (VM v : pb.c().getMigratingVMs()) {
+			resourceLoad.addUse(pb.b().location(pb.c().getLocation(v)), pb.b().vm(v));
+		}
+		return changed || !Arrays.equals(previous, resourceLoad.getAdditionalUse());
+	}
+
 	public ResourceLoad getResourceLoad() {
 		return resourceLoad;
 	}
@@ -94,6 +94,12 @@ public class ResourceLoad {
 		hasAdditionalUse = true;
 	}
 
+	/** remove the additional use of all the nodes */
+	public void clearAdditionalUse() {
+		Arrays.fill(nodesAdditionalByIndex, 0);
+		hasAdditionalUse = false;
+	}
+
 	public int getTotalVMLoads() {
 		int ret = 0;
 		for (int i : itemsConsumptions) {
@@ -102,4 +108,4 @@ public class ResourceLoad {
 		return ret;
 	}
 
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -6,10 +6,13 @@ package fr.emn.optiplace.solver;
 import java.util.Arrays;
 
 import org.chocosolver.memory.IStateBool;
+import org.chocosolver.solver.constraints.Constraint;
+import org.chocosolver.solver.constraints.Propagator;
+import org.chocosolver.solver.constraints.PropagatorPriority;
 import org.chocosolver.solver.search.strategy.decision.DecisionMaker;
 import org.chocosolver.solver.search.strategy.strategy.AbstractStrategy;
-import org.chocosolver.solver.variables.IVariableMonitor;
 import org.chocosolver.solver.variables.Variable;
+import org.chocosolver.util.ESat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -23,10 +26,13 @@ import org.slf4j.LoggerFactory;
  * heuristic can make a decision.
  * </p>
  * <p>
- * The observed variables are monitored by {@link #monitor}, a final variable
- * which simply calls {@link #dirty()} when a variable is modified. This reduces
- * the CPU cost of calculating the {@link #activated} value each time one
- * variable is modified.
+ * The observed variables are watched by a {@link Watcher}, a propagator posted
+ * once in the model which does not filter anything but calls
+ * {@link #onObservedChange(int, int)} with the index of the observed variable
+ * modified. By default this simply calls {@link #dirty()}, which reduces the
+ * CPU cost of calculating the {@link #activated} value each time one variable
+ * is modified. Heuristics can instead update their activation incrementally
+ * from the index of the variable modified.
  * </p>
  * <p>
  * Internally, the {@link #activated} flag is stored and returned by
@@ -86,21 +92,50 @@ public abstract class ActivatedHeuristic<T extends Variable> extends AbstractStr
 	abstract protected boolean checkActivated();
 
 	/**
-	 * the monitor on the observed variables.
+	 * called when an observed variable is modified. Only calls {@link #dirty()}
+	 * by default.
+	 *
+	 * @param idx
+	 *          the index of the variable in {@link #observed}
+	 * @param mask
+	 *          the mask of the events on the variable
 	 */
-	protected final IVariableMonitor<Variable> monitor = (v, e) -> dirty();
+	protected void onObservedChange(int idx, int mask) {
+		dirty();
+	}
 
 	protected Variable[] observed;
 
-	public void addMonitors() {
-		for (Variable v : observed) {
-			v.addMonitor(monitor);
+	/**
+	 * A propagator which does not filter, but notifies the heuristic each time
+	 * an observed variable is modified, and for each observed variable on the
+	 * initial propagation. It is posted once in the model, so the heuristic is
+	 * notified as long as the model is searched.
+	 */
+	protected static class Watcher extends Propagator<Variable> {
+
+		protected final ActivatedHeuristic<?> heuristic;
+
+		public Watcher(ActivatedHeuristic<?> heuristic, Variable[] observed) {
+			super(observed, PropagatorPriority.UNARY, true);
+			this.heuristic = heuristic;
+		}
+
+		@Override
+		public void propagate(int evtmask) {
+			for (int i = 0; i < vars.length; i++) {
+				heuristic.onObservedChange(i, evtmask);
+			}
 		}
-	}
 
-	public void remMonitors() {
-		for (Variable v : observed) {
-			v.removeMonitor(monitor);
+		@Override
+		public void propagate(int idxVarInProp, int mask) {
+			heuristic.onObservedChange(idxVarInProp, mask);
+		}
+
+		@Override
+		public ESat isEntailed() {
+			return ESat.TRUE;
 		}
 	}
 
@@ -123,6 +158,9 @@ public abstract class ActivatedHeuristic<T extends Variable> extends AbstractStr
 		assert var != null : "no variable to get the solver from";
 		activated = var.getModel().getEnvironment().makeBool(false);
 		dirty = var.getModel().getEnvironment().makeBool(true);
+		if (observedVars != null && observedVars.length > 0) {
+			new Constraint(getClass().getSimpleName() + ".watcher", new Watcher(this, observedVars)).post();
+		}
 	}
 
 	/**
@@ -21,7 +21,7 @@ import fr.emn.optiplace.solver.choco.ChocoResourcePacker;
  *
  * @author Guillaume Le Louët [guillaume.lelouet@gmail.com]2013
  */
-public class ConfigStrat {
+public class ConfigStrat implements Cloneable {
 
 	@SuppressWarnings("unused")
 	private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(ConfigStrat.class);
@@ -260,4 +260,136 @@ public class ConfigStrat {
 		goalId = id;
 	}
 
+	private int portfolioSize = 0;
+
+	/**
+	 * @return the number of searches to run concurrently. 0 or 1 means a single
+	 *         search.
+	 */
+	public int getPortfolioSize() {
+		return portfolioSize;
+	}
+
+	/**
+	 * Set the number of searches to run concurrently. Each search works on its
+	 * own copy of the problem, with its own heuristic ; they share the best
+	 * objective value found and the first one to prove the optimality stops the
+	 * others.<br />
+	 * The displayers are plugged on each search, so they must be thread-safe.
+	 *
+	 * @param size
+	 *          the number of searches to run. 0 or 1 to keep a single search.
+	 */
+	public void setPortfolioSize(int size) {
+		portfolioSize = size;
+	}
+
+	private boolean lns = false;
+
+	/**
+	 * @return true if the optimization should use a Large Neighborhood Search
+	 */
+	public boolean isLNS() {
+		return lns;
+	}
+
+	/**
+	 * Set whether the optimization uses a Large Neighborhood Search. Once a
+	 * first solution is found, starting from the source placement, the LNS
+	 * repeatedly frees some VMs and searches a better placement for them. This
+	 * search never proves the optimality of its solution, so it should be
+	 * limited with {@link #setMaxSearchTime(long)} ; otherwise it is limited to
+	 * {@link #DEFAULT_LNS_RESTARTS} neighborhoods.
+	 *
+	 * @param lns
+	 *          true to use a LNS when a goal is specified.
+	 */
+	public void setLNS(boolean lns) {
+		this.lns = lns;
+	}
+
+	/** number of neighborhoods explored by a LNS without time limit */
+	public static final int DEFAULT_LNS_RESTARTS = 1000;
+
+	private SearchPolicy searchPolicy = new SearchPolicy();
+
+	/**
+	 * @return the restarts, nogoods, last conflict and fallback heuristic of the
+	 *         search. Can be modified directly.
+	 */
+	public SearchPolicy getSearchPolicy() {
+		return searchPolicy;
+	}
+
+	/**
+	 * @param policy
+	 *          the policy of the search. if null, is reset to default value
+	 */
+	public void setSearchPolicy(SearchPolicy policy) {
+		searchPolicy = policy == null ? new SearchPolicy() : policy;
+	}
+
+	private boolean lazyStates = false;
+
+	/**
+	 * @return true if the state variables of the VMs are only created when a
+	 *         view or heuristic requests them.
+	 */
+	public boolean isLazyStates() {
+		return lazyStates;
+	}
+
+	/**
+	 * Set whether the problem only creates the state variable of a VM when it is
+	 * requested. The state of a VM is deduced from its location, so this reduces
+	 * the size of the problem when the views only use the locations. The state
+	 * variables created after the search are not instantiated.
+	 *
+	 * @param lazy
+	 *          true to create the states on demand.
+	 */
+	public void setLazyStates(boolean lazy) {
+		lazyStates = lazy;
+	}
+
+	private boolean breakSymmetries = false;
+
+	/**
+	 * @return true if the problem forbids the permutations of interchangeable
+	 *         empty computers.
+	 */
+	public boolean isBreakSymmetries() {
+		return breakSymmetries;
+	}
+
+	/**
+	 * Set whether the empty computers with the same capacities and site, which no
+	 * view distinguishes, are ordered by decreasing number of VMs hosted. The
+	 * search then only explores one of their permutations, and the random
+	 * heuristics place the VMs on the first empty computer of each class.
+	 *
+	 * @param breakSymmetries
+	 *          true to break the symmetries of the empty computers.
+	 * @see fr.emn.optiplace.view.ViewAsModule#isInterchangeable
+	 */
+	public void setBreakSymmetries(boolean breakSymmetries) {
+		this.breakSymmetries = breakSymmetries;
+	}
+
+	/**
+	 * @return a copy of this strat, with its own displayers list and search
+	 *         policy. The displayers, the packer and the reducer are shared.
+	 */
+	@Override
+	public ConfigStrat clone() {
+		try {
+			ConfigStrat ret = (ConfigStrat) super.clone();
+			ret.displayers = new ArrayList<>(displayers);
+			ret.searchPolicy = searchPolicy.clone();
+			return ret;
+		} catch (CloneNotSupportedException e) {
+			throw new UnsupportedOperationException(e);
+		}
+	}
+
 }
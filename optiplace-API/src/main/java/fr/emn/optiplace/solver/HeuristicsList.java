@@ -18,13 +18,9 @@ import org.chocosolver.solver.variables.Variable;
  * {@link ActivatedHeuristic} . It computes a decision by returning the first
  * decision not null returned by its activated heuristics.
  * <p>
- * on first call to {@link #getDecision()}, all activatedHeuristics' propagators
- * are added to the problem
- * </p>
- * <p>
- * When all the activatedheuristics returned null( or were not activated), this
- * heuristic is deactivated by the solver ; so all the propagators previously
- * added are now removed from the solver
+ * The activated heuristics are notified of the modifications of their observed
+ * variables by their own propagators, posted when they are created, so this
+ * list does not need to add or remove anything from the problem.
  * </p>
  *
  * @author Guillaume Le Louët [guillaume.lelouet@gmail.com]2014
@@ -51,7 +47,6 @@ public class HeuristicsList extends AbstractStrategy<Variable> {
 	}
 
 	private final ActivatedHeuristic<?>[] leaders;
-	boolean inserted = false;
 
 	protected boolean logActivated = false;
 
@@ -81,12 +76,6 @@ public class HeuristicsList extends AbstractStrategy<Variable> {
 	@SuppressWarnings("unchecked")
 	@Override
 	public Decision<Variable> getDecision() {
-		if (!inserted) {
-			for (ActivatedHeuristic<? extends Variable> element : leaders) {
-				element.addMonitors();
-			}
-			inserted = true;
-		}
 		for (ActivatedHeuristic<? extends Variable> ah : leaders) {
 			if (ah.isActivated()) {
 				Decision<Variable> d = (Decision<Variable>) ah.getDecision();
@@ -98,12 +87,6 @@ public class HeuristicsList extends AbstractStrategy<Variable> {
 				}
 			}
 		}
-		// the heuristics didn't find a decision : we won't be called again by the
-		// solver, so we remove the monitors
-		for (ActivatedHeuristic<? extends Variable> element : leaders) {
-			element.remMonitors();
-		}
-		inserted = false;
 		return null;
 	}
 
@@ -2,13 +2,70 @@ package fr.emn.optiplace.solver;
 
 /**
  * reduce a value to another one. Used to have shorter research time, as finding
- * a solution would
- * 
+ * a solution would require the next solutions to be strictly better than the
+ * reduced value of the best one, instead of better than the best one.
+ * <p>
+ * The reducers are used to take into account the precision of the model : a
+ * solution which is better by less than this precision is not interesting.
+ * </p>
+ *
  * @author Guillaume Le Louët [guillaume.lelouet@gmail.com] 2015
  *
  */
 public interface ObjectiveReducer {
 
+	/**
+	 * @param value
+	 *          the value of the best solution found
+	 * @return the value the next solutions must be strictly lower than. If
+	 *         greater than value, value is used instead.
+	 */
 	public int reduce(int value);
 
+	/**
+	 * @param percent
+	 *          the percentage of the value to remove
+	 * @return a reducer which requires the next solutions to be better by the
+	 *         given percentage of the current one.
+	 */
+	public static ObjectiveReducer relative(double percent) {
+		return v -> (int) (v - Math.ceil(Math.abs((long) v) * percent / 100));
+	}
+
+	/**
+	 * @param epsilon
+	 *          the value to remove
+	 * @return a reducer which requires the next solutions to be better by at
+	 *         least epsilon than the current one.
+	 */
+	public static ObjectiveReducer absolute(int epsilon) {
+		return v -> (int) Math.max(Integer.MIN_VALUE, (long) v - epsilon);
+	}
+
+	/**
+	 * @param base
+	 *          the base of the logarithm, strictly greater than 1
+	 * @return a reducer which splits the positive values in buckets
+	 *         [base^k;base^(k+1)[ and requires the next solutions to be in a lower
+	 *         bucket than the current one.
+	 */
+	public static ObjectiveReducer logarithmic(double base) {
+		if (base <= 1) {
+			throw new IllegalArgumentException("base must be greater than 1 : " + base);
+		}
+		return v -> {
+			if (v <= 1) {
+				return v;
+			}
+			double low = Math.pow(base, Math.floor(Math.log(v) / Math.log(base)));
+			// correct the rounding errors of the log
+			if (low > v) {
+				low /= base;
+			} else if (low * base <= v) {
+				low *= base;
+			}
+			return (int) Math.ceil(low);
+		};
+	}
+
 }
@@ -5,10 +5,13 @@
 package fr.emn.optiplace.solver;
 
 import java.util.*;
+import java.util.function.BiPredicate;
 import java.util.stream.Collectors;
 
 import fr.emn.optiplace.configuration.Computer;
+import fr.emn.optiplace.configuration.IConfiguration;
 import fr.emn.optiplace.configuration.VM;
+import fr.emn.optiplace.configuration.VMLocation;
 import fr.emn.optiplace.configuration.resources.ResourceSpecification;
 import fr.emn.optiplace.solver.choco.IReconfigurationProblem;
 
@@ -114,6 +117,75 @@ public class ProblemStatistics {
 		return getNodeModels().size();
 	}
 
+	/**
+	 * group the computers which can exchange their VMs in a solution without
+	 * changing the other variables of the problem.
+	 * <p>
+	 * Only the computers with no VM hosted nor migrating to them in the source
+	 * configuration are considered. Two of them are in the same class if they
+	 * have the same model, the same site, and are accepted by the predicate,
+	 * which is tested against the first computer of the class and thus should be
+	 * an equivalence.
+	 * </p>
+	 *
+	 * @param interchangeable
+	 *          the predicate which tells whether two computers of the same model
+	 *          are not distinguished, eg by the views
+	 * @return a new list of the classes of at least two computers. Each class is
+	 *         sorted by the index of the computers in the problem.
+	 */
+	public List<List<Computer>> getEmptyNodeClasses(BiPredicate<Computer, Computer> interchangeable) {
+		IConfiguration cfg = target.getSourceConfiguration();
+		Set<VMLocation> targets = cfg.getMigratingVMs().stream().map(cfg::getMigTarget).collect(Collectors.toSet());
+		List<List<Computer>> ret = new ArrayList<>();
+		for (Set<Computer> model : getNodeModels().values()) {
+			if (model.size() < 2) {
+				continue;
+			}
+			Computer[] sorted = model.stream().filter(n -> cfg.nbHosted(n) == 0 && !targets.contains(n))
+					.toArray(Computer[]::new);
+			Arrays.sort(sorted, Comparator.comparingInt(target.b()::location));
+			List<List<Computer>> classes = new ArrayList<>();
+			for (Computer n : sorted) {
+				List<Computer> found = null;
+				for (List<Computer> l : classes) {
+					Computer first = l.get(0);
+					if (Objects.equals(cfg.getSite(first), cfg.getSite(n)) && interchangeable.test(first, n)) {
+						found = l;
+						break;
+					}
+				}
+				if (found == null) {
+					found = new ArrayList<>();
+					classes.add(found);
+				}
+				found.add(n);
+			}
+			classes.stream().filter(l -> l.size() > 1).forEach(ret::add);
+		}
+		ret.sort(Comparator.comparingInt(l -> target.b().location(l.get(0))));
+		return ret;
+	}
+
+	private List<List<Computer>> interchangeableNodes = Collections.emptyList();
+
+	/**
+	 * @return the classes of interchangeable computers whose symmetries are
+	 *         broken in the problem, or an empty list. The heuristics can use
+	 *         them to only select the first empty computer of each class.
+	 */
+	public List<List<Computer>> getInterchangeableNodes() {
+		return interchangeableNodes;
+	}
+
+	/**
+	 * @param classes
+	 *          the classes of interchangeable computers ordered in the problem
+	 */
+	public void setInterchangeableNodes(List<List<Computer>> classes) {
+		interchangeableNodes = classes == null ? Collections.emptyList() : classes;
+	}
+
 	private final HashMap<List<Comparator<? super Computer>>, ArrayList<Computer>> comparators2sorted = new HashMap<>();
 
 	/**
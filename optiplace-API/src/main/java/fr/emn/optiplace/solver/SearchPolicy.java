@@ -0,0 +1,252 @@
+package fr.emn.optiplace.solver;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * How the search explores the tree of a problem, besides the heuristics of the
+ * views : restarts, nogoods recorded on restarts, last conflict reasoning and a
+ * domOverWDeg fallback heuristic.
+ * <p>
+ * The default policy does not change the search. Placement problems with
+ * heavy-tailed resolution times generally benefit from restarts with nogoods,
+ * and from the last conflict reasoning.
+ * </p>
+ *
+ * @author Guillaume Le Louët [guillaume.lelouet@gmail.com] 2017
+ *
+ */
+public class SearchPolicy implements Cloneable {
+
+	@SuppressWarnings("unused")
+	private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(SearchPolicy.class);
+
+	/** the sequence of fails limits between two restarts */
+	public static enum Restarts {
+		/** never restart */
+		NONE,
+		/** Luby sequence : scale*(1,1,2,1,1,2,4,...) */
+		LUBY,
+		/** geometric sequence : scale*factor^n */
+		GEOMETRIC
+	}
+
+	private Restarts restarts = Restarts.NONE;
+
+	private int restartScale = 0;
+
+	private double geometricFactor = 1.5;
+
+	private int restartLimit = 1000;
+
+	private boolean nogoods = false;
+
+	private int lastConflict = 0;
+
+	private boolean domOverWDeg = false;
+
+	private long seed = 0;
+
+	/**
+	 * @return the sequence of restarts
+	 */
+	public Restarts getRestarts() {
+		return restarts;
+	}
+
+	/**
+	 * @param restarts
+	 *          the sequence of restarts to use. null to not restart.
+	 */
+	public void setRestarts(Restarts restarts) {
+		this.restarts = restarts == null ? Restarts.NONE : restarts;
+	}
+
+	/**
+	 * @return the number of fails multiplied by the restart sequence, or 0 to
+	 *         use the number of VMs.
+	 */
+	public int getRestartScale() {
+		return restartScale;
+	}
+
+	/**
+	 * @param scale
+	 *          the number of fails multiplied by the restart sequence. 0 or
+	 *          negative to use the number of VMs of the problem.
+	 */
+	public void setRestartScale(int scale) {
+		restartScale = scale;
+	}
+
+	/**
+	 * @param nbVMs
+	 *          the number of VMs of the problem
+	 * @return the number of fails multiplied by the restart sequence on a problem
+	 *         with nbVMs VMs
+	 */
+	public int getRestartScale(int nbVMs) {
+		return restartScale > 0 ? restartScale : nbVMs + 1;
+	}
+
+	/**
+	 * @return the factor of the geometric restarts
+	 */
+	public double getGeometricFactor() {
+		return geometricFactor;
+	}
+
+	/**
+	 * @param factor
+	 *          the factor of the geometric restarts, greater than 1
+	 */
+	public void setGeometricFactor(double factor) {
+		geometricFactor = factor;
+	}
+
+	/**
+	 * @return the maximum number of restarts
+	 */
+	public int getRestartLimit() {
+		return restartLimit;
+	}
+
+	/**
+	 * @param limit
+	 *          the maximum number of restarts
+	 */
+	public void setRestartLimit(int limit) {
+		restartLimit = limit;
+	}
+
+	/**
+	 * @return true if the nogoods are recorded on restarts
+	 */
+	public boolean isNogoods() {
+		return nogoods;
+	}
+
+	/**
+	 * Set whether the decisions refuted before a restart are recorded as nogoods,
+	 * so they are not explored again after the restart. Only used with restarts.
+	 *
+	 * @param nogoods
+	 *          true to record the nogoods.
+	 */
+	public void setNogoods(boolean nogoods) {
+		this.nogoods = nogoods;
+	}
+
+	/**
+	 * @return the number of conflicting variables the last conflict reasoning
+	 *         tries first, 0 if not used.
+	 */
+	public int getLastConflict() {
+		return lastConflict;
+	}
+
+	/**
+	 * Set the last conflict reasoning : after a failure, the search branches
+	 * first on the variables involved in the last conflicts.
+	 *
+	 * @param k
+	 *          the number of conflicting variables to remember, 0 to disable.
+	 */
+	public void setLastConflict(int k) {
+		lastConflict = k;
+	}
+
+	/**
+	 * @return true if the search ends with a domOverWDeg heuristic
+	 */
+	public boolean isDomOverWDeg() {
+		return domOverWDeg;
+	}
+
+	/**
+	 * Set whether the variables left uninstantiated by the heuristics are
+	 * branched on with a domOverWDeg heuristic, instead of the default search of
+	 * the solver.
+	 *
+	 * @param domOverWDeg
+	 *          true to add the domOverWDeg heuristic.
+	 */
+	public void setDomOverWDeg(boolean domOverWDeg) {
+		this.domOverWDeg = domOverWDeg;
+	}
+
+	/**
+	 * @return the seed of the random choices
+	 */
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * @param seed
+	 *          the seed of the random choices of the searches : the
+	 *          domOverWDeg heuristic, the random heuristics and the LNS
+	 *          neighborhoods. Each search of a portfolio adds its index to this
+	 *          seed.
+	 */
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 * @return true if this policy does not modify the search.
+	 */
+	public boolean isDefault() {
+		return restarts == Restarts.NONE && lastConflict <= 0 && !domOverWDeg;
+	}
+
+	@Override
+	public SearchPolicy clone() {
+		try {
+			return (SearchPolicy) super.clone();
+		} catch (CloneNotSupportedException e) {
+			throw new UnsupportedOperationException(e);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return describe(restartScale > 0 ? "" + restartScale : "nbVMs+1");
+	}
+
+	/**
+	 * @param nbVMs
+	 *          the number of VMs of the problem the policy is applied to
+	 * @return the description of this policy, with the restart scale used on a
+	 *         problem with nbVMs VMs.
+	 */
+	public String toString(int nbVMs) {
+		return describe("" + getRestartScale(nbVMs));
+	}
+
+	protected String describe(String scale) {
+		if (isDefault()) {
+			return "default";
+		}
+		List<String> parts = new ArrayList<>();
+		switch (restarts) {
+		case LUBY:
+			parts.add("luby(scale=" + scale + ", limit=" + restartLimit + ")");
+			break;
+		case GEOMETRIC:
+			parts.add("geometric(scale=" + scale + ", factor=" + geometricFactor + ", limit=" + restartLimit + ")");
+			break;
+		default:
+		}
+		if (nogoods && restarts != Restarts.NONE) {
+			parts.add("nogoods");
+		}
+		if (lastConflict > 0) {
+			parts.add("lastConflict(" + lastConflict + ")");
+		}
+		if (domOverWDeg) {
+			parts.add("domOverWDeg(seed=" + seed + ")");
+		}
+		return String.join(" ", parts);
+	}
+}
@@ -1,13 +1,16 @@
 package fr.emn.optiplace.solver.choco;
 
+import java.util.Arrays;
 import java.util.stream.Stream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import fr.emn.optiplace.configuration.Computer;
+import fr.emn.optiplace.configuration.ElementRegistry;
 import fr.emn.optiplace.configuration.Extern;
 import fr.emn.optiplace.configuration.IConfiguration;
+import fr.emn.optiplace.configuration.ManagedElement;
 import fr.emn.optiplace.configuration.Site;
 import fr.emn.optiplace.configuration.VM;
 import fr.emn.optiplace.configuration.VMLocation;
@@ -20,6 +23,12 @@ import gnu.trove.map.hash.TObjectIntHashMap;
  * nodes and externs are merged in the same "locations" array. also the index of location given as locations.size is
  * return for null, that is if a VM is hosted on a location of index 'location.size()' then it is hosted nowhere
  * </p>
+ * <p>
+ * The index of an element created by an {@link ElementRegistry} is found by reading an array at the element's id. The
+ * other elements are found in a hash map, built on the first such lookup. The bridge is never modified once built, so
+ * it can be shared by the problems built from the same configuration, and reused by
+ * {@link #Bridge(IConfiguration, Bridge)} when the configuration still has the same elements.
+ * </p>
  *
  * @author Guillaume Le Louët
  */
@@ -27,53 +36,155 @@ public class Bridge {
 
 	public static final Logger logger = LoggerFactory.getLogger(Bridge.class);
 
+	/**
+	 * index of an array of elements. The index of an element is retrieved from
+	 * its id if it has one, otherwise from a map.
+	 */
+	protected static final class Index<T extends ManagedElement> {
+
+		protected final T[] elems;
+
+		/** for each id, the index of the element with this id, or -1 */
+		protected final int[] idToIdx;
+
+		/** the value returned for elements not in the array */
+		protected final int missing;
+
+		/** the index of the elements, for those not found by id */
+		private volatile TObjectIntHashMap<T> rev = null;
+
+		protected Index(T[] elems, int missing) {
+			this.elems = elems;
+			this.missing = missing;
+			int maxId = -1;
+			for (T e : elems) {
+				if (e != null && e.getId() > maxId) {
+					maxId = e.getId();
+				}
+			}
+			idToIdx = new int[maxId + 1];
+			Arrays.fill(idToIdx, -1);
+			for (int i = 0; i < elems.length; i++) {
+				T e = elems[i];
+				// elements from different registries can have the same id
+				if (e != null && e.getId() >= 0 && idToIdx[e.getId()] == -1) {
+					idToIdx[e.getId()] = i;
+				}
+			}
+		}
+
+		protected int get(T e) {
+			if (e == null) {
+				return missing;
+			}
+			int id = e.getId();
+			if (id >= 0 && id < idToIdx.length) {
+				int idx = idToIdx[id];
+				if (idx != -1 && (elems[idx] == e || elems[idx].equals(e))) {
+					return idx;
+				}
+			}
+			return rev().get(e);
+		}
+
+		protected TObjectIntHashMap<T> rev() {
+			TObjectIntHashMap<T> ret = rev;
+			if (ret == null) {
+				synchronized (this) {
+					ret = rev;
+					if (ret == null) {
+						ret = new TObjectIntHashMap<>(elems.length, Constants.DEFAULT_LOAD_FACTOR, missing);
+						for (int i = 0; i < elems.length; i++) {
+							if (elems[i] != null) {
+								ret.put(elems[i], i);
+							}
+						}
+						rev = ret;
+					}
+				}
+			}
+			return ret;
+		}
+	}
+
 	private final IConfiguration source;
 
-	private VM[] vms;
-	private TObjectIntHashMap<VM> revVMs;
-	private Computer[] nodes;
-	private Extern[] externs;
-	private VMLocation[] locations;
-	private TObjectIntHashMap<VMLocation> revLocations;
-	private Site[] sites;
-	private TObjectIntHashMap<Site> revSites;
+	private final VM[] vms;
+	private final Index<VM> revVMs;
+	private final Computer[] nodes;
+	private final Index<Computer> revNodes;
+	private final Extern[] externs;
+	private final Index<Extern> revExterns;
+	private final VMLocation[] locations;
+	private final Index<VMLocation> revLocations;
+	private final Site[] sites;
+	private final Index<Site> revSites;
 
 	/** The current location of the placed VMs. */
-	private int[] vmSourceLoc;
+	private final int[] vmSourceLoc;
 
 	/** node i is in site nodeSites[i] */
-	protected int[] locationSites;
+	protected final int[] locationSites;
 
 	/**
 	 * Bridge between the base configuration and the reconfiguration problem.
 	 */
 	public Bridge(IConfiguration source) {
+		this(source, null);
+	}
 
+	/**
+	 * Bridge between the base configuration and the reconfiguration problem,
+	 * reusing the arrays of a previous bridge when the configuration has the
+	 * same elements, in the same order.
+	 *
+	 * @param source
+	 *          the configuration of the problem
+	 * @param previous
+	 *          a bridge built for a previous configuration, or null
+	 */
+	public Bridge(IConfiguration source, Bridge previous) {
 		this.source = source;
-		vms = source.getVMs().toArray(VM[]::new);
-		nodes = source.getComputers().toArray(Computer[]::new);
-		externs = source.getExterns().toArray(Extern[]::new);
-		locations = Stream.concat(source.getComputers(), source.getExterns()).toArray(VMLocation[]::new);
-		sites = Stream.concat(Stream.of((Site) null), source.getSites()).toArray(Site[]::new);
 
-		revVMs = new TObjectIntHashMap<>(vms.length, Constants.DEFAULT_LOAD_FACTOR, -1);
-		for (int i = 0; i < vms.length; i++) {
-			revVMs.put(vms[i], i);
+		VM[] vms = source.getVMs().toArray(VM[]::new);
+		Computer[] nodes = source.getComputers().toArray(Computer[]::new);
+		Extern[] externs = source.getExterns().toArray(Extern[]::new);
+		Site[] sites = Stream.concat(Stream.of((Site) null), source.getSites()).toArray(Site[]::new);
+		if (previous != null && same(vms, previous.vms)) {
+			this.vms = previous.vms;
+			revVMs = previous.revVMs;
+		} else {
+			this.vms = vms;
+			revVMs = new Index<>(vms, -1);
 		}
-
-		revLocations = new TObjectIntHashMap<>(locations.length, Constants.DEFAULT_LOAD_FACTOR, -1);
-		for (int i = 0; i < locations.length; i++) {
-			revLocations.put(locations[i], i);
+		if (previous != null && same(nodes, previous.nodes) && same(externs, previous.externs)) {
+			this.nodes = previous.nodes;
+			revNodes = previous.revNodes;
+			this.externs = previous.externs;
+			revExterns = previous.revExterns;
+			locations = previous.locations;
+			revLocations = previous.revLocations;
+		} else {
+			this.nodes = nodes;
+			revNodes = new Index<>(nodes, -1);
+			this.externs = externs;
+			revExterns = new Index<>(externs, -1);
+			locations = new VMLocation[nodes.length + externs.length];
+			System.arraycopy(nodes, 0, locations, 0, nodes.length);
+			System.arraycopy(externs, 0, locations, nodes.length, externs.length);
+			revLocations = new Index<>(locations, -1);
 		}
-
-		vmSourceLoc = new int[vms.length];
-		for (VM vm : vms) {
-			vmSourceLoc[vm(vm)] = !source.isRunning(vm) ? -1 : location(source.getLocation(vm));
+		if (previous != null && same(sites, previous.sites)) {
+			this.sites = previous.sites;
+			revSites = previous.revSites;
+		} else {
+			this.sites = sites;
+			revSites = new Index<>(sites, 0);
 		}
 
-		revSites = new TObjectIntHashMap<>(sites.length, Constants.DEFAULT_LOAD_FACTOR, 0);
-		for (int i = 0; i < sites.length; i++) {
-			revSites.put(sites[i], i);
+		vmSourceLoc = new int[vms.length];
+		for (int i = 0; i < vms.length; i++) {
+			vmSourceLoc[i] = !source.isRunning(vms[i]) ? -1 : location(source.getLocation(vms[i]));
 		}
 
 		locationSites = new int[locations.length];
@@ -82,6 +193,19 @@ public class Bridge {
 		}
 	}
 
+	/** @return true if the arrays contain the same instances in the same order */
+	protected static boolean same(Object[] a, Object[] b) {
+		if (a.length != b.length) {
+			return false;
+		}
+		for (int i = 0; i < a.length; i++) {
+			if (a[i] != b[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
 	public IConfiguration source() {
 		return source;
 	}
@@ -155,6 +279,16 @@ public class Bridge {
 	 * @return the index of the location in the problem, or {@link #waitIdx()}
 	 */
 	public int location(VMLocation l) {
+		if (l == null) {
+			return -1;
+		}
+		if (l.getClass() == Computer.class) {
+			return revNodes.get((Computer) l);
+		}
+		if (l.getClass() == Extern.class) {
+			int ret = revExterns.get((Extern) l);
+			return ret == -1 ? -1 : ret + nodes.length;
+		}
 		return revLocations.get(l);
 	}
 
@@ -187,7 +321,7 @@ public class Bridge {
 		if (vms == null || source.nbVMs() == 0) {
 			return null;
 		}
-		int[] ret = new int[source.nbVMs()];
+		int[] ret = new int[vms.length];
 		for (int i = 0; i < ret.length; i++) {
 			ret[i] = vm(vms[i]);
 		}
@@ -211,8 +345,7 @@ public class Bridge {
 		if (idx < 0) {
 			return null;
 		}
-		VM[] t = vms();
-		return idx >= t.length ? null : t[idx];
+		return idx >= vms.length ? null : vms[idx];
 	}
 
 	public Site[] sites() {
@@ -227,8 +360,7 @@ public class Bridge {
 		if (idx < 0) {
 			return null;
 		}
-		Site[] t = sites();
-		return idx >= t.length ? null : t[idx];
+		return idx >= sites.length ? null : sites[idx];
 	}
 
 	/**
@@ -23,4 +23,18 @@ public interface ChocoResourcePacker {
    */
 	public List<Constraint> pack(IntVar[] binAssign, ResourceLoad... resourceUse);
 
+	/**
+	 * create the constraints to pack the resources of a problem. Packers which
+	 * need more than the VMs locations, eg the sets of VMs hosted on each
+	 * location, should override this.
+	 *
+	 * @param pb
+	 *          the problem to pack the resources of, after all the resources have
+	 *          been added
+	 * @return the list of constraints to post
+	 */
+	public default List<Constraint> pack(IReconfigurationProblem pb) {
+		return pack(pb.getVMLocations(), pb.getUses());
+	}
+
 }
@@ -0,0 +1,81 @@
+package fr.emn.optiplace.solver.heuristics;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.chocosolver.solver.search.strategy.selectors.values.IntValueSelector;
+import org.chocosolver.solver.variables.IntVar;
+
+import fr.emn.optiplace.configuration.Computer;
+import fr.emn.optiplace.solver.choco.IReconfigurationProblem;
+
+/**
+ * Select the location of a VM with another selector, then replace an empty
+ * computer by the first empty computer of its class of interchangeable
+ * computers.
+ * <p>
+ * When the empty computers of a class are ordered by decreasing number of VMs,
+ * placing a VM on any but the first of them fails on the ordering. This
+ * selector avoids those decisions, while letting the internal selector choose
+ * the class.
+ * </p>
+ *
+ * @author Guillaume Le Louët [guillaume.lelouet@gmail.com] 2017
+ *
+ */
+public class FirstEmptyHostSelector implements IntValueSelector {
+
+	@SuppressWarnings("unused")
+	private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(FirstEmptyHostSelector.class);
+
+	protected final IntValueSelector selector;
+
+	protected final IReconfigurationProblem rp;
+
+	/** location index to the index of its class, or -1 */
+	protected final int[] classOf;
+
+	/** for each class, the location index of its computers in order */
+	protected final int[][] members;
+
+	/**
+	 * @param rp
+	 *          the problem the VMs locations belong to
+	 * @param classes
+	 *          the classes of interchangeable computers, as returned by
+	 *          {@link fr.emn.optiplace.solver.ProblemStatistics#getEmptyNodeClasses}
+	 * @param selector
+	 *          the selector of the locations
+	 */
+	public FirstEmptyHostSelector(IReconfigurationProblem rp, List<List<Computer>> classes, IntValueSelector selector) {
+		this.rp = rp;
+		this.selector = selector;
+		classOf = new int[rp.b().locations().length];
+		Arrays.fill(classOf, -1);
+		members = new int[classes.size()][];
+		for (int i = 0; i < members.length; i++) {
+			members[i] = classes.get(i).stream().mapToInt(rp.b()::location).toArray();
+			for (int idx : members[i]) {
+				classOf[idx] = i;
+			}
+		}
+	}
+
+	@Override
+	public int selectValue(IntVar var) {
+		int ret = selector.selectValue(var);
+		if (ret < 0 || ret >= classOf.length || classOf[ret] == -1 || rp.nbVMsOn(ret).getLB() > 0) {
+			return ret;
+		}
+		for (int idx : members[classOf[ret]]) {
+			if (idx == ret) {
+				break;
+			}
+			if (var.contains(idx) && rp.nbVMsOn(idx).getLB() == 0) {
+				return idx;
+			}
+		}
+		return ret;
+	}
+
+}
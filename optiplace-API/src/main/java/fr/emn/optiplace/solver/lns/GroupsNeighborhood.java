@@ -0,0 +1,154 @@
+package fr.emn.optiplace.solver.lns;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import fr.emn.optiplace.configuration.VM;
+import fr.emn.optiplace.solver.choco.Bridge;
+import fr.emn.optiplace.solver.choco.IReconfigurationProblem;
+
+/**
+ * Neighborhood freeing groups of VMs. Each group is made of locations, whose
+ * hosted VMs are freed, and of VMs. Each neighborhood frees {@link #size}
+ * groups selected randomly.
+ *
+ * @author Guillaume Le Louët [guillaume.lelouet@gmail.com] 2017
+ *
+ */
+public class GroupsNeighborhood extends VMNeighborhood {
+
+	@SuppressWarnings("unused")
+	private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(GroupsNeighborhood.class);
+
+	/** for each group, the index of its locations */
+	protected final int[][] groupLocations;
+
+	/** for each group, the index of its VMs */
+	protected final int[][] groupVMs;
+
+	/** permutation of the groups, the first ones being selected */
+	protected final int[] groups;
+
+	/**
+	 *
+	 * @param pb
+	 *          the problem
+	 * @param seed
+	 *          the seed of the random selection of groups
+	 * @param groupLocations
+	 *          for each group, the index of the locations to free. can be null.
+	 * @param groupVMs
+	 *          for each group, the index of the VMs to free. can be null.
+	 */
+	public GroupsNeighborhood(IReconfigurationProblem pb, long seed, int[][] groupLocations, int[][] groupVMs) {
+		super(pb, seed);
+		int nbGroups = Math.max(groupLocations == null ? 0 : groupLocations.length,
+				groupVMs == null ? 0 : groupVMs.length);
+		this.groupLocations = groupLocations == null ? new int[nbGroups][0] : groupLocations;
+		this.groupVMs = groupVMs == null ? new int[nbGroups][0] : groupVMs;
+		groups = new int[nbGroups];
+		for (int i = 0; i < nbGroups; i++) {
+			groups[i] = i;
+		}
+	}
+
+	public int nbGroups() {
+		return groups.length;
+	}
+
+	@Override
+	protected void selectFreed() {
+		int nb = Math.min(size, groups.length);
+		for (int i = 0; i < nb; i++) {
+			int j = i + random.nextInt(groups.length - i);
+			int g = groups[j];
+			groups[j] = groups[i];
+			groups[i] = g;
+			for (int l : groupLocations[g]) {
+				freeLocation(l);
+			}
+			for (int v : groupVMs[g]) {
+				freeVM(v);
+			}
+		}
+	}
+
+	@Override
+	protected int maxSize() {
+		return groups.length;
+	}
+
+	/**
+	 * @return a new neighborhood with one group per location, including the
+	 *         waiting "location"
+	 */
+	public static GroupsNeighborhood byHost(IReconfigurationProblem pb, long seed) {
+		int[][] locs = new int[pb.b().waitIdx() + 1][];
+		for (int i = 0; i < locs.length; i++) {
+			locs[i] = new int[] { i };
+		}
+		return new GroupsNeighborhood(pb, seed, locs, null);
+	}
+
+	/**
+	 * @return a new neighborhood with one group per site, the locations out of
+	 *         any site being a group too.
+	 */
+	public static GroupsNeighborhood bySite(IReconfigurationProblem pb, long seed) {
+		Bridge b = pb.b();
+		int[] locationSites = b.locationSites();
+		int[] nbLocs = new int[b.sites().length];
+		for (int s : locationSites) {
+			nbLocs[s]++;
+		}
+		int[][] locs = new int[nbLocs.length][];
+		for (int s = 0; s < locs.length; s++) {
+			locs[s] = new int[nbLocs[s]];
+			nbLocs[s] = 0;
+		}
+		for (int l = 0; l < locationSites.length; l++) {
+			int s = locationSites[l];
+			locs[s][nbLocs[s]++] = l;
+		}
+		return new GroupsNeighborhood(pb, seed, locs, null);
+	}
+
+	/**
+	 * @return a new neighborhood with one group per tag. The group of a tag
+	 *         contains the VMs and the locations, or the locations of a site,
+	 *         tagged with it.
+	 */
+	public static GroupsNeighborhood byTag(IReconfigurationProblem pb, long seed) {
+		Bridge b = pb.b();
+		List<String> tags = new ArrayList<>();
+		pb.c().getAllTags().forEach(tags::add);
+		int[][] locs = new int[tags.size()][];
+		int[][] vms = new int[tags.size()][];
+		for (int t = 0; t < tags.size(); t++) {
+			String tag = tags.get(t);
+			vms[t] = pb.c().getVmsTagged(tag).mapToInt(b::vm).filter(i -> i >= 0).toArray();
+			List<Integer> l = new ArrayList<>();
+			for (int i = 0; i < b.locations().length; i++) {
+				if (pb.c().isLocationTagged(b.location(i), tag)) {
+					l.add(i);
+				}
+			}
+			locs[t] = l.stream().mapToInt(Integer::intValue).toArray();
+		}
+		return new GroupsNeighborhood(pb, seed, locs, vms);
+	}
+
+	/**
+	 * @return a new neighborhood with one group per array of VMs given. The VMs
+	 *         not in the problem are ignored.
+	 */
+	public static GroupsNeighborhood byVMs(IReconfigurationProblem pb, long seed, List<VM[]> vmGroups) {
+		Bridge b = pb.b();
+		int[][] vms = new int[vmGroups.size()][];
+		for (int i = 0; i < vms.length; i++) {
+			vms[i] = Stream.of(vmGroups.get(i)).mapToInt(b::vm).filter(v -> v >= 0).toArray();
+		}
+		return new GroupsNeighborhood(pb, seed, null, vms);
+	}
+}
@@ -0,0 +1,46 @@
+package fr.emn.optiplace.solver.lns;
+
+import fr.emn.optiplace.solver.choco.IReconfigurationProblem;
+
+/**
+ * Neighborhood freeing random VMs. The number of VMs freed is {@link #size}
+ * times a step of 1/{@value #NB_STEPS} of the VMs.
+ *
+ * @author Guillaume Le Louët [guillaume.lelouet@gmail.com] 2017
+ *
+ */
+public class RandomVMNeighborhood extends VMNeighborhood {
+
+	@SuppressWarnings("unused")
+	private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(RandomVMNeighborhood.class);
+
+	public static final int NB_STEPS = 50;
+
+	protected final int step;
+
+	public RandomVMNeighborhood(IReconfigurationProblem pb, long seed) {
+		super(pb, seed);
+		step = Math.max(1, locations.length / NB_STEPS);
+	}
+
+	@Override
+	protected void selectFreed() {
+		int nb = Math.min(size * step, locations.length);
+		if (nb == locations.length) {
+			freed.set(0, locations.length);
+			return;
+		}
+		for (int count = 0; count < nb;) {
+			int vm = random.nextInt(locations.length);
+			if (!freed.get(vm)) {
+				freeVM(vm);
+				count++;
+			}
+		}
+	}
+
+	@Override
+	protected int maxSize() {
+		return (locations.length + step - 1) / step;
+	}
+}
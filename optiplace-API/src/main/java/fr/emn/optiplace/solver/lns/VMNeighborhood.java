@@ -0,0 +1,147 @@
+package fr.emn.optiplace.solver.lns;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Random;
+
+import org.chocosolver.solver.Solution;
+import org.chocosolver.solver.search.loop.lns.neighbors.INeighbor;
+import org.chocosolver.solver.search.strategy.assignments.DecisionOperatorFactory;
+import org.chocosolver.solver.search.strategy.decision.DecisionPath;
+import org.chocosolver.solver.variables.IntVar;
+
+import fr.emn.optiplace.solver.choco.IReconfigurationProblem;
+
+/**
+ * A neighborhood for a Large Neighborhood Search on the location of the VMs of
+ * a problem. Each neighborhood fixes the VMs to their location in the last
+ * solution, except for those selected by {@link #selectFreed()}.
+ * <p>
+ * The size of the neighborhood starts at 1 and is increased each time the
+ * search fails to improve the solution, up to {@link #maxSize()}. Its meaning
+ * depends on the implementation, eg the number of hosts freed.
+ * </p>
+ *
+ * @author Guillaume Le Louët [guillaume.lelouet@gmail.com] 2017
+ *
+ */
+public abstract class VMNeighborhood implements INeighbor {
+
+	@SuppressWarnings("unused")
+	private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(VMNeighborhood.class);
+
+	protected final IReconfigurationProblem pb;
+
+	protected final IntVar[] locations;
+
+	/** the location of each VM in the last solution */
+	protected final int[] bestLocations;
+
+	/**
+	 * the VMs in the last solution, ordered by location. The VMs on location i
+	 * are from index locationStart[i] included to locationStart[i+1] excluded.
+	 */
+	protected final int[] locationVMs;
+
+	protected final int[] locationStart;
+
+	/** the VMs to let free in the next neighborhood */
+	protected final BitSet freed;
+
+	protected final Random random;
+
+	/** the size of the next neighborhood */
+	protected int size = 1;
+
+	public VMNeighborhood(IReconfigurationProblem pb, long seed) {
+		this.pb = pb;
+		locations = pb.getVMLocations();
+		bestLocations = new int[locations.length];
+		locationVMs = new int[locations.length];
+		locationStart = new int[pb.b().waitIdx() + 2];
+		freed = new BitSet(locations.length);
+		random = new Random(seed);
+	}
+
+	@Override
+	public void init() {
+		size = 1;
+	}
+
+	@Override
+	public void recordSolution() {
+		for (int i = 0; i < locations.length; i++) {
+			bestLocations[i] = locations[i].getValue();
+		}
+		indexLocations();
+	}
+
+	@Override
+	public void loadFromSolution(Solution solution) {
+		for (int i = 0; i < locations.length; i++) {
+			bestLocations[i] = solution.getIntVal(locations[i]);
+		}
+		indexLocations();
+	}
+
+	/** sort the VMs by their location, and reset the size */
+	protected void indexLocations() {
+		Arrays.fill(locationStart, 0);
+		for (int loc : bestLocations) {
+			locationStart[loc + 1]++;
+		}
+		for (int i = 1; i < locationStart.length; i++) {
+			locationStart[i] += locationStart[i - 1];
+		}
+		int[] pos = Arrays.copyOf(locationStart, locationStart.length - 1);
+		for (int i = 0; i < bestLocations.length; i++) {
+			locationVMs[pos[bestLocations[i]]++] = i;
+		}
+		size = 1;
+	}
+
+	@Override
+	public void fixSomeVariables(DecisionPath decisionPath) {
+		freed.clear();
+		selectFreed();
+		for (int i = freed.nextClearBit(0); i < locations.length; i = freed.nextClearBit(i + 1)) {
+			if (locations[i].contains(bestLocations[i])) {
+				decisionPath.pushDecision(
+						decisionPath.makeIntDecision(locations[i], DecisionOperatorFactory.makeIntEq(), bestLocations[i])
+						.setRefutable(false));
+			}
+		}
+	}
+
+	@Override
+	public void restrictLess() {
+		if (size < maxSize()) {
+			size++;
+		}
+	}
+
+	@Override
+	public boolean isSearchComplete() {
+		return false;
+	}
+
+	/** set the VM hosted on a location in the last solution to be freed */
+	protected void freeLocation(int locIdx) {
+		for (int i = locationStart[locIdx]; i < locationStart[locIdx + 1]; i++) {
+			freed.set(locationVMs[i]);
+		}
+	}
+
+	protected void freeVM(int vmIdx) {
+		freed.set(vmIdx);
+	}
+
+	/**
+	 * select the VMs to let free in the next neighborhood, using
+	 * {@link #freeVM(int)} and {@link #freeLocation(int)}
+	 */
+	protected abstract void selectFreed();
+
+	/** @return the maximum value of the {@link #size} */
+	protected abstract int maxSize();
+}
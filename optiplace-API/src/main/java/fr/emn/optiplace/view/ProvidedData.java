@@ -45,4 +45,29 @@ public interface ProvidedData {
 		return ret;
 	}
 
+	/**
+	 * get a reader which already parsed this data, to avoid reading it again.
+	 *
+	 * @param clazz
+	 *          the class of the reader
+	 * @return a reader of this exact class that read this data, or null if this
+	 *         data does not keep its readers or was not read by such a reader.
+	 */
+	default ProvidedDataReader getParsed(Class<? extends ProvidedDataReader> clazz) {
+		return null;
+	}
+
+	/**
+	 * notify this data was fully read by a shared reader. The data can keep the
+	 * reader to return it in {@link #getParsed(Class)} as long as the data does
+	 * not change.
+	 *
+	 * @param reader
+	 *          the reader which read this data, returned by
+	 *          {@link ProvidedDataReader#sharedReader()}. It is not modified
+	 *          after.
+	 */
+	default void setParsed(ProvidedDataReader reader) {
+	}
+
 }
@@ -23,6 +23,80 @@ public interface ProvidedDataReader {
 		conf.lines().forEach(this::readLine);
 	}
 
+	/**
+	 * read a data in parallel if this reader supports it, or sequentially
+	 * otherwise.
+	 * <p>
+	 * The lines are split among {@link #partial() partial readers}, which parse
+	 * them on the fork-join pool. The partial readers are then merged in the order
+	 * of the lines, and the result is merged into this.
+	 * </p>
+	 *
+	 * @param conf
+	 *          the data to read
+	 */
+	default void readParallel(ProvidedData conf) {
+		if (partial() == null) {
+			read(conf);
+			return;
+		}
+		onNewConfig();
+		ProvidedDataReader merged = conf.lines().parallel().collect(this::partial, ProvidedDataReader::readLine,
+				ProvidedDataReader::merge);
+		merge(merged);
+	}
+
+	/**
+	 * create a new empty reader to parse a part of the lines of a data. A reader
+	 * which returns a non-null value must consider its lines independently and
+	 * implement {@link #merge(ProvidedDataReader)}.
+	 *
+	 * @return a new reader of the same class, or null if this reader can not
+	 *         parse its lines in parallel.
+	 */
+	default ProvidedDataReader partial() {
+		return null;
+	}
+
+	/**
+	 * merge the data parsed by a partial reader into this. The lines parsed by
+	 * the partial reader are considered to come after the lines already read.
+	 *
+	 * @param partial
+	 *          a reader returned by {@link #partial()}
+	 */
+	default void merge(ProvidedDataReader partial) {
+		throw new UnsupportedOperationException("can't merge in " + getClass());
+	}
+
+	/**
+	 * create a new empty reader to parse a data once for all the views using it.
+	 * Each view then reads the shared reader with
+	 * {@link #readFrom(ProvidedDataReader)}, so the shared reader is never
+	 * modified once it parsed its data.
+	 *
+	 * @return a new reader of the same class, or null if the data parsed by this
+	 *         reader can not be shared. The default implementation returns
+	 *         {@link #partial()}, as the readers which merge their partial
+	 *         readers can read from them.
+	 */
+	default ProvidedDataReader sharedReader() {
+		return partial();
+	}
+
+	/**
+	 * read the data already parsed by a shared reader, the same way
+	 * {@link #read(ProvidedData)} reads it. The shared reader is not modified.
+	 * The default implementation merges the shared reader into this.
+	 *
+	 * @param shared
+	 *          a reader returned by {@link #sharedReader()}, which parsed a data
+	 */
+	default void readFrom(ProvidedDataReader shared) {
+		onNewConfig();
+		merge(shared);
+	}
+
 	/**
 	 * parse a configuration line.
 	 *
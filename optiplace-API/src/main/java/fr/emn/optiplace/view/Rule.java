@@ -13,6 +13,7 @@ package fr.emn.optiplace.view;
 import java.util.Arrays;
 import java.util.List;
 
+import fr.emn.optiplace.configuration.Computer;
 import fr.emn.optiplace.configuration.IConfiguration;
 import fr.emn.optiplace.solver.ReconfigurationResult;
 import fr.emn.optiplace.solver.choco.IReconfigurationProblem;
@@ -83,4 +84,21 @@ public interface Rule {
   default boolean isSatisfied(ReconfigurationResult plan) {
     return isSatisfied(plan.getDestination());
   }
+
+  /**
+   * check whether this rule constrains two computers the same way, so that
+   * swapping all the VMs of one with all the VMs of the other keeps this rule
+   * satisfied.
+   *
+   * @param first
+   *            a computer of the problem
+   * @param second
+   *            another computer of the problem, with the same capacities
+   * @return true if the rule does not distinguish the computers. The default
+   *         implementation returns true, so the rules which refer to some
+   *         computers must override it.
+   */
+  default boolean isInterchangeable(Computer first, Computer second) {
+    return true;
+  }
 }
@@ -10,12 +10,15 @@ import java.util.Map;
 import java.util.Set;
 import java.util.stream.Stream;
 
+import org.chocosolver.solver.search.loop.lns.neighbors.INeighbor;
 import org.chocosolver.solver.search.strategy.strategy.AbstractStrategy;
 import org.chocosolver.solver.variables.Variable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import fr.emn.optiplace.actions.ActionGraph;
+import fr.emn.optiplace.configuration.Computer;
+import fr.emn.optiplace.configuration.ConfigurationDelta;
 import fr.emn.optiplace.configuration.IConfiguration;
 import fr.emn.optiplace.solver.choco.IReconfigurationProblem;
 import fr.emn.optiplace.view.annotations.Depends;
@@ -132,6 +135,10 @@ public interface ViewAsModule {
 	 * set the data used in this view. The fields annotated with {@link Parameter}
 	 * are found by reflection, their object is then cast to a ProvidedDataReader
 	 * which then reads the ViewData obtained from the {@link ViewDataProvider}.
+	 * The readers which support it parse each data once in a shared reader,
+	 * kept by the data, and then copy the shared reader. Each view thus keeps
+	 * its own reader, which it can modify. The other readers read their data in
+	 * parallel when they support it.
 	 *
 	 * @param prv
 	 *          the provider of ViewData
@@ -152,7 +159,19 @@ public interface ViewAsModule {
 				try {
 					f.setAccessible(true);
 					ProvidedDataReader pdr = (ProvidedDataReader) f.get(this);
-					pdr.read(d);
+					ProvidedDataReader shared = pdr == null ? null : d.getParsed(pdr.getClass());
+					if (shared == null && pdr != null) {
+						shared = pdr.sharedReader();
+						if (shared != null) {
+							shared.readParallel(d);
+							d.setParsed(shared);
+						}
+					}
+					if (shared != null) {
+						pdr.readFrom(shared);
+					} else {
+						pdr.readParallel(d);
+					}
 				} catch (IllegalArgumentException | IllegalAccessException e) {
 					logger.warn("", e);
 					if (a.required()) {
@@ -238,4 +257,54 @@ public interface ViewAsModule {
 		return Collections.emptyList();
 	}
 
+	/**
+	 * propose neighborhoods for a Large Neighborhood Search of a problem, eg to
+	 * free together VMs which are related in this view.
+	 *
+	 * @param rp
+	 *          the problem this view is associated to
+	 * @param seed
+	 *          the seed of the random selections of the neighborhoods, which
+	 *          differs for each LNS of a portfolio
+	 * @return the list of neighborhoods specific to this view. The default
+	 *         implementation returns an empty list.
+	 */
+	public default List<INeighbor> getNeighborhoods(IReconfigurationProblem rp, long seed) {
+		return Collections.emptyList();
+	}
+
+	/**
+	 * veto the symmetry breaking between two computers. Two empty computers with
+	 * the same capacities are considered interchangeable by the solver, which
+	 * then only explores one of their permutations ; a view which associates
+	 * different data to them (power model, cost, position) must return false.
+	 *
+	 * @param first
+	 *          a computer of the problem
+	 * @param second
+	 *          another computer of the problem, with the same capacities and site
+	 * @return true if the view does not distinguish the two computers. The
+	 *         default implementation returns true if all the rules of the view
+	 *         accept it.
+	 */
+	public default boolean isInterchangeable(Computer first, Computer second) {
+		return rulesStream().allMatch(r -> r.isInterchangeable(first, second));
+	}
+
+	/**
+	 * veto the patching of the problems this view is associated to. A problem
+	 * can be patched when the source only changes by the uses of the VMs and the
+	 * capacities of the computers. The data this view read from the source when
+	 * it was associated is not updated.
+	 *
+	 * @param delta
+	 *          the changes from the source the problem was built from
+	 * @return true if the constraints of the view remain valid after the
+	 *         changes of the delta. The default implementation returns false, so
+	 *         the problem is built again.
+	 */
+	public default boolean isPatchable(ConfigurationDelta delta) {
+		return false;
+	}
+
 }
@@ -238,6 +238,14 @@ public interface CoreView {
 	 */
 	public SetVar getHostedOn(VMLocation location);
 
+	/**
+	 * @param locIdx
+	 *          the index of a location, or b().waitIdx() for the VMs not hosted
+	 * @return the set of all VMs hosted on this location in the dest
+	 *         configuration
+	 */
+	public SetVar getHostedOn(int locIdx);
+
 	/**
 	 * @param n
 	 *            a node of the problem
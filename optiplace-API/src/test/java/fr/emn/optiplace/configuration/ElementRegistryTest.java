@@ -0,0 +1,89 @@
+package fr.emn.optiplace.configuration;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * @author Guillaume Le Louët [guillaume.lelouet@gmail.com] 2017
+ *
+ */
+public class ElementRegistryTest {
+
+	@SuppressWarnings("unused")
+	private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(ElementRegistryTest.class);
+
+	@Test
+	public void testInterning() {
+		ElementRegistry test = new ElementRegistry();
+		VM v0 = test.vm("v0");
+		Assert.assertSame(test.vm("V0"), v0);
+		Assert.assertEquals(v0, new VM("v0"));
+		Assert.assertEquals(v0.hashCode(), new VM("V0").hashCode());
+		Assert.assertEquals(v0.getId(), 0);
+		Assert.assertEquals(new VM("v0").getId(), -1);
+		Assert.assertEquals(test.vm("v1").getId(), 1);
+		Assert.assertSame(test.vm(1), test.vm("v1"));
+		Assert.assertNull(test.vm(2));
+
+		// each type has its own ids, but the computers and externs share them
+		Computer n0 = test.computer("v0");
+		Assert.assertEquals(n0.getId(), 0);
+		Assert.assertNotEquals(n0, v0);
+		Assert.assertSame(test.intern(new Computer("V0")), n0);
+		Extern e = test.extern("e");
+		Assert.assertEquals(e.getId(), 1);
+		Assert.assertSame(test.location(1), e);
+		Assert.assertNull(test.computer(1));
+		Assert.assertEquals(test.site("s").getId(), 0);
+		Assert.assertEquals(test.nbVMs(), 2);
+		Assert.assertEquals(test.nbLocations(), 2);
+
+		Assert.assertSame(test.registered(new Extern("E")), e);
+		Assert.assertNull(test.registered(new Computer("e")));
+		Assert.assertSame(test.registered("S"), test.site("s"));
+		Assert.assertNull(test.registered("unknown"));
+		Assert.assertEquals(test.nbVMs(), 2);
+	}
+
+	@Test
+	public void testRemove() {
+		ElementRegistry test = new ElementRegistry();
+		VM v0 = test.vm("v0");
+		test.vm("v1");
+		Assert.assertFalse(test.remove(new VM("v0")));
+		Assert.assertSame(test.vm("v0"), v0);
+		Assert.assertTrue(test.remove(v0));
+		Assert.assertFalse(test.remove(v0));
+		Assert.assertNull(test.vm(0));
+		// the name is given a new id
+		VM other = test.vm("v0");
+		Assert.assertNotSame(other, v0);
+		Assert.assertEquals(other, v0);
+		Assert.assertEquals(other.getId(), 2);
+		Assert.assertEquals(test.nbVMs(), 3);
+		// removing the previous instance does not remove the new one
+		Assert.assertFalse(test.remove(v0));
+		Assert.assertSame(test.vm("v0"), other);
+	}
+
+	@Test
+	public void testConcurrentIds() {
+		ElementRegistry test = new ElementRegistry();
+		Set<VM> vms = IntStream.range(0, 10000).parallel().mapToObj(i -> test.vm("v" + i % 1000))
+				.collect(Collectors.toSet());
+		Assert.assertEquals(vms.size(), 1000);
+		Assert.assertEquals(test.nbVMs(), 1000);
+		Set<Integer> ids = vms.stream().map(VM::getId).collect(Collectors.toSet());
+		Assert.assertEquals(ids, IntStream.range(0, 1000).boxed().collect(Collectors.toSet()));
+		for (VM v : vms) {
+			Assert.assertSame(test.vm(v.getId()), v);
+		}
+		Assert.assertEquals(new HashSet<>(Arrays.asList(new VM("a"), new VM("A"))).size(), 1);
+	}
+}
@@ -3,8 +3,14 @@
  */
 package fr.emn.optiplace.solver;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.chocosolver.solver.Cause;
 import org.chocosolver.solver.Model;
 import org.chocosolver.solver.Solution;
+import org.chocosolver.solver.exception.ContradictionException;
 import org.chocosolver.solver.search.strategy.assignments.DecisionOperatorFactory;
 import org.chocosolver.solver.search.strategy.decision.Decision;
 import org.chocosolver.solver.variables.IntVar;
@@ -92,7 +98,7 @@ public class HeuristicsListTest {
 		}
 	}
 
-	// @Test
+	@Test
 	public void testLaunch2Vars() {
 		Model s = new Model();
 		IntVar a = s.intVar("a", 0, 1, true);
@@ -110,7 +116,7 @@ public class HeuristicsListTest {
 		Assert.assertEquals(sol.getIntVal(b), 1);
 	}
 
-	// @Test(dependsOnMethods = "testLaunch2Vars")
+	@Test(dependsOnMethods = "testLaunch2Vars")
 	public void testLaunch3Vars() {
 		Model s = new Model();
 		IntVar a = s.intVar("a", 0, 3, true);
@@ -130,4 +136,44 @@ public class HeuristicsListTest {
 		Assert.assertEquals(sol.getIntVal(b), 1);
 		Assert.assertEquals(sol.getIntVal(c), 2);
 	}
+
+	/** records the index of the observed variables modified */
+	private static class RecordingActivatedHeuristic extends ActivatedHeuristic<IntVar> {
+
+		protected final List<Integer> changed = new ArrayList<>();
+
+		protected RecordingActivatedHeuristic(IntVar... vars) {
+			super(vars, vars);
+		}
+
+		@Override
+		protected void onObservedChange(int idx, int mask) {
+			changed.add(idx);
+			super.onObservedChange(idx, mask);
+		}
+
+		@Override
+		protected boolean checkActivated() {
+			return false;
+		}
+
+		@Override
+		public Decision<IntVar> getDecision() {
+			return null;
+		}
+	}
+
+	@Test
+	public void testObservedIndex() throws ContradictionException {
+		Model s = new Model();
+		IntVar[] vars = s.intVarArray("x", 3, 0, 2);
+		RecordingActivatedHeuristic test = new RecordingActivatedHeuristic(vars);
+		s.getSolver().propagate();
+		// the initial propagation notifies all the variables
+		Assert.assertEquals(test.changed, Arrays.asList(0, 1, 2));
+		test.changed.clear();
+		vars[1].instantiateTo(0, Cause.Null);
+		s.getSolver().propagate();
+		Assert.assertEquals(test.changed, Arrays.asList(1));
+	}
 }
@@ -0,0 +1,41 @@
+package fr.emn.optiplace.solver;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * @author Guillaume Le Louët [guillaume.lelouet@gmail.com] 2017
+ *
+ */
+public class ObjectiveReducerTest {
+
+	@SuppressWarnings("unused")
+	private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(ObjectiveReducerTest.class);
+
+	@Test
+	public void testRelative() {
+		ObjectiveReducer r = ObjectiveReducer.relative(10);
+		Assert.assertEquals(r.reduce(1000), 900);
+		Assert.assertEquals(r.reduce(15), 13);
+		Assert.assertEquals(r.reduce(0), 0);
+	}
+
+	@Test
+	public void testAbsolute() {
+		ObjectiveReducer r = ObjectiveReducer.absolute(5);
+		Assert.assertEquals(r.reduce(100), 95);
+		Assert.assertEquals(r.reduce(Integer.MIN_VALUE + 2), Integer.MIN_VALUE);
+	}
+
+	@Test
+	public void testLogarithmic() {
+		ObjectiveReducer r = ObjectiveReducer.logarithmic(10);
+		Assert.assertEquals(r.reduce(1000), 1000);
+		Assert.assertEquals(r.reduce(999), 100);
+		Assert.assertEquals(r.reduce(150), 100);
+		Assert.assertEquals(r.reduce(1), 1);
+		r = ObjectiveReducer.logarithmic(2);
+		Assert.assertEquals(r.reduce(1023), 512);
+		Assert.assertEquals(r.reduce(1024), 1024);
+	}
+}
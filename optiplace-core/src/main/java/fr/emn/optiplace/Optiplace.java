@@ -8,24 +8,40 @@ package fr.emn.optiplace;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import org.chocosolver.solver.Cause;
+import org.chocosolver.solver.Model;
+import org.chocosolver.solver.ParallelPortfolio;
 import org.chocosolver.solver.Solution;
-import org.chocosolver.solver.constraints.Constraint;
+import org.chocosolver.solver.Solver;
 import org.chocosolver.solver.exception.ContradictionException;
+import org.chocosolver.solver.search.limits.FailCounter;
+import org.chocosolver.solver.search.loop.lns.neighbors.INeighbor;
+import org.chocosolver.solver.search.loop.lns.neighbors.SequenceNeighborhood;
+import org.chocosolver.solver.search.loop.monitors.IMonitorSolution;
+import org.chocosolver.solver.search.loop.monitors.NogoodFromRestarts;
 import org.chocosolver.solver.search.measure.IMeasures;
 import org.chocosolver.solver.search.strategy.Search;
+import org.chocosolver.solver.search.strategy.selectors.values.IntDomainMin;
+import org.chocosolver.solver.search.strategy.selectors.values.IntValueSelector;
+import org.chocosolver.solver.search.strategy.selectors.variables.DomOverWDeg;
+import org.chocosolver.solver.search.strategy.selectors.variables.Random;
 import org.chocosolver.solver.search.strategy.strategy.AbstractStrategy;
 import org.chocosolver.solver.search.strategy.strategy.FindAndProve;
+import org.chocosolver.solver.variables.IntVar;
 import org.chocosolver.solver.variables.SetVar;
 import org.chocosolver.solver.variables.Variable;
 
 import fr.emn.optiplace.actions.Allocate;
 import fr.emn.optiplace.actions.Migrate;
+import fr.emn.optiplace.configuration.Computer;
 import fr.emn.optiplace.configuration.Configuration;
-import fr.emn.optiplace.configuration.Extern;
+import fr.emn.optiplace.configuration.ConfigurationDelta;
 import fr.emn.optiplace.configuration.IConfiguration;
 import fr.emn.optiplace.configuration.IConfiguration.VMSTATES;
 import fr.emn.optiplace.configuration.VM;
@@ -33,12 +49,23 @@ import fr.emn.optiplace.configuration.resources.ResourceSpecification;
 import fr.emn.optiplace.core.ReconfigurationProblem;
 import fr.emn.optiplace.core.heuristics.DummyPlacementHeuristic;
 import fr.emn.optiplace.core.heuristics.NoWaitingHeuristic;
+import fr.emn.optiplace.core.heuristics.RandomLocationSelector;
 import fr.emn.optiplace.core.heuristics.StickVMsHeuristic;
 import fr.emn.optiplace.core.packers.DefaultPacker;
 import fr.emn.optiplace.solver.ActivatedHeuristic;
+import fr.emn.optiplace.solver.ConfigStrat;
 import fr.emn.optiplace.solver.HeuristicsList;
+import fr.emn.optiplace.solver.ObjectiveReducer;
+import fr.emn.optiplace.solver.SearchPolicy;
+import fr.emn.optiplace.solver.SearchPolicy.Restarts;
+import fr.emn.optiplace.solver.SolvingStatistics;
+import fr.emn.optiplace.solver.choco.Bridge;
 import fr.emn.optiplace.solver.choco.ChocoResourcePacker;
+import fr.emn.optiplace.solver.choco.ReducedObjManager;
+import fr.emn.optiplace.solver.heuristics.FirstEmptyHostSelector;
 import fr.emn.optiplace.solver.heuristics.Static2Activated;
+import fr.emn.optiplace.solver.lns.GroupsNeighborhood;
+import fr.emn.optiplace.solver.lns.RandomVMNeighborhood;
 import fr.emn.optiplace.view.SearchGoal;
 import fr.emn.optiplace.view.ViewAsModule;
 
@@ -67,10 +94,71 @@ public class Optiplace extends IOptiplace {
 
 	protected Solution lastSolution = null;
 
+	/**
+	 * the copies of the problem searched concurrently, when the strat requires a
+	 * portfolio. Those are built before the problem, so the views are finally
+	 * associated to the problem.
+	 */
+	protected final List<ReconfigurationProblem> workers = new ArrayList<>();
+
+	/**
+	 * the solutions recording the last solution found by each worker, or null
+	 * before their first search
+	 */
+	protected Solution[] workerSolutions = null;
+
+	/** the solver which found the solution */
+	protected Solver searchSolver = null;
+
+	/**
+	 * copy of the source configuration the problems were built from, before the
+	 * views modify it. Used to detect the changes in
+	 * {@link #resolve(IConfiguration)}
+	 */
+	protected IConfiguration lastSource = null;
+
+	/**
+	 * configuration to warm-start the search from, typically the last
+	 * destination found. The VMs are first placed on their computer in the hint,
+	 * then on their computer in the source.
+	 */
+	protected IConfiguration hint = null;
+
+	/**
+	 * the bridge of the last problems built, shared by the workers and reused by
+	 * the next problems if the elements did not change
+	 */
+	protected Bridge bridge = null;
+
+	/** called on each solution found, or null */
+	protected Consumer<ReconfigurationProblem> solutionListener = null;
+
+	/**
+	 * set a listener of the solutions found by the next problems built. With a
+	 * portfolio, it is called by the thread of each worker with the worker which
+	 * found the solution, so it must be thread-safe and the objective values it
+	 * receives are not ordered.
+	 *
+	 * @param listener
+	 *          called with the problem, instantiated to the solution, each time
+	 *          a solution is found. null to remove the listener.
+	 */
+	public void onSolution(Consumer<ReconfigurationProblem> listener) {
+		solutionListener = listener;
+	}
+
 	public ReconfigurationProblem getProblem() {
 		return problem;
 	}
 
+	/**
+	 * @return the copies of the problem searched concurrently, empty if the
+	 *         strat does not require a portfolio.
+	 */
+	public List<ReconfigurationProblem> getWorkers() {
+		return workers;
+	}
+
 	public Optiplace() {
 		this(new Configuration());
 	}
@@ -79,9 +167,127 @@ public class Optiplace extends IOptiplace {
 		source(src);
 	}
 
+	/**
+	 * solve a new source configuration, warm-started from the last destination
+	 * found. The problems already built are reused, with the objective and the
+	 * heuristics of their first search, if the new source only changes from
+	 * the source they were built from by the uses of the VMs and the capacities
+	 * of the computers, and if the views accept those changes. see
+	 * {@link ReconfigurationProblem#patch(IConfiguration, ConfigurationDelta)}.
+	 * Otherwise a new problem is built, since the views inject the data of the
+	 * source in the problem.
+	 * <p>
+	 * The views and the strat must not have been modified since the last solve.
+	 * </p>
+	 *
+	 * @param next
+	 *          the new source configuration.
+	 * @return a new target for the configuration.
+	 */
+	public DeducedTarget resolve(IConfiguration next) {
+		ConfigurationDelta delta = problem == null || lastSource == null ? null
+				: ConfigurationDelta.between(lastSource, next);
+		hint = target.getDestination();
+		target = new DeducedTarget();
+		lastSolution = null;
+		if (delta == null || !reuseProblem(next, delta)) {
+			logger.debug("building a new problem for changes " + delta);
+			source(next);
+			return solve();
+		}
+		try {
+			makeSearch();
+			extractData();
+		} catch (Exception e) {
+			logger.warn("exception while solving " + this, e);
+		}
+		return target;
+	}
+
+	/**
+	 * reset the solvers of the problem and the workers, and patch them with the
+	 * changes of the source, so they can be searched again. Their objective and
+	 * heuristics are kept.
+	 *
+	 * @param next
+	 *          the new source configuration
+	 * @param delta
+	 *          the changes from the source the problems were built from
+	 * @return true if the problems can be searched again, false if they must be
+	 *         built again.
+	 */
+	protected boolean reuseProblem(IConfiguration next, ConfigurationDelta delta) {
+		if (!delta.isEmpty()) {
+			for (ViewAsModule v : views) {
+				if (!v.isPatchable(delta)) {
+					return false;
+				}
+			}
+		}
+		long st = System.nanoTime();
+		resetSearch(problem);
+		// the workers are built the same way as the problem
+		if (!problem.patch(next, delta)) {
+			return false;
+		}
+		for (ReconfigurationProblem w : workers) {
+			resetSearch(w);
+			if (!w.patch(next, delta)) {
+				logger.warn("can't patch worker " + w + " with " + delta + " while the problem was patched");
+				return false;
+			}
+		}
+		if (!delta.isEmpty()) {
+			source(next);
+		}
+		target.setBuildTime(System.nanoTime() - st);
+		target.setProblem(problem);
+		target.setSearchPolicy(strat.getSearchPolicy().toString(problem.b().vms().length));
+		return true;
+	}
+
+	/**
+	 * bring the solver of a problem back to the root world, so it can search
+	 * the problem again with the same heuristics.
+	 */
+	protected void resetSearch(ReconfigurationProblem pb) {
+		Solver solver = pb.getSolver();
+		solver.reset();
+		// the solution restored by the last search is in the world above the root
+		pb.getModel().getEnvironment().worldPopUntil(0);
+		// the nogoods of the previous search depend on its objective cuts
+		if (nogoodRecorders.containsKey(solver)) {
+			recordNogoods(solver);
+		} else {
+			pb.getModel().removeNogoodStore();
+		}
+		if (strat.getMaxSearchTime() > 0) {
+			solver.limitTime(strat.getMaxSearchTime());
+		}
+	}
+
+	/** the recorders of the nogoods of the solvers, for the policies with nogoods */
+	protected final Map<Solver, NogoodFromRestarts> nogoodRecorders = new HashMap<>();
+
+	/**
+	 * record the nogoods from the restarts of a solver in a new store, replacing
+	 * the store of its previous search.
+	 */
+	protected void recordNogoods(Solver solver) {
+		NogoodFromRestarts previous = nogoodRecorders.remove(solver);
+		if (previous != null) {
+			solver.unplugMonitor(previous);
+		}
+		solver.getModel().removeNogoodStore();
+		NogoodFromRestarts recorder = new NogoodFromRestarts(solver.getModel());
+		solver.plugMonitor(recorder);
+		nogoodRecorders.put(solver, recorder);
+	}
+
 	@Override
 	public void makeProblem() {
 		long st = System.nanoTime();
+		lastSource = source.clone();
 
 		// each view can pre-process the configuration, creating or removing VM,
 		// computers, etc.
@@ -89,7 +295,32 @@ public class Optiplace extends IOptiplace {
 			v.preProcessConfig(source);
 		}
 
-		problem = new ReconfigurationProblem(source);
+		bridge = new Bridge(source, bridge);
+		workers.clear();
+		workerSolutions = null;
+		nogoodRecorders.clear();
+		if (strat.getPortfolioSize() > 1) {
+			for (int i = 0; i < strat.getPortfolioSize(); i++) {
+				problem = buildProblem();
+				configSearch(i);
+				workers.add(problem);
+			}
+		}
+		problem = buildProblem();
+
+		target.setBuildTime(System.nanoTime() - st);
+		target.setProblem(problem);
+	}
+
+	/**
+	 * create a new problem from the source configuration and the bridge, and
+	 * associate the views to it.
+	 *
+	 * @return a new problem, with the views' rules and the resources packing
+	 *         injected.
+	 */
+	protected ReconfigurationProblem buildProblem() {
+		ReconfigurationProblem problem = new ReconfigurationProblem(source, bridge, strat.isLazyStates());
 
 		for (ViewAsModule view : views) {
 			view.associate(problem);
@@ -104,61 +335,84 @@ public class Optiplace extends IOptiplace {
 			}
 			// all the resources should be added now, we pack them using the packing
 			// constraint.
-			for (Constraint c : packer.pack(problem.getVMLocations(), problem.getUses())) {
-				problem.getModel().post(c);
-			}
+			problem.pack(packer);
 		}
-		// forbid the VM from extern with insufficient resources
-		if (source.nbExterns() > 0) {
-			for (String resName : problem.knownResources()) {
-				ResourceSpecification spec = problem.getResourceSpecification(resName);
-				for (int externIdx = problem.b().firstExtIdx(); externIdx <= problem.b().lastExtIdx(); externIdx++) {
-					Extern e = (Extern) problem.b().location(externIdx);
-					SetVar vms = problem.getHostedOn(externIdx);
-					int cap = spec.getCapacity(e);
-					for (int vmIdx = 0; vmIdx < problem.b.vms().length; vmIdx++) {
-						VM v = problem.b.vm(vmIdx);
-						int use = spec.getUse(v);
-						if (use > cap) {
-							logger.debug("resource " + resName + " prevents vm " + v + " using " + use
-									+ " from being hosted on extern " + e + " with cap " + cap);
-							try {
-								vms.remove(vmIdx, Cause.Null);
-							} catch (ContradictionException e1) {
-								logger.warn("while removing " + vmIdx + " from " + vms, e1);
-							}
-						}
-					}
-				}
-			}
+		if (strat.isBreakSymmetries()) {
+			breakSymmetries(problem);
 		}
+		// forbid the VM from extern with insufficient resources, for the resources
+		// added by the views
+		problem.filterExterns();
+		return problem;
+	}
 
-		target.setBuildTime(System.nanoTime() - st);
-		target.setProblem(problem);
+	/**
+	 * order the interchangeable empty computers of a problem by decreasing number
+	 * of VMs hosted, so the search does not explore their permutations. The
+	 * computers are interchangeable if no view distinguishes them.
+	 *
+	 * @param pb
+	 *          the problem, with the views associated.
+	 */
+	protected void breakSymmetries(ReconfigurationProblem pb) {
+		List<List<Computer>> classes = pb.getStatistics()
+				.getEmptyNodeClasses((c1, c2) -> views.stream().allMatch(v -> v.isInterchangeable(c1, c2)));
+		for (List<Computer> l : classes) {
+			for (int i = 1; i < l.size(); i++) {
+				pb.post(pb.getModel().arithm(pb.nbVMsOn(l.get(i - 1)), ">=", pb.nbVMsOn(l.get(i))));
+			}
+		}
+		pb.getStatistics().setInterchangeableNodes(classes);
+		logger.debug("ordered " + classes.size() + " classes of interchangeable computers");
 	}
 
 	@Override
 	public void configLogging() {
+		if (workers.isEmpty()) {
+			configLogging(problem);
+		} else {
+			workers.forEach(this::configLogging);
+		}
+	}
+
+	protected void configLogging(ReconfigurationProblem pb) {
+		Solver solver = pb.getSolver();
 		if (strat.isLogSolutions() || strat.isLogChoices() || strat.isLogContradictions()) {
 			if (strat.isLogStats()) {
-				problem.getSolver().showStatistics();
+				solver.showStatistics();
 			}
 			if (strat.isLogSolutions()) {
-				problem.getSolver().showSolutions();
+				solver.showSolutions();
 			}
 			if (strat.isLogChoices()) {
-				problem.getSolver().showDecisions();
+				solver.showDecisions();
 			}
 			if (strat.isLogContradictions()) {
-				problem.getSolver().showContradiction();
+				solver.showContradiction();
 			}
 		}
-		strat.getDisplayers().forEach(problem.getSolver()::plugMonitor);
+		strat.getDisplayers().forEach(solver::plugMonitor);
+		Consumer<ReconfigurationProblem> listener = solutionListener;
+		if (listener != null) {
+			solver.plugMonitor((IMonitorSolution) () -> listener.accept(pb));
+		}
 	}
 
 	@Override
 	public void configSearch() {
 		long st = System.nanoTime();
+		configSearch(0);
+		target.setConfigTime(System.nanoTime() - st);
+	}
+
+	/**
+	 * set the objective and the heuristic of the problem.
+	 *
+	 * @param variant
+	 *          the index of the heuristic to use, 0 for the default one. see
+	 *          {@link #makeHeuristic(SearchGoal, int)}
+	 */
+	protected void configSearch(int variant) {
 		// get the goal if any
 		SearchGoal goalMaker = null;
 		String goalId = strat.getGoalId();
@@ -182,21 +436,15 @@ public class Optiplace extends IOptiplace {
 			}
 			throw new UnsupportedOperationException("can not find goal with id " + goalId);
 		}
-		AbstractStrategy<Variable> find = null;
-		if (!strat.isDisableCheckSource() && problem.getSourceConfiguration().nbVMs(VMSTATES.WAITING) <= 5) {
-			find = makeFindHeuristic();
-		}
-		AbstractStrategy<Variable> prove = makeProveHeuristic(goalMaker);
-		if (find == null) {
-			problem.getSolver().setSearch(prove);
-		} else {
-			Variable[] vars = problem.getModel().getVars();
-			if (vars != null) {
-				problem.getSolver().setSearch(new FindAndProve<>(problem.getModel().getVars(), find, prove));
-			} else {
-				problem.getSolver().setSearch(prove);
-			}
+		SearchPolicy policy = strat.getSearchPolicy();
+		int nbVMs = problem.b().vms().length;
+		problem.getSolver().setSearch(applyPolicy(makeHeuristic(goalMaker, variant), policy, variant));
+		if (variant >= NB_HEURISTIC_VARIANTS && policy.getRestarts() == Restarts.NONE) {
+			// random searches need restarts to explore several parts of the tree
+			problem.getSolver().setLubyRestart(policy.getRestartScale(nbVMs), new FailCounter(problem.getModel(), 1),
+					policy.getRestartLimit());
 		}
+		target.setSearchPolicy(policy.toString(nbVMs));
 
 		if (strat.getMaxSearchTime() > 0) {
 			problem.getSolver().limitTime(strat.getMaxSearchTime());
@@ -206,12 +454,167 @@ public class Optiplace extends IOptiplace {
 			problem.setObjective(null);
 		}
 
-		target.setConfigTime(System.nanoTime() - st);
+		if (strat.isLNS() && problem.getObjective() != null) {
+			configLNS(policy.getSeed() + variant);
+		} else {
+			configRestarts(policy);
+		}
+	}
+
+	/**
+	 * wrap the heuristic of a search with the domOverWDeg fallback and the last
+	 * conflict reasoning of the policy.
+	 *
+	 * @param heuristic
+	 *          the heuristic of the search
+	 * @param policy
+	 *          the policy of the search
+	 * @param variant
+	 *          the index of the search, added to the seed of the policy
+	 * @return a new heuristic, or heuristic if the policy does not modify it.
+	 */
+	@SuppressWarnings("unchecked")
+	protected AbstractStrategy<Variable> applyPolicy(AbstractStrategy<Variable> heuristic, SearchPolicy policy,
+			int variant) {
+		AbstractStrategy<Variable> ret = heuristic;
+		if (policy.isDomOverWDeg()) {
+			IntVar[] vars = problem.getModel().retrieveIntVars(true);
+			if (vars.length > 0) {
+				ret = Search.sequencer(ret, new DomOverWDeg(vars, policy.getSeed() + variant, new IntDomainMin()));
+			}
+		}
+		if (policy.getLastConflict() > 0) {
+			ret = Search.lastConflict(ret, policy.getLastConflict());
+		}
+		return ret;
+	}
+
+	/**
+	 * set the restarts and the nogoods of the policy on the problem's solver.
+	 * Not used with a LNS, which restarts on each neighborhood.
+	 */
+	protected void configRestarts(SearchPolicy policy) {
+		int scale = policy.getRestartScale(problem.b().vms().length);
+		Solver solver = problem.getSolver();
+		switch (policy.getRestarts()) {
+		case LUBY:
+			solver.setLubyRestart(scale, new FailCounter(problem.getModel(), 1), policy.getRestartLimit());
+			break;
+		case GEOMETRIC:
+			solver.setGeometricalRestart(scale, policy.getGeometricFactor(), new FailCounter(problem.getModel(), 1),
+					policy.getRestartLimit());
+			break;
+		default:
+			return;
+		}
+		if (policy.isNogoods()) {
+			recordNogoods(solver);
+		}
+	}
+
+	/** number of fails before a LNS neighborhood is dropped */
+	public static final int LNS_FAILS_LIMIT = 100;
+
+	/**
+	 * set a Large Neighborhood Search on the problem. The neighborhoods are
+	 * selected in sequence, from the host, site, tag and random neighborhoods as
+	 * well as the neighborhoods of the views.
+	 *
+	 * @param seed
+	 *          the seed of the neighborhoods random selections
+	 */
+	protected void configLNS(long seed) {
+		List<INeighbor> neighbors = new ArrayList<>();
+		neighbors.add(GroupsNeighborhood.byHost(problem, seed));
+		if (source.nbSites() > 0) {
+			neighbors.add(GroupsNeighborhood.bySite(problem, seed));
+		}
+		GroupsNeighborhood byTag = GroupsNeighborhood.byTag(problem, seed);
+		if (byTag.nbGroups() > 0) {
+			neighbors.add(byTag);
+		}
+		neighbors.add(new RandomVMNeighborhood(problem, seed));
+		for (ViewAsModule v : views) {
+			neighbors.addAll(v.getNeighborhoods(problem, seed));
+		}
+		Solver solver = problem.getSolver();
+		solver.setLNS(new SequenceNeighborhood(neighbors.toArray(new INeighbor[0])),
+				new FailCounter(problem.getModel(), LNS_FAILS_LIMIT));
+		if (strat.getMaxSearchTime() <= 0) {
+			logger.debug("LNS without time limit : limited to " + ConfigStrat.DEFAULT_LNS_RESTARTS + " neighborhoods");
+			solver.limitSearch(() -> solver.getRestartCount() >= ConfigStrat.DEFAULT_LNS_RESTARTS);
+		}
+	}
+
+	/** number of heuristic variants which are not random */
+	public static final int NB_HEURISTIC_VARIANTS = 4;
+
+	/**
+	 * make the heuristic of a search.
+	 * <ol start="0">
+	 * <li>the default heuristic : first try to find a solution close to the
+	 * source, then use the prove heuristic. A LNS or a search with a hint always
+	 * starts from the source.</li>
+	 * <li>only the prove heuristic</li>
+	 * <li>stick the VMs to their source, then the prove heuristic</li>
+	 * <li>dummy placement of the VMs, then the prove heuristic</li>
+	 * <li>and more : random placement of the VMs using the seed of the search
+	 * policy plus the variant as seed, then the prove heuristic.</li>
+	 * </ol>
+	 *
+	 * @param goalMaker
+	 *          the goal of the problem, or null
+	 * @param variant
+	 *          the index of the heuristic
+	 * @return a new heuristic for the problem.
+	 */
+	@SuppressWarnings("unchecked")
+	AbstractStrategy<Variable> makeHeuristic(SearchGoal goalMaker, int variant) {
+		if (variant == 0) {
+			AbstractStrategy<Variable> find = null;
+			if (!strat.isDisableCheckSource() && (strat.isLNS() || hint != null
+					|| problem.getSourceConfiguration().nbVMs(VMSTATES.WAITING) <= 5)) {
+				find = makeFindHeuristic();
+			}
+			AbstractStrategy<Variable> prove = makeProveHeuristic(goalMaker);
+			Variable[] vars = problem.getModel().getVars();
+			if (find == null || vars == null) {
+				return prove;
+			}
+			return new FindAndProve<>(vars, find, prove);
+		}
+		AbstractStrategy<Variable> prove = makeProveHeuristic(goalMaker);
+		switch (variant) {
+		case 1:
+			return prove;
+		case 2:
+			return Search.sequencer(makeFindHeuristic(), prove);
+		case 3:
+			ArrayList<AbstractStrategy<? extends Variable>> l = new ArrayList<>(
+					DummyPlacementHeuristic.INSTANCE.getHeuristics(problem));
+			l.add(prove);
+			return Search.sequencer(l.toArray(new AbstractStrategy[0]));
+		default:
+			// the random search must place the VMs as the other searches do, as the
+			// first solution of any worker can be kept
+			long seed = strat.getSearchPolicy().getSeed() + variant;
+			IntValueSelector values = new RandomLocationSelector(problem.b().waitIdx(), seed);
+			List<List<Computer>> classes = problem.getStatistics().getInterchangeableNodes();
+			if (!classes.isEmpty()) {
+				// a random host of a class is replaced by its first empty host
+				values = new FirstEmptyHostSelector(problem, classes, values);
+			}
+			List<AbstractStrategy<? extends Variable>> random = new ArrayList<>(NoWaitingHeuristic.getHeuristics(problem));
+			random.add(Search.intVarSearch(new Random<>(seed), values, problem.getVMLocations()));
+			random.add(prove);
+			return Search.sequencer(random.toArray(new AbstractStrategy[0]));
+		}
 	}
 
 	/**
 	 * make an heuristic to quickly find a solution. Basic heuristic is to
-	 * retrieve the source configuration if available, do nothing if not.
+	 * retrieve the hint then the source configuration if available, do nothing
+	 * if not.
 	 *
 	 * @param goalMaker
 	 * @return
@@ -221,6 +624,12 @@ public class Optiplace extends IOptiplace {
 		ArrayList<AbstractStrategy<? extends Variable>> l = new ArrayList<>();
 		// heuristic to find a solution fast
 		l.addAll(NoWaitingHeuristic.getHeuristics(problem));
+		if (hint != null) {
+			Bridge b = problem.b();
+			VM[] hinted = hint.getRunnings().filter(v -> b.vm(v) != -1 && b.location(hint.getComputerHost(v)) != -1)
+					.toArray(VM[]::new);
+			l.add(StickVMsHeuristic.makeStickVMs(hinted, hint, problem));
+		}
 		l.add(StickVMsHeuristic.makeStickVMs(
 				problem.getSourceConfiguration().getRunnings().collect(Collectors.toList()).toArray(new VM[0]), problem));
 		// then add all heuristics from the view, in the views reverse order.
@@ -278,9 +687,19 @@ public class Optiplace extends IOptiplace {
 	@Override
 	public void makeSearch() {
 		long st = System.nanoTime();
-		if (problem.getObjective() != null) {
-			lastSolution = problem.getSolver().findOptimalSolution(problem.getObjective(), false);
+		if (!workers.isEmpty()) {
+			makePortfolioSearch();
+		} else if (problem.getObjective() != null) {
+			searchSolver = problem.getSolver();
+			problem.getModel().setObjective(Model.MINIMIZE, problem.getObjective());
+			applyReducer(problem);
+			Solution sol = new Solution(problem.getModel());
+			while (problem.getSolver().solve()) {
+				sol.record();
+			}
+			lastSolution = problem.getSolver().getSolutionCount() > 0 ? sol : null;
 		} else {
+			searchSolver = problem.getSolver();
 			lastSolution = problem.getSolver().findSolution();
 		}
 		target.setSearchTime(System.nanoTime() - st);
@@ -289,21 +708,111 @@ public class Optiplace extends IOptiplace {
 			logger.debug(" variables : " + Arrays.asList(problem.getModel().getVars()));
 			logger.debug(" constraints : " + Arrays.asList(problem.getModel().getCstrs()));
 		}
-		// ObjectiveReducer or = strat.getReducer();
-		// if (or != null) {
-		// new MaxIntObjManager();
-		// <IntVar, Integer> om = new ObjectiveManager<IntVar,
-		// Integer>(problem.getObjective(),
-		// ResolutionPolicy.MINIMIZE, true) {
-		// @Override
-		// public void postDynamicCut() throws ContradictionException {
-		// objective.updateBounds(bestProvedLB.intValue(),
-		// Math.min(or.reduce(bestProvedUB.intValue()), bestProvedUB.intValue()) -
-		// 1, this);
-		// }
-		// };
-		// problem.getSolver().setObjectiveManager(om);(om);
-		// }
+	}
+
+	/**
+	 * if the strat has a reducer, replace the objective manager of the problem to
+	 * cut the objective using it after each solution. The objective must already
+	 * be set in the model.
+	 */
+	protected void applyReducer(ReconfigurationProblem pb) {
+		ObjectiveReducer reducer = strat.getReducer();
+		if (reducer != null && pb.getObjective() != null) {
+			pb.getSolver().setObjectiveManager(new ReducedObjManager(pb.getSolver().getObjectiveManager(), reducer));
+		}
+	}
+
+	/**
+	 * search the workers concurrently, then set the best solution found on the
+	 * problem.
+	 */
+	protected void makePortfolioSearch() {
+		ParallelPortfolio portfolio = new ParallelPortfolio(false);
+		if (workerSolutions == null) {
+			workerSolutions = new Solution[workers.size()];
+			for (int i = 0; i < workerSolutions.length; i++) {
+				Solution sol = new Solution(workers.get(i).getModel());
+				workerSolutions[i] = sol;
+				workers.get(i).getSolver().plugMonitor((IMonitorSolution) sol::record);
+			}
+		}
+		Solution[] solutions = workerSolutions;
+		for (int i = 0; i < solutions.length; i++) {
+			ReconfigurationProblem w = workers.get(i);
+			Model m = w.getModel();
+			if (w.getObjective() != null) {
+				m.setObjective(Model.MINIMIZE, w.getObjective());
+				applyReducer(w);
+			}
+			portfolio.addModel(m);
+		}
+		// each call stops at the first solution found by any worker
+		boolean optimize = problem.getObjective() != null;
+		while (portfolio.solve() && optimize) {
+		}
+
+		int winner = -1;
+		int best = Integer.MAX_VALUE;
+		// the target is kept when this solves the same problem again
+		target.getWorkersStats().clear();
+		for (int i = 0; i < solutions.length; i++) {
+			ReconfigurationProblem w = workers.get(i);
+			IMeasures m = w.getSolver().getMeasures();
+			boolean timeout = strat.getMaxSearchTime() > 0
+					&& m.getTimeCountInNanoSeconds() >= strat.getMaxSearchTime() * 1000000;
+			target.getWorkersStats().add(new SolvingStatistics(m.getNodeCount(), m.getBackTrackCount(),
+					m.getTimeCountInNanoSeconds() / 1000000, timeout));
+			if (m.getSolutionCount() > 0) {
+				int value = optimize ? solutions[i].getIntVal(w.getObjective()) : 0;
+				if (winner == -1 || value < best) {
+					winner = i;
+					best = value;
+				}
+			}
+		}
+		target.setWinner(winner);
+		if (winner == -1) {
+			searchSolver = problem.getSolver();
+			return;
+		}
+		searchSolver = workers.get(winner).getSolver();
+		try {
+			// the problem's root world is kept to search it again
+			problem.getModel().getEnvironment().worldPush();
+			restore(workers.get(winner), solutions[winner]);
+			lastSolution = problem.getSolver().findSolution();
+		} catch (ContradictionException e) {
+			logger.warn("can't restore the solution of worker " + winner, e);
+		}
+	}
+
+	/**
+	 * instantiate the variables of the problem to their value in the solution
+	 * of a worker. The variables are matched by their index, as the workers are
+	 * built the same way as the problem.
+	 *
+	 * @throws UnsupportedOperationException
+	 *           if the models of the worker and the problem have different
+	 *           variables
+	 */
+	protected void restore(ReconfigurationProblem worker, Solution sol) throws ContradictionException {
+		Variable[] from = worker.getModel().getVars();
+		Variable[] to = problem.getModel().getVars();
+		if (from.length != to.length) {
+			throw new UnsupportedOperationException(
+					"worker model has " + from.length + " variables, problem has " + to.length);
+		}
+		for (int i = 0; i < from.length; i++) {
+			Variable f = from[i], t = to[i];
+			if (!f.getName().equals(t.getName()) || f.getTypeAndKind() != t.getTypeAndKind()) {
+				throw new UnsupportedOperationException("worker variable " + f + " does not match problem variable " + t);
+			}
+			if (t instanceof IntVar) {
+				((IntVar) t).instantiateTo(sol.getIntVal((IntVar) f), Cause.Null);
+			} else if (t instanceof SetVar) {
+				((SetVar) t).instantiateTo(sol.getSetVal((SetVar) f), Cause.Null);
+			}
+		}
 	}
 
 	@Override
@@ -311,13 +820,24 @@ public class Optiplace extends IOptiplace {
 		if (lastSolution == null) {
 			return;
 		}
+		IMeasures m = searchSolver.getMeasures();
+		long solutions = m.getSolutionCount(), nodes = m.getNodeCount(), backtracks = m.getBackTrackCount();
+		if (searchSolver == problem.getSolver()) {
+			// the nogoods recorded under the objective cuts can forbid the best
+			// solution, so they are removed before restoring it
+			problem.getModel().removeNogoodStore();
+			// a search stopped by a limit remains in the world it was exploring, in
+			// which the best solution can be infeasible
+			problem.getSolver().reset();
+			// the root world is kept to search the problem again
+			problem.getModel().getEnvironment().worldPush();
+		}
 		try {
 			lastSolution.restore();
 		} catch (ContradictionException e) {
 			throw new UnsupportedOperationException(e);
 		}
-		IMeasures m = problem.getSolver().getMeasures();
-		if (m.getSolutionCount() < 1) {
+		if (solutions < 1) {
 			return;
 		}
 		IConfiguration dest = problem.extractConfiguration();
@@ -326,7 +846,7 @@ public class Optiplace extends IOptiplace {
 		}
 		target.setDestination(dest);
 		if (problem.getObjective() != null) {
-			target.setObjective((int) m.getBestSolutionValue());
+			target.setObjective(problem.getObjective().getValue());
 		}
 		Migrate.extractMigrations(source, dest, target.getActions());
 		Allocate.extractAllocates(source, dest, target.getActions());
@@ -334,8 +854,8 @@ public class Optiplace extends IOptiplace {
 			v.extractActions(target.getActions(), dest);
 		}
 
-		target.setSearchBacktracks(m.getBackTrackCount());
-		target.setSearchNodes(m.getNodeCount());
-		target.setSearchSolutions(problem.getSolver().getSolutionCount());
+		target.setSearchBacktracks(backtracks);
+		target.setSearchNodes(nodes);
+		target.setSearchSolutions(solutions);
 	}
 }
@@ -14,6 +14,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -21,12 +22,14 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.function.Predicate;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import fr.emn.optiplace.configuration.parser.ConfigurationFiler;
+import fr.emn.optiplace.configuration.resources.IndexedResourceSpecification;
 import fr.emn.optiplace.configuration.resources.MappedResourceSpecification;
 import fr.emn.optiplace.configuration.resources.ResourceSpecification;
 
@@ -34,6 +37,11 @@ import fr.emn.optiplace.configuration.resources.ResourceSpecification;
  * Default implementation of Configuration. The elements are stored in
  * linkedHashMap and LinkedHashSet to ensure the same order when iterating
  * <p>
+ * The maps and sets are copied on write : {@link #clone()} shares them with the
+ * clone, and a modification of any of them copies only the modified map, or the
+ * modified set of a host, site or tag.
+ * </p>
+ * <p>
  * see {@link ConfigurationFiler} to read or write it on file
  * </p>
  *
@@ -43,26 +51,48 @@ public class Configuration implements IConfiguration {
 
 	private static final Logger logger = LoggerFactory.getLogger(Configuration.class);
 
-	private final LinkedHashMap<Computer, Set<VM>> computersVM = new LinkedHashMap<>();
+	/**
+	 * the sets of {@link #computersVM}, {@link #externVM},
+	 * {@link #sitesToHosters} and the tags this can modify. The other ones are
+	 * shared with a clone and must be copied before any modification. Only
+	 * relevant while the map containing the set is not shared.
+	 */
+	private Set<Set<?>> ownedSets = Collections.newSetFromMap(new IdentityHashMap<>());
+
+	/**
+	 * true when the map is shared with a clone, and must be copied before any
+	 * modification.
+	 */
+	private boolean computersVMShared, externVMShared, waitingsShared, nameToElementShared, vmHosterShared,
+			vmMigrationShared, sitesToHostersShared, vmsTagsShared, sitesTagsShared, computersTagsShared,
+			externsTagsShared;
+
+	private LinkedHashMap<Computer, Set<VM>> computersVM = new LinkedHashMap<>();
 
-	private final LinkedHashMap<Extern, Set<VM>> externVM = new LinkedHashMap<>();
+	private LinkedHashMap<Extern, Set<VM>> externVM = new LinkedHashMap<>();
 
-	private final Set<VM> waitings = new LinkedHashSet<>();
+	private LinkedHashSet<VM> waitings = new LinkedHashSet<>();
 
 	/**
 	 * elements present in the configuration. The element names are non case
 	 * sensitive.
 	 */
-	private final HashMap<String, ManagedElement> nameToElement = new HashMap<>();
+	private HashMap<String, ManagedElement> nameToElement = new HashMap<>();
 
 	/** VM to the host/extern it is hosted on. */
-	private final Map<VM, VMLocation> vmHoster = new LinkedHashMap<>();
+	private LinkedHashMap<VM, VMLocation> vmHoster = new LinkedHashMap<>();
 
 	/** VM to the target is is migrating to. */
-	private final Map<VM, VMLocation> vmMigration = new LinkedHashMap<>();
+	private LinkedHashMap<VM, VMLocation> vmMigration = new LinkedHashMap<>();
 
 	protected LinkedHashMap<String, ResourceSpecification> resources = new LinkedHashMap<>();
 
+	/**
+	 * creates the elements added, shared with the clones. null to create them
+	 * without id.
+	 */
+	protected ElementRegistry registry = null;
+
 	public Configuration(String... resources) {
 		if (resources == null || resources.length == 0) {
 		} else {
@@ -72,25 +102,209 @@ public class Configuration implements IConfiguration {
 		}
 	}
 
+	/**
+	 * create a configuration whose elements are created by a registry, and so
+	 * have an id in this registry. The elements removed from the configuration
+	 * are removed from the registry. The resources are
+	 * {@link IndexedResourceSpecification} on this registry.
+	 *
+	 * @param registry
+	 *          the registry to create the elements, shared with the clones.
+	 * @param resources
+	 *          the names of the resources
+	 */
+	public Configuration(ElementRegistry registry, String... resources) {
+		this.registry = registry;
+		if (resources != null) {
+			for (String r : resources) {
+				this.resources.put(r, new IndexedResourceSpecification(r, registry));
+			}
+		}
+	}
+
+	/**
+	 * clone this in constant time, besides the cloning of the resources. The maps
+	 * and sets are shared with the clone, and copied by either one before being
+	 * modified.
+	 */
 	@Override
 	public Configuration clone() {
 		Configuration other = new Configuration();
-		externsTags.forEach((e, v) -> other.externsTags.put(e, new LinkedHashSet<>(v)));
-		externVM.forEach((e, v) -> other.externVM.put(e, new LinkedHashSet<>(v)));
-		nameToElement.forEach((e, v) -> other.nameToElement.put(e, v));
-		computersTags.forEach((e, v) -> other.computersTags.put(e, new LinkedHashSet<>(v)));
-		computersVM.forEach((e, v) -> other.computersVM.put(e, new LinkedHashSet<>(v)));
+		// neither this nor the clone can modify the shared containers. The clone
+		// owns none of the sets.
+		computersVMShared = other.computersVMShared = true;
+		externVMShared = other.externVMShared = true;
+		waitingsShared = other.waitingsShared = true;
+		nameToElementShared = other.nameToElementShared = true;
+		vmHosterShared = other.vmHosterShared = true;
+		vmMigrationShared = other.vmMigrationShared = true;
+		sitesToHostersShared = other.sitesToHostersShared = true;
+		vmsTagsShared = other.vmsTagsShared = true;
+		sitesTagsShared = other.sitesTagsShared = true;
+		computersTagsShared = other.computersTagsShared = true;
+		externsTagsShared = other.externsTagsShared = true;
+		other.computersVM = computersVM;
+		other.externVM = externVM;
+		other.waitings = waitings;
+		other.nameToElement = nameToElement;
+		other.vmHoster = vmHoster;
+		other.vmMigration = vmMigration;
+		other.sitesToHosters = sitesToHosters;
+		other.vmsTags = vmsTags;
+		other.sitesTags = sitesTags;
+		other.computersTags = computersTags;
+		other.externsTags = externsTags;
+		other.registry = registry;
 		resources.forEach((e, v) -> other.resources.put(e, v.clone()));
-
-		sitesTags.forEach((e, v) -> other.sitesTags.put(e, new LinkedHashSet<>(v)));
-		sitesToHosters.forEach((e, v) -> other.sitesToHosters.put(e, new LinkedHashSet<>(v)));
-		vmHoster.forEach((e, v) -> other.vmHoster.put(e, v));
-		vmMigration.forEach((e, v) -> other.vmMigration.put(e, v));
-		vmsTags.forEach((e, v) -> other.vmsTags.put(e, new LinkedHashSet<>(v)));
-		other.waitings.addAll(waitings);
 		return other;
 	}
 
+	/**
+	 * @return the registry which creates the elements of this and its clones, or
+	 *         null if the elements have no id.
+	 */
+	public ElementRegistry getRegistry() {
+		return registry;
+	}
+
+	////////////////////////////////////////////////
+	// copy on write
+
+	/** @return the set, after marking it as modifiable by this */
+	private <T extends Set<?>> T own(T set) {
+		ownedSets.add(set);
+		return set;
+	}
+
+	/** @return the set removed from a map, after forgetting it is owned */
+	private <T extends Set<?>> T disown(T set) {
+		if (set != null) {
+			ownedSets.remove(set);
+		}
+		return set;
+	}
+
+	/**
+	 * @return the copy of a shared map of sets. The sets are still shared, so
+	 *         they are not owned anymore.
+	 */
+	private <K, T> LinkedHashMap<K, Set<T>> copySets(Map<K, Set<T>> map) {
+		LinkedHashMap<K, Set<T>> ret = new LinkedHashMap<>(map);
+		ret.values().forEach(ownedSets::remove);
+		return ret;
+	}
+
+	/**
+	 * @return the set associated to the key in a modifiable map, copied first if
+	 *         shared. null if the key is not present.
+	 */
+	private <K, T> Set<T> writeSet(Map<K, Set<T>> map, K key) {
+		Set<T> ret = map.get(key);
+		if (ret != null && !ownedSets.contains(ret)) {
+			ret = own(new LinkedHashSet<>(ret));
+			map.put(key, ret);
+		}
+		return ret;
+	}
+
+	private LinkedHashMap<Computer, Set<VM>> writeComputersVM() {
+		if (computersVMShared) {
+			computersVM = copySets(computersVM);
+			computersVMShared = false;
+		}
+		return computersVM;
+	}
+
+	private LinkedHashMap<Extern, Set<VM>> writeExternVM() {
+		if (externVMShared) {
+			externVM = copySets(externVM);
+			externVMShared = false;
+		}
+		return externVM;
+	}
+
+	private LinkedHashSet<VM> writeWaitings() {
+		if (waitingsShared) {
+			waitings = new LinkedHashSet<>(waitings);
+			waitingsShared = false;
+		}
+		return waitings;
+	}
+
+	private HashMap<String, ManagedElement> writeNameToElement() {
+		if (nameToElementShared) {
+			nameToElement = new HashMap<>(nameToElement);
+			nameToElementShared = false;
+		}
+		return nameToElement;
+	}
+
+	private LinkedHashMap<VM, VMLocation> writeVMHoster() {
+		if (vmHosterShared) {
+			vmHoster = new LinkedHashMap<>(vmHoster);
+			vmHosterShared = false;
+		}
+		return vmHoster;
+	}
+
+	private LinkedHashMap<VM, VMLocation> writeVMMigration() {
+		if (vmMigrationShared) {
+			vmMigration = new LinkedHashMap<>(vmMigration);
+			vmMigrationShared = false;
+		}
+		return vmMigration;
+	}
+
+	private LinkedHashMap<Site, Set<VMLocation>> writeSitesToHosters() {
+		if (sitesToHostersShared) {
+			sitesToHosters = copySets(sitesToHosters);
+			sitesToHostersShared = false;
+		}
+		return sitesToHosters;
+	}
+
+	private HashMap<String, Set<VM>> writeVMsTags() {
+		if (vmsTagsShared) {
+			vmsTags = copySets(vmsTags);
+			vmsTagsShared = false;
+		}
+		return vmsTags;
+	}
+
+	private HashMap<String, Set<Site>> writeSitesTags() {
+		if (sitesTagsShared) {
+			sitesTags = copySets(sitesTags);
+			sitesTagsShared = false;
+		}
+		return sitesTags;
+	}
+
+	private HashMap<String, Set<Computer>> writeComputersTags() {
+		if (computersTagsShared) {
+			computersTags = copySets(computersTags);
+			computersTagsShared = false;
+		}
+		return computersTags;
+	}
+
+	private HashMap<String, Set<Extern>> writeExternsTags() {
+		if (externsTagsShared) {
+			externsTags = copySets(externsTags);
+			externsTagsShared = false;
+		}
+		return externsTags;
+	}
+
+	/** remove an element from all the sets of a map containing it */
+	private <T> void removeFromSets(HashMap<String, Set<T>> map, T elem) {
+		for (Entry<String, Set<T>> e : map.entrySet()) {
+			if (e.getValue().contains(elem) && !ownedSets.contains(e.getValue())) {
+				e.setValue(own(new LinkedHashSet<>(e.getValue())));
+			}
+			e.getValue().remove(elem);
+		}
+	}
+
 	@Override
 	public LinkedHashMap<String, ResourceSpecification> resources() {
 		return resources;
@@ -100,7 +314,8 @@ public class Configuration implements IConfiguration {
 	public ResourceSpecification resource(String name) {
 		ResourceSpecification ret = resources.get(name);
 		if (ret == null) {
-			ret = new MappedResourceSpecification(name);
+			ret = registry == null ? new MappedResourceSpecification(name)
+					: new IndexedResourceSpecification(name, registry);
 			resources.put(name, ret);
 		}
 		return ret;
@@ -177,16 +392,18 @@ public class Configuration implements IConfiguration {
 		if (hoster == null) {
 			return setWaiting(vm);
 		}
-		waitings.remove(vm);
-		vmHoster.put(vm, hoster);
+		if (waitings.contains(vm)) {
+			writeWaitings().remove(vm);
+		}
+		writeVMHoster().put(vm, hoster);
 		if (hoster.equals(vmMigration.get(vm))) {
-			vmMigration.remove(vm);
+			writeVMMigration().remove(vm);
 		}
 
 		if (hoster instanceof Computer) {
-			computersVM.get(hoster).add(vm);
+			writeSet(writeComputersVM(), (Computer) hoster).add(vm);
 		} else if (hoster instanceof Extern) {
-			externVM.get(hoster).add(vm);
+			writeSet(writeExternVM(), (Extern) hoster).add(vm);
 		} else {
 			logger.warn("can't handle hoster " + hoster + " of class " + hoster.getClass(), new Exception());
 		}
@@ -198,16 +415,18 @@ public class Configuration implements IConfiguration {
 		if (isWaiting(vm)) {
 			return false;
 		}
-		VMLocation hoster = vmHoster.remove(vm);
+		VMLocation hoster = vmHoster.containsKey(vm) ? writeVMHoster().remove(vm) : null;
 		if (hoster != null) {
 			if (hoster instanceof Computer) {
-				computersVM.get(hoster).remove(vm);
+				writeSet(writeComputersVM(), (Computer) hoster).remove(vm);
 			} else if (hoster instanceof Extern) {
-				externVM.get(hoster).remove(vm);
+				writeSet(writeExternVM(), (Extern) hoster).remove(vm);
 			}
 		}
-		waitings.add(vm);
-		vmMigration.remove(vm);
+		writeWaitings().add(vm);
+		if (vmMigration.containsKey(vm)) {
+			writeVMMigration().remove(vm);
+		}
 		return true;
 	}
 
@@ -234,9 +453,11 @@ public class Configuration implements IConfiguration {
 			return;
 		}
 		if (h == null || h.equals(vmHoster.get(vm))) {
-			vmMigration.remove(vm);
+			if (vmMigration.containsKey(vm)) {
+				writeVMMigration().remove(vm);
+			}
 		} else {
-			vmMigration.put(vm, h);
+			writeVMMigration().put(vm, h);
 		}
 	}
 
@@ -249,8 +470,8 @@ public class Configuration implements IConfiguration {
 		try {
 			ret = getElementByName(vmName, VM.class);
 			if (ret == null) {
-				ret = new VM(vmName);
-				nameToElement.put(vmName.toLowerCase(), ret);
+				ret = registry == null ? new VM(vmName) : registry.vm(vmName);
+				writeNameToElement().put(vmName.toLowerCase(), ret);
 			}
 		} catch (ClassCastException e) {
 			return null;
@@ -287,9 +508,8 @@ public class Configuration implements IConfiguration {
 			return false;
 		}
 		setWaiting(vm2);
-		waitings.remove(vm2);
-		VM rem = vm2;
-		vmsTags.values().stream().forEach(s -> s.remove(rem));
+		writeWaitings().remove(vm2);
+		removeFromSets(writeVMsTags(), vm2);
 		forgetElement(vm2);
 		return true;
 	}
@@ -303,9 +523,9 @@ public class Configuration implements IConfiguration {
 		try {
 			ret = getElementByName(name, Computer.class);
 			if (ret == null) {
-				ret = new Computer(name);
-				nameToElement.put(name.toLowerCase(), ret);
-				computersVM.put(ret, new LinkedHashSet<>());
+				ret = registry == null ? new Computer(name) : registry.computer(name);
+				writeNameToElement().put(name.toLowerCase(), ret);
+				writeComputersVM().put(ret, own(new LinkedHashSet<>()));
 			}
 		} catch (ClassCastException cce) {
 			return null;
@@ -321,12 +541,12 @@ public class Configuration implements IConfiguration {
 
 	@Override
 	public boolean removeVMs(Computer n) {
-		Set<VM> vms = computersVM.remove(n);
+		Set<VM> vms = computersVM.containsKey(n) ? disown(writeComputersVM().remove(n)) : null;
 		if (vms != null) {
 			for (VM vm : vms) {
-				vmHoster.remove(vm);
-				waitings.add(vm);
-				vmMigration.remove(vm);
+				writeVMHoster().remove(vm);
+				writeWaitings().add(vm);
+				writeVMMigration().remove(vm);
 			}
 		}
 		return true;
@@ -347,9 +567,10 @@ public class Configuration implements IConfiguration {
 			return false;
 		}
 		removeVMs(n);
-		computersVM.remove(n);
-		Computer rem = n;
-		computersTags.values().stream().forEach(s -> s.remove(rem));
+		if (computersVM.containsKey(n)) {
+			disown(writeComputersVM().remove(n));
+		}
+		removeFromSets(writeComputersTags(), n);
 		forgetElement(n);
 		return true;
 	}
@@ -377,8 +598,10 @@ public class Configuration implements IConfiguration {
 	LinkedHashMap<Site, Set<VMLocation>> sitesToHosters = new LinkedHashMap<>();
 
 	protected void removeHostersFromSites(Collection<VMLocation> c) {
-		for (Set<VMLocation> set : sitesToHosters.values()) {
-			set.removeAll(c);
+		List<Site> modified = sitesToHosters.entrySet().stream().filter(e -> !Collections.disjoint(e.getValue(), c))
+				.map(Entry::getKey).collect(Collectors.toList());
+		for (Site s : modified) {
+			writeSet(writeSitesToHosters(), s).removeAll(c);
 		}
 	}
 
@@ -394,12 +617,12 @@ public class Configuration implements IConfiguration {
 		try {
 			ret = getElementByName(siteName, Site.class);
 			if (ret == null) {
-				ret = new Site(siteName);
-				nameToElement.put(siteName.toLowerCase(), ret);
-				set = new LinkedHashSet<>();
-				sitesToHosters.put(ret, set);
+				ret = registry == null ? new Site(siteName) : registry.site(siteName);
+				writeNameToElement().put(siteName.toLowerCase(), ret);
+				set = own(new LinkedHashSet<>());
+				writeSitesToHosters().put(ret, set);
 			} else {
-				set = sitesToHosters.get(ret);
+				set = writeSet(writeSitesToHosters(), ret);
 			}
 		} catch (ClassCastException e) {
 			return null;
@@ -445,9 +668,8 @@ public class Configuration implements IConfiguration {
 		} catch (ClassCastException cce) {
 			return false;
 		}
-		sitesToHosters.remove(site);
-		Site rem = site;
-		sitesTags.values().stream().forEach(s -> s.remove(rem));
+		disown(writeSitesToHosters().remove(site));
+		removeFromSets(writeSitesTags(), site);
 		forgetElement(site);
 		return true;
 	}
@@ -551,16 +773,20 @@ public class Configuration implements IConfiguration {
 	}
 
 	/**
-	 * forget the name to element reference, as well as the name to resources.
+	 * forget the name to element reference, as well as the name to resources. The
+	 * element is also removed from the registry, if any.
 	 *
 	 * @param me
 	 *          an element.
 	 */
 	public void forgetElement(ManagedElement me) {
-		nameToElement.remove(me.getName().toLowerCase());
+		writeNameToElement().remove(me.getName().toLowerCase());
 		for (ResourceSpecification rs : resources.values()) {
 			rs.remove(me);
 		}
+		if (registry != null) {
+			registry.remove(me);
+		}
 	}
 
 	@Override
@@ -572,9 +798,9 @@ public class Configuration implements IConfiguration {
 		try {
 			ret = getElementByName(name, Extern.class);
 			if (ret == null) {
-				ret = new Extern(name);
-				externVM.put(ret, new LinkedHashSet<>());
-				nameToElement.put(name.toLowerCase(), ret);
+				ret = registry == null ? new Extern(name) : registry.extern(name);
+				writeExternVM().put(ret, own(new LinkedHashSet<>()));
+				writeNameToElement().put(name.toLowerCase(), ret);
 			}
 		} catch (ClassCastException e) {
 			return null;
@@ -612,13 +838,12 @@ public class Configuration implements IConfiguration {
 		} catch (ClassCastException cce) {
 			return false;
 		}
-		externVM.remove(e).forEach(v -> {
-			vmHoster.remove(v);
-			waitings.add(v);
-			vmMigration.remove(v);
+		disown(writeExternVM().remove(e)).forEach(v -> {
+			writeVMHoster().remove(v);
+			writeWaitings().add(v);
+			writeVMMigration().remove(v);
 		});
-		Extern rem = e;
-		externsTags.values().stream().forEach(s -> s.remove(rem));
+		removeFromSets(writeExternsTags(), e);
 		forgetElement(e);
 		return true;
 	}
@@ -651,9 +876,9 @@ public class Configuration implements IConfiguration {
 		if (n == null || tag == null) {
 			return;
 		}
-		Set<Computer> s = computersTags.get(tag);
+		Set<Computer> s = writeSet(writeComputersTags(), tag);
 		if (s == null) {
-			s = new LinkedHashSet<>();
+			s = own(new LinkedHashSet<>());
 			computersTags.put(tag, s);
 		}
 		s.add(n);
@@ -664,9 +889,9 @@ public class Configuration implements IConfiguration {
 		if (e == null || tag == null) {
 			return;
 		}
-		Set<Extern> s = externsTags.get(tag);
+		Set<Extern> s = writeSet(writeExternsTags(), tag);
 		if (s == null) {
-			s = new LinkedHashSet<>();
+			s = own(new LinkedHashSet<>());
 			externsTags.put(tag, s);
 		}
 		s.add(e);
@@ -677,9 +902,9 @@ public class Configuration implements IConfiguration {
 		if (v == null || tag == null) {
 			return;
 		}
-		Set<VM> s = vmsTags.get(tag);
+		Set<VM> s = writeSet(writeVMsTags(), tag);
 		if (s == null) {
-			s = new LinkedHashSet<>();
+			s = own(new LinkedHashSet<>());
 			vmsTags.put(tag, s);
 		}
 		s.add(v);
@@ -690,9 +915,9 @@ public class Configuration implements IConfiguration {
 		if (s == null || tag == null) {
 			return;
 		}
-		Set<Site> set = sitesTags.get(tag);
+		Set<Site> set = writeSet(writeSitesTags(), tag);
 		if (set == null) {
-			set = new LinkedHashSet<>();
+			set = own(new LinkedHashSet<>());
 			sitesTags.put(tag, set);
 		}
 		set.add(s);
@@ -701,48 +926,52 @@ public class Configuration implements IConfiguration {
 	@Override
 	public void delTagComputer(Computer n, String tag) {
 		Set<Computer> set = computersTags.get(tag);
-		if (set == null) {
+		if (set == null || !set.contains(n)) {
 			return;
 		}
+		set = writeSet(writeComputersTags(), tag);
 		set.remove(n);
 		if (set.isEmpty()) {
-			computersTags.remove(tag);
+			disown(computersTags.remove(tag));
 		}
 	}
 
 	@Override
 	public void delTagExtern(Extern e, String tag) {
 		Set<Extern> set = externsTags.get(tag);
-		if (set == null) {
+		if (set == null || !set.contains(e)) {
 			return;
 		}
+		set = writeSet(writeExternsTags(), tag);
 		set.remove(e);
 		if (set.isEmpty()) {
-			externsTags.remove(tag);
+			disown(externsTags.remove(tag));
 		}
 	}
 
 	@Override
 	public void delTagVM(VM v, String tag) {
 		Set<VM> set = vmsTags.get(tag);
-		if (set == null) {
+		if (set == null || !set.contains(v)) {
 			return;
 		}
+		set = writeSet(writeVMsTags(), tag);
 		set.remove(v);
 		if (set.isEmpty()) {
-			vmsTags.remove(tag);
+			disown(vmsTags.remove(tag));
 		}
 	}
 
 	@Override
 	public void delTagSite(Site s, String tag) {
 		Set<Site> set = sitesTags.get(tag);
-		if (set == null) {
+		if (set == null || !set.contains(s)) {
 			return;
 		}
+		set = writeSet(writeSitesTags(), tag);
 		set.remove(s);
 		if (set.isEmpty()) {
-			sitesTags.remove(tag);
+			disown(sitesTags.remove(tag));
 		}
 	}
 
@@ -0,0 +1,1047 @@
+package fr.emn.optiplace.configuration;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import fr.emn.optiplace.configuration.resources.IndexedResourceSpecification;
+import fr.emn.optiplace.configuration.resources.ResourceSpecification;
+
+/**
+ * Configuration for large clusters, storing the elements by dense int ids
+ * instead of hash maps of sets.
+ * <p>
+ * The elements are created by an {@link ElementRegistry}, shared with the
+ * clones. The VMs, the locations (computers and externs share the same ids) and
+ * the sites are stored in arrays, at their id in the registry. The location of
+ * a VM, its migration target and the site of a location are int arrays, so
+ * {@link #getLocation(VM)}, {@link #getExternHost(VM)} and
+ * {@link #getSite(VMLocation)} are O(1) for the elements of the registry, and
+ * need a lookup in the registry for the other ones. The VMs hosted on each
+ * location are indexed as ranges of a single array, rebuilt on the first read
+ * after a VM is moved. The tags are one {@link BitSet} of ids per tag. The
+ * resources are {@link IndexedResourceSpecification} on the same registry.
+ * </p>
+ * <p>
+ * Removed elements leave an empty id, so the ids of the other elements remain
+ * stable. They are kept in the registry, as the clones can still contain them,
+ * so the registry must not be shared with a {@link Configuration}, which
+ * removes its elements from it. The locations given to
+ * {@link #addSite(String, VMLocation...)} must already be present.<br />
+ * Use {@link #IndexedConfiguration(IConfiguration)} and
+ * {@link #toConfiguration()} to convert from and to a {@link Configuration}.
+ * </p>
+ *
+ * @author Guillaume Le Louët [guillaume.lelouet@gmail.com] 2017
+ *
+ */
+public class IndexedConfiguration implements IConfiguration {
+
+	@SuppressWarnings("unused")
+	private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(IndexedConfiguration.class);
+
+	/** location of a waiting VM */
+	protected static final int WAITING = -1;
+
+	/** location of a removed VM */
+	protected static final int REMOVED = -2;
+
+	/** no site, or no migration target */
+	protected static final int NONE = -1;
+
+	/** creates the elements and gives their ids, shared with the clones */
+	protected final ElementRegistry registry;
+
+	/** the VM of each id, or null if it is not present */
+	protected VM[] vms = new VM[16];
+
+	/** the ids of the VMs present are lower than this */
+	protected int nbVMIds = 0;
+
+	/** location id of each VM, or {@link #WAITING}, or {@link #REMOVED} */
+	protected int[] vmLocation = filled(16, REMOVED);
+
+	/** location id of the migration target of each VM, or {@link #NONE} */
+	protected int[] vmMigration = filled(16, NONE);
+
+	/** the computer or extern of each location id, or null */
+	protected VMLocation[] locations = new VMLocation[16];
+
+	protected int nbLocationIds = 0;
+
+	/** site id of each location, or {@link #NONE} */
+	protected int[] locationSite = filled(16, NONE);
+
+	protected Site[] sites = new Site[4];
+
+	protected int nbSiteIds = 0;
+
+	protected int nbRunnings = 0, nbExterned = 0, nbWaitings = 0, nbComputers = 0, nbExterns = 0, nbSites = 0;
+
+	/**
+	 * the VMs hosted, ordered by location id. The VMs on location l are from
+	 * index hostedStart[l] included to hostedStart[l+1] excluded. null when a VM
+	 * was moved since last index.
+	 */
+	protected int[] hostedVMs = null;
+
+	protected int[] hostedStart = null;
+
+	protected LinkedHashMap<String, ResourceSpecification> resources = new LinkedHashMap<>();
+
+	protected LinkedHashMap<String, BitSet> vmsTags = new LinkedHashMap<>();
+	protected LinkedHashMap<String, BitSet> computersTags = new LinkedHashMap<>();
+	protected LinkedHashMap<String, BitSet> externsTags = new LinkedHashMap<>();
+	protected LinkedHashMap<String, BitSet> sitesTags = new LinkedHashMap<>();
+
+	public IndexedConfiguration(String... resources) {
+		this(new ElementRegistry(), resources);
+	}
+
+	/**
+	 * @param registry
+	 *          the registry to create the elements, shared with the clones
+	 * @param resources
+	 *          the names of the resources
+	 */
+	public IndexedConfiguration(ElementRegistry registry, String... resources) {
+		this.registry = registry;
+		if (resources != null) {
+			for (String r : resources) {
+				this.resources.put(r, new IndexedResourceSpecification(r, registry));
+			}
+		}
+	}
+
+	/**
+	 * copy a configuration, with a new registry
+	 *
+	 * @param source
+	 *          the configuration to copy the elements, states, migrations,
+	 *          resources and tags of
+	 */
+	public IndexedConfiguration(IConfiguration source) {
+		this(new ElementRegistry());
+		copy(source, this);
+	}
+
+	/** @return the registry which creates the elements of this and its clones */
+	public ElementRegistry getRegistry() {
+		return registry;
+	}
+
+	/**
+	 * @return a new {@link Configuration} with the same elements, states,
+	 *         migrations, resources and tags
+	 */
+	public Configuration toConfiguration() {
+		return copy(this, new Configuration());
+	}
+
+	/**
+	 * copy a configuration into an empty one
+	 *
+	 * @param source
+	 *          the configuration to copy
+	 * @param target
+	 *          an empty configuration
+	 * @return target
+	 */
+	public static <T extends IConfiguration> T copy(IConfiguration source, T target) {
+		source.getComputers().forEach(c -> target.addComputer(c.getName()));
+		source.getExterns().forEach(e -> target.addExtern(e.getName()));
+		source.getSites().forEach(s -> target.addSite(s.getName(), source.getSiteLocations(s).toArray(VMLocation[]::new)));
+		source.getRunnings().forEach(v -> target.addVM(v.getName(), source.getLocation(v)));
+		source.getWaitings().forEach(v -> target.addVM(v.getName(), null));
+		source.getVMs().forEach(v -> target.setMigTarget(v, source.getMigTarget(v)));
+		source.getVmsTags().forEach(t -> source.getVmsTagged(t).forEach(v -> target.tagVM(v, t)));
+		source.getComputersTags().forEach(t -> source.getComputersTagged(t).forEach(c -> target.tagComputer(c, t)));
+		source.getExternsTags().forEach(t -> source.getExternsTagged(t).forEach(e -> target.tagExtern(e, t)));
+		source.getSitesTags().forEach(t -> source.getSitesTagged(t).forEach(s -> target.tagSite(s, t)));
+		// after the elements, as adding a VM sets its uses to 0. The target's
+		// elements are specified in their order, to get aligned specifications.
+		source.resources().forEach((n, r) -> {
+			ResourceSpecification copy = target.resource(n);
+			target.getVMs().forEach(v -> copy.use(v, r.getUse(v)));
+			target.getComputers().forEach(c -> copy.capacity(c, r.getCapacity(c)));
+			target.getExterns().forEach(e -> copy.capacity(e, r.getCapacity(e)));
+		});
+		return target;
+	}
+
+	@Override
+	public IndexedConfiguration clone() {
+		IndexedConfiguration other = new IndexedConfiguration(registry);
+		other.vms = Arrays.copyOf(vms, vms.length);
+		other.nbVMIds = nbVMIds;
+		other.vmLocation = Arrays.copyOf(vmLocation, vmLocation.length);
+		other.vmMigration = Arrays.copyOf(vmMigration, vmMigration.length);
+		other.locations = Arrays.copyOf(locations, locations.length);
+		other.nbLocationIds = nbLocationIds;
+		other.locationSite = Arrays.copyOf(locationSite, locationSite.length);
+		other.sites = Arrays.copyOf(sites, sites.length);
+		other.nbSiteIds = nbSiteIds;
+		other.nbRunnings = nbRunnings;
+		other.nbExterned = nbExterned;
+		other.nbWaitings = nbWaitings;
+		other.nbComputers = nbComputers;
+		other.nbExterns = nbExterns;
+		other.nbSites = nbSites;
+		resources.forEach((n, r) -> other.resources.put(n, r.clone()));
+		copyTags(vmsTags, other.vmsTags);
+		copyTags(computersTags, other.computersTags);
+		copyTags(externsTags, other.externsTags);
+		copyTags(sitesTags, other.sitesTags);
+		return other;
+	}
+
+	protected static void copyTags(Map<String, BitSet> from, Map<String, BitSet> to) {
+		from.forEach((t, b) -> to.put(t, (BitSet) b.clone()));
+	}
+
+	////////////////////////////////////////////////
+	// ids
+
+	protected static int[] filled(int size, int value) {
+		int[] ret = new int[size];
+		Arrays.fill(ret, value);
+		return ret;
+	}
+
+	/** @return the new length of an array of given length, to contain an id */
+	protected static int grown(int length, int id) {
+		return Math.max(id + 1, length * 2);
+	}
+
+	/**
+	 * @return the id of the element in the registry, if it is present in given
+	 *         array, or -1
+	 */
+	protected <T extends ManagedElement> int id(T e, T[] elems, int nbIds) {
+		if (e == null) {
+			return -1;
+		}
+		int id = e.getId();
+		if (id >= 0 && id < nbIds && elems[id] == e) {
+			return id;
+		}
+		T reg = registry.registered(e);
+		if (reg == null) {
+			return -1;
+		}
+		id = reg.getId();
+		return id < nbIds && elems[id] == reg ? id : -1;
+	}
+
+	/** @return the id of the element, or -1 if it is not present */
+	protected int id(ManagedElement e) {
+		if (e instanceof VM) {
+			return vmId((VM) e);
+		}
+		if (e instanceof VMLocation) {
+			return locationId((VMLocation) e);
+		}
+		if (e instanceof Site) {
+			return id((Site) e, sites, nbSiteIds);
+		}
+		return -1;
+	}
+
+	/** @return the id of the location, or -1 if it is not present */
+	protected int locationId(VMLocation l) {
+		return id(l, locations, nbLocationIds);
+	}
+
+	/** @return the id of the VM, or -1 if it is not present */
+	protected int vmId(VM v) {
+		return id(v, vms, nbVMIds);
+	}
+
+	/** @return the id of the VM, adding it as waiting if not present */
+	protected int vmIdOrAdd(VM v) {
+		int ret = vmId(v);
+		if (ret != -1) {
+			return ret;
+		}
+		if (getElementByName(v.getName()) != null) {
+			return -1;
+		}
+		VM added = registry.vm(v.getName());
+		ret = added.getId();
+		if (ret >= vms.length) {
+			int size = grown(vms.length, ret), old = vms.length;
+			vms = Arrays.copyOf(vms, size);
+			vmLocation = Arrays.copyOf(vmLocation, size);
+			vmMigration = Arrays.copyOf(vmMigration, size);
+			Arrays.fill(vmLocation, old, size, REMOVED);
+			Arrays.fill(vmMigration, old, size, NONE);
+		}
+		nbVMIds = Math.max(nbVMIds, ret + 1);
+		vms[ret] = added;
+		vmLocation[ret] = WAITING;
+		vmMigration[ret] = NONE;
+		nbWaitings++;
+		hostedVMs = null;
+		return ret;
+	}
+
+	/** add a location of the registry */
+	protected int addLocation(VMLocation l) {
+		int ret = l.getId();
+		if (ret >= locations.length) {
+			int size = grown(locations.length, ret), old = locations.length;
+			locations = Arrays.copyOf(locations, size);
+			locationSite = Arrays.copyOf(locationSite, size);
+			Arrays.fill(locationSite, old, size, NONE);
+		}
+		nbLocationIds = Math.max(nbLocationIds, ret + 1);
+		locations[ret] = l;
+		locationSite[ret] = NONE;
+		hostedVMs = null;
+		return ret;
+	}
+
+	/**
+	 * forget the resources of an element. The element is kept in the registry,
+	 * as the clones can contain it.
+	 */
+	protected void forget(ManagedElement e) {
+		for (ResourceSpecification rs : resources.values()) {
+			rs.remove(e);
+		}
+	}
+
+	/** @return true if the location id is an extern */
+	protected boolean isExtern(int loc) {
+		return locations[loc] instanceof Extern;
+	}
+
+	/** change the location id of a present VM, updating the counts */
+	protected void moveVM(int vm, int loc) {
+		int prev = vmLocation[vm];
+		if (prev == loc) {
+			return;
+		}
+		count(prev, -1);
+		count(loc, 1);
+		vmLocation[vm] = loc;
+		hostedVMs = null;
+	}
+
+	protected void count(int loc, int diff) {
+		if (loc == WAITING) {
+			nbWaitings += diff;
+		} else if (loc >= 0) {
+			if (isExtern(loc)) {
+				nbExterned += diff;
+			} else {
+				nbRunnings += diff;
+			}
+		}
+	}
+
+	/** index the VMs hosted on each location if needed */
+	protected void indexHosted() {
+		if (hostedVMs != null) {
+			return;
+		}
+		int[] start = new int[nbLocationIds + 1];
+		int nb = 0;
+		for (int v = 0; v < nbVMIds; v++) {
+			if (vmLocation[v] >= 0) {
+				start[vmLocation[v] + 1]++;
+				nb++;
+			}
+		}
+		for (int l = 1; l < start.length; l++) {
+			start[l] += start[l - 1];
+		}
+		int[] pos = Arrays.copyOf(start, nbLocationIds);
+		int[] hosted = new int[nb];
+		for (int v = 0; v < nbVMIds; v++) {
+			if (vmLocation[v] >= 0) {
+				hosted[pos[vmLocation[v]]++] = v;
+			}
+		}
+		hostedStart = start;
+		hostedVMs = hosted;
+	}
+
+	protected Stream<VM> hostedOn(int loc) {
+		indexHosted();
+		int[] hosted = hostedVMs;
+		VM[] elems = vms;
+		return IntStream.range(hostedStart[loc], hostedStart[loc + 1]).mapToObj(i -> elems[hosted[i]]);
+	}
+
+	protected Stream<VM> vmsAt(Predicate<Integer> locFilter) {
+		return IntStream.range(0, nbVMIds).filter(v -> locFilter.test(vmLocation[v])).mapToObj(v -> vms[v]);
+	}
+
+	@SuppressWarnings("unchecked")
+	protected <T extends VMLocation> Stream<T> locations(Class<T> clazz) {
+		return Stream.of(locations).limit(nbLocationIds).filter(clazz::isInstance).map(l -> (T) l);
+	}
+
+	////////////////////////////////////////////////
+	// VMs
+
+	@Override
+	public ManagedElement getElementByName(String name) {
+		if (name == null) {
+			return null;
+		}
+		return registry.registered(name, e -> id(e) != -1);
+	}
+
+	@Override
+	public Stream<VM> getRunnings() {
+		return vmsAt(l -> l >= 0);
+	}
+
+	@Override
+	public Stream<VM> getWaitings() {
+		return vmsAt(l -> l == WAITING);
+	}
+
+	@Override
+	public Stream<VM> getExterned() {
+		return vmsAt(l -> l >= 0 && isExtern(l));
+	}
+
+	@Override
+	public Stream<VM> getVMs() {
+		return vmsAt(l -> l != REMOVED);
+	}
+
+	@Override
+	public int nbVMs(VMSTATES state) {
+		if (state == null) {
+			return nbRunnings + nbExterned + nbWaitings;
+		}
+		switch (state) {
+		case RUNNING:
+			return nbRunnings;
+		case WAITING:
+			return nbWaitings;
+		case EXTERN:
+			return nbExterned;
+		default:
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	@Override
+	public boolean isRunning(VM vm) {
+		int v = vmId(vm);
+		return v != -1 && vmLocation[v] >= 0 && !isExtern(vmLocation[v]);
+	}
+
+	@Override
+	public boolean isWaiting(VM vm) {
+		int v = vmId(vm);
+		return v != -1 && vmLocation[v] == WAITING;
+	}
+
+	@Override
+	public boolean isExterned(VM vm) {
+		int v = vmId(vm);
+		return v != -1 && vmLocation[v] >= 0 && isExtern(vmLocation[v]);
+	}
+
+	@Override
+	public boolean hasVM(VM vm) {
+		return vmId(vm) != -1;
+	}
+
+	@Override
+	public boolean setHost(VM vm, VMLocation hoster) {
+		if (vm == null) {
+			return false;
+		}
+		if (hoster == null) {
+			return setWaiting(vm);
+		}
+		int loc = locationId(hoster);
+		if (loc == -1) {
+			logger.warn("can't handle hoster " + hoster + " not present in the configuration");
+			return false;
+		}
+		int v = vmIdOrAdd(vm);
+		if (v == -1 || vmLocation[v] == loc) {
+			return false;
+		}
+		moveVM(v, loc);
+		if (vmMigration[v] == loc) {
+			vmMigration[v] = NONE;
+		}
+		return true;
+	}
+
+	@Override
+	public boolean setWaiting(VM vm) {
+		if (vm == null) {
+			return false;
+		}
+		if (!hasVM(vm)) {
+			// added as waiting
+			return vmIdOrAdd(vm) != -1;
+		}
+		int v = vmId(vm);
+		if (vmLocation[v] == WAITING) {
+			return false;
+		}
+		moveVM(v, WAITING);
+		vmMigration[v] = NONE;
+		return true;
+	}
+
+	@Override
+	public VMLocation getLocation(VM vm) {
+		int v = vmId(vm);
+		return v == -1 || vmLocation[v] < 0 ? null : locations[vmLocation[v]];
+	}
+
+	@Override
+	public Computer getComputerHost(VM vm) {
+		VMLocation ret = getLocation(vm);
+		return ret instanceof Computer ? (Computer) ret : null;
+	}
+
+	@Override
+	public Extern getExternHost(VM vm) {
+		VMLocation ret = getLocation(vm);
+		return ret instanceof Extern ? (Extern) ret : null;
+	}
+
+	@Override
+	public VMLocation getMigTarget(VM vm) {
+		int v = vmId(vm);
+		return v == -1 || vmMigration[v] == NONE ? null : locations[vmMigration[v]];
+	}
+
+	@Override
+	public Set<VM> getMigratingVMs() {
+		Set<VM> ret = new LinkedHashSet<>();
+		for (int v = 0; v < nbVMIds; v++) {
+			if (vmMigration[v] != NONE) {
+				ret.add(vms[v]);
+			}
+		}
+		return ret;
+	}
+
+	@Override
+	public void setMigTarget(VM vm, VMLocation h) {
+		int v = vmId(vm);
+		if (v == -1 || vmLocation[v] < 0) {
+			return;
+		}
+		int loc = locationId(h);
+		vmMigration[v] = loc == vmLocation[v] ? NONE : loc;
+	}
+
+	@Override
+	public VM addVM(String vmName, VMLocation host, int... resources) {
+		if (vmName == null) {
+			return null;
+		}
+		VM ret;
+		try {
+			ret = getElementByName(vmName, VM.class);
+			if (ret == null) {
+				ret = registry.vm(vmName);
+			}
+		} catch (ClassCastException e) {
+			return null;
+		}
+		if (host == null) {
+			setWaiting(ret);
+		} else {
+			setHost(ret, host);
+		}
+		if (resources != null) {
+			ResourceSpecification[] specs = this.resources.values().toArray(new ResourceSpecification[this.resources.size()]);
+			for (int i = 0; i < specs.length; i++) {
+				specs[i].use(ret, i < resources.length ? resources[i] : 0);
+			}
+		}
+		return ret;
+	}
+
+	@Override
+	public boolean remove(VM vm) {
+		int v = vmId(vm);
+		if (v == -1) {
+			return false;
+		}
+		VM rem = vms[v];
+		moveVM(v, REMOVED);
+		vmMigration[v] = NONE;
+		vms[v] = null;
+		vmsTags.values().removeIf(b -> {
+			b.clear(v);
+			return b.isEmpty();
+		});
+		forget(rem);
+		return true;
+	}
+
+	////////////////////////////////////////////////
+	// locations
+
+	@Override
+	public Stream<Computer> getComputers() {
+		return locations(Computer.class);
+	}
+
+	@Override
+	public Stream<Computer> getComputers(Predicate<Set<VM>> pred) {
+		return getComputers().filter(c -> pred.test(Collections
+				.unmodifiableSet(hostedOn(id(c)).collect(LinkedHashSet<VM>::new, Set::add, Set::addAll))));
+	}
+
+	@Override
+	public int nbComputers() {
+		return nbComputers;
+	}
+
+	@Override
+	public boolean hasComputer(Computer n) {
+		return locationId(n) != -1;
+	}
+
+	@Override
+	public Computer addComputer(String name, int... resources) {
+		if (name == null) {
+			return null;
+		}
+		Computer ret;
+		try {
+			ret = getElementByName(name, Computer.class);
+			if (ret == null) {
+				ret = registry.computer(name);
+				addLocation(ret);
+				nbComputers++;
+			}
+		} catch (ClassCastException cce) {
+			return null;
+		}
+		if (resources != null) {
+			ResourceSpecification[] specs = this.resources.values().toArray(new ResourceSpecification[this.resources.size()]);
+			for (int i = 0; i < specs.length && i < resources.length; i++) {
+				specs[i].capacity(ret, resources[i]);
+			}
+		}
+		return ret;
+	}
+
+	@Override
+	public boolean removeVMs(Computer n) {
+		int loc = locationId(n);
+		if (loc != -1) {
+			for (int v = 0; v < nbVMIds; v++) {
+				if (vmLocation[v] == loc) {
+					moveVM(v, WAITING);
+					vmMigration[v] = NONE;
+				}
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public boolean remove(Computer n) {
+		if (locationId(n) == -1) {
+			return false;
+		}
+		removeLocation(locationId(n), computersTags);
+		nbComputers--;
+		return true;
+	}
+
+	/** set the VMs on a location waiting and forget it */
+	protected void removeLocation(int loc, Map<String, BitSet> tags) {
+		VMLocation rem = locations[loc];
+		for (int v = 0; v < nbVMIds; v++) {
+			if (vmLocation[v] == loc) {
+				moveVM(v, WAITING);
+				vmMigration[v] = NONE;
+			} else if (vmMigration[v] == loc) {
+				vmMigration[v] = NONE;
+			}
+		}
+		locations[loc] = null;
+		locationSite[loc] = NONE;
+		tags.values().removeIf(b -> {
+			b.clear(loc);
+			return b.isEmpty();
+		});
+		hostedVMs = null;
+		forget(rem);
+	}
+
+	@Override
+	public Stream<VM> getHosted(VMLocation n) {
+		int loc = locationId(n);
+		return loc == -1 ? Stream.empty() : hostedOn(loc);
+	}
+
+	@Override
+	public long nbHosted(VMLocation host) {
+		int loc = locationId(host);
+		if (loc == -1) {
+			return 0;
+		}
+		indexHosted();
+		return hostedStart[loc + 1] - hostedStart[loc];
+	}
+
+	@Override
+	public Extern addExtern(String name, int... resources) {
+		if (name == null) {
+			return null;
+		}
+		Extern ret;
+		try {
+			ret = getElementByName(name, Extern.class);
+			if (ret == null) {
+				ret = registry.extern(name);
+				addLocation(ret);
+				nbExterns++;
+			}
+		} catch (ClassCastException e) {
+			return null;
+		}
+		if (resources != null) {
+			ResourceSpecification[] specs = this.resources.values().toArray(new ResourceSpecification[this.resources.size()]);
+			for (int i = 0; i < specs.length && i < resources.length; i++) {
+				specs[i].capacity(ret, resources[i]);
+			}
+		}
+		return ret;
+	}
+
+	@Override
+	public Stream<Extern> getExterns() {
+		return locations(Extern.class);
+	}
+
+	@Override
+	public boolean hasExtern(Extern e) {
+		return locationId(e) != -1;
+	}
+
+	@Override
+	public int nbExterns() {
+		return nbExterns;
+	}
+
+	@Override
+	public boolean remove(Extern e) {
+		if (locationId(e) == -1) {
+			return false;
+		}
+		removeLocation(locationId(e), externsTags);
+		nbExterns--;
+		return true;
+	}
+
+	@Override
+	public LinkedHashMap<String, ResourceSpecification> resources() {
+		return resources;
+	}
+
+	@Override
+	public ResourceSpecification resource(String name) {
+		ResourceSpecification ret = resources.get(name);
+		if (ret == null) {
+			ret = new IndexedResourceSpecification(name, registry);
+			resources.put(name, ret);
+		}
+		return ret;
+	}
+
+	////////////////////////////////////////////////
+	// sites
+
+	@Override
+	public Site addSite(String siteName, VMLocation... hosters) {
+		if (siteName == null) {
+			if (hosters != null) {
+				for (VMLocation h : hosters) {
+					int loc = locationId(h);
+					if (loc != -1) {
+						locationSite[loc] = NONE;
+					}
+				}
+			}
+			return null;
+		}
+		Site ret;
+		int site;
+		try {
+			ret = getElementByName(siteName, Site.class);
+			if (ret == null) {
+				ret = registry.site(siteName);
+				site = ret.getId();
+				if (site >= sites.length) {
+					sites = Arrays.copyOf(sites, grown(sites.length, site));
+				}
+				nbSiteIds = Math.max(nbSiteIds, site + 1);
+				sites[site] = ret;
+				nbSites++;
+			} else {
+				site = id(ret);
+			}
+		} catch (ClassCastException e) {
+			return null;
+		}
+		if (hosters != null) {
+			for (VMLocation h : hosters) {
+				int loc = locationId(h);
+				if (loc != -1) {
+					locationSite[loc] = site;
+				}
+			}
+		}
+		return ret;
+	}
+
+	@Override
+	public int nbSites() {
+		return nbSites;
+	}
+
+	@Override
+	public Site getSite(VMLocation n) {
+		int loc = locationId(n);
+		return loc == -1 || locationSite[loc] == NONE ? null : sites[locationSite[loc]];
+	}
+
+	@Override
+	public Stream<Site> getSites() {
+		return Stream.of(sites).limit(nbSiteIds).filter(s -> s != null);
+	}
+
+	@Override
+	public boolean hasSite(Site s) {
+		return id(s) != -1;
+	}
+
+	@Override
+	public boolean remove(Site site) {
+		int s = id(site);
+		if (s == -1) {
+			return false;
+		}
+		Site rem = sites[s];
+		for (int l = 0; l < nbLocationIds; l++) {
+			if (locationSite[l] == s) {
+				locationSite[l] = NONE;
+			}
+		}
+		sites[s] = null;
+		nbSites--;
+		sitesTags.values().removeIf(b -> {
+			b.clear(s);
+			return b.isEmpty();
+		});
+		forget(rem);
+		return true;
+	}
+
+	@Override
+	public Stream<VMLocation> getSiteLocations(Site site) {
+		int s = site == null ? NONE : id(site);
+		if (site != null && s == -1) {
+			return Stream.empty();
+		}
+		return IntStream.range(0, nbLocationIds).filter(l -> locations[l] != null && locationSite[l] == s)
+				.mapToObj(l -> locations[l]);
+	}
+
+	////////////////////////////////////////////////
+	// tags
+
+	protected void tag(Map<String, BitSet> tags, int id, String tag) {
+		if (id == -1 || tag == null) {
+			return;
+		}
+		tags.computeIfAbsent(tag, t -> new BitSet()).set(id);
+	}
+
+	protected void delTag(Map<String, BitSet> tags, int id, String tag) {
+		BitSet set = tags.get(tag);
+		if (set == null || id == -1) {
+			return;
+		}
+		set.clear(id);
+		if (set.isEmpty()) {
+			tags.remove(tag);
+		}
+	}
+
+	protected <T> Stream<T> tagged(Map<String, BitSet> tags, String tag, T[] elems) {
+		BitSet set = tags.get(tag);
+		return set == null ? Stream.empty() : set.stream().mapToObj(i -> elems[i]);
+	}
+
+	/** @return the map of tags of the type of an element */
+	protected Map<String, BitSet> tagsOf(ManagedElement me) {
+		if (me instanceof Computer) {
+			return computersTags;
+		}
+		if (me instanceof VM) {
+			return vmsTags;
+		}
+		if (me instanceof Extern) {
+			return externsTags;
+		}
+		if (me instanceof Site) {
+			return sitesTags;
+		}
+		return null;
+	}
+
+	@Override
+	public void tagComputer(Computer n, String tag) {
+		tag(computersTags, locationId(n), tag);
+	}
+
+	@Override
+	public void tagExtern(Extern e, String tag) {
+		tag(externsTags, locationId(e), tag);
+	}
+
+	@Override
+	public void tagVM(VM v, String tag) {
+		tag(vmsTags, vmId(v), tag);
+	}
+
+	@Override
+	public void tagSite(Site s, String tag) {
+		tag(sitesTags, id(s), tag);
+	}
+
+	@Override
+	public void delTagComputer(Computer n, String tag) {
+		delTag(computersTags, locationId(n), tag);
+	}
+
+	@Override
+	public void delTagExtern(Extern e, String tag) {
+		delTag(externsTags, locationId(e), tag);
+	}
+
+	@Override
+	public void delTagVM(VM v, String tag) {
+		delTag(vmsTags, vmId(v), tag);
+	}
+
+	@Override
+	public void delTagSite(Site s, String tag) {
+		delTag(sitesTags, id(s), tag);
+	}
+
+	@Override
+	public boolean isTagged(ManagedElement e, String tag) {
+		if (e == null || tag == null) {
+			return false;
+		}
+		Map<String, BitSet> tags = tagsOf(e);
+		int id = id(e);
+		if (tags == null || id == -1) {
+			return false;
+		}
+		BitSet set = tags.get(tag);
+		return set != null && set.get(id);
+	}
+
+	@Override
+	public Stream<VM> getVmsTagged(String tag) {
+		return tagged(vmsTags, tag, vms);
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	@Override
+	public Stream<Computer> getComputersTagged(String tag) {
+		return (Stream) tagged(computersTags, tag, locations);
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	@Override
+	public Stream<Extern> getExternsTagged(String tag) {
+		return (Stream) tagged(externsTags, tag, locations);
+	}
+
+	@Override
+	public Stream<Site> getSitesTagged(String tag) {
+		return tagged(sitesTags, tag, sites);
+	}
+
+	@Override
+	public Stream<String> getTags(ManagedElement me) {
+		if (me == null) {
+			return Stream.empty();
+		}
+		Map<String, BitSet> tags = tagsOf(me);
+		if (tags == null) {
+			throw new UnsupportedOperationException(
+					"can not stream the tags of the managedelement " + me + " with unsupported class " + me.getClass());
+		}
+		int id = id(me);
+		return id == -1 ? Stream.empty()
+				: tags.entrySet().stream().filter(e -> e.getValue().get(id)).map(Map.Entry::getKey);
+	}
+
+	@Override
+	public Stream<String> getVmsTags() {
+		return vmsTags.keySet().stream();
+	}
+
+	@Override
+	public Stream<String> getComputersTags() {
+		return computersTags.keySet().stream();
+	}
+
+	@Override
+	public Stream<String> getExternsTags() {
+		return externsTags.keySet().stream();
+	}
+
+	@Override
+	public Stream<String> getSitesTags() {
+		return sitesTags.keySet().stream();
+	}
+
+	////////////////////////////////////////////////
+
+	@Override
+	public String toString() {
+		return toConfiguration().toString();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj == this) {
+			return true;
+		}
+		if (obj == null || obj.getClass() != IndexedConfiguration.class) {
+			return false;
+		}
+		return toConfiguration().equals(((IndexedConfiguration) obj).toConfiguration());
+	}
+
+	@Override
+	public int hashCode() {
+		return toConfiguration().hashCode();
+	}
+}
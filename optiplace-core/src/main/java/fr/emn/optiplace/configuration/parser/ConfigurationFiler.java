@@ -10,7 +10,15 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.util.Arrays;
+import java.io.PushbackReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.Writer;
+import java.util.Iterator;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 import fr.emn.optiplace.configuration.Computer;
 import fr.emn.optiplace.configuration.Configuration;
@@ -20,10 +28,16 @@ import fr.emn.optiplace.configuration.ManagedElement;
 import fr.emn.optiplace.configuration.Site;
 import fr.emn.optiplace.configuration.VM;
 import fr.emn.optiplace.configuration.VMLocation;
-import fr.emn.optiplace.configuration.resources.MappedResourceSpecification;
+import fr.emn.optiplace.configuration.resources.ResourceSpecification;
 
 /**
  * handles reading and writing a Configuration from/to a file
+ * <p>
+ * The text format is the one of {@link Configuration#toString()}. It is read
+ * and written as a stream of names, so a section is never held in memory. A
+ * file written with {@link #writeSnapshot()} is read as a
+ * {@link ConfigurationSnapshot} instead.
+ * </p>
  *
  * @author Guillaume Le Louët [guillaume.lelouet@gmail.com]2014
  */
@@ -52,143 +66,398 @@ public class ConfigurationFiler {
 	}
 
 	public void read() {
-		try (BufferedReader br = new BufferedReader(new FileReader(file))) {
-			br.lines().forEach(this::readLine);
+		try {
+			if (ConfigurationSnapshot.isSnapshot(file)) {
+				ConfigurationSnapshot.read(file, cfg);
+				return;
+			}
+			try (BufferedReader br = new BufferedReader(new FileReader(file))) {
+				read(br);
+			}
 		} catch (Exception e) {
 			throw new UnsupportedOperationException(e);
 		}
 	}
 
+	/**
+	 * read the configuration from lines instead of the file
+	 *
+	 * @param lines
+	 *          the lines of a configuration, as written by {@link #write()}
+	 */
+	public void read(Stream<String> lines) {
+		lines.forEach(this::readLine);
+	}
+
 	protected void readLine(String line) {
-		if (line.startsWith("computers : {")) {
-			if (line.length() > "computers : {}".length()) {
-				line = line.substring("computers : {".length(), line.length() - 2);
-				String[] lines = line.split("], ");
-				for (String l2 : lines) {
-					String[] l2s = l2.split("=\\[");
-					String computerName = l2s[0];
-					if (computerName.length() != 0) {
-						Computer n = cfg.addComputer(computerName);
-						if (l2s.length > 1) {
-							String[] vms = l2s[1].split(", ");
-							for (String vm : vms) {
-								cfg.addVM(vm, n);
-							}
-						}
-					} else {
-						logger.debug("computer name null : " + computerName);
-					}
-				}
-			}
-		} else if (line.startsWith("waitings : [")) {
-			if (line.length() > "waitings : []".length()) {
-				line = line.substring("waitings : [".length(), line.length() - 1);
-				String[] lines = line.split(", ");
-				for (String s : lines) {
-					cfg.addVM(s, null);
-				}
-			}
+		try {
+			read(new StringReader(line));
+		} catch (IOException e) {
+			throw new UnsupportedOperationException(e);
+		}
+	}
 
-		} else if (line.startsWith("externs : {")) {
-			if (line.length() > "externs : {}".length()) {
-				line = line.substring("externs : {".length(), line.length() - 2);
-				String[] lines = line.split("], ");
-				for (String l2 : lines) {
-					String[] l2s = l2.split("=\\[");
-					String externName = l2s[0];
-					if (externName.length() != 0) {
-						Extern e = cfg.addExtern(externName);
-						if (l2s.length > 1) {
-							String[] vms = l2s[1].split(", ");
-							for (String vm : vms) {
-								cfg.addVM(vm, e);
-							}
-						}
-					} else {
-						logger.debug("extern name null : " + externName);
-					}
-				}
-			}
-		} else if (line.startsWith("computersTags : {")) {
-			String[] tags = line.split("\\{|\\}")[1].split("=?\\[|\\],?\\ ?");
-			// result is tags[0] = name of first tag, tags[1]=value of first tag
-			for (int i = 0; i + 1 < tags.length; i += 2) {
-				String tag = tags[i];
-				String[] values = tags[i + 1].split(", ");
-				for (String name : Arrays.asList(values)) {
-					cfg.tagComputer(new Computer(name), tag);
-				}
-			}
-		} else if (line.startsWith("externsTags : {")) {
-			String[] tags = line.split("\\{|\\}")[1].split("=?\\[|\\],?\\ ?");
-			// result is tags[0] = name of first tag, tags[1]=value of first tag
-			for (int i = 0; i + 1 < tags.length; i += 2) {
-				String tag = tags[i];
-				String[] values = tags[i + 1].split(", ");
-				for (String name : Arrays.asList(values)) {
-					cfg.tagExtern(new Extern(name), tag);
-				}
-			}
-		} else if (line.startsWith("vmsTags : {")) {
-			String[] tags = line.split("\\{|\\}")[1].split("=?\\[|\\],?\\ ?");
-			// result is tags[0] = name of first tag, tags[1]=value of first tag
-			for (int i = 0; i + 1 < tags.length; i += 2) {
-				String tag = tags[i];
-				String[] values = tags[i + 1].split(", ");
-				for (String name : Arrays.asList(values)) {
-					cfg.tagVM(new VM(name), tag);
-				}
+	////////////////////////////////////////////////
+	// streaming parser
+
+	protected PushbackReader in;
+
+	/** the last char read by {@link #token(char...)} */
+	protected int stop;
+
+	protected final StringBuilder sb = new StringBuilder();
+
+	/**
+	 * read a configuration in the text format
+	 *
+	 * @param reader
+	 *          the reader of the text, should be buffered.
+	 */
+	public void read(Reader reader) throws IOException {
+		in = new PushbackReader(reader, 1);
+		while (readSection()) {
+		}
+		in = null;
+	}
+
+	/** @return the next char, or -1 */
+	protected int next() throws IOException {
+		return in.read();
+	}
+
+	protected int peek() throws IOException {
+		int ret = in.read();
+		if (ret != -1) {
+			in.unread(ret);
+		}
+		return ret;
+	}
+
+	protected void expect(char c) throws IOException {
+		int r = next();
+		if (r != c) {
+			throw new UnsupportedOperationException(
+					"expected '" + c + "', got " + (r == -1 ? "end of stream" : "'" + (char) r + "'"));
+		}
+	}
+
+	/**
+	 * read chars up to one of the stops, the end of line or the end of stream.
+	 * The stop read is stored in {@link #stop}.
+	 *
+	 * @return the chars read before the stop
+	 */
+	protected String token(char... stops) throws IOException {
+		sb.setLength(0);
+		for (;;) {
+			int c = next();
+			if (c == -1 || c == '\n') {
+				stop = c;
+				return sb.toString();
 			}
-		} else if (line.startsWith("sitesTags : {")) {
-			String[] tags = line.split("\\{|\\}")[1].split("=?\\[|\\],?\\ ?");
-			// result is tags[0] = name of first tag, tags[1]=value of first tag
-			for (int i = 0; i + 1 < tags.length; i += 2) {
-				String tag = tags[i];
-				String[] values = tags[i + 1].split(", ");
-				for (String name : Arrays.asList(values)) {
-					cfg.tagSite(new Site(name), tag);
+			for (char s : stops) {
+				if (c == s) {
+					stop = c;
+					return sb.toString();
 				}
 			}
-		} else if (line.startsWith(" ")) {
-			line = line.substring(" ".length());
-			String[] l2s = line.split("\\{");
-			String resName = l2s[0];
-			MappedResourceSpecification res = new MappedResourceSpecification(resName);
-			cfg.resources().put(resName, res);
-			if (l2s[1].length() > 1) {
-				String[] computers = l2s[1].substring(0, l2s[1].length() - 1).split(", ");
-				for (String r : computers) {
-					String[] rs = r.split("=");
-					ManagedElement me = cfg.getElementByName(rs[0]);
-					if (me == null || !(me instanceof VMLocation)) {
-						throw new UnsupportedOperationException();
-					}
-					res.capacity((VMLocation) me, Integer.parseInt(rs[1]));
-				}
+			sb.append((char) c);
+		}
+	}
+
+	protected void skipLine() throws IOException {
+		if (stop == '\n' || stop == -1) {
+			return;
+		}
+		for (int c = next(); c != -1 && c != '\n'; c = next()) {
+		}
+	}
+
+	/** @return false at the end of the stream */
+	protected boolean readSection() throws IOException {
+		int c = next();
+		if (c == -1) {
+			return false;
+		}
+		stop = 0;
+		if (c == '\n' || c == '\r') {
+			return true;
+		}
+		if (c == ' ') {
+			readResource();
+			skipLine();
+			return true;
+		}
+		in.unread(c);
+		String header = token(':');
+		if (stop != ':') {
+			logger.debug("discarding line " + header);
+			return true;
+		}
+		expect(' ');
+		switch (header.trim()) {
+		case "computers":
+			readLists(cfg::addComputer, (n, v) -> cfg.addVM(v, n));
+			break;
+		case "externs":
+			readLists(cfg::addExtern, (e, v) -> cfg.addVM(v, e));
+			break;
+		case "waitings":
+			readList(v -> cfg.addVM(v, null));
+			break;
+		case "migrations":
+			readMap((v, l) -> cfg.setMigTarget(cfg.getElementByName(v, VM.class), location(l)));
+			break;
+		case "sites":
+			readLists(cfg::addSite, (s, l) -> cfg.addSite(s.getName(), location(l)));
+			break;
+		case "resources":
+			// the resources are on the next lines
+			break;
+		case "computersTags":
+			readLists(Function.identity(), (t, n) -> cfg.tagComputer(element(n, Computer.class, Computer::new), t));
+			break;
+		case "externsTags":
+			readLists(Function.identity(), (t, e) -> cfg.tagExtern(element(e, Extern.class, Extern::new), t));
+			break;
+		case "vmsTags":
+			readLists(Function.identity(), (t, v) -> cfg.tagVM(element(v, VM.class, VM::new), t));
+			break;
+		case "sitesTags":
+			readLists(Function.identity(), (t, s) -> cfg.tagSite(element(s, Site.class, Site::new), t));
+			break;
+		default:
+			logger.debug("discarding section " + header);
+		}
+		skipLine();
+		return true;
+	}
+
+	protected VMLocation location(String name) {
+		ManagedElement me = cfg.getElementByName(name);
+		if (me == null || !(me instanceof VMLocation)) {
+			throw new UnsupportedOperationException("no location named " + name);
+		}
+		return (VMLocation) me;
+	}
+
+	/**
+	 * @return the element of the configuration with this name, to share its
+	 *         instance, or a new element if the configuration has none.
+	 */
+	protected <T extends ManagedElement> T element(String name, Class<T> clazz, Function<String, T> maker) {
+		T ret = cfg.getElementByName(name, clazz);
+		return ret != null ? ret : maker.apply(name);
+	}
+
+	/** read "[a, b]" */
+	protected void readList(Consumer<String> onValue) throws IOException {
+		expect('[');
+		if (peek() == ']') {
+			next();
+			return;
+		}
+		do {
+			onValue.accept(token(',', ']'));
+		} while (stop == ',' && next() == ' ');
+		if (stop != ']') {
+			throw new UnsupportedOperationException("unterminated list");
+		}
+	}
+
+	/** read "{a=b, c=d}" */
+	protected void readMap(BiConsumer<String, String> onEntry) throws IOException {
+		expect('{');
+		if (peek() == '}') {
+			next();
+			return;
+		}
+		do {
+			String key = token('=');
+			onEntry.accept(key, token(',', '}'));
+		} while (stop == ',' && next() == ' ');
+		if (stop != '}') {
+			throw new UnsupportedOperationException("unterminated map");
+		}
+	}
+
+	/**
+	 * read "{a=[b, c], d=[]}"
+	 *
+	 * @param onKey
+	 *          converts each key
+	 * @param onValue
+	 *          called with the converted key for each value of its list
+	 */
+	protected <T> void readLists(Function<String, T> onKey, BiConsumer<T, String> onValue) throws IOException {
+		expect('{');
+		if (peek() == '}') {
+			next();
+			return;
+		}
+		for (;;) {
+			T key = onKey.apply(token('='));
+			readList(v -> onValue.accept(key, v));
+			int c = next();
+			if (c == '}') {
+				return;
 			}
-			if (l2s[2].length() > 1) {
-				String[] vms = l2s[2].substring(0, l2s[2].length() - 1).split(", ");
-				for (String v : vms) {
-					String[] vs = v.split("=");
-					res.use(new VM(vs[0]), Integer.parseInt(vs[1]));
-				}
+			if (c != ',' || next() != ' ') {
+				throw new UnsupportedOperationException("unterminated map of lists");
 			}
-		} else {
-			logger.debug("discarding line " + line);
 		}
+	}
 
+	/** read "name{location=capa, ...}{vm=use, ...}" */
+	protected void readResource() throws IOException {
+		String resName = token('{');
+		in.unread('{');
+		ResourceSpecification res = cfg.resource(resName);
+		readMap((l, c) -> res.capacity(location(l), Integer.parseInt(c)));
+		readMap((v, u) -> res.use(element(v, VM.class, VM::new), Integer.parseInt(u)));
 	}
 
+	////////////////////////////////////////////////
+	// writing
+
 	/**
 	 * write the configuration in a file so next read will do the opposite.
 	 */
 	public void write() {
+		try (BufferedWriter b = new BufferedWriter(new FileWriter(file))) {
+			write(cfg, b);
+		} catch (IOException e) {
+			throw new UnsupportedOperationException(e);
+		}
+	}
+
+	/**
+	 * write the configuration in a binary snapshot file. see
+	 * {@link ConfigurationSnapshot}
+	 */
+	public void writeSnapshot() {
 		try {
-			BufferedWriter b = new BufferedWriter(new FileWriter(file));
-			b.append(cfg.toString());
-			b.close();
+			ConfigurationSnapshot.write(cfg, file);
 		} catch (IOException e) {
 			throw new UnsupportedOperationException(e);
 		}
 	}
+
+	/**
+	 * write a configuration in the text format, element by element
+	 *
+	 * @param cfg
+	 *          the configuration to write
+	 * @param w
+	 *          the writer to write into, should be buffered.
+	 */
+	public static void write(IConfiguration cfg, Writer w) throws IOException {
+		w.write("computers : ");
+		writeLists(w, cfg.getComputers().iterator(), c -> cfg.getHosted(c).iterator());
+		if (cfg.nbExterns() > 0) {
+			w.write("\nexterns : ");
+			writeLists(w, cfg.getExterns().iterator(), e -> cfg.getHosted(e).iterator());
+		}
+		if (cfg.nbVMs(IConfiguration.VMSTATES.WAITING) > 0) {
+			w.write("\nwaitings : ");
+			writeList(w, cfg.getWaitings().iterator());
+		}
+		if (!cfg.getMigratingVMs().isEmpty()) {
+			w.write("\nmigrations : {");
+			String sep = "";
+			for (VM v : cfg.getMigratingVMs()) {
+				VMLocation target = cfg.getMigTarget(v);
+				if (target != null) {
+					w.write(sep);
+					w.write(v.getName());
+					w.write('=');
+					w.write(target.getName());
+					sep = ", ";
+				}
+			}
+			w.write('}');
+		}
+		if (cfg.nbSites() > 0) {
+			w.write("\nsites : ");
+			writeLists(w, cfg.getSites().iterator(), s -> cfg.getSiteLocations(s).iterator());
+		}
+		if (!cfg.resources().isEmpty()) {
+			w.write("\nresources : ");
+			for (ResourceSpecification r : cfg.resources().values()) {
+				w.write("\n ");
+				w.write(r.getType());
+				writeValues(w, cfg.getLocations().iterator(), r::getCapacity);
+				writeValues(w, cfg.getVMs().iterator(), r::getUse);
+			}
+		}
+		writeTags(w, "computersTags", cfg.getComputersTags().iterator(), cfg::getComputersTagged);
+		writeTags(w, "vmsTags", cfg.getVmsTags().iterator(), cfg::getVmsTagged);
+		writeTags(w, "sitesTags", cfg.getSitesTags().iterator(), cfg::getSitesTagged);
+		writeTags(w, "externsTags", cfg.getExternsTags().iterator(), cfg::getExternsTagged);
+	}
+
+	protected static void writeList(Writer w, Iterator<? extends ManagedElement> it) throws IOException {
+		w.write('[');
+		while (it.hasNext()) {
+			w.write(it.next().getName());
+			if (it.hasNext()) {
+				w.write(", ");
+			}
+		}
+		w.write(']');
+	}
+
+	protected static <T extends ManagedElement> void writeLists(Writer w, Iterator<T> keys,
+			Function<T, Iterator<? extends ManagedElement>> values) throws IOException {
+		w.write('{');
+		while (keys.hasNext()) {
+			T key = keys.next();
+			w.write(key.getName());
+			w.write('=');
+			writeList(w, values.apply(key));
+			if (keys.hasNext()) {
+				w.write(", ");
+			}
+		}
+		w.write('}');
+	}
+
+	/** write "{a=1, b=2}" for the elements with a non-zero value */
+	protected static <T extends ManagedElement> void writeValues(Writer w, Iterator<T> it, Function<T, Integer> value)
+			throws IOException {
+		w.write('{');
+		String sep = "";
+		while (it.hasNext()) {
+			T e = it.next();
+			int val = value.apply(e);
+			if (val != 0) {
+				w.write(sep);
+				w.write(e.getName());
+				w.write('=');
+				w.write(Integer.toString(val));
+				sep = ", ";
+			}
+		}
+		w.write('}');
+	}
+
+	protected static void writeTags(Writer w, String section, Iterator<String> tags,
+			Function<String, Stream<? extends ManagedElement>> tagged) throws IOException {
+		if (!tags.hasNext()) {
+			return;
+		}
+		w.write('\n');
+		w.write(section);
+		w.write(" : {");
+		while (tags.hasNext()) {
+			String tag = tags.next();
+			w.write(tag);
+			w.write('=');
+			writeList(w, tagged.apply(tag).iterator());
+			if (tags.hasNext()) {
+				w.write(", ");
+			}
+		}
+		w.write('}');
+	}
 }
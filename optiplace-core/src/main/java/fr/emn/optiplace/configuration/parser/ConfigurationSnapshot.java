@@ -0,0 +1,351 @@
+package fr.emn.optiplace.configuration.parser;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import fr.emn.optiplace.configuration.Computer;
+import fr.emn.optiplace.configuration.Configuration;
+import fr.emn.optiplace.configuration.ElementRegistry;
+import fr.emn.optiplace.configuration.Extern;
+import fr.emn.optiplace.configuration.IConfiguration;
+import fr.emn.optiplace.configuration.ManagedElement;
+import fr.emn.optiplace.configuration.Site;
+import fr.emn.optiplace.configuration.VM;
+import fr.emn.optiplace.configuration.VMLocation;
+import fr.emn.optiplace.configuration.resources.ResourceSpecification;
+
+/**
+ * Compact binary format of a configuration, written through a file channel and
+ * read from a memory-mapped buffer.
+ * <p>
+ * The file starts with {@link #MAGIC} and {@link #VERSION}, then the table of
+ * all the names used. The elements are then written as indexes in this table,
+ * and refer to each other by their position in their section. All the ints are
+ * varints, the resource values being zigzag-encoded. The sections are, in
+ * order :
+ * <ol>
+ * <li>the computers, then the externs : their names. The locations are the
+ * computers followed by the externs</li>
+ * <li>the sites : name, number of locations, locations</li>
+ * <li>the VMs : name, location+1 (0 for waiting), migration target+1 (0 for
+ * none)</li>
+ * <li>the resources : name, capacity of each location, use of each VM</li>
+ * <li>the tags of the computers, externs, VMs and sites : number of tags, then
+ * for each tag its name, number of elements and elements</li>
+ * </ol>
+ * </p>
+ *
+ * @author Guillaume Le Louët [guillaume.lelouet@gmail.com] 2017
+ *
+ */
+public class ConfigurationSnapshot {
+
+	@SuppressWarnings("unused")
+	private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(ConfigurationSnapshot.class);
+
+	public static final byte[] MAGIC = { 'O', 'P', 'L', 'S' };
+
+	public static final int VERSION = 1;
+
+	/**
+	 * @return true if the file exists and starts with {@link #MAGIC}
+	 */
+	public static boolean isSnapshot(File file) throws IOException {
+		if (file == null || !file.isFile() || file.length() < MAGIC.length) {
+			return false;
+		}
+		try (FileChannel fc = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			ByteBuffer head = ByteBuffer.allocate(MAGIC.length);
+			while (head.hasRemaining() && fc.read(head) != -1) {
+			}
+			return Arrays.equals(head.array(), MAGIC);
+		}
+	}
+
+	////////////////////////////////////////////////
+	// writing
+
+	/** buffer flushed into a channel when full */
+	protected static class Output {
+
+		protected final FileChannel fc;
+
+		protected final ByteBuffer buf = ByteBuffer.allocateDirect(1 << 16);
+
+		public Output(FileChannel fc) {
+			this.fc = fc;
+		}
+
+		protected void ensure(int size) throws IOException {
+			if (buf.remaining() < size) {
+				flush();
+			}
+		}
+
+		public void flush() throws IOException {
+			buf.flip();
+			while (buf.hasRemaining()) {
+				fc.write(buf);
+			}
+			buf.clear();
+		}
+
+		public void varint(int val) throws IOException {
+			ensure(5);
+			while ((val & ~0x7f) != 0) {
+				buf.put((byte) (val & 0x7f | 0x80));
+				val >>>= 7;
+			}
+			buf.put((byte) val);
+		}
+
+		public void zigzag(int val) throws IOException {
+			varint(val << 1 ^ val >> 31);
+		}
+
+		public void bytes(byte[] b) throws IOException {
+			varint(b.length);
+			for (int off = 0; off < b.length;) {
+				ensure(1);
+				int len = Math.min(buf.remaining(), b.length - off);
+				buf.put(b, off, len);
+				off += len;
+			}
+		}
+	}
+
+	/**
+	 * write a configuration in a snapshot file, replacing it.
+	 */
+	public static void write(IConfiguration cfg, File file) throws IOException {
+		Computer[] computers = cfg.getComputers().toArray(Computer[]::new);
+		Extern[] externs = cfg.getExterns().toArray(Extern[]::new);
+		VMLocation[] locations = Stream.concat(Stream.of(computers), Stream.of(externs)).toArray(VMLocation[]::new);
+		Site[] sites = cfg.getSites().toArray(Site[]::new);
+		VM[] vms = cfg.getVMs().toArray(VM[]::new);
+		HashMap<ManagedElement, Integer> locIdx = index(locations);
+		HashMap<ManagedElement, Integer> vmIdx = index(vms);
+		HashMap<ManagedElement, Integer> siteIdx = index(sites);
+		HashMap<ManagedElement, Integer> computerIdx = index(computers);
+		HashMap<ManagedElement, Integer> externIdx = index(externs);
+
+		// the string table
+		HashMap<String, Integer> strings = new HashMap<>();
+		List<String> table = new ArrayList<>();
+		Function<String, Integer> str = s -> strings.computeIfAbsent(s, k -> {
+			table.add(k);
+			return table.size() - 1;
+		});
+		for (ManagedElement[] arr : new ManagedElement[][] { locations, sites, vms }) {
+			for (ManagedElement e : arr) {
+				str.apply(e.getName());
+			}
+		}
+		cfg.resources().keySet().forEach(str::apply);
+		Stream.of(cfg.getComputersTags(), cfg.getExternsTags(), cfg.getVmsTags(), cfg.getSitesTags())
+		.flatMap(s -> s).forEach(str::apply);
+
+		try (FileChannel fc = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			Output out = new Output(fc);
+			out.ensure(MAGIC.length);
+			out.buf.put(MAGIC);
+			out.varint(VERSION);
+			out.varint(table.size());
+			for (String s : table) {
+				out.bytes(s.getBytes(StandardCharsets.UTF_8));
+			}
+			out.varint(computers.length);
+			for (Computer c : computers) {
+				out.varint(strings.get(c.getName()));
+			}
+			out.varint(externs.length);
+			for (Extern e : externs) {
+				out.varint(strings.get(e.getName()));
+			}
+			out.varint(sites.length);
+			for (Site s : sites) {
+				out.varint(strings.get(s.getName()));
+				int[] locs = cfg.getSiteLocations(s).mapToInt(l -> locIdx.getOrDefault(l, -1)).filter(i -> i != -1).toArray();
+				out.varint(locs.length);
+				for (int l : locs) {
+					out.varint(l);
+				}
+			}
+			out.varint(vms.length);
+			for (VM v : vms) {
+				out.varint(strings.get(v.getName()));
+				out.varint(locIdx.getOrDefault(cfg.getLocation(v), -1) + 1);
+				out.varint(locIdx.getOrDefault(cfg.getMigTarget(v), -1) + 1);
+			}
+			out.varint(cfg.resources().size());
+			for (ResourceSpecification r : cfg.resources().values()) {
+				out.varint(strings.get(r.getType()));
+				for (VMLocation l : locations) {
+					out.zigzag(r.getCapacity(l));
+				}
+				for (VM v : vms) {
+					out.zigzag(r.getUse(v));
+				}
+			}
+			writeTags(out, strings, cfg.getComputersTags().toArray(String[]::new), cfg::getComputersTagged, computerIdx);
+			writeTags(out, strings, cfg.getExternsTags().toArray(String[]::new), cfg::getExternsTagged, externIdx);
+			writeTags(out, strings, cfg.getVmsTags().toArray(String[]::new), cfg::getVmsTagged, vmIdx);
+			writeTags(out, strings, cfg.getSitesTags().toArray(String[]::new), cfg::getSitesTagged, siteIdx);
+			out.flush();
+		}
+	}
+
+	protected static HashMap<ManagedElement, Integer> index(ManagedElement[] elems) {
+		HashMap<ManagedElement, Integer> ret = new HashMap<>();
+		for (int i = 0; i < elems.length; i++) {
+			ret.put(elems[i], i);
+		}
+		return ret;
+	}
+
+	protected static void writeTags(Output out, HashMap<String, Integer> strings, String[] tags,
+			Function<String, Stream<? extends ManagedElement>> tagged, HashMap<ManagedElement, Integer> idx)
+					throws IOException {
+		out.varint(tags.length);
+		for (String tag : tags) {
+			out.varint(strings.get(tag));
+			int[] elems = tagged.apply(tag).mapToInt(e -> idx.getOrDefault(e, -1)).filter(i -> i != -1).toArray();
+			out.varint(elems.length);
+			for (int e : elems) {
+				out.varint(e);
+			}
+		}
+	}
+
+	////////////////////////////////////////////////
+	// reading
+
+	/**
+	 * read a snapshot into a new {@link Configuration}, with its own
+	 * {@link ElementRegistry} so its resources are indexed by the elements' ids
+	 */
+	public static Configuration read(File file) throws IOException {
+		return read(file, new Configuration(new ElementRegistry()));
+	}
+
+	/**
+	 * read a snapshot into a configuration
+	 *
+	 * @param file
+	 *          the snapshot file
+	 * @param cfg
+	 *          the configuration to add the elements into, should be empty
+	 * @return cfg
+	 */
+	public static <T extends IConfiguration> T read(File file, T cfg) throws IOException {
+		MappedByteBuffer buf;
+		try (FileChannel fc = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			buf = fc.map(MapMode.READ_ONLY, 0, fc.size());
+		}
+		byte[] magic = new byte[MAGIC.length];
+		buf.get(magic);
+		if (!Arrays.equals(magic, MAGIC)) {
+			throw new UnsupportedOperationException("not a configuration snapshot : " + file);
+		}
+		int version = varint(buf);
+		if (version != VERSION) {
+			throw new UnsupportedOperationException("unsupported snapshot version " + version);
+		}
+		String[] table = new String[varint(buf)];
+		byte[] bytes = new byte[64];
+		for (int i = 0; i < table.length; i++) {
+			int len = varint(buf);
+			if (bytes.length < len) {
+				bytes = new byte[Math.max(len, bytes.length * 2)];
+			}
+			buf.get(bytes, 0, len);
+			table[i] = new String(bytes, 0, len, StandardCharsets.UTF_8);
+		}
+		Computer[] computers = new Computer[varint(buf)];
+		for (int i = 0; i < computers.length; i++) {
+			computers[i] = cfg.addComputer(table[varint(buf)]);
+		}
+		Extern[] externs = new Extern[varint(buf)];
+		for (int i = 0; i < externs.length; i++) {
+			externs[i] = cfg.addExtern(table[varint(buf)]);
+		}
+		VMLocation[] locations = new VMLocation[computers.length + externs.length];
+		System.arraycopy(computers, 0, locations, 0, computers.length);
+		System.arraycopy(externs, 0, locations, computers.length, externs.length);
+		Site[] sites = new Site[varint(buf)];
+		for (int i = 0; i < sites.length; i++) {
+			String name = table[varint(buf)];
+			VMLocation[] locs = new VMLocation[varint(buf)];
+			for (int j = 0; j < locs.length; j++) {
+				locs[j] = locations[varint(buf)];
+			}
+			sites[i] = cfg.addSite(name, locs);
+		}
+		VM[] vms = new VM[varint(buf)];
+		int[] migrations = new int[vms.length];
+		for (int i = 0; i < vms.length; i++) {
+			String name = table[varint(buf)];
+			int loc = varint(buf);
+			migrations[i] = varint(buf);
+			vms[i] = cfg.addVM(name, loc == 0 ? null : locations[loc - 1]);
+		}
+		for (int i = 0; i < vms.length; i++) {
+			if (migrations[i] != 0) {
+				cfg.setMigTarget(vms[i], locations[migrations[i] - 1]);
+			}
+		}
+		for (int nb = varint(buf); nb > 0; nb--) {
+			ResourceSpecification r = cfg.resource(table[varint(buf)]);
+			for (VMLocation l : locations) {
+				r.capacity(l, zigzag(buf));
+			}
+			for (VM v : vms) {
+				r.use(v, zigzag(buf));
+			}
+		}
+		readTags(buf, table, computers, cfg::tagComputer);
+		readTags(buf, table, externs, cfg::tagExtern);
+		readTags(buf, table, vms, cfg::tagVM);
+		readTags(buf, table, sites, cfg::tagSite);
+		return cfg;
+	}
+
+	protected static <T> void readTags(ByteBuffer buf, String[] table, T[] elems, BiConsumer<T, String> tagger) {
+		for (int nb = varint(buf); nb > 0; nb--) {
+			String tag = table[varint(buf)];
+			for (int nbElems = varint(buf); nbElems > 0; nbElems--) {
+				tagger.accept(elems[varint(buf)], tag);
+			}
+		}
+	}
+
+	protected static int varint(ByteBuffer buf) {
+		int ret = 0;
+		for (int shift = 0;; shift += 7) {
+			byte b = buf.get();
+			ret |= (b & 0x7f) << shift;
+			if (b >= 0) {
+				return ret;
+			}
+		}
+	}
+
+	protected static int zigzag(ByteBuffer buf) {
+		int val = varint(buf);
+		return val >>> 1 ^ -(val & 1);
+	}
+}
@@ -0,0 +1,433 @@
+package fr.emn.optiplace.configuration.resources;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import fr.emn.optiplace.configuration.Computer;
+import fr.emn.optiplace.configuration.ElementRegistry;
+import fr.emn.optiplace.configuration.ManagedElement;
+import fr.emn.optiplace.configuration.VM;
+import fr.emn.optiplace.configuration.VMLocation;
+import gnu.trove.impl.Constants;
+import gnu.trove.map.hash.TObjectIntHashMap;
+
+/**
+ * Resource specification storing the uses and capacities in int arrays, indexed
+ * by the ids of the VMs and the locations in an {@link ElementRegistry}.
+ * <p>
+ * The elements specified are the instances of the registry, so the use of an
+ * element of the registry is read directly at its id. The other elements, eg
+ * created with new VM(name) or removed from the registry, are found in a map
+ * built on the first such lookup.
+ * A specification used by a configuration with a registry should share it, so
+ * the elements of the configuration are all found by id.<br />
+ * The ids of the elements can also be retrieved with {@link #vmIds(VM...)} and
+ * {@link #locationIds(VMLocation...)} for the {@link #getUses(int[])} and
+ * {@link #getCapacities(int[])} accessors.
+ * </p>
+ * <p>
+ * The arrays are copied on write : {@link #clone()} shares them with the clone.
+ * </p>
+ *
+ * @author Guillaume Le Louët [guillaume.lelouet@gmail.com] 2017
+ *
+ */
+public class IndexedResourceSpecification implements ResourceSpecification {
+
+	@SuppressWarnings("unused")
+	private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(IndexedResourceSpecification.class);
+
+	private final String type;
+
+	/** gives the ids of the elements specified */
+	protected final ElementRegistry registry;
+
+	/** the VM of each id, or null if its use is not specified */
+	protected VM[] vms = new VM[16];
+
+	protected int[] uses = new int[16];
+
+	/** the location of each id, or null if its capacity is not specified */
+	protected VMLocation[] locations = new VMLocation[16];
+
+	protected int[] capacities = new int[16];
+
+	/** true when the arrays are shared with a clone */
+	private boolean shared = false;
+
+	/**
+	 * the ids of the VMs specified, to find the VMs not from the registry. Built
+	 * on the first such lookup, then updated.
+	 */
+	private volatile TObjectIntHashMap<VM> vmsRev = null;
+
+	/** the ids of the locations specified, same as {@link #vmsRev} */
+	private volatile TObjectIntHashMap<VMLocation> locationsRev = null;
+
+	/**
+	 * create a specification with its own registry
+	 */
+	public IndexedResourceSpecification(String type) {
+		this(type, new ElementRegistry());
+	}
+
+	/**
+	 * @param type
+	 *          the name of the resource
+	 * @param registry
+	 *          the registry of the elements specified, typically the one of the
+	 *          configuration.
+	 */
+	public IndexedResourceSpecification(String type, ElementRegistry registry) {
+		this.type = type;
+		this.registry = registry;
+	}
+
+	/**
+	 * copy another specification for given elements
+	 *
+	 * @param other
+	 *          the specification to copy
+	 * @param vms
+	 *          the VMs to copy the use of, in order
+	 * @param locations
+	 *          the locations to copy the capacity of, in order
+	 */
+	public IndexedResourceSpecification(ResourceSpecification other, VM[] vms, VMLocation[] locations) {
+		this(other.getType());
+		for (VM v : vms) {
+			use(v, other.getUse(v));
+		}
+		for (VMLocation l : locations) {
+			capacity(l, other.getCapacity(l));
+		}
+	}
+
+	@Override
+	public String getType() {
+		return type;
+	}
+
+	/**
+	 * share the arrays with the clone. They are copied by this or the clone
+	 * before being modified.
+	 */
+	@Override
+	public IndexedResourceSpecification clone() {
+		IndexedResourceSpecification ret = new IndexedResourceSpecification(type, registry);
+		ret.vms = vms;
+		ret.uses = uses;
+		ret.locations = locations;
+		ret.capacities = capacities;
+		shared = ret.shared = true;
+		return ret;
+	}
+
+	/** copy the arrays if they are shared with a clone */
+	protected void beforeWrite() {
+		if (shared) {
+			vms = vms.clone();
+			uses = uses.clone();
+			locations = locations.clone();
+			capacities = capacities.clone();
+			shared = false;
+		}
+	}
+
+	/** @return the id of the VM in this, or -1 if its use is not specified */
+	protected int vmId(VM v) {
+		if (v == null) {
+			return -1;
+		}
+		int id = v.getId();
+		VM[] elems = vms;
+		if (id >= 0 && id < elems.length && elems[id] == v) {
+			return id;
+		}
+		if (id >= 0 && registry.nbRemoved() == 0 && registry.vm(id) == v) {
+			// the only instance equal to v in this is v
+			return -1;
+		}
+		TObjectIntHashMap<VM> rev = vmsRev;
+		if (rev == null) {
+			rev = new TObjectIntHashMap<>(Constants.DEFAULT_CAPACITY, Constants.DEFAULT_LOAD_FACTOR, -1);
+			for (int i = 0; i < elems.length; i++) {
+				if (elems[i] != null) {
+					rev.put(elems[i], i);
+				}
+			}
+			vmsRev = rev;
+		}
+		return rev.get(v);
+	}
+
+	/** @return the id of the location in this, or -1 if its capacity is not specified */
+	protected int locationId(VMLocation l) {
+		if (l == null) {
+			return -1;
+		}
+		int id = l.getId();
+		VMLocation[] elems = locations;
+		if (id >= 0 && id < elems.length && elems[id] == l) {
+			return id;
+		}
+		if (id >= 0 && registry.nbRemoved() == 0 && registry.location(id) == l) {
+			return -1;
+		}
+		TObjectIntHashMap<VMLocation> rev = locationsRev;
+		if (rev == null) {
+			rev = new TObjectIntHashMap<>(Constants.DEFAULT_CAPACITY, Constants.DEFAULT_LOAD_FACTOR, -1);
+			for (int i = 0; i < elems.length; i++) {
+				if (elems[i] != null) {
+					rev.put(elems[i], i);
+				}
+			}
+			locationsRev = rev;
+		}
+		return rev.get(l);
+	}
+
+	/** @return a size to grow an array of given length to contain given id */
+	protected static int grown(int length, int id) {
+		return Math.max(id + 1, length * 2);
+	}
+
+	protected int vmIdOrAdd(VM v) {
+		int ret = vmId(v);
+		if (ret != -1) {
+			return ret;
+		}
+		VM elem = registry.vm(v.getName());
+		ret = elem.getId();
+		if (ret >= vms.length) {
+			int size = grown(vms.length, ret);
+			vms = Arrays.copyOf(vms, size);
+			uses = Arrays.copyOf(uses, size);
+		}
+		vms[ret] = elem;
+		if (vmsRev != null) {
+			vmsRev.put(elem, ret);
+		}
+		return ret;
+	}
+
+	/** @return the id of the location, or -1 if it is neither a computer nor an extern */
+	protected int locationIdOrAdd(VMLocation l) {
+		int ret = locationId(l);
+		if (ret != -1) {
+			return ret;
+		}
+		VMLocation elem = registry.intern(l);
+		ret = elem.getId();
+		if (elem == l && registry.location(ret) != l) {
+			return -1;
+		}
+		if (ret >= locations.length) {
+			int size = grown(locations.length, ret);
+			locations = Arrays.copyOf(locations, size);
+			capacities = Arrays.copyOf(capacities, size);
+		}
+		locations[ret] = elem;
+		if (locationsRev != null) {
+			locationsRev.put(elem, ret);
+		}
+		return ret;
+	}
+
+	/**
+	 * @return the id of each VM in this, or -1 for the VMs not specified.
+	 */
+	public int[] vmIds(VM... vms) {
+		int[] ret = new int[vms.length];
+		for (int i = 0; i < vms.length; i++) {
+			ret[i] = vmId(vms[i]);
+		}
+		return ret;
+	}
+
+	/**
+	 * @return the id of each location in this, or -1 for the locations not
+	 *         specified.
+	 */
+	public int[] locationIds(VMLocation... locations) {
+		int[] ret = new int[locations.length];
+		for (int i = 0; i < locations.length; i++) {
+			ret[i] = locationId(locations[i]);
+		}
+		return ret;
+	}
+
+	/**
+	 * @param ids
+	 *          ids of VMs in this, or negative values
+	 * @return the uses of the VMs with given ids, 0 for negative ids.
+	 */
+	public int[] getUses(int[] ids) {
+		int[] ret = new int[ids.length];
+		for (int i = 0; i < ids.length; i++) {
+			ret[i] = ids[i] < 0 ? 0 : uses[ids[i]];
+		}
+		return ret;
+	}
+
+	/**
+	 * @param ids
+	 *          ids of locations in this, or negative values
+	 * @return the capacities of the locations with given ids, 0 for negative ids.
+	 */
+	public int[] getCapacities(int[] ids) {
+		int[] ret = new int[ids.length];
+		for (int i = 0; i < ids.length; i++) {
+			ret[i] = ids[i] < 0 ? 0 : capacities[ids[i]];
+		}
+		return ret;
+	}
+
+	@Override
+	public int[] getUses(VM... vms) {
+		int[] ret = new int[vms.length];
+		for (int i = 0; i < vms.length; i++) {
+			int id = vmId(vms[i]);
+			ret[i] = id == -1 ? 0 : uses[id];
+		}
+		return ret;
+	}
+
+	@Override
+	public int[] getCapacities(Computer... nodes) {
+		int[] ret = new int[nodes.length];
+		for (int i = 0; i < nodes.length; i++) {
+			int id = locationId(nodes[i]);
+			ret[i] = id == -1 ? 0 : capacities[id];
+		}
+		return ret;
+	}
+
+	@Override
+	public int getUse(VM vm) {
+		int id = vmId(vm);
+		return id == -1 ? 0 : uses[id];
+	}
+
+	@Override
+	public int getCapacity(VMLocation h) {
+		int id = locationId(h);
+		return id == -1 ? 0 : capacities[id];
+	}
+
+	@Override
+	public void use(VM v, int use) {
+		beforeWrite();
+		// the id first, as it can grow the array
+		int id = vmIdOrAdd(v);
+		uses[id] = use;
+	}
+
+	@Override
+	public void capacity(VMLocation h, int capacity) {
+		beforeWrite();
+		int id = locationIdOrAdd(h);
+		if (id != -1) {
+			capacities[id] = capacity;
+		}
+	}
+
+	@Override
+	public void remove(ManagedElement e) {
+		if (e instanceof VM) {
+			int id = vmId((VM) e);
+			if (id != -1) {
+				beforeWrite();
+				if (vmsRev != null) {
+					vmsRev.remove(vms[id]);
+				}
+				vms[id] = null;
+				uses[id] = 0;
+			}
+		} else if (e instanceof VMLocation) {
+			int id = locationId((VMLocation) e);
+			if (id != -1) {
+				beforeWrite();
+				if (locationsRev != null) {
+					locationsRev.remove(locations[id]);
+				}
+				locations[id] = null;
+				capacities[id] = 0;
+			}
+		}
+	}
+
+	@Override
+	public void readLine(String line) {
+		if (line.startsWith(MappedResourceSpecification.START_NODE_CAPA)) {
+			String[] para = line.substring(MappedResourceSpecification.START_NODE_CAPA.length()).split(" = ");
+			capacity(registry.computer(para[0]), Integer.parseInt(para[1]));
+		} else if (line.startsWith(MappedResourceSpecification.START_VM_USE)) {
+			String[] para = line.substring(MappedResourceSpecification.START_VM_USE.length()).split(" = ");
+			use(registry.vm(para[0]), Integer.parseInt(para[1]));
+		}
+	}
+
+	public Stream<String> lines() {
+		Stream<String> nodes = IntStream.range(0, locations.length).filter(i -> capacities[i] != 0)
+				.mapToObj(i -> MappedResourceSpecification.START_NODE_CAPA + locations[i].getName() + " = " + capacities[i]);
+		Stream<String> vms = IntStream.range(0, this.vms.length).filter(i -> uses[i] != 0)
+				.mapToObj(i -> MappedResourceSpecification.START_VM_USE + this.vms[i].getName() + " = " + uses[i]);
+		return Stream.concat(nodes, vms);
+	}
+
+	/** @return the non-zero capacities */
+	protected Map<VMLocation, Integer> capacitiesMap() {
+		HashMap<VMLocation, Integer> ret = new HashMap<>();
+		for (int i = 0; i < locations.length; i++) {
+			if (capacities[i] != 0) {
+				ret.put(locations[i], capacities[i]);
+			}
+		}
+		return ret;
+	}
+
+	/** @return the non-zero uses */
+	protected Map<VM, Integer> usesMap() {
+		HashMap<VM, Integer> ret = new HashMap<>();
+		for (int i = 0; i < vms.length; i++) {
+			if (uses[i] != 0) {
+				ret.put(vms[i], uses[i]);
+			}
+		}
+		return ret;
+	}
+
+	@Override
+	public String toString() {
+		return type + capacitiesMap() + usesMap();
+	}
+
+	/**
+	 * @return true if obj is a specification of the same type, with the same
+	 *         non-zero uses and capacities. A {@link MappedResourceSpecification}
+	 *         can be equal to this.
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (obj == this) {
+			return true;
+		}
+		if (obj instanceof MappedResourceSpecification) {
+			return obj.equals(this);
+		}
+		if (obj == null || obj.getClass() != IndexedResourceSpecification.class) {
+			return false;
+		}
+		IndexedResourceSpecification o = (IndexedResourceSpecification) obj;
+		return type.equals(o.type) && capacitiesMap().equals(o.capacitiesMap()) && usesMap().equals(o.usesMap());
+	}
+
+	@Override
+	public int hashCode() {
+		return type.hashCode() + capacitiesMap().hashCode() + usesMap().hashCode();
+	}
+}
@@ -50,14 +50,31 @@ public class MappedResourceSpecification implements ResourceSpecification {
 		this.type = type;
 	}
 
+	/**
+	 * share the maps with the clone. They are copied by this or the clone before
+	 * being modified.
+	 */
 	@Override
 	public ResourceSpecification clone() {
 		MappedResourceSpecification ret = new MappedResourceSpecification(type);
-		ret.vmsUses = new HashMap<>(vmsUses);
-		ret.hostersCapacities = new HashMap<>(hostersCapacities);
+		ret.vmsUses = vmsUses;
+		ret.hostersCapacities = hostersCapacities;
+		shared = ret.shared = true;
 		return ret;
 	}
 
+	/** true when the maps are shared with a clone */
+	private boolean shared = false;
+
+	/** copy the maps if they are shared with a clone */
+	protected void beforeWrite() {
+		if (shared) {
+			vmsUses = new HashMap<>(vmsUses);
+			hostersCapacities = new HashMap<>(hostersCapacities);
+			shared = false;
+		}
+	}
+
 	private HashMap<VMLocation, Integer> hostersCapacities = new HashMap<>();
 
 	/**
@@ -65,6 +82,7 @@ public class MappedResourceSpecification implements ResourceSpecification {
 	 *          the nodesCapacities to set
 	 */
 	public void setNodesCapacities(HashMap<VMLocation, Integer> nodesCapacities) {
+		beforeWrite();
 		hostersCapacities = nodesCapacities;
 	}
 
@@ -75,6 +93,7 @@ public class MappedResourceSpecification implements ResourceSpecification {
 	 *          the vmsUses to set
 	 */
 	public void setVmsUses(HashMap<VM, Integer> vmsUses) {
+		beforeWrite();
 		this.vmsUses = vmsUses;
 	}
 
@@ -92,6 +111,7 @@ public class MappedResourceSpecification implements ResourceSpecification {
 
 	@Override
 	public void readLine(String line) {
+		beforeWrite();
 		if (line.startsWith(START_NODE_CAPA)) {
 			String[] para = line.substring(START_NODE_CAPA.length()).split(" = ");
 			hostersCapacities.put(new Computer(para[0]), Integer.parseInt(para[1]));
@@ -124,6 +144,10 @@ public class MappedResourceSpecification implements ResourceSpecification {
 		if (super.equals(obj)) {
 			return true;
 		}
+		if (obj instanceof IndexedResourceSpecification) {
+			IndexedResourceSpecification o = (IndexedResourceSpecification) obj;
+			return type.equals(o.getType()) && hostersCapacities.equals(o.capacitiesMap()) && vmsUses.equals(o.usesMap());
+		}
 		if (obj == null || obj.getClass() != MappedResourceSpecification.class) {
 			return false;
 		}
@@ -140,8 +164,14 @@ public class MappedResourceSpecification implements ResourceSpecification {
 		return true;
 	}
 
+	@Override
+	public int hashCode() {
+		return type.hashCode() + hostersCapacities.hashCode() + vmsUses.hashCode();
+	}
+
 	@Override
 	public void use(VM v, int use) {
+		beforeWrite();
 		if (use == 0) {
 			vmsUses.remove(v);
 		} else {
@@ -151,6 +181,7 @@ public class MappedResourceSpecification implements ResourceSpecification {
 
 	@Override
 	public void capacity(VMLocation h, int capacity) {
+		beforeWrite();
 		if (capacity == 0) {
 			hostersCapacities.remove(h);
 		} else {
@@ -160,6 +191,7 @@ public class MappedResourceSpecification implements ResourceSpecification {
 
 	@Override
 	public void remove(ManagedElement e) {
+		beforeWrite();
 		vmsUses.remove(e);
 		hostersCapacities.remove(e);
 	}
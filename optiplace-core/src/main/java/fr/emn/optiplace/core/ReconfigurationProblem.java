@@ -9,9 +9,13 @@
 
 package fr.emn.optiplace.core;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -25,11 +29,13 @@ import org.chocosolver.solver.variables.BoolVar;
 import org.chocosolver.solver.variables.IntVar;
 import org.chocosolver.solver.variables.SetVar;
 import org.chocosolver.solver.variables.Variable;
+import org.chocosolver.util.objects.setDataStructures.iterable.IntIterableRangeSet;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import fr.emn.optiplace.configuration.Computer;
 import fr.emn.optiplace.configuration.Configuration;
+import fr.emn.optiplace.configuration.ConfigurationDelta;
 import fr.emn.optiplace.configuration.Extern;
 import fr.emn.optiplace.configuration.IConfiguration;
 import fr.emn.optiplace.configuration.VM;
@@ -40,6 +46,7 @@ import fr.emn.optiplace.configuration.resources.ResourceSpecification;
 import fr.emn.optiplace.solver.ProblemStatistics;
 import fr.emn.optiplace.solver.SolvingStatistics;
 import fr.emn.optiplace.solver.choco.Bridge;
+import fr.emn.optiplace.solver.choco.ChocoResourcePacker;
 import fr.emn.optiplace.solver.choco.ConstraintHelper;
 import fr.emn.optiplace.solver.choco.IReconfigurationProblem;
 import fr.emn.optiplace.solver.choco.VariablesManager;
@@ -105,10 +112,24 @@ public class ReconfigurationProblem implements IReconfigurationProblem {
 	// is null if no site defined.
 
 	/**
-	 * VM state. see {@link CoreView#VM_RUNNODE},{@link CoreView#VM_RUNEXT}, {@link CoreView#VM_WAITING}
+	 * VM state. see {@link CoreView#VM_RUNNODE},{@link CoreView#VM_RUNEXT}, {@link CoreView#VM_WAITING}.
+	 * If {@link #lazyStates}, a state is null until requested.
 	 */
 	protected IntVar[] vmsState = null;
 
+	/**
+	 * if true, the state of a VM is only created when requested by
+	 * {@link #getState(int)}. The state is a function of the location, so this
+	 * only removes the variables and constraints no view or heuristic uses.
+	 */
+	protected final boolean lazyStates;
+
+	/**
+	 * the state of a VM for each location index : running for the computers,
+	 * externed for the externs and waiting for {@link Bridge#waitIdx()}
+	 */
+	protected int[] locationStates = null;
+
 	protected IntVar[] vmsLocation = null;
 
 	/** for each node index, the set of VMs hosted on corresponding node. */
@@ -152,62 +173,122 @@ public class ReconfigurationProblem implements IReconfigurationProblem {
 		}
 		vmsState = new IntVar[c.nbVMs()];
 		vmsLocation = new IntVar[c.nbVMs()];
-		// if there is no extern, we only consider run mode without extern
-		int[] runMode = c.nbExterns() > 0 ? VM_NODE_EXT : new int[] { VM_RUNNODE };
-		int[] waitRunMode = c.nbExterns() > 0 ? VM_NODE_WAIT_EXT : VM_NODE_WAIT;
 		for (int i = 0; i < c.nbVMs(); i++) {
 			VM vm = b.vm(i);
 			boolean iswaiting = c.isWaiting(vm);
 			VMLocation migTarget = c.getMigTarget(vm);
 			if (migTarget == null) {
 				// VM can be running or externed or waiting.
-				vmsState[i] = v.createEnumIntVar(vmName(i) + "_state", iswaiting ? waitRunMode : runMode);
 				vmsLocation[i] = v.createEnumIntVar("" + vmName(i) + "_location", 0, iswaiting ? b.waitIdx() : b.waitIdx() - 1);
-				// constrain the state of the VM
-				// if VM location is node : state is running on node
-				BoolVar isVmOnComputer = v.createBoolVar(vmName(i) + ".onComputer");
-				m.arithm(vmsLocation[i], "<", b.nodes().length).reifyWith(isVmOnComputer);
-				BoolVar isVMStateRunnode = v.createBoolVar(vmName(i) + ".stateOnComputer");
-				m.arithm(vmsState[i], "=", VM_RUNNODE).reifyWith(isVMStateRunnode);
-				m.arithm(isVmOnComputer, "=", isVMStateRunnode).post();
-				// if VM was waiting, and location> max location then it is waiting
-				if (iswaiting) {
-					m.ifThenElse(m.arithm(vmsLocation[i], ">=", b.waitIdx()), m.arithm(vmsState[i], "=", VM_WAITING),
-							m.arithm(vmsState[i], "!=", VM_WAITING));
-				} else {
-					try {
-						vmsState[i].removeValue(VM_WAITING, Cause.Null);
-					} catch (ContradictionException e) {
-						logger.warn("while removing state waiting from " + vmsState[i], e);
-					}
-				}
 			} else {// the VM is being migrated
 				vmsLocation[i] = v.createIntegerConstant(b.location(migTarget));
-				vmsState[i] = v.createIntegerConstant(migTarget instanceof Extern ? VM_RUNEXT : VM_RUNNODE);
 			}
+			if (!lazyStates) {
+				makeState(i);
+			}
+		}
+		for (ResourceSpecification rs : c.resources().values()) {
+			addResource(rs);
+		}
+		filterExterns();
+	}
+
+	/**
+	 * number of resources, in the order of {@link #resources}, already used to
+	 * remove the externs from the locations of the VMs.
+	 */
+	protected int nbExternFilteredResources = 0;
 
-			// remove all the externs that can't host the VM
-			if (vmsState[i].contains(VM_RUNEXT)) {
-				IntVar location = vmsLocation[i];
-				for (ResourceSpecification specs : c.resources().values()) {
-					int use = specs.getUse(vm);
-					if (use > 0) {
-						// if the VM requires a resource, for this resource we remove all
-						// externs that have less of that resource than the VM needs.
-						specs.findHosters(c, val -> val < use).filter(h -> h instanceof Extern).mapToInt(e -> b.location(e))
-						.forEach(val -> {
-							try {
-								location.removeValue(val, Cause.Null);
-							} catch (Exception e) {
-							}
-						});
+	/**
+	 * for each resource added since the last call, remove from the location of
+	 * each VM the externs which have less capacity than the VM uses.
+	 * <p>
+	 * The VMs are sorted by use once for each resource, so the VMs which can't
+	 * be hosted on an extern are found with a binary search on its capacity. The
+	 * externs forbidden to a VM are then removed from its location at once.
+	 * </p>
+	 */
+	public void filterExterns() {
+		if (b.externs().length == 0 || nbExternFilteredResources == resources.size()) {
+			return;
+		}
+		IntIterableRangeSet[] forbidden = new IntIterableRangeSet[b.vms().length];
+		int resIdx = 0;
+		for (ResourceHandler handler : resources.values()) {
+			if (resIdx++ < nbExternFilteredResources) {
+				continue;
+			}
+			// the use of each VM in the high bits, its index in the low bits
+			int[] uses = handler.getVmsLoads();
+			long[] sorted = new long[uses.length];
+			for (int i = 0; i < uses.length; i++) {
+				sorted[i] = (long) uses[i] << 32 | i;
+			}
+			Arrays.sort(sorted);
+			ResourceSpecification spec = handler.getSpecs();
+			for (int extIdx = b.firstExtIdx(); extIdx <= b.lastExtIdx(); extIdx++) {
+				int cap = spec.getCapacity(b.location(extIdx));
+				// first VM using more than the capacity
+				int low = 0, high = sorted.length;
+				while (low < high) {
+					int mid = (low + high) >>> 1;
+					if (sorted[mid] >> 32 > cap) {
+						high = mid;
+					} else {
+						low = mid + 1;
+					}
+				}
+				for (int i = low; i < sorted.length; i++) {
+					int vmIdx = (int) sorted[i];
+					if (forbidden[vmIdx] == null) {
+						forbidden[vmIdx] = new IntIterableRangeSet();
 					}
+					forbidden[vmIdx].add(extIdx);
 				}
 			}
 		}
-		for (ResourceSpecification rs : c.resources().values()) {
-			addResource(rs);
+		nbExternFilteredResources = resources.size();
+		for (int i = 0; i < forbidden.length; i++) {
+			if (forbidden[i] != null) {
+				try {
+					vmsLocation[i].removeValues(forbidden[i], Cause.Null);
+				} catch (ContradictionException e) {
+					logger.warn("while removing externs " + forbidden[i] + " from " + vmsLocation[i], e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * create the state of a VM, constrained by its location.
+	 *
+	 * @param vmindex
+	 *          the index of the VM
+	 * @return the new state variable
+	 */
+	protected IntVar makeState(int vmindex) {
+		VM vm = b.vm(vmindex);
+		VMLocation migTarget = c.getMigTarget(vm);
+		IntVar ret;
+		if (migTarget != null) {
+			ret = v.createIntegerConstant(migTarget instanceof Extern ? VM_RUNEXT : VM_RUNNODE);
+		} else {
+			// if there is no extern, we only consider run mode without extern
+			int[] runMode = c.nbExterns() > 0 ? VM_NODE_EXT : new int[] { VM_RUNNODE };
+			int[] waitRunMode = c.nbExterns() > 0 ? VM_NODE_WAIT_EXT : VM_NODE_WAIT;
+			ret = v.createEnumIntVar(vmName(vmindex) + "_state", c.isWaiting(vm) ? waitRunMode : runMode);
+			if (locationStates == null) {
+				int[] states = new int[b.waitIdx() + 1];
+				for (int i = 0; i < states.length; i++) {
+					states[i] = i < b.nodes().length ? VM_RUNNODE : i < b.waitIdx() ? VM_RUNEXT : VM_WAITING;
+				}
+				locationStates = states;
+			}
+			// the state is the value of the location in the table of states
+			post(m.element(ret, locationStates, vmsLocation[vmindex]));
 		}
+		vmsState[vmindex] = ret;
+		return ret;
 	}
 
 	/**
@@ -239,8 +320,36 @@ public class ReconfigurationProblem implements IReconfigurationProblem {
 	 *          The source configuration. It must be viable.
 	 */
 	public ReconfigurationProblem(IConfiguration src) {
+		this(src, new Bridge(src));
+	}
+
+	/**
+	 * Make a new model sharing a bridge with other models.
+	 *
+	 * @param src
+	 *          The source configuration. It must be viable.
+	 * @param bridge
+	 *          a bridge built for src
+	 */
+	public ReconfigurationProblem(IConfiguration src, Bridge bridge) {
+		this(src, bridge, false);
+	}
+
+	/**
+	 * Make a new model sharing a bridge with other models.
+	 *
+	 * @param src
+	 *          The source configuration. It must be viable.
+	 * @param bridge
+	 *          a bridge built for src
+	 * @param lazyStates
+	 *          true to only create the state of the VMs requested by
+	 *          {@link #getState(int)}
+	 */
+	public ReconfigurationProblem(IConfiguration src, Bridge bridge, boolean lazyStates) {
 		c = src;
-		b = new Bridge(src);
+		b = bridge;
+		this.lazyStates = lazyStates;
 		h = new ConstraintHelper(m);
 		v = new VariablesManager(m, h);
 		makeDynamicConfig();
@@ -268,6 +377,7 @@ public class ReconfigurationProblem implements IReconfigurationProblem {
 	 *          an indx of Location
 	 * @return the SetVar of the VM hosted on this location
 	 */
+	@Override
 	public SetVar getHostedOn(int locationIdx) {
 		makeHosteds();
 		return locationVMsSets[locationIdx];
@@ -364,7 +474,8 @@ public class ReconfigurationProblem implements IReconfigurationProblem {
 			System.err.println("which is null");
 			return null;
 		} else {
-			return vmsState[vmindex];
+			IntVar ret = vmsState[vmindex];
+			return ret == null ? makeState(vmindex) : ret;
 		}
 	}
 
@@ -554,7 +665,8 @@ public class ReconfigurationProblem implements IReconfigurationProblem {
 		}
 		BoolVar ret = isRunComputers[vmindex];
 		if (ret == null) {
-			ret = v.isSame(getState(vmindex), CoreView.VM_RUNNODE, "" + vmName(vmindex) + ".isrunning");
+			ret = v.createBoolVar("" + vmName(vmindex) + ".isrunning");
+			m.arithm(getVMLocation(vmindex), "<", b.nodes().length).reifyWith(ret);
 			isRunComputers[vmindex] = ret;
 		}
 		return ret;
@@ -572,7 +684,12 @@ public class ReconfigurationProblem implements IReconfigurationProblem {
 		}
 		BoolVar ret = isRunExt[vmindex];
 		if (ret == null) {
-			ret = v.isSame(getState(vmindex), CoreView.VM_RUNEXT, "" + vmName(vmindex) + ".isexterned");
+			if (c.nbExterns() == 0) {
+				ret = v.createBoolVar("" + vmName(vmindex) + ".isexterned", false);
+			} else {
+				ret = v.createBoolVar("" + vmName(vmindex) + ".isexterned");
+				m.member(getVMLocation(vmindex), b.nodes().length, b.waitIdx() - 1).reifyWith(ret);
+			}
 			isRunExt[vmindex] = ret;
 		}
 		return ret;
@@ -590,7 +707,8 @@ public class ReconfigurationProblem implements IReconfigurationProblem {
 		}
 		BoolVar ret = isWaitings[vmindex];
 		if (ret == null) {
-			ret = v.isSame(getState(vmindex), CoreView.VM_WAITING, "" + vmName(vmindex) + ".iswaiting");
+			ret = v.createBoolVar("" + vmName(vmindex) + ".iswaiting");
+			m.arithm(getVMLocation(vmindex), ">=", b.waitIdx()).reifyWith(ret);
 			isWaitings[vmindex] = ret;
 		}
 		return ret;
@@ -598,6 +716,7 @@ public class ReconfigurationProblem implements IReconfigurationProblem {
 
 	@Override
 	public IConfiguration extractConfiguration() {
+		IConfiguration src = patchedSource != null ? patchedSource : c;
 		IConfiguration ret = new Configuration();
 		for (Computer n : b.nodes()) {
 			ret.addComputer(n.getName());
@@ -605,10 +724,10 @@ public class ReconfigurationProblem implements IReconfigurationProblem {
 		for (Extern e : b.externs()) {
 			ret.addExtern(e.getName());
 		}
-		c.getSites().forEach(s -> {
-			ret.addSite(s.getName(), c.getSiteLocations(s).collect(Collectors.toList()).toArray(new VMLocation[] {}));
+		src.getSites().forEach(s -> {
+			ret.addSite(s.getName(), src.getSiteLocations(s).collect(Collectors.toList()).toArray(new VMLocation[] {}));
 		});
-		c.getVMs().forEach(v -> {
+		Arrays.stream(b.vms()).forEach(v -> {
 			VM vm = ret.addVM(v.getName(), null);
 			VMLocation oldtarget = c.getMigTarget(vm);
 			if (oldtarget != null) {
@@ -617,15 +736,15 @@ public class ReconfigurationProblem implements IReconfigurationProblem {
 				ret.setMigTarget(vm, oldtarget);
 				return;
 			} else {
-				if (!getState(vm).isInstantiatedTo(VM_WAITING)) {
+				if (!getVMLocation(vm).isInstantiatedTo(b.waitIdx())) {
 					// the VM is no more waiting : we instantiate in on the location
 					ret.setHost(vm, b.location(getVMLocation(vm).getValue()));
 				}
 			}
 		});
-		c.resources().forEach(ret.resources()::put);
-		c.getManagedElements().forEach(me -> {
-			c.getTags(me).forEach(tag -> ret.tag(me, tag));
+		src.resources().forEach(ret.resources()::put);
+		src.getManagedElements().forEach(me -> {
+			src.getTags(me).forEach(tag -> ret.tag(me, tag));
 		});
 		return ret;
 	}
@@ -672,6 +791,126 @@ public class ReconfigurationProblem implements IReconfigurationProblem {
 		return resources.values().stream().map(ResourceHandler::getResourceLoad).toArray(ResourceLoad[]::new);
 	}
 
+	/** the packer of the resources, kept to pack them again on a patch */
+	protected ChocoResourcePacker packer = null;
+
+	/** the constraints posted by the packer */
+	protected List<Constraint> packing = Collections.emptyList();
+
+	/** the variables created by the packer */
+	protected List<Variable> packingVars = Collections.emptyList();
+
+	/**
+	 * pack the resources of the problem. All the resources should be added
+	 * before.
+	 *
+	 * @param packer
+	 *          the packer to use, also used to pack the resources again when the
+	 *          problem is patched.
+	 */
+	public void pack(ChocoResourcePacker packer) {
+		this.packer = packer;
+		int nbVars = m.getNbVars();
+		packing = packer.pack(this);
+		packing.forEach(m::post);
+		packingVars = Arrays.asList(Arrays.copyOfRange(m.getVars(), nbVars, m.getNbVars()));
+	}
+
+	/** remove the constraints and the variables of the packer from the model */
+	protected void unpack() {
+		m.unpost(packing.toArray(new Constraint[0]));
+		for (Variable var : packingVars) {
+			if (var.getNbProps() == 0) {
+				m.unassociates(var);
+			}
+		}
+		packing = Collections.emptyList();
+		packingVars = Collections.emptyList();
+	}
+
+	/** the source configuration the problem was patched to, or null */
+	protected IConfiguration patchedSource = null;
+
+	/** the constraints reducing the loads of the computers to their patched capacity */
+	protected final List<Constraint> capacityCuts = new ArrayList<>();
+
+	/**
+	 * patch the problem to solve another source configuration, which differs
+	 * from the source of the problem only by the uses of the VMs and the
+	 * capacities of the computers. The solver must be at its root world.
+	 * <p>
+	 * The uses and capacities of the resources are updated, and the resources
+	 * are packed again if the uses changed. The capacity of a computer can not
+	 * be patched above its capacity in the source, as it bounds the load of the
+	 * computer ; a lower capacity is posted as a constraint on its load. Added
+	 * VMs are not patched, as they have no location variable in the problem : it
+	 * must be built again to place them.
+	 * </p>
+	 * <p>
+	 * Each patch replaces the previous one, so the delta must be computed from
+	 * the source of the problem.
+	 * </p>
+	 *
+	 * @param next
+	 *          the new source configuration
+	 * @param delta
+	 *          the changes from the source of the problem to next
+	 * @return true if the problem was patched. false if the changes can't be
+	 *         patched, in which case the problem is not modified.
+	 */
+	public boolean patch(IConfiguration next, ConfigurationDelta delta) {
+		if (delta.hasOtherChanges() || !delta.addedVMs.isEmpty() || !delta.removedVMs.isEmpty()
+				|| !delta.movedVMs.isEmpty() || !delta.addedLocations.isEmpty() || !delta.removedLocations.isEmpty()) {
+			return false;
+		}
+		if (packer == null && !delta.isEmpty()) {
+			return false;
+		}
+		// the externs which can't host a VM are removed when the problem is built
+		if (b.externs().length > 0 && !delta.resizedVMs.isEmpty()) {
+			return false;
+		}
+		// the interchangeable computers must keep the same capacities
+		Set<VMLocation> resized = new HashSet<>(delta.resizedLocations);
+		if (getStatistics().getInterchangeableNodes().stream().flatMap(List::stream).anyMatch(resized::contains)) {
+			return false;
+		}
+		for (ResourceHandler handler : resources.values()) {
+			ResourceSpecification spec = next.resources().get(handler.getSpecs().getType());
+			IntVar[] loads = handler.getComputerLoads();
+			for (int i = b.firstComputerIdx(); i <= b.lastComputerIdx(); i++) {
+				if (spec.getCapacity(b.location(i)) > loads[i].getUB()) {
+					return false;
+				}
+			}
+			if (spec.sumUses(b.vms()) > loads[b.waitIdx()].getUB()) {
+				return false;
+			}
+		}
+
+		m.unpost(capacityCuts.toArray(new Constraint[0]));
+		capacityCuts.clear();
+		boolean repack = false;
+		for (ResourceHandler handler : resources.values()) {
+			repack |= handler.patch(next.resources().get(handler.getSpecs().getType()));
+			int[] capacities = handler.getCapacities();
+			IntVar[] loads = handler.getComputerLoads();
+			for (int i = b.firstComputerIdx(); i <= b.lastComputerIdx(); i++) {
+				if (capacities[i] < loads[i].getUB()) {
+					Constraint cut = m.arithm(loads[i], "<=", capacities[i]);
+					m.post(cut);
+					capacityCuts.add(cut);
+				}
+			}
+		}
+		if (repack) {
+			unpack();
+			pack(packer);
+		}
+		patchedSource = delta.isEmpty() ? null : next;
+		return true;
+	}
+
 	protected void onNewVar(Variable var) {
 		// System.err.println("added var " + var);
 	}
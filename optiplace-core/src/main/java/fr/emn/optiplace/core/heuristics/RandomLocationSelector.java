@@ -0,0 +1,52 @@
+package fr.emn.optiplace.core.heuristics;
+
+import java.util.Random;
+
+import org.chocosolver.solver.search.strategy.selectors.values.IntValueSelector;
+import org.chocosolver.solver.variables.IntVar;
+
+/**
+ * select a random location for a VM, other than the waiting location. The
+ * waiting location is only selected when it is the last value of the VM's
+ * domain, so a random search places the VMs as the default search does.
+ *
+ * @author Guillaume Le Louët [guillaume.lelouet@gmail.com] 2017
+ *
+ */
+public class RandomLocationSelector implements IntValueSelector {
+
+	@SuppressWarnings("unused")
+	private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(RandomLocationSelector.class);
+
+	private final int waitIdx;
+
+	private final Random rand;
+
+	/**
+	 * @param waitIdx
+	 *          the index of the waiting location in the problem
+	 * @param seed
+	 *          the seed of the random choices
+	 */
+	public RandomLocationSelector(int waitIdx, long seed) {
+		this.waitIdx = waitIdx;
+		rand = new Random(seed);
+	}
+
+	@Override
+	public int selectValue(IntVar var) {
+		boolean skipWait = var.contains(waitIdx) && var.getDomainSize() > 1;
+		int pos = rand.nextInt(skipWait ? var.getDomainSize() - 1 : var.getDomainSize());
+		int ub = var.getUB();
+		for (int v = var.getLB(); v <= ub; v = var.nextValue(v)) {
+			if (skipWait && v == waitIdx) {
+				continue;
+			}
+			if (pos-- == 0) {
+				return v;
+			}
+		}
+		return var.getLB();
+	}
+
+}
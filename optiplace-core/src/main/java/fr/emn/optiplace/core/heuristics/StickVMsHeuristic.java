@@ -12,6 +12,7 @@ import org.chocosolver.solver.variables.Variable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import fr.emn.optiplace.configuration.IConfiguration;
 import fr.emn.optiplace.configuration.VM;
 import fr.emn.optiplace.configuration.resources.ResourceSpecification;
 import fr.emn.optiplace.solver.choco.IReconfigurationProblem;
@@ -31,10 +32,26 @@ public class StickVMsHeuristic {
 	private static final Logger logger = LoggerFactory.getLogger(StickVMsHeuristic.class);
 
 	public static AbstractStrategy<? extends Variable> makeStickVMs(VM[] vms, IReconfigurationProblem p) {
+		return makeStickVMs(vms, p.getSourceConfiguration(), p);
+	}
+
+	/**
+	 * make an heuristic to place VMs on their computer in a configuration
+	 *
+	 * @param vms
+	 *          the VMs to place, all running on a computer of the problem in cfg
+	 * @param cfg
+	 *          the configuration to retrieve the computer of each VM from
+	 * @param p
+	 *          the problem
+	 * @return a new heuristic
+	 */
+	public static AbstractStrategy<? extends Variable> makeStickVMs(VM[] vms, IConfiguration cfg,
+			IReconfigurationProblem p) {
 		int[] srcLoc = new int[vms.length];
 		IntVar[] hosters = new IntVar[vms.length];
 		for (int i = 0; i < vms.length; i++) {
-			srcLoc[i] = p.b().location(p.getSourceConfiguration().getComputerHost(vms[i]));
+			srcLoc[i] = p.b().location(cfg.getComputerHost(vms[i]));
 			hosters[i] = p.getVMLocation(vms[i]);
 		}
 		Var2ValSelector heuristic = new Var2ValSelector(hosters, srcLoc) {
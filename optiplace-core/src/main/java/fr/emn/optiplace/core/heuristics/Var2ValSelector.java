@@ -2,13 +2,22 @@ package fr.emn.optiplace.core.heuristics;
 
 import java.util.Arrays;
 
+import org.chocosolver.memory.IStateInt;
 import org.chocosolver.solver.search.strategy.selectors.values.IntValueSelector;
 import org.chocosolver.solver.search.strategy.selectors.variables.VariableSelector;
 import org.chocosolver.solver.variables.IntVar;
 
+import gnu.trove.map.hash.TIntIntHashMap;
+
 /**
  * select vars in the given order and try to assign them to their provided
  * value.
+ * <p>
+ * The position of each variable is indexed by its id, so its value is found in
+ * constant time. The variables before a backtrackable cursor are known to be
+ * instantiated or unable to take their value, so the search of the next
+ * variable starts from this cursor instead of the first variable.
+ * </p>
  *
  * @author Guillaume Le Louët [guillaume.lelouet@gmail.com]2013
  */
@@ -18,6 +27,12 @@ public class Var2ValSelector implements IntValueSelector, VariableSelector<IntVa
 	private final int[] vals;
 	private final int val;
 
+	/** id of the variable to its first position in vars, only if vals is set */
+	private final TIntIntHashMap positions;
+
+	/** position of the first variable that may be selected, null if no var */
+	private final IStateInt cursor;
+
 	/**
 	 * vars[i] must be set to vals[i].
 	 *
@@ -31,6 +46,11 @@ public class Var2ValSelector implements IntValueSelector, VariableSelector<IntVa
 		this.vals = vals;
 		val = 0;
 		assert vars.length <= vals.length;
+		positions = new TIntIntHashMap(vars.length, 0.5f, -1, -1);
+		for (int i = 0; i < vars.length; i++) {
+			positions.putIfAbsent(vars[i].getId(), i);
+		}
+		cursor = makeCursor(vars);
 	}
 
 	/** all variables are set to the same value. */
@@ -38,20 +58,30 @@ public class Var2ValSelector implements IntValueSelector, VariableSelector<IntVa
 		this.vars = vars;
 		vals = null;
 		this.val = val;
+		positions = null;
+		cursor = makeCursor(vars);
 	}
 
-	int nextVal = 0;
+	protected static IStateInt makeCursor(IntVar[] vars) {
+		return vars.length == 0 ? null : vars[0].getModel().getEnvironment().makeInt(0);
+	}
 
 	@Override
 	public int selectValue(IntVar var) {
 		if (vals == null) {
 			return val;
 		}
-		for (int i = 0; i < vars.length; i++) {
-			if (vars[i] == var) {
-				return vals[i];
+		// the var is most likely the last one selected
+		if (cursor != null) {
+			int pos = cursor.get();
+			if (pos < vars.length && vars[pos] == var) {
+				return vals[pos];
 			}
 		}
+		int pos = positions.get(var.getId());
+		if (pos != -1 && vars[pos] == var) {
+			return vals[pos];
+		}
 		throw new UnsupportedOperationException("can not set variable " + var + ", know vars are "
 				+ Arrays.asList(vars));
 	}
@@ -61,12 +91,19 @@ public class Var2ValSelector implements IntValueSelector, VariableSelector<IntVa
 		// assert variables == vars : "expected " + Arrays.asList(vars) +
 		// ", got "
 		// + Arrays.asList(variables);
-		for (int i = 0; i < vars.length; i++) {
+		if (cursor == null) {
+			return null;
+		}
+		// the domains only shrink in the subtree, so the vars skipped remain
+		// skipped until the cursor is restored on backtrack
+		for (int i = cursor.get(); i < vars.length; i++) {
 			if (!vars[i].isInstantiated()
 					&& (vals == null && vars[i].contains(val) || vals != null && vars[i].contains(vals[i]))) {
+				cursor.set(i);
 				return vars[i];
 			}
 		}
+		cursor.set(vars.length);
 		return null;
 	}
 
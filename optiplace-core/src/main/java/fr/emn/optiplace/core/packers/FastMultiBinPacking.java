@@ -1,666 +1,636 @@
-package fr.emn.optiplace.core.packers;/* Created by IntelliJ IDEA. User:
- * sofdem -
- * sophie.demassey{at}mines-nantes.fr
- * Date: 15/08/11 - 01:28 */
-
-import org.chocosolver.solver.constraints.Propagator;
-import org.chocosolver.solver.exception.ContradictionException;
-import org.chocosolver.solver.variables.IntVar;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
-/** @author Sophie Demassey */
-public class FastMultiBinPacking extends Propagator<IntVar> {
-
-	@SuppressWarnings("unused")
-	private static final Logger logger = LoggerFactory
-			.getLogger(FastMultiBinPacking.class);
-
-	@Override
-	public void propagate(int evtmask) throws ContradictionException {
-		// TODO Auto-generated method stub
-		throw new UnsupportedOperationException();
-	}
-
-	@Override
-    public org.chocosolver.util.ESat isEntailed() {
-		// TODO Auto-generated method stub
-		throw new UnsupportedOperationException();
-	}
-
-	// private final IEnvironment env;
-	//
-	// /** The bin assigned to each item [I]. */
-	// protected final IntVar[] bins;
-	//
-	// /** The constant size of each item on each dimension [DxI]. */
-	// protected final int[][] iSizes;
-	//
-	// /** The sum of the item sizes on each dimension [D]. */
-	// private final long[] sumISizes;
-	//
-	// /** The load of each bin on each dimension [DxB]. */
-	// protected final IntVar[][] loads;
-	//
-	// /**
-	// * The candidate items for each bin (possible but not required assignments)
-	// * [B].
-	// */
-	// private IStateBitSet[] candidates;
-	//
-	// /**
-	// * The total size of the candidate + required items for each bin on each
-	// * dimension [DxB].
-	// */
-	// private final IStateInt[][] bTLoads;
-	//
-	// /**
-	// * The total size of the required items for each bin on each dimension
-	// * [DxB].
-	// */
-	// private final IStateInt[][] bRLoads;
-	//
-	// /** The sum of the bin load LBs on each dimension [D]. */
-	// private final IStateInt[] sumLoadInf;
-	//
-	// /** The sum of the bin load UBs on each dimension [D]. */
-	// private final IStateInt[] sumLoadSup;
-	//
-	// /** The remaining available bins (having candidate items). */
-	// private IStateBitSet availableBins;
-	//
-	// /** nb of dimensions. */
-	// private final int nbDims;
-	//
-	// /** nb of bins. */
-	// private final int nbBins;
-	//
-	// /**
-	// * constructor of the FastBinPacking global constraint
-	// *
-	// * @param environment
-	// * the solver environment
-	// * @param loads
-	// * array of nbDims x nbBins variables, each figuring the total
-	// * size of the items assigned to it, usually initialized to [0,
-	// * capacity]
-	// * @param sizes
-	// * array of nbDim x nbItems CONSTANTS ordered in decreasing order
-	// * on the first dimension, each figuring the size of i-th item
-	// * @param bins
-	// * array of nbItems variables, each figuring the possible bins an
-	// * item can be assigned to, usually initialized to [0, nbBins-1]
-	// */
-	// public FastMultiBinPacking(IEnvironment environment,
-	// IntVar[][] loads, int[][] sizes, IntVar[] bins) {
-	// super(ArrayUtils.append(bins, ArrayUtils.flatten(loads)));
-	// nbDims = sizes.length;
-	// nbBins = loads[0].length;
-	// this.loads = loads;
-	// env = environment;
-	// iSizes = sizes;
-	// sumISizes = new long[nbDims];
-	// for (int d = 0; d < nbDims; d++) {
-	// long sum = 0;
-	// for (int i = 0; i < sizes[d].length; i++) {
-	// sum += iSizes[d][i];
-	// }
-	// sumISizes[d] = sum;
-	// }
-	// bTLoads = new IStateInt[nbDims][nbBins];
-	// bRLoads = new IStateInt[nbDims][nbBins];
-	// sumLoadInf = new IStateInt[nbDims];
-	// sumLoadSup = new IStateInt[nbDims];
-	// this.bins = bins;
-	// }
-	//
-	// public final int getRemainingSpace(int bin) {
-	// throw new UnsupportedOperationException(
-	// "the dimension must be specified.");
-	// }
-	//
-	// public final int getRemainingSpace(int dim, int bin) {
-	// return loads[dim][bin].getUB() - bRLoads[dim][bin].get();
-	// }
-	//
-	// public IStateBitSet getCandidates(int bin) {
-	// return candidates[bin];
-	// }
-	//
-	// // ****************************************************************//
-	// // ********* Events ***********************************************//
-	// // ****************************************************************//
-	//
-	// public int getFilteredEventMask(int idx) {
-	// if (idx < bins.length) {
-	// return IntVarEvent.REMVAL_MASK;
-	// }
-	// return IntVarEvent.BOUNDS_MASK;
-	// }
-	//
-	// public boolean isSatisfied(int[] tuple) {
-	// int[][] l = new int[nbDims][nbBins];
-	// int[] c = new int[nbBins];
-	// for (int i = 0; i < bins.length; i++) {
-	// final int b = tuple[i];
-	// for (int d = 0; d < nbDims; d++) {
-	// l[d][b] += iSizes[d][i];
-	// }
-	// c[b]++;
-	// }
-	// int shift = bins.length;
-	// for (int d = 0; d < nbDims; d++) {
-	// for (int i = 0; i < nbBins; i++) {
-	// if (tuple[i + shift] != l[d][i]) {
-	// ChocoLogging.getBranchingLogger().warning(
-	// "Bad load of " + i + " in dim " + d + " = "
-	// + tuple[i + shift] + " expected ="
-	// + l[d][i]);
-	// return false;
-	// }
-	// }
-	// shift += nbBins;
-	// }
-	// return true;
-	// }
-	//
-	// @Override
-	// /**
-	// * initialize the internal data: availableBins, candidates,
-	// binRequiredLoads, binTotalLoads, sumLoadInf, sumLoadSup
-	// * shrink the item-to-bins assignment variables: 0 <= bins[i] <= nbBins
-	// * shrink the bin load variables: binRequiredLoad <= binLoad <= binTotalLoad
-	// */
-	// public void awake() throws ContradictionException {
-	// availableBins = env.makeBitSet(nbBins);
-	// candidates = new IStateBitSet[nbBins];
-	// for (int b = 0; b < nbBins; b++) {
-	// candidates[b] = env.makeBitSet(bins.length);
-	// }
-	// int[][] rLoads = new int[nbDims][nbBins];
-	// int[][] cLoads = new int[nbDims][nbBins];
-	//
-	// for (int i = 0; i < bins.length; i++) {
-	// bins[i].updateInf(0, this, false);
-	// bins[i].updateSup(nbBins - 1, this, false);
-	// if (bins[i].isInstantiated()) {
-	// for (int d = 0; d < nbDims; d++) {
-	// rLoads[d][bins[i].getVal()] += iSizes[d][i];
-	// }
-	// } else {
-	// DisposableIntIterator it = bins[i].getDomain().getIterator();
-	// try {
-	// while (it.hasNext()) {
-	// int b = it.next();
-	// candidates[b].set(i);
-	// for (int d = 0; d < nbDims; d++) {
-	// cLoads[d][b] += iSizes[d][i];
-	// }
-	// }
-	// } finally {
-	// it.dispose();
-	// }
-	// }
-	// }
-	//
-	// for (int d = 0; d < nbDims; d++) {
-	// int sumLoadInf = 0;
-	// int sumLoadSup = 0;
-	// for (int b = 0; b < nbBins; b++) {
-	// bRLoads[d][b] = env.makeInt(rLoads[d][b]);
-	// bTLoads[d][b] = env.makeInt(rLoads[d][b] + cLoads[d][b]);
-	// loads[d][b].updateInf(rLoads[d][b], this, false);
-	// sumLoadInf += loads[d][b].getLB();
-	// loads[d][b].updateSup(rLoads[d][b] + cLoads[d][b], this, false);
-	// sumLoadSup += loads[d][b].getUB();
-	// if (!candidates[b].isEmpty() && d == 0) {
-	// availableBins.set(b);
-	// }
-	// }
-	// this.sumLoadInf[d] = env.makeInt(sumLoadInf);
-	// this.sumLoadSup[d] = env.makeInt(sumLoadSup);
-	// }
-	// assert checkLoadConsistency() && checkCandidatesConsistency();
-	//
-	// propagate();
-	// }
-	//
-	// @Override
-	// /**
-	// * propagate 1) globally: sumItemSizes == sumBinLoads 2) on each bin:
-	// sumAssignedItemSizes == binLoad
-	// * rule 1: if sumSizes > sumBinLoadSups then fail
-	// * rule 2, for each bin: sumItemSizes - sumOtherBinSups <= binLoad <=
-	// sumItemSizes - sumOtherBinInfs
-	// * rule 3, for each bin: binRequiredLoad <= binLoad <= binTotalLoad
-	// * rule 4, for each bin and candidate item: if binRequiredLoad + itemSize >
-	// binLoadSup then remove item from bin
-	// * rule 5, for each bin and candidate item: if binTotalLoad - itemSize <
-	// binLoadInf then pack item into bin
-	// */
-	// public void propagate() throws ContradictionException {
-	// // ChocoLogging.getSearchLogger().finest("propagate " + pretty());
-	// boolean noFixPoint = true;
-	// while (noFixPoint) {
-	// noFixPoint = false;
-	// for (int d = 0; d < nbDims; d++) {
-	// if (sumISizes[d] > sumLoadSup[d].get()) {
-	// fail();
-	// }
-	// }
-	// for (int b = availableBins.nextSetBit(0); b >= 0; b = availableBins
-	// .nextSetBit(b + 1)) {
-	// for (int d = 0; d < nbDims; d++) {
-	// noFixPoint |= loadInfFiltering(
-	// d,
-	// b,
-	// Math.max(bRLoads[d][b].get(),
-	// (int) sumISizes[d] - sumLoadSup[d].get()
-	// + loads[d][b].getUB()));
-	// noFixPoint |= loadSupFiltering(
-	// d,
-	// b,
-	// Math.min(bTLoads[d][b].get(),
-	// (int) sumISizes[d] - sumLoadInf[d].get()
-	// + loads[d][b].getLB()));
-	// }
-	// noFixPoint |= propagateMultiKnapsack(b);
-	// }
-	// }
-	// assert checkLoadConsistency() && checkCandidatesConsistency();
-	// }
-	//
-	// @Override
-	// /**
-	// * delayed propagation of the bound updates of a bin load variable
-	// */
-	// public void awakeOnBounds(int varIdx) throws ContradictionException {
-	// // ChocoLogging.getSearchLogger().finest(vars[varIdx].pretty() +
-	// // " awakeOnBounds");
-	// constAwake(false);
-	// }
-	//
-	// @Override
-	// /**
-	// * propagate the removal of an item-to-bins assignment variable:
-	// * 1) update the candidate and check to decrease the load UB of each removed
-	// bins: binLoad <= binTotalLoad
-	// * 2) if item is assigned: update the required and check to increase the
-	// load LB of the bin: binLoad >= binRequiredLoad
-	// * @throws ContradictionException on the load variables
-	// */
-	// public void awakeOnRemovals(int iIdx, DisposableIntIterator deltaDomain)
-	// throws ContradictionException {
-	// // ChocoLogging.getSearchLogger().finest(vars[iIdx].pretty() +
-	// // " awakeOnRem");
-	// if (iIdx < bins.length) {
-	// try {
-	// while (deltaDomain.hasNext()) {
-	// int bin = deltaDomain.next();
-	// if (updateRemoveItemFromBin(iIdx, bin)) {
-	// loadSupFiltering(bin, bTLoads);
-	// }
-	// }
-	// } finally {
-	// deltaDomain.dispose();
-	// }
-	// if (vars[iIdx].isInstantiated()) {
-	// int bin = vars[iIdx].getVal();
-	// if (updatePackItemToBin(iIdx, bin)) {
-	// loadInfFiltering(bin, bRLoads);
-	// }
-	// }
-	// }
-	// constAwake(false);
-	// }
-	//
-	// // ****************************************************************//
-	// // ********* VARIABLE FILTERING ***********************************//
-	// // ****************************************************************//
-	//
-	// /**
-	// * update the internal data corresponding to the assignment of an item to a
-	// * bin: remove the item from the candidate list of the bin and balance its
-	// * size from the candidate to the required load of the bin
-	// *
-	// * @param item
-	// * item index
-	// * @param bin
-	// * bin index
-	// * @return true if the update had not already been performed
-	// */
-	// private boolean updatePackItemToBin(int item, int bin) {
-	// if (candidates[bin].get(item)) {
-	// candidates[bin].clear(item);
-	// if (candidates[bin].isEmpty()) {
-	// availableBins.clear(bin);
-	// }
-	// for (int d = 0; d < nbDims; d++) {
-	// bRLoads[d][bin].add(iSizes[d][item]);
-	// }
-	// return true;
-	// }
-	// return false;
-	// }
-	//
-	// /**
-	// * update the internal data corresponding to the removal of an item from a
-	// * bin: remove the item from the candidate list of the bin and reduce the
-	// * candidate load of the bin
-	// *
-	// * @param item
-	// * item index
-	// * @param bin
-	// * bin index
-	// * @return true if the update had not already been performed
-	// */
-	// private boolean updateRemoveItemFromBin(int item, int bin) {
-	// if (candidates[bin].get(item)) {
-	// candidates[bin].clear(item);
-	// if (candidates[bin].isEmpty()) {
-	// availableBins.clear(bin);
-	// }
-	// for (int d = 0; d < nbDims; d++) {
-	// bTLoads[d][bin].add(-1 * iSizes[d][item]);
-	// }
-	// return true;
-	// }
-	// return false;
-	// }
-	//
-	// /**
-	// * increase the LB of the bin load and the sum of the bin load LBs
-	// *
-	// * @param bin
-	// * bin index
-	// * @param newLoads
-	// * new LB of the bin load
-	// * @return {@code true} if LB is increased in at least one dimension.
-	// * @throws ContradictionException
-	// * on the load[bin] variable
-	// */
-	// private boolean loadInfFiltering(int bin, IStateInt[][] newLoads)
-	// throws ContradictionException {
-	// boolean ret = false;
-	// for (int d = 0; d < nbDims; d++) {
-	// ret |= loadInfFiltering(d, bin, newLoads[d][bin].get());
-	// }
-	// return ret;
-	// }
-	//
-	// /**
-	// * increase the LB of the bin load and the sum of the bin load LBs
-	// *
-	// * @param dim
-	// * dimension index
-	// * @param bin
-	// * bin index
-	// * @param newLoadInf
-	// * new LB of the bin load
-	// * @return {@code true} if LB is increased.
-	// * @throws ContradictionException
-	// * on the load[bin] variable
-	// */
-	// private boolean loadInfFiltering(int dim, int bin, int newLoadInf)
-	// throws ContradictionException {
-	// int inc = newLoadInf - loads[dim][bin].getLB();
-	// if (inc > 0) {
-	// loads[dim][bin].updateInf(newLoadInf, this, false);
-	// sumLoadInf[dim].add(inc);
-	// return true;
-	// }
-	// return false;
-	// }
-	//
-	// /**
-	// * decrease the UB of the bin load and the sum of the bin load UBs
-	// *
-	// * @param bin
-	// * bin index
-	// * @param newLoads
-	// * new UB of the bin load
-	// * @return {@code true} if UB is decreased in at least one dimension.
-	// * @throws ContradictionException
-	// * on the load[bin] variable
-	// */
-	// private boolean loadSupFiltering(int bin, IStateInt[][] newLoads)
-	// throws ContradictionException {
-	// boolean ret = false;
-	// for (int d = 0; d < nbDims; d++) {
-	// ret |= loadSupFiltering(d, bin, newLoads[d][bin].get());
-	// }
-	// return ret;
-	// }
-	//
-	// /**
-	// * decrease the UB of the bin load and the sum of the bin load UBs
-	// *
-	// * @param dim
-	// * dimension index
-	// * @param bin
-	// * bin index
-	// * @param newLoadSup
-	// * new UB of the bin load
-	// * @return {@code true} if UB is decreased.
-	// * @throws ContradictionException
-	// * on the load[bin] variable
-	// */
-	// private boolean loadSupFiltering(int dim, int bin, int newLoadSup)
-	// throws ContradictionException {
-	// int dec = newLoadSup - loads[dim][bin].getUB();
-	// if (dec < 0) {
-	// loads[dim][bin].updateSup(newLoadSup, this, false);
-	// sumLoadSup[dim].add(dec);
-	// return true;
-	// }
-	// return false;
-	// }
-	//
-	// /**
-	// * propagate the knapsack constraint on a given bin: 1) remove the candidate
-	// * items bigger than the remaining free space (when binRequiredLoad +
-	// * itemSize > binLoadSup) 2) pack the candidate items necessary to reach the
-	// * load LB (when binTotalLoad - itemSize < binLoadInf). the loads are also
-	// * filtered within this constraint (rather in the propagate loop) because
-	// * considered bins are eventually became unavailable
-	// *
-	// * @param bin
-	// * bin index
-	// * @return {@code true} if at least one item is removed or packed.
-	// * @throws ContradictionException
-	// * on the bins or loads variables
-	// */
-	// private boolean propagateMultiKnapsack(int bin)
-	// throws ContradictionException {
-	// int d;
-	// int item;
-	// boolean ret = false, up = true;
-	// for (item = candidates[bin].nextSetBit(0); item >= 0 && up; item =
-	// candidates[bin]
-	// .nextSetBit(item + 1)) {
-	// up = false;
-	// for (d = 0; d < nbDims
-	// && iSizes[d][item] + bRLoads[d][bin].get() <= loads[d][bin]
-	// .getUB(); d++) {
-	// ;
-	// }
-	// if (d < nbDims && updateRemoveItemFromBin(item, bin)) {
-	// bins[item].removeVal(bin, this, false);
-	// loadSupFiltering(bin, bTLoads);
-	// if (bins[item].isInstantiated()) {
-	// int b = bins[item].getVal();
-	// updatePackItemToBin(item, b);
-	// loadInfFiltering(b, bRLoads);
-	// }
-	// up = true;
-	// }
-	// for (d = 0; d < nbDims
-	// && bTLoads[d][bin].get() - iSizes[d][item] >= loads[d][bin]
-	// .getLB(); d++) {
-	// ;
-	// }
-	// if (d < nbDims && updatePackItemToBin(item, bin)) {
-	// DisposableIntIterator domain = bins[item].getDomain()
-	// .getIterator();
-	// try {
-	// while (domain.hasNext()) {
-	// int b = domain.next();
-	// if (b != bin) {
-	// updateRemoveItemFromBin(item, b);
-	// loadSupFiltering(b, bTLoads);
-	//
-	// }
-	// }
-	// } finally {
-	// domain.dispose();
-	// }
-	// bins[item].instantiate(bin, this, false);
-	// loadInfFiltering(bin, bRLoads);
-	//
-	// up = true;
-	// }
-	// ret |= up;
-	// }
-	// return ret;
-	// }
-	//
-	// // ****************************************************************//
-	// // ********* Checkers *********************************************//
-	// // ****************************************************************//
-	//
-	// /**
-	// * Check the consistency of the required and candidate loads with regards to
-	// * the assignment variables: for each bin: sumAssignedItemSizes ==
-	// * binRequiredLoad, sumPossibleItemSizes == binTotalLoad rule 3, for each
-	// * bin: binRequiredLoad <= binLoad <= binTotalLoad
-	// *
-	// * @return {@code false} if not consistent.
-	// */
-	// private boolean checkLoadConsistency() {
-	// boolean check = true;
-	// for (int d = 0; d < nbDims; d++) {
-	// int[] rs = new int[nbBins];
-	// int[] cs = new int[nbBins];
-	// for (int i = 0; i < bins.length; i++) {
-	// if (bins[i].isInstantiated()) {
-	// rs[bins[i].getVal()] += iSizes[d][i];
-	// } else {
-	// DisposableIntIterator it = bins[i].getDomain()
-	// .getIterator();
-	// try {
-	// while (it.hasNext()) {
-	// int bin = it.next();
-	// cs[bin] += iSizes[d][i];
-	// }
-	// } finally {
-	// it.dispose();
-	// }
-	// }
-	// }
-	//
-	// int sumLoadInf = 0;
-	// int sumLoadSup = 0;
-	// for (int b = 0; b < rs.length; b++) {
-	// if (rs[b] != bRLoads[d][b].get()) {
-	// ChocoLogging.getBranchingLogger().warning(
-	// loads[d][b].pretty() + " required="
-	// + bRLoads[d][b].get() + " expected="
-	// + rs[b]);
-	// check = false;
-	// }
-	// if (rs[b] + cs[b] != bTLoads[d][b].get()) {
-	// ChocoLogging.getBranchingLogger().warning(
-	// loads[d][b].pretty() + " total="
-	// + bTLoads[d][b].get() + " expected="
-	// + (rs[b] + cs[b]));
-	// check = false;
-	// }
-	// if (loads[d][b].getLB() < rs[b]) {
-	// ChocoLogging.getBranchingLogger().warning(
-	// loads[d][b].pretty() + " LB expected >=" + rs[b]);
-	// check = false;
-	// }
-	// if (loads[d][b].getUB() > rs[b] + cs[b]) {
-	// ChocoLogging.getBranchingLogger().warning(
-	// loads[d][b].pretty() + " UB expected <="
-	// + (rs[b] + cs[b]));
-	// check = false;
-	// }
-	// sumLoadInf += loads[d][b].getLB();
-	// sumLoadSup += loads[d][b].getUB();
-	// }
-	// if (this.sumLoadInf[d].get() != sumLoadInf) {
-	// ChocoLogging.getBranchingLogger().warning(
-	// "Sum Load LB = " + this.sumLoadInf[d].get()
-	// + " expected =" + sumLoadInf);
-	// check = false;
-	// }
-	// if (this.sumLoadSup[d].get() != sumLoadSup) {
-	// ChocoLogging.getBranchingLogger().warning(
-	// "Sum Load UB = " + this.sumLoadSup[d].get()
-	// + " expected =" + sumLoadSup);
-	// check = false;
-	// }
-	// }
-	// ChocoLogging.flushLogs();
-	// return check;
-	// }
-	//
-	// /**
-	// * Check that the candidate lists are aligned with the assignment variables:
-	// * item is in candidates[bin] iff bin is in bins[item]
-	// *
-	// * @return {@code false} if not consistent.
-	// */
-	// private boolean checkCandidatesConsistency() {
-	// BitSet[] bs = new BitSet[nbBins];
-	// for (int bin = 0; bin < nbBins; bin++) {
-	// bs[bin] = new BitSet(iSizes.length);
-	// }
-	// for (int i = 0; i < bins.length; i++) {
-	// if (!bins[i].isInstantiated()) {
-	// DisposableIntIterator it = bins[i].getDomain().getIterator();
-	// try {
-	// while (it.hasNext()) {
-	// int bin = it.next();
-	// bs[bin].set(i);
-	// }
-	// } finally {
-	// it.dispose();
-	// }
-	// }
-	// }
-	// for (int b = 0; b < nbBins; b++) {
-	// for (int i = 0; i < bs[b].size(); i++) {
-	// if (bs[b].get(i) != candidates[b].get(i)) {
-	// ChocoLogging.getBranchingLogger().warning(
-	// "candidate i '" + i + "' for bin '" + b + ": "
-	// + candidates[b].get(i) + " expected: "
-	// + bs[b].get(i));
-	// ChocoLogging.flushLogs();
-	// return false;
-	// }
-	// }
-	// }
-	// return true;
-	// }
-	//
-	// /**
-	// * print the list of candidate items for a given bin
-	// *
-	// * @param bin
-	// * bin index
-	// * @return list of item indices, between braces, separated by spaces
-	// */
-	// public String prettyCandidates(int bin) {
-	// StringBuilder s = new StringBuilder("{");
-	// for (int i = candidates[bin].nextSetBit(0); i >= 0; i = candidates[bin]
-	// .nextSetBit(i + 1)) {
-	// s.append(i);
-	// s.append(' ');
-	// }
-	// s.append('}');
-	// return s.toString();
-	// }
-
-}
+package fr.emn.optiplace.core.packers;/* Created by IntelliJ IDEA. User:
+ * sofdem -
+ * sophie.demassey{at}mines-nantes.fr
+ * Date: 15/08/11 - 01:28 */
+
+import java.util.BitSet;
+
+import org.chocosolver.memory.IEnvironment;
+import org.chocosolver.memory.IStateBitSet;
+import org.chocosolver.memory.IStateInt;
+import org.chocosolver.solver.constraints.Propagator;
+import org.chocosolver.solver.constraints.PropagatorPriority;
+import org.chocosolver.solver.exception.ContradictionException;
+import org.chocosolver.solver.variables.IntVar;
+import org.chocosolver.solver.variables.delta.IIntDeltaMonitor;
+import org.chocosolver.solver.variables.events.IntEventType;
+import org.chocosolver.solver.variables.events.PropagatorEventType;
+import org.chocosolver.util.ESat;
+import org.chocosolver.util.procedure.UnaryIntProcedure;
+import org.chocosolver.util.tools.ArrayUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * Multi-dimensional bin packing : each item is assigned to one bin, and for
+ * each dimension the load of a bin is the sum of the sizes of its items on
+ * this dimension. All the dimensions share the same assignment variables, so a
+ * reduction on one dimension is immediately used by the other ones.
+ * </p>
+ * <p>
+ * For each bin we maintain the candidate items (possible but not required
+ * assignments) in a backtrackable bitset, and for each dimension the required
+ * and total (required + candidates) loads in backtrackable ints. Those are
+ * updated incrementally on the removal events of the assignment variables.
+ * </p>
+ * <p>
+ * The rules are, for each dimension :
+ * <ol>
+ * <li>if sumSizes &gt; sumBinLoadSups then fail</li>
+ * <li>for each bin: sumItemSizes - sumOtherBinSups &lt;= binLoad &lt;=
+ * sumItemSizes - sumOtherBinInfs</li>
+ * <li>for each bin: binRequiredLoad &lt;= binLoad &lt;= binTotalLoad</li>
+ * <li>for each bin and candidate item: if binRequiredLoad + itemSize &gt;
+ * binLoadSup on any dimension then remove item from bin</li>
+ * <li>for each bin and candidate item: if binTotalLoad - itemSize &lt;
+ * binLoadInf on any dimension then pack item into bin</li>
+ * </ol>
+ * </p>
+ *
+ * @author Sophie Demassey
+ */
+public class FastMultiBinPacking extends Propagator<IntVar> {
+
+	private static final Logger logger = LoggerFactory.getLogger(FastMultiBinPacking.class);
+
+	/** The bin assigned to each item [I]. */
+	protected final IntVar[] bins;
+
+	/** The constant size of each item on each dimension [DxI]. */
+	protected final int[][] iSizes;
+
+	/** The sum of the item sizes on each dimension [D]. */
+	private final long[] sumISizes;
+
+	/** The load of each bin on each dimension [DxB]. */
+	protected final IntVar[][] loads;
+
+	/** value of the first bin in the assignment variables */
+	protected final int offset;
+
+	/**
+	 * The candidate items for each bin (possible but not required assignments)
+	 * [B].
+	 */
+	private final IStateBitSet[] candidates;
+
+	/**
+	 * The total size of the candidate + required items for each bin on each
+	 * dimension [DxB].
+	 */
+	private final IStateInt[][] bTLoads;
+
+	/**
+	 * The total size of the required items for each bin on each dimension [DxB].
+	 */
+	private final IStateInt[][] bRLoads;
+
+	/**
+	 * The sum of the bin load LBs on each dimension [D]. Recomputed on each
+	 * propagation since the loads can be modified by other constraints.
+	 */
+	private final long[] sumLoadInf;
+
+	/** The sum of the bin load UBs on each dimension [D]. */
+	private final long[] sumLoadSup;
+
+	/** The remaining available bins (having candidate items). */
+	private final IStateBitSet availableBins;
+
+	/** nb of dimensions. */
+	private final int nbDims;
+
+	/** nb of bins. */
+	private final int nbBins;
+
+	private final IIntDeltaMonitor[] deltaMonitors;
+
+	/** removes the item of its parameter from the bins given by the delta */
+	private final UnaryIntProcedure<Integer> remProc = new UnaryIntProcedure<Integer>() {
+		int item;
+
+		@Override
+		public UnaryIntProcedure<Integer> set(Integer idx) {
+			item = idx;
+			return this;
+		}
+
+		@Override
+		public void execute(int value) throws ContradictionException {
+			int bin = value - offset;
+			if (bin >= 0 && bin < nbBins && updateRemoveItemFromBin(item, bin)) {
+				loadSupFiltering(bin, bTLoads);
+			}
+		}
+	};
+
+	/**
+	 * constructor of the FastMultiBinPacking global constraint
+	 *
+	 * @param loads
+	 *          array of nbDims x nbBins variables, each figuring the total size
+	 *          of the items assigned to it, usually initialized to [0, capacity]
+	 * @param sizes
+	 *          array of nbDims x nbItems CONSTANTS, each figuring the size of
+	 *          i-th item
+	 * @param bins
+	 *          array of nbItems variables, each figuring the possible bins an
+	 *          item can be assigned to, usually initialized to [offset,
+	 *          offset+nbBins-1]
+	 * @param offset
+	 *          the value of the first bin in the bins variables
+	 */
+	public FastMultiBinPacking(IntVar[][] loads, int[][] sizes, IntVar[] bins, int offset) {
+		super(ArrayUtils.append(bins, ArrayUtils.flatten(loads)), PropagatorPriority.QUADRATIC, true);
+		nbDims = sizes.length;
+		nbBins = loads[0].length;
+		this.loads = loads;
+		this.offset = offset;
+		this.bins = bins;
+		iSizes = sizes;
+		sumISizes = new long[nbDims];
+		for (int d = 0; d < nbDims; d++) {
+			long sum = 0;
+			for (int i = 0; i < sizes[d].length; i++) {
+				sum += iSizes[d][i];
+			}
+			sumISizes[d] = sum;
+		}
+		IEnvironment env = model.getEnvironment();
+		bTLoads = new IStateInt[nbDims][nbBins];
+		bRLoads = new IStateInt[nbDims][nbBins];
+		for (int d = 0; d < nbDims; d++) {
+			for (int b = 0; b < nbBins; b++) {
+				bTLoads[d][b] = env.makeInt(0);
+				bRLoads[d][b] = env.makeInt(0);
+			}
+		}
+		sumLoadInf = new long[nbDims];
+		sumLoadSup = new long[nbDims];
+		availableBins = env.makeBitSet(nbBins);
+		candidates = new IStateBitSet[nbBins];
+		for (int b = 0; b < nbBins; b++) {
+			candidates[b] = env.makeBitSet(bins.length);
+		}
+		deltaMonitors = new IIntDeltaMonitor[bins.length];
+		for (int i = 0; i < bins.length; i++) {
+			deltaMonitors[i] = bins[i].monitorDelta(this);
+		}
+	}
+
+	public final int getRemainingSpace(int dim, int bin) {
+		return loads[dim][bin].getUB() - bRLoads[dim][bin].get();
+	}
+
+	public IStateBitSet getCandidates(int bin) {
+		return candidates[bin];
+	}
+
+	// ****************************************************************//
+	// ********* Events ***********************************************//
+	// ****************************************************************//
+
+	@Override
+	public int getPropagationConditions(int idx) {
+		if (idx < bins.length) {
+			return IntEventType.all();
+		}
+		return IntEventType.boundAndInst();
+	}
+
+	/**
+	 * initialize the internal data: availableBins, candidates, binRequiredLoads,
+	 * binTotalLoads ; shrink the item-to-bins assignment variables: offset &lt;=
+	 * bins[i] &lt; offset+nbBins ; shrink the bin load variables: binRequiredLoad
+	 * &lt;= binLoad &lt;= binTotalLoad
+	 */
+	protected void initialize() throws ContradictionException {
+		availableBins.clear();
+		for (int b = 0; b < nbBins; b++) {
+			candidates[b].clear();
+		}
+		int[][] rLoads = new int[nbDims][nbBins];
+		int[][] cLoads = new int[nbDims][nbBins];
+
+		for (int i = 0; i < bins.length; i++) {
+			IntVar bin = bins[i];
+			bin.updateBounds(offset, nbBins - 1 + offset, this);
+			if (bin.isInstantiated()) {
+				int b = bin.getValue() - offset;
+				for (int d = 0; d < nbDims; d++) {
+					rLoads[d][b] += iSizes[d][i];
+				}
+			} else {
+				int ub = bin.getUB();
+				for (int val = bin.getLB(); val <= ub; val = bin.nextValue(val)) {
+					int b = val - offset;
+					candidates[b].set(i);
+					for (int d = 0; d < nbDims; d++) {
+						cLoads[d][b] += iSizes[d][i];
+					}
+				}
+			}
+		}
+
+		for (int d = 0; d < nbDims; d++) {
+			for (int b = 0; b < nbBins; b++) {
+				bRLoads[d][b].set(rLoads[d][b]);
+				bTLoads[d][b].set(rLoads[d][b] + cLoads[d][b]);
+				loads[d][b].updateBounds(rLoads[d][b], rLoads[d][b] + cLoads[d][b], this);
+				if (d == 0 && !candidates[b].isEmpty()) {
+					availableBins.set(b);
+				}
+			}
+		}
+		for (int i = 0; i < bins.length; i++) {
+			deltaMonitors[i].unfreeze();
+		}
+	}
+
+	/**
+	 * propagate 1) globally: sumItemSizes == sumBinLoads 2) on each bin:
+	 * sumAssignedItemSizes == binLoad
+	 */
+	@Override
+	public void propagate(int evtmask) throws ContradictionException {
+		if (PropagatorEventType.isFullPropagation(evtmask)) {
+			initialize();
+		}
+		computeSums();
+		boolean noFixPoint = true;
+		while (noFixPoint) {
+			noFixPoint = false;
+			for (int d = 0; d < nbDims; d++) {
+				if (sumISizes[d] > sumLoadSup[d] || sumISizes[d] < sumLoadInf[d]) {
+					fails();
+				}
+			}
+			for (int b = availableBins.nextSetBit(0); b >= 0; b = availableBins.nextSetBit(b + 1)) {
+				for (int d = 0; d < nbDims; d++) {
+					noFixPoint |= loadInfFiltering(d, b,
+							(int) Math.max(bRLoads[d][b].get(), sumISizes[d] - sumLoadSup[d] + loads[d][b].getUB()));
+					noFixPoint |= loadSupFiltering(d, b,
+							(int) Math.min(bTLoads[d][b].get(), sumISizes[d] - sumLoadInf[d] + loads[d][b].getLB()));
+				}
+				noFixPoint |= propagateMultiKnapsack(b);
+			}
+		}
+		assert checkLoadConsistency() && checkCandidatesConsistency();
+	}
+
+	/**
+	 * propagate the removal of an item-to-bins assignment variable: 1) update the
+	 * candidate and check to decrease the load UB of each removed bins: binLoad
+	 * &lt;= binTotalLoad 2) if item is assigned: update the required and check to
+	 * increase the load LB of the bin: binLoad &gt;= binRequiredLoad. The bound
+	 * updates of the loads are delayed to the coarse propagation.
+	 */
+	@Override
+	public void propagate(int idx, int mask) throws ContradictionException {
+		if (idx < bins.length) {
+			deltaMonitors[idx].freeze();
+			deltaMonitors[idx].forEachRemVal(remProc.set(idx));
+			deltaMonitors[idx].unfreeze();
+			if (bins[idx].isInstantiated()) {
+				int bin = bins[idx].getValue() - offset;
+				if (updatePackItemToBin(idx, bin)) {
+					loadInfFiltering(bin, bRLoads);
+				}
+			}
+		}
+		forcePropagate(PropagatorEventType.CUSTOM_PROPAGATION);
+	}
+
+	@Override
+	public ESat isEntailed() {
+		long[][] l = new long[nbDims][nbBins];
+		boolean allInstantiated = true;
+		for (int i = 0; i < bins.length; i++) {
+			if (bins[i].isInstantiated()) {
+				int b = bins[i].getValue() - offset;
+				if (b < 0 || b >= nbBins) {
+					return ESat.FALSE;
+				}
+				for (int d = 0; d < nbDims; d++) {
+					l[d][b] += iSizes[d][i];
+				}
+			} else {
+				allInstantiated = false;
+			}
+		}
+		for (int d = 0; d < nbDims; d++) {
+			for (int b = 0; b < nbBins; b++) {
+				if (l[d][b] > loads[d][b].getUB()) {
+					return ESat.FALSE;
+				}
+				if (allInstantiated && l[d][b] < loads[d][b].getLB()) {
+					return ESat.FALSE;
+				}
+			}
+		}
+		return allInstantiated && isCompletelyInstantiated() ? ESat.TRUE : ESat.UNDEFINED;
+	}
+
+	// ****************************************************************//
+	// ********* VARIABLE FILTERING ***********************************//
+	// ****************************************************************//
+
+	/** set the sums of the loads bounds to the current values of the loads */
+	private void computeSums() {
+		for (int d = 0; d < nbDims; d++) {
+			long inf = 0, sup = 0;
+			for (int b = 0; b < nbBins; b++) {
+				inf += loads[d][b].getLB();
+				sup += loads[d][b].getUB();
+			}
+			sumLoadInf[d] = inf;
+			sumLoadSup[d] = sup;
+		}
+	}
+
+	/**
+	 * update the internal data corresponding to the assignment of an item to a
+	 * bin: remove the item from the candidate list of the bin and balance its
+	 * size from the candidate to the required load of the bin
+	 *
+	 * @param item
+	 *          item index
+	 * @param bin
+	 *          bin index
+	 * @return true if the update had not already been performed
+	 */
+	private boolean updatePackItemToBin(int item, int bin) {
+		if (candidates[bin].get(item)) {
+			candidates[bin].clear(item);
+			if (candidates[bin].isEmpty()) {
+				availableBins.clear(bin);
+			}
+			for (int d = 0; d < nbDims; d++) {
+				bRLoads[d][bin].add(iSizes[d][item]);
+			}
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * update the internal data corresponding to the removal of an item from a
+	 * bin: remove the item from the candidate list of the bin and reduce the
+	 * candidate load of the bin
+	 *
+	 * @param item
+	 *          item index
+	 * @param bin
+	 *          bin index
+	 * @return true if the update had not already been performed
+	 */
+	private boolean updateRemoveItemFromBin(int item, int bin) {
+		if (candidates[bin].get(item)) {
+			candidates[bin].clear(item);
+			if (candidates[bin].isEmpty()) {
+				availableBins.clear(bin);
+			}
+			for (int d = 0; d < nbDims; d++) {
+				bTLoads[d][bin].add(-1 * iSizes[d][item]);
+			}
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * increase the LB of the bin load and the sum of the bin load LBs
+	 *
+	 * @param bin
+	 *          bin index
+	 * @param newLoads
+	 *          new LB of the bin load
+	 * @return {@code true} if LB is increased in at least one dimension.
+	 * @throws ContradictionException
+	 *           on the load[bin] variable
+	 */
+	private boolean loadInfFiltering(int bin, IStateInt[][] newLoads) throws ContradictionException {
+		boolean ret = false;
+		for (int d = 0; d < nbDims; d++) {
+			ret |= loadInfFiltering(d, bin, newLoads[d][bin].get());
+		}
+		return ret;
+	}
+
+	/**
+	 * increase the LB of the bin load and the sum of the bin load LBs
+	 *
+	 * @param dim
+	 *          dimension index
+	 * @param bin
+	 *          bin index
+	 * @param newLoadInf
+	 *          new LB of the bin load
+	 * @return {@code true} if LB is increased.
+	 * @throws ContradictionException
+	 *           on the load[bin] variable
+	 */
+	private boolean loadInfFiltering(int dim, int bin, int newLoadInf) throws ContradictionException {
+		int inc = newLoadInf - loads[dim][bin].getLB();
+		if (inc > 0) {
+			loads[dim][bin].updateLowerBound(newLoadInf, this);
+			sumLoadInf[dim] += inc;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * decrease the UB of the bin load and the sum of the bin load UBs
+	 *
+	 * @param bin
+	 *          bin index
+	 * @param newLoads
+	 *          new UB of the bin load
+	 * @return {@code true} if UB is decreased in at least one dimension.
+	 * @throws ContradictionException
+	 *           on the load[bin] variable
+	 */
+	private boolean loadSupFiltering(int bin, IStateInt[][] newLoads) throws ContradictionException {
+		boolean ret = false;
+		for (int d = 0; d < nbDims; d++) {
+			ret |= loadSupFiltering(d, bin, newLoads[d][bin].get());
+		}
+		return ret;
+	}
+
+	/**
+	 * decrease the UB of the bin load and the sum of the bin load UBs
+	 *
+	 * @param dim
+	 *          dimension index
+	 * @param bin
+	 *          bin index
+	 * @param newLoadSup
+	 *          new UB of the bin load
+	 * @return {@code true} if UB is decreased.
+	 * @throws ContradictionException
+	 *           on the load[bin] variable
+	 */
+	private boolean loadSupFiltering(int dim, int bin, int newLoadSup) throws ContradictionException {
+		int dec = newLoadSup - loads[dim][bin].getUB();
+		if (dec < 0) {
+			loads[dim][bin].updateUpperBound(newLoadSup, this);
+			sumLoadSup[dim] += dec;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * propagate the knapsack constraint on a given bin: 1) remove the candidate
+	 * items bigger than the remaining free space on any dimension (when
+	 * binRequiredLoad + itemSize &gt; binLoadSup) 2) pack the candidate items
+	 * necessary to reach the load LB on any dimension (when binTotalLoad -
+	 * itemSize &lt; binLoadInf). the loads are also filtered within this
+	 * constraint (rather in the propagate loop) because considered bins are
+	 * eventually became unavailable
+	 *
+	 * @param bin
+	 *          bin index
+	 * @return {@code true} if at least one item is removed or packed.
+	 * @throws ContradictionException
+	 *           on the bins or loads variables
+	 */
+	private boolean propagateMultiKnapsack(int bin) throws ContradictionException {
+		int d;
+		boolean ret = false;
+		for (int item = candidates[bin].nextSetBit(0); item >= 0; item = candidates[bin].nextSetBit(item + 1)) {
+			for (d = 0; d < nbDims && iSizes[d][item] + bRLoads[d][bin].get() <= loads[d][bin].getUB(); d++) {
+				;
+			}
+			if (d < nbDims && updateRemoveItemFromBin(item, bin)) {
+				bins[item].removeValue(bin + offset, this);
+				loadSupFiltering(bin, bTLoads);
+				if (bins[item].isInstantiated()) {
+					int b = bins[item].getValue() - offset;
+					updatePackItemToBin(item, b);
+					loadInfFiltering(b, bRLoads);
+				}
+				ret = true;
+				continue;
+			}
+			for (d = 0; d < nbDims && bTLoads[d][bin].get() - iSizes[d][item] >= loads[d][bin].getLB(); d++) {
+				;
+			}
+			if (d < nbDims && updatePackItemToBin(item, bin)) {
+				IntVar var = bins[item];
+				int ub = var.getUB();
+				for (int val = var.getLB(); val <= ub; val = var.nextValue(val)) {
+					int b = val - offset;
+					if (b != bin && updateRemoveItemFromBin(item, b)) {
+						loadSupFiltering(b, bTLoads);
+					}
+				}
+				var.instantiateTo(bin + offset, this);
+				loadInfFiltering(bin, bRLoads);
+				ret = true;
+			}
+		}
+		return ret;
+	}
+
+	// ****************************************************************//
+	// ********* Checkers *********************************************//
+	// ****************************************************************//
+
+	/**
+	 * Check the consistency of the required and candidate loads with regards to
+	 * the assignment variables: for each bin: sumAssignedItemSizes ==
+	 * binRequiredLoad, sumPossibleItemSizes == binTotalLoad rule 3, for each bin:
+	 * binRequiredLoad &lt;= binLoad &lt;= binTotalLoad
+	 *
+	 * @return {@code false} if not consistent.
+	 */
+	private boolean checkLoadConsistency() {
+		boolean check = true;
+		for (int d = 0; d < nbDims; d++) {
+			int[] rs = new int[nbBins];
+			int[] cs = new int[nbBins];
+			for (int i = 0; i < bins.length; i++) {
+				if (bins[i].isInstantiated()) {
+					rs[bins[i].getValue() - offset] += iSizes[d][i];
+				} else {
+					int ub = bins[i].getUB();
+					for (int val = bins[i].getLB(); val <= ub; val = bins[i].nextValue(val)) {
+						cs[val - offset] += iSizes[d][i];
+					}
+				}
+			}
+			for (int b = 0; b < rs.length; b++) {
+				if (rs[b] != bRLoads[d][b].get()) {
+					logger.warn(loads[d][b] + " required=" + bRLoads[d][b].get() + " expected=" + rs[b]);
+					check = false;
+				}
+				if (rs[b] + cs[b] != bTLoads[d][b].get()) {
+					logger.warn(loads[d][b] + " total=" + bTLoads[d][b].get() + " expected=" + (rs[b] + cs[b]));
+					check = false;
+				}
+				if (loads[d][b].getLB() < rs[b]) {
+					logger.warn(loads[d][b] + " LB expected >=" + rs[b]);
+					check = false;
+				}
+				if (loads[d][b].getUB() > rs[b] + cs[b]) {
+					logger.warn(loads[d][b] + " UB expected <=" + (rs[b] + cs[b]));
+					check = false;
+				}
+			}
+		}
+		return check;
+	}
+
+	/**
+	 * Check that the candidate lists are aligned with the assignment variables:
+	 * item is in candidates[bin] iff bin is in bins[item]
+	 *
+	 * @return {@code false} if not consistent.
+	 */
+	private boolean checkCandidatesConsistency() {
+		BitSet[] bs = new BitSet[nbBins];
+		for (int bin = 0; bin < nbBins; bin++) {
+			bs[bin] = new BitSet(bins.length);
+		}
+		for (int i = 0; i < bins.length; i++) {
+			if (!bins[i].isInstantiated()) {
+				int ub = bins[i].getUB();
+				for (int val = bins[i].getLB(); val <= ub; val = bins[i].nextValue(val)) {
+					bs[val - offset].set(i);
+				}
+			}
+		}
+		for (int b = 0; b < nbBins; b++) {
+			for (int i = 0; i < bins.length; i++) {
+				if (bs[b].get(i) != candidates[b].get(i)) {
+					logger.warn("candidate i '" + i + "' for bin '" + b + ": " + candidates[b].get(i) + " expected: "
+							+ bs[b].get(i));
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * print the list of candidate items for a given bin
+	 *
+	 * @param bin
+	 *          bin index
+	 * @return list of item indices, between braces, separated by spaces
+	 */
+	public String prettyCandidates(int bin) {
+		StringBuilder s = new StringBuilder("{");
+		for (int i = candidates[bin].nextSetBit(0); i >= 0; i = candidates[bin].nextSetBit(i + 1)) {
+			s.append(i);
+			s.append(' ');
+		}
+		s.append('}');
+		return s.toString();
+	}
+
+}
@@ -0,0 +1,73 @@
+package fr.emn.optiplace.core.packers;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.chocosolver.solver.Model;
+import org.chocosolver.solver.constraints.Constraint;
+import org.chocosolver.solver.variables.IntVar;
+
+import fr.emn.optiplace.configuration.resources.ResourceLoad;
+import fr.emn.optiplace.solver.choco.ChocoResourcePacker;
+
+/**
+ * Pack all the resources in one {@link FastMultiBinPacking} constraint, instead
+ * of one bin packing per resource as the {@link DefaultPacker} does. This way a
+ * VM removed from a node because of its memory use is also removed from that
+ * node's CPU candidates.
+ * <p>
+ * to use it, set it in the strategy of the solver, using
+ * {@link fr.emn.optiplace.solver.ConfigStrat#setPacker(ChocoResourcePacker)}
+ * </p>
+ *
+ * @author Guillaume Le Louët [guillaume.lelouet@gmail.com] 2017
+ *
+ */
+public class FastMultiPacker implements ChocoResourcePacker {
+
+	@SuppressWarnings("unused")
+	private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(FastMultiPacker.class);
+
+	@Override
+	public List<Constraint> pack(IntVar[] binAssign, ResourceLoad... resourceUse) {
+		ArrayList<Constraint> res = new ArrayList<>();
+		if (binAssign == null || binAssign.length == 0 || resourceUse == null || resourceUse.length == 0) {
+			return res;
+		}
+		// at least one VM can be set to non-running ?
+		boolean hasNonRunning = false;
+		Model m = binAssign[0].getModel();
+		for (IntVar i : binAssign) {
+			if (i.getLB() < 0) {
+				hasNonRunning = true;
+				break;
+			}
+		}
+		int shift = hasNonRunning ? 1 : 0;
+		IntVar[][] loads = new IntVar[resourceUse.length][];
+		int[][] sizes = new int[resourceUse.length][];
+		for (int d = 0; d < resourceUse.length; d++) {
+			ResourceLoad ru = resourceUse[d];
+			IntVar[] computersUses = ru.getComputersLoad();
+			sizes[d] = ru.getVMsLoads();
+			loads[d] = new IntVar[computersUses.length + shift];
+			if (hasNonRunning) {
+				loads[d][0] = m.intVar("res_" + ru.toString() + "_nonrunningload", 0, ru.getTotalVMLoads(), true);
+			}
+			for (int i = 0; i < computersUses.length; i++) {
+				IntVar load = computersUses[i];
+				// the additional use of a computer is not counted in the packing, so we
+				// pack on a variable load-additional
+				int additionalUse = ru.isAdditionalUse() ? ru.getAdditionalUse()[i] : 0;
+				if (additionalUse != 0) {
+					IntVar packed = m.intVar(load.getName(), load.getLB(), load.getUB(), !load.hasEnumeratedDomain());
+					res.add(m.arithm(load, "=", packed, "+", additionalUse));
+					load = packed;
+				}
+				loads[d][i + shift] = load;
+			}
+		}
+		res.add(new Constraint("multiBinPacking", new FastMultiBinPacking(loads, sizes, binAssign, -shift)));
+		return res;
+	}
+}
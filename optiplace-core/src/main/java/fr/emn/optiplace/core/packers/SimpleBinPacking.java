@@ -10,796 +10,499 @@
 
 package fr.emn.optiplace.core.packers;
 
+import java.util.Arrays;
+
+import org.chocosolver.memory.IEnvironment;
+import org.chocosolver.memory.IStateBitSet;
+import org.chocosolver.memory.IStateInt;
 import org.chocosolver.solver.constraints.Propagator;
+import org.chocosolver.solver.constraints.PropagatorPriority;
 import org.chocosolver.solver.exception.ContradictionException;
 import org.chocosolver.solver.variables.IntVar;
+import org.chocosolver.solver.variables.SetVar;
+import org.chocosolver.solver.variables.Variable;
+import org.chocosolver.solver.variables.delta.ISetDeltaMonitor;
+import org.chocosolver.solver.variables.events.IntEventType;
+import org.chocosolver.solver.variables.events.PropagatorEventType;
+import org.chocosolver.solver.variables.events.SetEventType;
 import org.chocosolver.util.ESat;
+import org.chocosolver.util.objects.setDataStructures.ISet;
+import org.chocosolver.util.objects.setDataStructures.ISetIterator;
+import org.chocosolver.util.procedure.UnaryIntProcedure;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import gnu.trove.list.array.TIntArrayList;
+
 /**
- * A simplified version of
- * {@link solver.constraints.global.pack.PackSConstraint}. Required and
- * candidate loads are computed incrementally while some coding tips speeds up
- * computation. The constraint does not however support all the options in
- * {@link solver.constraints.global.pack.PackSConstraint}
+ * A simplified bin packing working on the set model of the bins : each bin is a
+ * SetVar of the items it contains. The sets must be channeled to the items'
+ * assignment variables elsewhere (eg by
+ * {@link org.chocosolver.solver.Model#setsIntsChanneling(SetVar[], IntVar[])}
+ * ), so this only reasons on the loads. Required and candidate loads are
+ * maintained incrementally from the kernel additions and envelope removals of
+ * the sets.
+ * <p>
+ * Optionally the number of non-empty bins, among the first bins, is bounded
+ * using a continuous lower bound.
+ * </p>
  *
  * @author Fabien Hermenier
- * @see solver.constraints.global.pack.PackSConstraint
  */
-public class SimpleBinPacking extends Propagator<IntVar> {
-
-    @SuppressWarnings("unused")
-    private static final Logger logger = LoggerFactory.getLogger(SimpleBinPacking.class);
-
-    @Override
-    public void propagate(int evtmask) throws ContradictionException {
-	// TODO Auto-generated method stub
-	throw new UnsupportedOperationException();
-    }
-
-    @Override
-    public ESat isEntailed() {
-	// TODO Auto-generated method stub
-	throw new UnsupportedOperationException();
-    }
-
-    // public final SimpleBinPackingFiltering filtering;
-    //
-    // protected final BoundNumberOfBins bounds;
-    //
-    // private final IStateIntVector availableBins;
-    //
-    // /** The constant size of each item. */
-    // protected final int[] iSizes;
-    //
-    // /** The loads of the bins. */
-    // protected final IntVar[] loads;
-    //
-    // /** The bin of each item. */
-    // protected final IntVar[] bins;
-    //
-    // private final SetVar[] bSets;
-    //
-    // private final IStateInt[] bCLoads;
-    //
-    // private final IStateInt[] bRLoads;
-    //
-    // private final IEnvironment env;
-    //
-    // public SimpleBinPacking(IEnvironment environment, SetVar[] itemSets,
-    // IntVar[] loads, IntVar[] sizes, IntVar[] bins,
-    // IntVar nbNonEmpty) {
-    // super(ArrayUtils.append(loads, sizes, bins,
-    // new IntVar[]{nbNonEmpty}), itemSets);
-    // this.loads = loads;
-    // env = environment;
-    // iSizes = new int[sizes.length];
-    // for (int i = 0; i < sizes.length; i++) {
-    // iSizes[i] = sizes[i].getVal();
-    // }
-    // bSets = itemSets;
-    // bCLoads = new IStateInt[bSets.length];
-    // bRLoads = new IStateInt[bSets.length];
-    // this.bins = bins;
-    // bounds = new BoundNumberOfBins();
-    // filtering = new SimpleBinPackingFiltering(this);
-    // availableBins = environment.makeBipartiteIntList(ArrayUtils
-    // .zeroToN(getNbBins()));
-    //
-    // }
-    //
-    // @Override
-    // public void fireAvailableBins() {
-    // final DisposableIntIterator iter = availableBins.getIterator();
-    // while (iter.hasNext()) {
-    // final int b = iter.next();
-    // if (svars[b].isInstantiated()) {
-    // iter.remove();
-    // }
-    // }
-    // iter.dispose();
-    // }
-    //
-    // @Override
-    // public final IStateIntVector getAvailableBins() {
-    // return availableBins;
-    // }
-    //
-    // public final int getRequiredSpace(int bin) {
-    // return bRLoads[bin].get();
-    // }
-    //
-    // public final int getRemainingSpace(int bin) {
-    // return loads[bin].getUB() - getRequiredSpace(bin);
-    // }
-    //
-    // protected final boolean isSetEvent(final int varIdx) {
-    // return varIdx < svars.length;
-    // }
-    //
-    // protected final boolean isItemEvent(final int varIdx) {
-    // final int a = 2 * getNbBins() + getNbItems();
-    // final int b = a + getNbItems();
-    // return varIdx >= a && varIdx < b;
-    // }
-    //
-    // protected final int getItemIndex(final int varIdx) {
-    // return varIdx - 2 * getNbBins() - getNbItems();
-    // }
-    //
-    // @Override
-    // public final IntVar[] getBins() {
-    // return bins;
-    // }
-    //
-    // public IStateInt getRLoad(int bIdx) {
-    // return bRLoads[bIdx];
-    // }
-    //
-    // public IStateInt getCLoad(int bIdx) {
-    // return bCLoads[bIdx];
-    // }
-    //
-    // // ****************************************************************//
-    // // ********* Filtering interface **********************************//
-    // // ****************************************************************//
-    //
-    // @Override
-    // public final int getNbBins() {
-    // return svars.length;
-    // }
-    //
-    // @Override
-    // public final int getNbItems() {
-    // return iSizes.length;
-    // }
-    //
-    // @Override
-    // public final IntVar[] getLoads() {
-    // return loads;
-    // }
-    //
-    // @Override
-    // public final int[] getSizes() {
-    // return null;
-    // }
-    //
-    // public final int[] getISizes() {
-    // return iSizes;
-    // }
-    //
-    // public SetVar getSetBin(int bIdx) {
-    // return bSets[bIdx];
-    // }
-    //
-    // @Override
-    // public final NoSumList getStatus(int bin) {
-    // return null;
-    // }
-    //
-    // @Override
-    // public final boolean pack(int item, int bin) throws
-    // ContradictionException
-    // {
-    // // ChocoLogging.getSearchLogger().finest(svars[bin].pretty() + " pack("
-    // // + item + ", " + bin + ")");
-    // boolean ret = false;
-    // if (svars[bin].getDomain().getEnveloppeDomain().contains(item)
-    // && svars[bin].addToKernel(item, this, false)) {
-    // ret = true;
-    // bRLoads[bin].add(iSizes[item]);
-    // bCLoads[bin].add(-1 * iSizes[item]);
-    // }
-    // if (svars[bin].isInDomainKernel(item)
-    // && bins[item].fastCanBeInstantiatedTo(bin)) {
-    // // Update the cLoads & rLoads of the bin the item is packed in
-    //
-    // /*
-    // * final DisposableIntIterator iter =
-    // * bins[item].getDomain().getIterator(); //remove from other env try
-    // * { while (iter.hasNext()) { final int b = iter.next(); if (bin !=
-    // * b) { //ChocoLogging.getSearchLogger().finest("Remove " + item +
-    // * " from env of " + b); if (svars[b].remFromEnveloppe(item, this,
-    // * false)) { bCLoads[b].add(-1 * iSizes[item]); } } } } finally {
-    // * iter.dispose(); }
-    // */
-    // // remove from other env
-    // for (int b = bins[item].getLB(); b <= bins[item].getUB(); b = bins[item]
-    // .getNextDomainValue(b)) {
-    // if (bin != b) {
-    // // ChocoLogging.getSearchLogger().finest("Remove " + item +
-    // // " from env of " + b);
-    // if (svars[b].remFromEnveloppe(item, this, false)) {
-    // bCLoads[b].add(-1 * iSizes[item]);
-    // }
-    // }
-    // }
-    // } else {
-    // fail();
-    // }
-    // bins[item].instantiate(bin, this, true);
-    // return ret;
-    // }
-    //
-    // public final boolean simplePack(int item, int bin)
-    // throws ContradictionException {
-    // // ChocoLogging.getSearchLogger().finest(svars[bin].pretty() +
-    // // " simplePack(" + item + ", " + bin + ")");
-    // boolean ret = false;
-    // if (svars[bin].getDomain().getEnveloppeDomain().contains(item)
-    // && svars[bin].addToKernel(item, this, true)) {
-    // ret = true;
-    // }
-    // if (svars[bin].isInDomainKernel(item)
-    // && bins[item].fastCanBeInstantiatedTo(bin)) {
-    // // Update the cLoads & rLoads of the bin the item is packed in
-    // /*
-    // * final DisposableIntIterator iter =
-    // * bins[item].getDomain().getIterator(); //remove from other env try
-    // * { while (iter.hasNext()) { final int b = iter.next(); if (bin !=
-    // * b) { //ChocoLogging.getSearchLogger().finest("Remove " + item +
-    // * " from env of " + b); ret |= svars[b].remFromEnveloppe(item,
-    // * this, true); } } } finally { iter.dispose(); }
-    // */
-    // // remove from other env
-    // for (int b = bins[item].getLB(); b <= bins[item].getUB(); b = bins[item]
-    // .getNextDomainValue(b)) {
-    // if (bin != b) {
-    // // ChocoLogging.getSearchLogger().finest("Remove " + item +
-    // // " from env of " + b);
-    // ret |= svars[b].remFromEnveloppe(item, this, true);
-    // }
-    // }
-    //
-    // } else {
-    // fail();
-    // }
-    // bins[item].instantiate(bin, this, true);
-    // return ret;
-    // }
-    //
-    // @Override
-    // public final boolean remove(int item, int bin)
-    // throws ContradictionException {
-    // // ChocoLogging.getSearchLogger().finest(svars[bin].pretty() +
-    // // " remove(" + item + ", " + bin + ")");
-    // boolean res = svars[bin].remFromEnveloppe(item, this, false);
-    // if (res) {
-    // bCLoads[bin].add(-1 * iSizes[item]);
-    // }
-    // bins[item].removeVal(bin, this, true);
-    // if (bins[item].isInstantiated()) {
-    // final int b = bins[item].getVal();
-    // if (svars[b].addToKernel(item, this, false)) {
-    // // ChocoLogging.getSearchLogger().finest(svars[bin].pretty() +
-    // // " remove may " + item + " add to the kernel of " + b);
-    // bRLoads[b].add(iSizes[item]);
-    // bCLoads[b].add(-1 * iSizes[item]);
-    // }
-    // }
-    // return res;
-    // }
-    //
-    // public final boolean simpleRemove(int item, int bin)
-    // throws ContradictionException {
-    // // ChocoLogging.getSearchLogger().finest(svars[bin].pretty() +
-    // // " simpleRemove(" + item + ", " + bin + ")");
-    // boolean res = svars[bin].remFromEnveloppe(item, this, true);
-    // bins[item].removeVal(bin, this, true);
-    // if (bins[item].isInstantiated()) {
-    // final int b = bins[item].getVal();
-    // if (svars[b].addToKernel(item, this, true)) {
-    // // ChocoLogging.getSearchLogger().finest(svars[bin].pretty() +
-    // // " remove may " + item + " add to the kernel of " + b);
-    // }
-    // }
-    // return res;
-    // }
-    //
-    // @Override
-    // public final boolean updateInfLoad(int bin, int load)
-    // throws ContradictionException {
-    // return loads[bin].updateInf(load, this, true);
-    // }
-    //
-    // @Override
-    // public final boolean updateNbNonEmpty(int min, int max)
-    // throws ContradictionException {
-    // boolean res = false;
-    // final int idx = ivars.length - 1;
-    // ivars[idx].updateInf(min, this, true);
-    // ivars[idx].updateSup(max, this, true);
-    // return res;
-    // }
-    //
-    // @Override
-    // public final boolean updateSupLoad(int bin, int load)
-    // throws ContradictionException {
-    // return loads[bin].updateSup(load, this, true);
-    // }
-    //
-    // // ****************************************************************//
-    // // ********* Events *******************************************//
-    // // ****************************************************************//
-    //
-    // @Override
-    // public boolean isConsistent() {
-    // // really no idea. wait and propagate
-    // return false;
-    // }
-    //
-    // protected final void checkBounds(int item) throws ContradictionException
-    // {
-    // bins[item].updateInf(0, this, true);
-    // bins[item].updateSup(svars.length - 1, this, true);
-    // }
-    //
-    // protected final void checkEnveloppes() throws ContradictionException {
-    // for (SetVar svar : svars) {
-    // int inf;
-    // // check if envelope is empty, to avoid infinite loop
-    // while ((inf = svar.getEnveloppeInf()) < 0
-    // && svar.remFromEnveloppe(inf, this, true)) {
-    // // bCLoads[bin].add(-1 * iSizes[inf]);
-    // // assert(bCLoads[bin].get() >= 0);
-    // }
-    // int sup;
-    // // check if envelope is empty, to avoid infinite loop
-    // while ((sup = svar.getEnveloppeSup()) > bins.length - 1
-    // && svar.remFromEnveloppe(sup, this, true)) {
-    // // bCLoads[bin].add(-1 * iSizes[sup]);
-    // // assert(bCLoads[bin].get() >= 0);
-    // }
-    // }
-    // }
-    //
-    // @Override
-    // public void awake() throws ContradictionException {
-    // // initial channeling
-    // checkEnveloppes();
-    // for (int item = 0; item < bins.length; item++) {
-    // checkBounds(item);
-    // if (bins[item].isInstantiated()) {
-    // // the item is packed
-    // final int b0 = bins[item].getVal();
-    // svars[b0].addToKernel(item, this, false);
-    // for (int b = 0; b < b0; b++) {
-    // svars[b].remFromEnveloppe(item, this, false);
-    // }
-    // for (int b = b0 + 1; b < svars.length; b++) {
-    // svars[b].remFromEnveloppe(item, this, false);
-    // }
-    // } else {
-    // for (int bin = 0; bin < svars.length; bin++) {
-    // if (svars[bin].isInDomainEnveloppe(item)) {
-    // // item could be packed here
-    // if (svars[bin].isInDomainKernel(item)) {
-    // // item is packed
-    // bins[item].instantiate(bin, this, false);
-    // } else if (!bins[item].fastCanBeInstantiatedTo(bin)) {
-    // // in fact, channeling fails
-    // svars[bin].remFromEnveloppe(item, this, false);
-    // }
-    // // channeling ok envelope-domain
-    // } else {
-    // // otherwise remove from domain
-    // bins[item].removeVal(bin, this, false);
-    // }
-    // }
-    // }
-    // }
-    //
-    // // Initial r & c load
-    // DisposableIntIterator iterK = null;
-    // DisposableIntIterator iterE = null;
-    //
-    // try {
-    // for (int i = 0; i < bSets.length; i++) {
-    // SetVar s = bSets[i];
-    // int r = 0;
-    //
-    // iterK = s.getDomain().getKernelIterator();
-    // while (iterK.hasNext()) {
-    // r += iSizes[iterK.next()];
-    // }
-    //
-    // int c = 0;
-    // iterE = s.getDomain().getOpenDomainIterator();
-    // while (iterE.hasNext()) {
-    // c += iSizes[iterE.next()];
-    // }
-    // bRLoads[i] = env.makeInt(r);
-    // bCLoads[i] = env.makeInt(c);
-    // assert filtering.checkLoadConsistency(i);
-    // }
-    // } finally {
-    // if (iterK != null) {
-    // iterK.dispose();
-    // }
-    // if (iterE != null) {
-    // iterE.dispose();
-    // }
-    //
-    // }
-    // /*
-    // * for (int i = 0; i < svars.length; i++) {
-    // * ChocoLogging.getSearchLogger().finest(svars[i].pretty()); }
-    // */
-    // }
-    //
-    // protected void checkDeltaDomain(int item) throws ContradictionException {
-    // final DisposableIntIterator iter = bins[item].getDomain()
-    // .getDeltaIterator();
-    // if (iter.hasNext()) {
-    // try {
-    // while (iter.hasNext()) {
-    // final int b = iter.next();
-    // svars[b].remFromEnveloppe(item, this, true);
-    // }
-    // } finally {
-    // iter.dispose();
-    // }
-    // } else {
-    // throw new SolverException("empty delta domain for bin " + item);
-    // }
-    // }
-    //
-    // @Override
-    // public void awakeOnBounds(int varIndex) throws ContradictionException {
-    // // ChocoLogging.getSearchLogger().finest(pretty() +" awakeOnBounds(" +
-    // // varIndex + ")");
-    // if (isItemEvent(varIndex)) {
-    // final int item = getItemIndex(varIndex);
-    // // the item is not packed
-    // // so, we can safely remove from other envelopes
-    // checkDeltaDomain(item);
-    // }
-    // constAwake(false);
-    // }
-    //
-    // @Override
-    // public void awakeOnInf(int varIdx) throws ContradictionException {
-    // awakeOnBounds(varIdx);
-    // }
-    //
-    // @Override
-    // public void awakeOnInst(int varIdx) throws ContradictionException {
-    // if (isSetEvent(varIdx)) {
-    // // ChocoLogging.getSearchLogger().finest(svars[varIdx].pretty() +
-    // // " awakeOnSetInst(" + svars[varIdx].pretty() + ") r=" +
-    // // bRLoads[varIdx].get() + " c=" + bCLoads[varIdx].get());
-    // DisposableIntIterator iter = svars[varIdx].getDomain()
-    // .getKernelIterator();
-    // try {
-    // while (iter.hasNext()) {
-    // final int item = iter.next();
-    // if (!bins[item].isInstantiated()) {
-    // simplePack(item, varIdx);
-    // }
-    // }
-    // } finally {
-    // iter.dispose();
-    // }
-    // iter = svars[varIdx].getDomain().getEnveloppeDomain()
-    // .getDeltaIterator();
-    // try {
-    // while (iter.hasNext()) {
-    // final int item = iter.next();
-    // if (bins[item].fastCanBeInstantiatedTo(varIdx)) {
-    // simpleRemove(item, varIdx);
-    // }
-    // }
-    // } finally {
-    // iter.dispose();
-    // }
-    // } else if (isItemEvent(varIdx)) {
-    // final int item = getItemIndex(varIdx);
-    // // ChocoLogging.getSearchLogger().finest(bins[item].pretty()
-    // // +" awakeOnBinInst(" +bins[item].getVal()+ ")");
-    // final int b = bins[item].getVal();
-    // checkDeltaDomain(item);
-    // simplePack(item, b);
-    // }
-    // constAwake(false);
-    // }
-    //
-    // @Override
-    // public void awakeOnKer(int varIdx, int x) throws ContradictionException {
-    // // ChocoLogging.getSearchLogger().finest(svars[varIdx].pretty()
-    // // +" awakeOnKer: +item " + x + " (" + bRLoads[varIdx].get() + "+" +
-    // // iSizes[x] + ")");
-    // bRLoads[varIdx].add(iSizes[x]);
-    // bCLoads[varIdx].add(-1 * iSizes[x]);
-    // simplePack(x, varIdx);
-    // // ChocoLogging.getSearchLogger().finest(svars[varIdx].pretty()
-    // // +" awakeOnKer: r=" + bRLoads[varIdx].get());
-    // constAwake(false);
-    // }
-    //
-    // @Override
-    // public void awakeOnEnv(int varIdx, int x) throws ContradictionException {
-    // // ChocoLogging.getSearchLogger().finest(svars[varIdx].pretty() +
-    // // " awakeOnEnv: -item " + x + " (" + bCLoads[varIdx].get() + "-" +
-    // // iSizes[x] + ")");
-    // bCLoads[varIdx].add(-1 * iSizes[x]);
-    // bins[x].removeVal(varIdx, this, true);
-    //
-    // // if the item is packed, update variables
-    // if (bins[x].isInstantiated()) {
-    // final int b = bins[x].getVal();
-    // svars[b].addToKernel(x, this, true);
-    // }
-    // constAwake(false);
-    // }
-    //
-    // @Override
-    // public void awakeOnRem(int varIdx, int val) throws ContradictionException
-    // {
-    // if (isItemEvent(varIdx)) {
-    // int item = getItemIndex(varIdx);
-    // // ChocoLogging.getSearchLogger().finest(bins[item].pretty() +
-    // // " awakeOnRem(" + item + ", " + val + ")");
-    // svars[val].remFromEnveloppe(item, this, true);
-    //
-    // if (bins[item].isInstantiated()) {
-    // final int b = bins[item].getVal();
-    // svars[b].addToKernel(item, this, true);
-    // }
-    // }
-    // constAwake(false);
-    // }
-    //
-    // @Override
-    // public void awakeOnSup(int varIdx) throws ContradictionException {
-    // // ChocoLogging.getSearchLogger().finest(pretty() + " awakeOnSup(" +
-    // // varIdx + ")");
-    // awakeOnBounds(varIdx);
-    // }
-    //
-    // @Override
-    // public void propagate() throws ContradictionException {
-    // do {
-    // // ChocoLogging.getSearchLogger().finest("propagate " + pretty());
-    // filtering.propagate();
-    // if (!bounds.computeBounds(false)) {
-    // fail();
-    // }
-    // } while (updateNbNonEmpty(bounds.getMinimumNumberOfBins(),
-    // bounds.getMaximumNumberOfBins()));
-    //
-    // }
-    //
-    // @Override
-    // public boolean isSatisfied() {
-    // int[] l = new int[loads.length];
-    // int[] c = new int[loads.length];
-    // for (int i = 0; i < bins.length; i++) {
-    // final int b = bins[i].getVal();
-    // if (!svars[b].isInDomainKernel(i)) {
-    // ChocoLogging.getBranchingLogger().warning(
-    // "Bad channeling for " + svars[b] + " should contains "
-    // + i);
-    // return false; // check channeling
-    // }
-    // l[b] += iSizes[i];
-    // c[b]++;
-    // }
-    // int nbb = 0;
-    // for (int i = 0; i < loads.length; i++) {
-    // if (svars[i].getCard().getVal() != c[i]) {
-    // ChocoLogging.getBranchingLogger().warning(
-    // "card of set " + i + " = "
-    // + svars[i].getCard().getVal() + " expected="
-    // + c[i]);
-    // return false; // check cardinality
-    // }
-    // if (loads[i].getVal() != l[i]) {
-    // ChocoLogging.getBranchingLogger().warning(
-    // "Load of " + i + " = " + loads[i].getVal()
-    // + " expected=" + l[i]);
-    // return false; // check load
-    // }
-    // if (c[i] != 0) {
-    // nbb++;
-    // }
-    // }
-    // boolean b = ivars[ivars.length - 1].getVal() == nbb;
-    // if (!b) {
-    // ChocoLogging.getBranchingLogger().warning(
-    // "SimpleBinPacking: Bad number of bins: "
-    // + ivars[ivars.length - 1].getVal() + " but want "
-    // + nbb);
-    // }
-    // return b;// check number of bins
-    // }
-    //
-    // protected final class BoundNumberOfBins {
-    //
-    // private final int[] remainingSpace;
-    //
-    // private final TIntArrayList itemsMLB;
-    //
-    // protected int capacityMLB;
-    //
-    // private final TIntArrayList binsMLB;
-    //
-    // private int sizeIMLB;
-    //
-    // private int totalSizeCLB;
-    //
-    // private final TIntArrayList binsCLB;
-    //
-    // protected int nbEmpty;
-    //
-    // protected int nbSome;
-    //
-    // protected int nbFull;
-    //
-    // protected int nbNewCLB;
-    //
-    // private final TIntProcedure minimumNumberOfNewBins = new TIntProcedure()
-    // {
-    // @Override
-    // public boolean execute(int arg0) {
-    // nbNewCLB++;
-    // if (totalSizeCLB <= arg0) {
-    // return false;
-    // }
-    // totalSizeCLB -= arg0;
-    // return true;
-    // }
-    // };
-    //
-    // public BoundNumberOfBins() {
-    // itemsMLB = new TIntArrayList(getNbBins() + getNbItems());
-    // binsMLB = new TIntArrayList(getNbBins());
-    // binsCLB = new TIntArrayList(getNbBins());
-    // remainingSpace = new int[getNbBins()];
-    // }
-    //
-    // public void reset() {
-    // Arrays.fill(remainingSpace, 0);
-    // itemsMLB.resetQuick();
-    // capacityMLB = 0;
-    // binsMLB.resetQuick();
-    // totalSizeCLB = 0;
-    // binsCLB.resetQuick();
-    // nbEmpty = 0;
-    // nbSome = 0;
-    // nbFull = 0;
-    // nbNewCLB = 0;
-    // }
-    //
-    // /** add unpacked items (MLB) compute their total size (CLB). */
-    // private void handleItems() {
-    // final int n = getNbItems();
-    // for (int i = 0; i < n; i++) {
-    // final int iSize = iSizes[i];
-    // if (bins[i].isInstantiated()) {
-    // remainingSpace[bins[i].getVal()] -= iSize;
-    // } else {
-    // totalSizeCLB += iSize;
-    // itemsMLB.add(iSize);
-    // }
-    // }
-    // sizeIMLB = itemsMLB.size();
-    // }
-    //
-    // /**
-    // * compute the remaining space in each bin and the cardinality of sets
-    // * (empty, partially filled, full)
-    // */
-    // private void handleBins() {
-    // final int n = getNbBins();
-    // // compute the number of empty, partially filled and closed bins
-    // // also compute the remaining space in each open bins
-    // for (int b = 0; b < n; b++) {
-    // if (svars[b].isInstantiated()) {
-    // // we ignore closed bins
-    // if (loads[b].isInstantiatedTo(0)) {
-    // nbEmpty++;
-    // } else {
-    // nbFull++;
-    // }
-    // } else {
-    // // the bins is used by the modified lower bound
-    // binsMLB.add(b);
-    // remainingSpace[b] += loads[b].getUB();
-    // capacityMLB = Math.max(capacityMLB, remainingSpace[b]);
-    // if (svars[b].getKernelDomainSize() > 0) {
-    // // partially filled
-    // nbSome++;
-    // totalSizeCLB -= remainingSpace[b]; // fill partially
-    // // filled bin before
-    // // empty ones
-    // } else {
-    // // still empty
-    // binsCLB.add(remainingSpace[b]); // record empty bins to
-    // // fill them later
-    // }
-    // }
-    // }
-    // }
-    //
-    // private void computeMinimumNumberOfNewBins() {
-    // binsCLB.sort();
-    // binsCLB.forEachDescending(minimumNumberOfNewBins);
-    // }
-    //
-    // /**
-    // * @param useDDFF
-    // * do we use advanced and costly bounding procedure for a
-    // * feasibility test.
-    // * @return <code>false</code> if the current state is infeasible.
-    // */
-    // public boolean computeBounds(boolean useDDFF) {
-    // reset();
-    // // the order of the following calls is important
-    // handleItems();
-    // handleBins();
-    // if (!itemsMLB.isEmpty()) {
-    // // if( sizeMLB < maximumNumberOfNewBins.get() )
-    // // maximumNumberOfNewBins.set(sizeMLB);
-    // // there is unpacked items
-    // if (totalSizeCLB > 0) {
-    // // compute an estimation of the minimal number of additional
-    // // bins.
-    // if (binsCLB.isEmpty()) {
-    // return false; // no more available bins for remaining
-    // // unpacked items
-    // }
-    // computeMinimumNumberOfNewBins();
-    // }
-    // if (getMinimumNumberOfBins() > ivars[ivars.length - 1].getUB()) {
-    // return false; // the continuous bound prove infeasibility
-    // }
-    // }
-    // return true;
-    // }
-    //
-    // public int getMaximumNumberOfBins() {
-    // return Math.min(getNbBins() - nbEmpty, nbFull + nbSome + sizeIMLB);
-    // }
-    //
-    // public int getMinimumNumberOfBins() {
-    // return nbFull + nbSome + nbNewCLB;
-    // }
-    // }
-    //
-    // public String prettyEnvelop(int bIdx) {
-    // DisposableIntIterator ite = svars[bIdx].getDomain()
-    // .getOpenDomainIterator();
-    // StringBuilder b = new StringBuilder("{");
-    // while (ite.hasNext()) {
-    // int i = ite.next();
-    // b.append(i);
-    // if (ite.hasNext()) {
-    // b.append(", ");
-    // }
-    // }
-    // ite.dispose();
-    // b.append("}");
-    // return b.toString();
-    // }
-    //
-    // public String prettyKernel(int bIdx) {
-    // DisposableIntIterator ite = svars[bIdx].getDomain().getKernelIterator();
-    // StringBuilder b = new StringBuilder("{");
-    // while (ite.hasNext()) {
-    // int i = ite.next();
-    // b.append(i);
-    // if (ite.hasNext()) {
-    // b.append(", ");
-    // }
-    // }
-    // ite.dispose();
-    // b.append("}");
-    // return b.toString();
-    // }
-    //
-    // @Override
-    // public IStateBitSet getCandidates(int bin) {
-    // return null;
-    // }
-}
\ No newline at end of file
+public class SimpleBinPacking extends Propagator<Variable> {
+
+	@SuppressWarnings("unused")
+	private static final Logger logger = LoggerFactory.getLogger(SimpleBinPacking.class);
+
+	public final SimpleBinPackingFiltering filtering;
+
+	protected final BoundNumberOfBins bounds;
+
+	/** the bins whose set is not instantiated yet */
+	private final IStateBitSet availableBins;
+
+	/** The constant size of each item. */
+	protected final int[] iSizes;
+
+	/** the biggest size of an item */
+	protected final int maxISize;
+
+	/** The loads of the bins. */
+	protected final IntVar[] loads;
+
+	/** the set of items of each bin */
+	protected final SetVar[] bSets;
+
+	/** the number of non-empty bins among the nbCountedBins first bins */
+	protected final IntVar nbNonEmpty;
+
+	protected final int nbCountedBins;
+
+	/** the total size of the candidate items of each bin */
+	private final IStateInt[] bCLoads;
+
+	/** the total size of the required items of each bin */
+	private final IStateInt[] bRLoads;
+
+	private final ISetDeltaMonitor[] deltaMonitors;
+
+	private final UnaryIntProcedure<Integer> kerProc = new UnaryIntProcedure<Integer>() {
+		int bin;
+
+		@Override
+		public UnaryIntProcedure<Integer> set(Integer idx) {
+			bin = idx;
+			return this;
+		}
+
+		@Override
+		public void execute(int item) throws ContradictionException {
+			bRLoads[bin].add(iSizes[item]);
+			bCLoads[bin].add(-1 * iSizes[item]);
+		}
+	};
+
+	private final UnaryIntProcedure<Integer> envProc = new UnaryIntProcedure<Integer>() {
+		int bin;
+
+		@Override
+		public UnaryIntProcedure<Integer> set(Integer idx) {
+			bin = idx;
+			return this;
+		}
+
+		@Override
+		public void execute(int item) throws ContradictionException {
+			bCLoads[bin].add(-1 * iSizes[item]);
+		}
+	};
+
+	/**
+	 * @param itemSets
+	 *          for each bin, the set of items it contains
+	 * @param loads
+	 *          for each bin, the total size of the items it contains
+	 * @param sizes
+	 *          for each item, its constant size
+	 * @param nbNonEmpty
+	 *          the number of non-empty bins among the nbCountedBins first, or
+	 *          null
+	 * @param nbCountedBins
+	 *          the number of bins, starting at 0, to count in nbNonEmpty
+	 */
+	public SimpleBinPacking(SetVar[] itemSets, IntVar[] loads, int[] sizes, IntVar nbNonEmpty, int nbCountedBins) {
+		super(makeVars(itemSets, loads, nbNonEmpty), PropagatorPriority.QUADRATIC, true);
+		this.loads = loads;
+		this.nbNonEmpty = nbNonEmpty;
+		this.nbCountedBins = nbNonEmpty == null ? 0 : nbCountedBins;
+		iSizes = sizes;
+		int max = 0;
+		for (int s : sizes) {
+			max = Math.max(max, s);
+		}
+		maxISize = max;
+		bSets = itemSets;
+		IEnvironment env = model.getEnvironment();
+		bCLoads = new IStateInt[bSets.length];
+		bRLoads = new IStateInt[bSets.length];
+		deltaMonitors = new ISetDeltaMonitor[bSets.length];
+		for (int i = 0; i < bSets.length; i++) {
+			bCLoads[i] = env.makeInt(0);
+			bRLoads[i] = env.makeInt(0);
+			deltaMonitors[i] = bSets[i].monitorDelta(this);
+		}
+		availableBins = env.makeBitSet(bSets.length);
+		bounds = new BoundNumberOfBins();
+		filtering = new SimpleBinPackingFiltering(this);
+	}
+
+	protected static Variable[] makeVars(SetVar[] itemSets, IntVar[] loads, IntVar nbNonEmpty) {
+		Variable[] ret = new Variable[itemSets.length + loads.length + (nbNonEmpty == null ? 0 : 1)];
+		System.arraycopy(itemSets, 0, ret, 0, itemSets.length);
+		System.arraycopy(loads, 0, ret, itemSets.length, loads.length);
+		if (nbNonEmpty != null) {
+			ret[ret.length - 1] = nbNonEmpty;
+		}
+		return ret;
+	}
+
+	public final IStateBitSet getAvailableBins() {
+		return availableBins;
+	}
+
+	/** remove the instantiated bins from the available ones */
+	public void fireAvailableBins() {
+		for (int b = availableBins.nextSetBit(0); b >= 0; b = availableBins.nextSetBit(b + 1)) {
+			if (bSets[b].isInstantiated()) {
+				availableBins.clear(b);
+			}
+		}
+	}
+
+	public final int getRequiredSpace(int bin) {
+		return bRLoads[bin].get();
+	}
+
+	public final int getRemainingSpace(int bin) {
+		return loads[bin].getUB() - getRequiredSpace(bin);
+	}
+
+	public IStateInt getRLoad(int bIdx) {
+		return bRLoads[bIdx];
+	}
+
+	public IStateInt getCLoad(int bIdx) {
+		return bCLoads[bIdx];
+	}
+
+	public final int getNbBins() {
+		return bSets.length;
+	}
+
+	public final int getNbItems() {
+		return iSizes.length;
+	}
+
+	public final IntVar[] getLoads() {
+		return loads;
+	}
+
+	public final int[] getISizes() {
+		return iSizes;
+	}
+
+	public SetVar getSetBin(int bIdx) {
+		return bSets[bIdx];
+	}
+
+	/**
+	 * @return the minimum number of non-empty bins deduced on last propagation,
+	 *         among the counted bins.
+	 */
+	public int getMinimumNumberOfBins() {
+		return bounds.getMinimumNumberOfBins();
+	}
+
+	// ****************************************************************//
+	// ********* Filtering interface **********************************//
+	// ****************************************************************//
+
+	/**
+	 * add an item to a bin
+	 *
+	 * @return true if the item was not already packed in this bin
+	 */
+	public final boolean pack(int item, int bin) throws ContradictionException {
+		if (bSets[bin].force(item, this)) {
+			bRLoads[bin].add(iSizes[item]);
+			bCLoads[bin].add(-1 * iSizes[item]);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * remove an item from the candidates of a bin
+	 *
+	 * @return true if the item was a candidate of this bin
+	 */
+	public final boolean remove(int item, int bin) throws ContradictionException {
+		if (bSets[bin].remove(item, this)) {
+			bCLoads[bin].add(-1 * iSizes[item]);
+			return true;
+		}
+		return false;
+	}
+
+	public final boolean updateInfLoad(int bin, int load) throws ContradictionException {
+		return loads[bin].updateLowerBound(load, this);
+	}
+
+	public final boolean updateSupLoad(int bin, int load) throws ContradictionException {
+		return loads[bin].updateUpperBound(load, this);
+	}
+
+	public final boolean updateNbNonEmpty(int min, int max) throws ContradictionException {
+		boolean res = nbNonEmpty.updateLowerBound(min, this);
+		res |= nbNonEmpty.updateUpperBound(max, this);
+		return res;
+	}
+
+	// ****************************************************************//
+	// ********* Events ***********************************************//
+	// ****************************************************************//
+
+	@Override
+	public int getPropagationConditions(int vIdx) {
+		if (vIdx < bSets.length) {
+			return SetEventType.all();
+		}
+		return IntEventType.boundAndInst();
+	}
+
+	/** compute the initial required and candidate loads of the bins */
+	protected void initialize() throws ContradictionException {
+		availableBins.clear();
+		for (int i = 0; i < bSets.length; i++) {
+			SetVar s = bSets[i];
+			int r = 0;
+			ISetIterator it = s.getLB().iterator();
+			while (it.hasNext()) {
+				r += iSizes[it.nextInt()];
+			}
+			int c = 0;
+			it = s.getUB().iterator();
+			while (it.hasNext()) {
+				int item = it.nextInt();
+				if (!s.getLB().contains(item)) {
+					c += iSizes[item];
+				}
+			}
+			bRLoads[i].set(r);
+			bCLoads[i].set(c);
+			if (!s.isInstantiated()) {
+				availableBins.set(i);
+			}
+			loads[i].updateBounds(r, r + c, this);
+			deltaMonitors[i].unfreeze();
+		}
+	}
+
+	@Override
+	public void propagate(int idx, int mask) throws ContradictionException {
+		if (idx < bSets.length) {
+			deltaMonitors[idx].freeze();
+			deltaMonitors[idx].forEach(kerProc.set(idx), SetEventType.ADD_TO_KER);
+			deltaMonitors[idx].forEach(envProc.set(idx), SetEventType.REMOVE_FROM_ENVELOPE);
+			deltaMonitors[idx].unfreeze();
+		}
+		forcePropagate(PropagatorEventType.CUSTOM_PROPAGATION);
+	}
+
+	@Override
+	public void propagate(int evtmask) throws ContradictionException {
+		if (PropagatorEventType.isFullPropagation(evtmask)) {
+			initialize();
+		}
+		filtering.propagate();
+		if (nbNonEmpty != null) {
+			if (!bounds.computeBounds()) {
+				fails();
+			}
+			updateNbNonEmpty(bounds.getMinimumNumberOfBins(), bounds.getMaximumNumberOfBins());
+		}
+	}
+
+	@Override
+	public ESat isEntailed() {
+		long[] l = new long[loads.length];
+		int nbb = 0;
+		boolean allInstantiated = true;
+		for (int b = 0; b < bSets.length; b++) {
+			ISetIterator it = bSets[b].getLB().iterator();
+			while (it.hasNext()) {
+				l[b] += iSizes[it.nextInt()];
+			}
+			if (l[b] > loads[b].getUB()) {
+				return ESat.FALSE;
+			}
+			if (bSets[b].isInstantiated()) {
+				if (l[b] < loads[b].getLB()) {
+					return ESat.FALSE;
+				}
+				if (b < nbCountedBins && !bSets[b].getLB().isEmpty()) {
+					nbb++;
+				}
+			} else {
+				allInstantiated = false;
+			}
+		}
+		if (!allInstantiated || !isCompletelyInstantiated()) {
+			return ESat.UNDEFINED;
+		}
+		return nbNonEmpty == null || nbNonEmpty.getValue() == nbb ? ESat.TRUE : ESat.FALSE;
+	}
+
+	/**
+	 * Lower and upper bounds on the number of non-empty bins among the counted
+	 * bins. The lower bound is the continuous one : the items that can not be
+	 * placed on a non-counted bin first fill the remaining space of the bins
+	 * already used, then the largest empty bins.
+	 */
+	protected final class BoundNumberOfBins {
+
+		/** the items packed in one bin */
+		private final boolean[] packed;
+
+		/** the items that can be packed in a non-counted bin */
+		private final boolean[] canLeave;
+
+		private final TIntArrayList binsCLB;
+
+		private long totalSizeCLB;
+
+		protected int nbUnpacked;
+
+		protected int nbEmpty;
+
+		protected int nbSome;
+
+		protected int nbNewCLB;
+
+		public BoundNumberOfBins() {
+			packed = new boolean[getNbItems()];
+			canLeave = new boolean[getNbItems()];
+			binsCLB = new TIntArrayList(getNbBins());
+		}
+
+		public void reset() {
+			Arrays.fill(packed, false);
+			Arrays.fill(canLeave, false);
+			totalSizeCLB = 0;
+			binsCLB.resetQuick();
+			nbUnpacked = 0;
+			nbEmpty = 0;
+			nbSome = 0;
+			nbNewCLB = 0;
+		}
+
+		/** mark the packed items and the items which can go on a non-counted bin */
+		private void handleItems() {
+			for (int b = 0; b < getNbBins(); b++) {
+				ISetIterator it = bSets[b].getLB().iterator();
+				while (it.hasNext()) {
+					packed[it.nextInt()] = true;
+				}
+				if (b >= nbCountedBins) {
+					it = bSets[b].getUB().iterator();
+					while (it.hasNext()) {
+						canLeave[it.nextInt()] = true;
+					}
+				}
+			}
+			for (int i = 0; i < packed.length; i++) {
+				if (!packed[i]) {
+					nbUnpacked++;
+					if (!canLeave[i]) {
+						totalSizeCLB += iSizes[i];
+					}
+				}
+			}
+		}
+
+		/**
+		 * compute the remaining space in each counted bin and the cardinality of
+		 * sets (empty, partially filled)
+		 */
+		private void handleBins() {
+			for (int b = 0; b < nbCountedBins; b++) {
+				SetVar s = bSets[b];
+				if (s.getUB().isEmpty()) {
+					nbEmpty++;
+				} else if (!s.getLB().isEmpty()) {
+					nbSome++;
+					// fill partially filled bins before empty ones
+					totalSizeCLB -= getRemainingSpace(b);
+				} else {
+					// record empty bins to fill them later
+					binsCLB.add(getRemainingSpace(b));
+				}
+			}
+		}
+
+		private void computeMinimumNumberOfNewBins() {
+			binsCLB.sort();
+			for (int i = binsCLB.size() - 1; i >= 0 && totalSizeCLB > 0; i--) {
+				nbNewCLB++;
+				totalSizeCLB -= binsCLB.getQuick(i);
+			}
+		}
+
+		/**
+		 * @return <code>false</code> if the current state is infeasible.
+		 */
+		public boolean computeBounds() {
+			reset();
+			// the order of the following calls is important
+			handleItems();
+			handleBins();
+			if (totalSizeCLB > 0) {
+				computeMinimumNumberOfNewBins();
+				if (totalSizeCLB > 0) {
+					// no more available bins for remaining unpacked items
+					return false;
+				}
+			}
+			return getMinimumNumberOfBins() <= nbNonEmpty.getUB();
+		}
+
+		public int getMaximumNumberOfBins() {
+			return Math.min(nbCountedBins - nbEmpty, nbSome + nbUnpacked);
+		}
+
+		public int getMinimumNumberOfBins() {
+			return nbSome + nbNewCLB;
+		}
+	}
+
+	public String prettyEnvelop(int bIdx) {
+		return prettySet(bSets[bIdx].getUB());
+	}
+
+	public String prettyKernel(int bIdx) {
+		return prettySet(bSets[bIdx].getLB());
+	}
+
+	protected static String prettySet(ISet set) {
+		StringBuilder b = new StringBuilder("{");
+		ISetIterator ite = set.iterator();
+		while (ite.hasNext()) {
+			b.append(ite.nextInt());
+			if (ite.hasNext()) {
+				b.append(", ");
+			}
+		}
+		b.append("}");
+		return b.toString();
+	}
+}
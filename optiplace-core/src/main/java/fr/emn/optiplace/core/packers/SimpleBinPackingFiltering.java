@@ -10,332 +10,267 @@
 
 package fr.emn.optiplace.core.packers;
 
+import org.chocosolver.memory.IStateBitSet;
+import org.chocosolver.solver.exception.ContradictionException;
+import org.chocosolver.solver.variables.IntVar;
+import org.chocosolver.solver.variables.SetVar;
+import org.chocosolver.util.objects.setDataStructures.ISetIterator;
+
 /**
- * Simplified version of {@link solver.constraints.global.pack.PackFiltering}.
- * An assertion checks the consistency of the loads with the set model. So take
- * care of disabling assertions when benching
- * 
+ * Filtering rules of the {@link SimpleBinPacking}. An assertion checks the
+ * consistency of the loads with the set model. So take care of disabling
+ * assertions when benching
+ *
  * @author Fabien Hermenier
- * @see solver.constraints.global.pack.PackFiltering
  */
 public final class SimpleBinPackingFiltering {
 
-	// private final SimpleBinPacking cstr;
-	//
-	// /** The constant size of each item. */
-	// protected final int[] iSizes;
-	//
-	// /** The loads of the bins. */
-	// protected final IntVar[] loads;
-	//
-	// private SetVar setBin;
-	//
-	// /** The no fix point. */
-	// private boolean noFixPoint;
-	//
-	// protected final SumDataStruct loadSum;
-	//
-	// /**
-	// * Instantiates a new 1BP constraint.
-	// *
-	// * @param pack
-	// * the packing constraint
-	// */
-	// public SimpleBinPackingFiltering(SimpleBinPacking pack) {
-	// cstr = pack;
-	// loads = cstr.getLoads();
-	// iSizes = cstr.getISizes();
-	// loadSum = new SumDataStruct(loads, computeTotalSize());
-	// }
-	//
-	// /** Compute the total size and check that sizes are constant. */
-	// private int computeTotalSize() {
-	// int l = 0;
-	// int last = Integer.MAX_VALUE;
-	// int len = iSizes.length;
-	// for (int i = 0; i < len; i++) {
-	// int s = iSizes[i];
-	// if (s > last) {
-	// throw new SolverException(
-	// "size must be sorted according to non increasing order");
-	// } else {
-	// l += s;
-	// last = s;
-	// }
-	// }
-	// return l;
-	// }
-	//
-	// /**
-	// * Update the minimal load of a given bin.
-	// *
-	// * @param bin
-	// * the index of bin
-	// * @param load
-	// * the new load
-	// * @throws ContradictionException
-	// * the contradiction exception
-	// */
-	// protected void updateInfLoad(final int bin, final int load)
-	// throws ContradictionException {
-	// noFixPoint |= cstr.updateInfLoad(bin, load);
-	// }
-	//
-	// /**
-	// * Update the maximal load of a given bin.
-	// *
-	// * @param bin
-	// * the index of bin
-	// * @param load
-	// * the new load
-	// * @throws ContradictionException
-	// * the contradiction exception
-	// */
-	// protected void updateSupLoad(final int bin, final int load)
-	// throws ContradictionException {
-	// noFixPoint |= cstr.updateSupLoad(bin, load);
-	// }
-	//
-	// /** Do not update status */
-	// protected void pack(final int item, final int bin)
-	// throws ContradictionException {
-	// // ChocoLogging.getBranchingLogger().finest("filtering pack(" + item +
-	// // ", " + bin + ")");
-	// noFixPoint |= cstr.pack(item, bin);
-	// }
-	//
-	// /** Do not update status */
-	// protected void remove(final int item, final int bin)
-	// throws ContradictionException {
-	// // ChocoLogging.getBranchingLogger().finest("filtering remove(" + item +
-	// // ", " + bin + ")");
-	// noFixPoint |= cstr.remove(item, bin);
-	// }
-	//
-	// //
-	// %%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%//
-	// // %%%%%%%%%%%%%%%%%%%%%%%%%% TYPICAL MODEL
-	// // %%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%//
-	// //
-	// %%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%//
-	//
-	// /**
-	// * The minimum and maximum load of each bin {@link SimpleBinPacking#loads
-	// }
-	// * is maintained according to the domains of the bin assignment variables.
-	// *
-	// * @param bin
-	// * the index of the bin
-	// * @throws ContradictionException
-	// * the contradiction exception
-	// */
-	// protected void loadMaintenance(final int bin) throws
-	// ContradictionException
-	// {
-	// // sumEnvelop(bin); //Bad for performance!!
-	// assert checkLoadConsistency(bin);
-	// updateInfLoad(bin, cstr.getRLoad(bin).get());
-	// updateSupLoad(bin, cstr.getCLoad(bin).get() + cstr.getRLoad(bin).get());
-	// }
-	// /**
-	// * Redundant method to compute the rload and the cload of each bin. Very
-	// bad
-	// * for performance. These values should be maintained incrementally.
-	// *
-	// * @param bin
-	// * the bin to look up to compute loads
-	// */
-	// protected void sumEnvelop(int bin) {
-	// DisposableIntIterator ite = setBin.getDomain().getKernelIterator();
-	// int r = 0;
-	// while (ite.hasNext()) {
-	// r += iSizes[ite.next()];
-	// }
-	// ite.dispose();
-	// ite = setBin.getDomain().getOpenDomainIterator();
-	// int c = 0;
-	// while (ite.hasNext()) {
-	// c += iSizes[ite.next()];
-	// }
-	// ite.dispose();
-	// cstr.getRLoad(bin).set(r);
-	// cstr.getCLoad(bin).set(c);
-	// }
-	//
-	// /**
-	// * Check the consistency of the rloads and the cloads with regards ot the
-	// * set variable denoting the hosting capability of a bin.
-	// *
-	// * @param bin
-	// * the bin to analyse
-	// * @return {@code false} if the consistency is not viable.
-	// * @throws ContradictionException
-	// * if an error occurred
-	// */
-	// public boolean checkLoadConsistency(int bin) throws
-	// ContradictionException
-	// {
-	// DisposableIntIterator ite = cstr.getSetBin(bin).getDomain()
-	// .getKernelIterator();
-	// int r = 0;
-	// while (ite.hasNext()) {
-	// r += iSizes[ite.next()];
-	// }
-	// ite.dispose();
-	//
-	// ite = cstr.getSetBin(bin).getDomain().getOpenDomainIterator();
-	// int c = 0;
-	// while (ite.hasNext()) {
-	// c += iSizes[ite.next()];
-	// }
-	// ite.dispose();
-	//
-	// if (r != cstr.getRLoad(bin).get()) {
-	// // ChocoLogging.getSearchLogger().finest(loads[bin].pretty() +
-	// // " env" + cstr.prettyEnvelop(bin) + "=" + cstr.getCLoad(bin).get()
-	// // + " ker=" + cstr.prettyKernel(bin) + "=" +
-	// // cstr.getRLoad(bin).get());
-	// ChocoLogging.getBranchingLogger().warning(
-	// loads[bin].pretty() + " current r="
-	// + cstr.getRLoad(bin).get() + " expected=" + r);
-	// ChocoLogging.flushLogs();
-	// return false;
-	// }
-	// if (c != cstr.getCLoad(bin).get()) {
-	// // ChocoLogging.getSearchLogger().finest(loads[bin].pretty() +
-	// // " env" + cstr.prettyEnvelop(bin) + "=" + cstr.getCLoad(bin).get()
-	// // + " ker=" + cstr.prettyKernel(bin) + "=" +
-	// // cstr.getRLoad(bin).get());
-	// ChocoLogging.getBranchingLogger().warning(
-	// loads[bin].pretty() + " (r=" + r + ") current c="
-	// + cstr.getCLoad(bin).get() + " expected=" + c);
-	// ChocoLogging.flushLogs();
-	// return false;
-	// }
-	// return true;
-	// }
-	//
-	// /**
-	// * The minimum and maximum load of each bin {@link SimpleBinPacking#loads
-	// }
-	// * is maintained according to the domains of the bin assignment variables.
-	// *
-	// * @param bin
-	// * the bin
-	// * @throws ContradictionException
-	// * the contradiction exception
-	// */
-	// protected void loadSizeAndCoherence(final int bin)
-	// throws ContradictionException {
-	// loadSum.updateBounds(bin);
-	// updateInfLoad(bin, loadSum.boundInf);
-	// updateSupLoad(bin, loadSum.boundSup);
-	// }
-	//
-	// /**
-	// * Single item elimination and commitment.
-	// *
-	// * @param bin
-	// * the bin
-	// * @throws ContradictionException
-	// * the contradiction exception
-	// */
-	// protected void singleItemEliminationAndCommitment(final int bin)
-	// throws ContradictionException {
-	// DisposableIntIterator iter = setBin.getDomain().getOpenDomainIterator();
-	// final int lInf = loads[bin].getLB();
-	// final int lSup = loads[bin].getUB();
-	// try {
-	// while (iter.hasNext()) {
-	// final int iIdx = iter.next();
-	// final int iSize = iSizes[iIdx];
-	// final int rLoad = cstr.getRLoad(bin).get();
-	// if (iSize + rLoad > lSup) {
-	// remove(iIdx, bin);
-	// } else if (rLoad + cstr.getCLoad(bin).get() - iSize < lInf) {
-	// pack(iIdx, bin);
-	// } else {
-	// break;
-	// }
-	// }
-	// } finally {
-	// iter.dispose();
-	// }
-	// }
-	//
-	// //
-	// %%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%//
-	// // %%%%%%%%%%%%%%%%%%%%%%%%%% ADDITIONAL RULES
-	// // %%%%%%%%%%%%%%%%%%%%%%%%%%%%//
-	// //
-	// %%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%//
-	//
-	// // ****************************************************************//
-	// // ********* PROPAGATION LOOP *************************************//
-	// // ****************************************************************//
-	//
-	// public void propagate() throws ContradictionException {
-	// final IStateIntVector abins = cstr.getAvailableBins();
-	// final int n = abins.size();
-	// noFixPoint = true;
-	// while (noFixPoint) {
-	// noFixPoint = false;
-	// loadSum.update();
-	// for (int i = 0; i < n; i++) {
-	// propagate(abins.quickGet(i));
-	// }
-	// }
-	// cstr.fireAvailableBins();
-	//
-	// }
-	//
-	// /**
-	// * @throws ContradictionException
-	// * the contradiction exception
-	// */
-	// private void propagate(final int bin) throws ContradictionException {
-	// setBin = cstr.getSetBin(bin);
-	// loadSizeAndCoherence(bin);
-	// loadMaintenance(bin);
-	// singleItemEliminationAndCommitment(bin);
-	// }
-	//
-	// static final class SumDataStruct {
-	//
-	// /** variables to sum */
-	// protected final IntVar[] vars;
-	//
-	// /** the constant sum. */
-	// public final int sum;
-	//
-	// protected int sumMinusInfs;
-	//
-	// protected int sumMinusSups;
-	//
-	// public int boundInf;
-	// public int boundSup;
-	//
-	// private final int size;
-	//
-	// public SumDataStruct(IntVar[] vars, int sum) {
-	// super();
-	// this.vars = vars;
-	// this.sum = sum;
-	// size = vars.length;
-	// }
-	//
-	// public void update() {
-	// sumMinusInfs = sum;
-	// sumMinusSups = sum;
-	// for (int i = 0; i < size; i++) {
-	// sumMinusInfs -= vars[i].getLB();
-	// sumMinusSups -= vars[i].getUB();
-	// }
-	// }
-	//
-	// public void updateBounds(int idx) {
-	// boundInf = sumMinusSups + vars[idx].getUB();
-	// boundSup = sumMinusInfs + vars[idx].getLB();
-	// }
-	// }
+	private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(SimpleBinPackingFiltering.class);
+
+	private final SimpleBinPacking cstr;
+
+	/** The constant size of each item. */
+	protected final int[] iSizes;
+
+	/** The loads of the bins. */
+	protected final IntVar[] loads;
+
+	private SetVar setBin;
+
+	/** The no fix point. */
+	private boolean noFixPoint;
+
+	protected final SumDataStruct loadSum;
+
+	/** buffer for the candidate items of a bin */
+	private final int[] candidates;
+
+	/**
+	 * Instantiates a new 1BP constraint.
+	 *
+	 * @param pack
+	 *          the packing constraint
+	 */
+	public SimpleBinPackingFiltering(SimpleBinPacking pack) {
+		cstr = pack;
+		loads = cstr.getLoads();
+		iSizes = cstr.getISizes();
+		loadSum = new SumDataStruct(loads, computeTotalSize());
+		candidates = new int[iSizes.length];
+	}
+
+	/** Compute the total size. */
+	private long computeTotalSize() {
+		long l = 0;
+		for (int s : iSizes) {
+			l += s;
+		}
+		return l;
+	}
+
+	/**
+	 * Update the minimal load of a given bin.
+	 *
+	 * @param bin
+	 *          the index of bin
+	 * @param load
+	 *          the new load
+	 * @throws ContradictionException
+	 *           the contradiction exception
+	 */
+	protected void updateInfLoad(final int bin, final int load) throws ContradictionException {
+		noFixPoint |= cstr.updateInfLoad(bin, load);
+	}
+
+	/**
+	 * Update the maximal load of a given bin.
+	 *
+	 * @param bin
+	 *          the index of bin
+	 * @param load
+	 *          the new load
+	 * @throws ContradictionException
+	 *           the contradiction exception
+	 */
+	protected void updateSupLoad(final int bin, final int load) throws ContradictionException {
+		noFixPoint |= cstr.updateSupLoad(bin, load);
+	}
+
+	protected void pack(final int item, final int bin) throws ContradictionException {
+		noFixPoint |= cstr.pack(item, bin);
+	}
+
+	protected void remove(final int item, final int bin) throws ContradictionException {
+		noFixPoint |= cstr.remove(item, bin);
+	}
+
+	// %%%%%%%%%%%%%%%%%%%%%%%%%% TYPICAL MODEL %%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%//
+
+	/**
+	 * The minimum and maximum load of each bin {@link SimpleBinPacking#loads } is
+	 * maintained according to the required and candidate loads.
+	 *
+	 * @param bin
+	 *          the index of the bin
+	 * @throws ContradictionException
+	 *           the contradiction exception
+	 */
+	protected void loadMaintenance(final int bin) throws ContradictionException {
+		assert checkLoadConsistency(bin);
+		updateInfLoad(bin, cstr.getRLoad(bin).get());
+		updateSupLoad(bin, cstr.getCLoad(bin).get() + cstr.getRLoad(bin).get());
+	}
+
+	/**
+	 * Check the consistency of the rloads and the cloads with regards ot the set
+	 * variable denoting the hosting capability of a bin.
+	 *
+	 * @param bin
+	 *          the bin to analyse
+	 * @return {@code false} if the consistency is not viable.
+	 */
+	public boolean checkLoadConsistency(int bin) {
+		SetVar s = cstr.getSetBin(bin);
+		int r = 0, c = 0;
+		ISetIterator ite = s.getUB().iterator();
+		while (ite.hasNext()) {
+			int item = ite.nextInt();
+			if (s.getLB().contains(item)) {
+				r += iSizes[item];
+			} else {
+				c += iSizes[item];
+			}
+		}
+		if (r != cstr.getRLoad(bin).get()) {
+			logger.warn(loads[bin] + " current r=" + cstr.getRLoad(bin).get() + " expected=" + r);
+			return false;
+		}
+		if (c != cstr.getCLoad(bin).get()) {
+			logger.warn(loads[bin] + " (r=" + r + ") current c=" + cstr.getCLoad(bin).get() + " expected=" + c);
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * The minimum and maximum load of each bin {@link SimpleBinPacking#loads } is
+	 * maintained according to the sum of the other bins loads.
+	 *
+	 * @param bin
+	 *          the bin
+	 * @throws ContradictionException
+	 *           the contradiction exception
+	 */
+	protected void loadSizeAndCoherence(final int bin) throws ContradictionException {
+		loadSum.updateBounds(bin);
+		updateInfLoad(bin, (int) Math.max(Integer.MIN_VALUE, loadSum.boundInf));
+		updateSupLoad(bin, (int) Math.min(Integer.MAX_VALUE, loadSum.boundSup));
+	}
+
+	/**
+	 * Single item elimination and commitment.
+	 *
+	 * @param bin
+	 *          the bin
+	 * @throws ContradictionException
+	 *           the contradiction exception
+	 */
+	protected void singleItemEliminationAndCommitment(final int bin) throws ContradictionException {
+		final int lInf = loads[bin].getLB();
+		final int lSup = loads[bin].getUB();
+		int rLoad = cstr.getRLoad(bin).get();
+		// no item can be removed nor packed
+		if (cstr.maxISize + rLoad <= lSup && rLoad + cstr.getCLoad(bin).get() - cstr.maxISize >= lInf) {
+			return;
+		}
+		// copy the candidates, as the envelope is modified during the loop
+		int nbCandidates = 0;
+		ISetIterator iter = setBin.getUB().iterator();
+		while (iter.hasNext()) {
+			int item = iter.nextInt();
+			if (!setBin.getLB().contains(item)) {
+				candidates[nbCandidates++] = item;
+			}
+		}
+		for (int i = 0; i < nbCandidates; i++) {
+			final int iIdx = candidates[i];
+			final int iSize = iSizes[iIdx];
+			rLoad = cstr.getRLoad(bin).get();
+			if (iSize + rLoad > lSup) {
+				remove(iIdx, bin);
+			} else if (rLoad + cstr.getCLoad(bin).get() - iSize < lInf) {
+				pack(iIdx, bin);
+			}
+		}
+	}
+
+	// ****************************************************************//
+	// ********* PROPAGATION LOOP *************************************//
+	// ****************************************************************//
+
+	public void propagate() throws ContradictionException {
+		final IStateBitSet abins = cstr.getAvailableBins();
+		noFixPoint = true;
+		while (noFixPoint) {
+			noFixPoint = false;
+			loadSum.update();
+			if (loadSum.sumMinusSups > 0 || loadSum.sumMinusInfs < 0) {
+				cstr.fails();
+			}
+			for (int b = abins.nextSetBit(0); b >= 0; b = abins.nextSetBit(b + 1)) {
+				propagate(b);
+			}
+		}
+		cstr.fireAvailableBins();
+	}
+
+	/**
+	 * @throws ContradictionException
+	 *           the contradiction exception
+	 */
+	private void propagate(final int bin) throws ContradictionException {
+		setBin = cstr.getSetBin(bin);
+		loadSizeAndCoherence(bin);
+		loadMaintenance(bin);
+		singleItemEliminationAndCommitment(bin);
+	}
+
+	static final class SumDataStruct {
+
+		/** variables to sum */
+		protected final IntVar[] vars;
+
+		/** the constant sum. */
+		public final long sum;
+
+		protected long sumMinusInfs;
+
+		protected long sumMinusSups;
+
+		public long boundInf;
+		public long boundSup;
+
+		private final int size;
+
+		public SumDataStruct(IntVar[] vars, long sum) {
+			super();
+			this.vars = vars;
+			this.sum = sum;
+			size = vars.length;
+		}
+
+		public void update() {
+			sumMinusInfs = sum;
+			sumMinusSups = sum;
+			for (int i = 0; i < size; i++) {
+				sumMinusInfs -= vars[i].getLB();
+				sumMinusSups -= vars[i].getUB();
+			}
+		}
+
+		public void updateBounds(int idx) {
+			boundInf = sumMinusSups + vars[idx].getUB();
+			boundSup = sumMinusInfs + vars[idx].getLB();
+		}
+	}
 }
@@ -0,0 +1,129 @@
+package fr.emn.optiplace.core.packers;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.chocosolver.solver.Model;
+import org.chocosolver.solver.constraints.Constraint;
+import org.chocosolver.solver.variables.IntVar;
+import org.chocosolver.solver.variables.SetVar;
+
+import fr.emn.optiplace.configuration.resources.ResourceLoad;
+import fr.emn.optiplace.solver.choco.ChocoResourcePacker;
+import fr.emn.optiplace.solver.choco.IReconfigurationProblem;
+
+/**
+ * Pack the resources using one {@link SimpleBinPacking} per resource, on the
+ * sets of VMs hosted on each location of the problem. Those sets are already
+ * channeled with the VMs locations by the problem.
+ * <p>
+ * By default the packing also bounds the number of computers hosting VMs, that
+ * is the problem's {@link IReconfigurationProblem#nbHosts()}.
+ * </p>
+ *
+ * @author Guillaume Le Louët [guillaume.lelouet@gmail.com] 2017
+ *
+ */
+public class SimplePacker implements ChocoResourcePacker {
+
+	@SuppressWarnings("unused")
+	private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(SimplePacker.class);
+
+	private final boolean boundNbHosts;
+
+	public SimplePacker() {
+		this(true);
+	}
+
+	/**
+	 * @param boundNbHosts
+	 *          if true, the number of non-empty computers is also bounded by the
+	 *          packings, which requires to create the nbHosts() variable of the
+	 *          problem.
+	 */
+	public SimplePacker(boolean boundNbHosts) {
+		this.boundNbHosts = boundNbHosts;
+	}
+
+	@Override
+	public List<Constraint> pack(IReconfigurationProblem pb) {
+		SetVar[] sets = new SetVar[pb.b().waitIdx() + 1];
+		for (int i = 0; i < sets.length; i++) {
+			sets[i] = pb.getHostedOn(i);
+		}
+		IntVar nbHosts = boundNbHosts ? pb.nbHosts() : null;
+		return pack(sets, nbHosts, pb.c().nbComputers(), pb.getUses());
+	}
+
+	/**
+	 * pack without access to the problem : we create the sets of items and
+	 * channel them with the bin assignment.
+	 */
+	@Override
+	public List<Constraint> pack(IntVar[] binAssign, ResourceLoad... resourceUse) {
+		ArrayList<Constraint> res = new ArrayList<>();
+		if (binAssign == null || binAssign.length == 0 || resourceUse == null || resourceUse.length == 0) {
+			return res;
+		}
+		Model m = binAssign[0].getModel();
+		int offset = 0;
+		for (IntVar i : binAssign) {
+			offset = Math.min(offset, i.getLB());
+		}
+		// the non-running bins have negative index, so their sets come before the
+		// computers ones
+		int nbBins = resourceUse[0].getComputersLoad().length - offset;
+		SetVar[] sets = m.setVarArray("packedItems", nbBins, new int[] {}, range(binAssign.length));
+		res.add(m.setsIntsChanneling(sets, binAssign, offset, 0));
+		res.addAll(pack(sets, null, 0, resourceUse));
+		return res;
+	}
+
+	protected static int[] range(int nb) {
+		int[] ret = new int[nb];
+		for (int i = 0; i < nb; i++) {
+			ret[i] = i;
+		}
+		return ret;
+	}
+
+	/**
+	 * @param sets
+	 *          for each location index, the set of VMs hosted there
+	 * @param nbNonEmpty
+	 *          the variable for the number of the nbCounted first locations which
+	 *          are hosting VMs, or null
+	 * @param nbCounted
+	 *          number of locations counted in nbNonEmpty
+	 * @param resourceUse
+	 *          the resources to pack. the loads beyond the sets are considered
+	 *          as non-running bins
+	 * @return the list of constraints to post
+	 */
+	protected List<Constraint> pack(SetVar[] sets, IntVar nbNonEmpty, int nbCounted, ResourceLoad... resourceUse) {
+		ArrayList<Constraint> res = new ArrayList<>();
+		Model m = sets[0].getModel();
+		for (ResourceLoad ru : resourceUse) {
+			IntVar[] computersUses = ru.getComputersLoad();
+			IntVar[] loads = new IntVar[sets.length];
+			int shift = sets.length - computersUses.length;
+			for (int i = 0; i < loads.length; i++) {
+				if (i < shift) {
+					loads[i] = m.intVar("res_" + ru.toString() + "_nonrunningload_" + i, 0, ru.getTotalVMLoads(), true);
+					continue;
+				}
+				IntVar load = computersUses[i - shift];
+				int additionalUse = ru.isAdditionalUse() ? ru.getAdditionalUse()[i - shift] : 0;
+				if (additionalUse != 0) {
+					IntVar packed = m.intVar(load.getName(), load.getLB(), load.getUB(), !load.hasEnumeratedDomain());
+					res.add(m.arithm(load, "=", packed, "+", additionalUse));
+					load = packed;
+				}
+				loads[i] = load;
+			}
+			res.add(new Constraint("simpleBinPacking",
+					new SimpleBinPacking(sets, loads, ru.getVMsLoads(), nbNonEmpty, nbCounted)));
+		}
+		return res;
+	}
+}
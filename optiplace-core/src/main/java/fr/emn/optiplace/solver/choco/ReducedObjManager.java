@@ -0,0 +1,126 @@
+package fr.emn.optiplace.solver.choco;
+
+import java.util.function.Function;
+
+import org.chocosolver.solver.ResolutionPolicy;
+import org.chocosolver.solver.exception.ContradictionException;
+import org.chocosolver.solver.objective.IObjectiveManager;
+import org.chocosolver.solver.variables.IntVar;
+
+import fr.emn.optiplace.solver.ObjectiveReducer;
+
+/**
+ * Objective manager to minimize an objective, which requires the next solutions
+ * to be strictly better than the reduced value of the best solution found.
+ * Before the first solution, the objective is not reduced.
+ * <p>
+ * Delegates the management of the bounds to the manager created by the model.
+ * </p>
+ *
+ * @author Guillaume Le Louët [guillaume.lelouet@gmail.com] 2017
+ *
+ */
+public class ReducedObjManager implements IObjectiveManager<IntVar> {
+
+	private static final long serialVersionUID = 1L;
+
+	@SuppressWarnings("unused")
+	private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(ReducedObjManager.class);
+
+	protected final IObjectiveManager<IntVar> delegate;
+
+	protected final transient ObjectiveReducer reducer;
+
+	/** the upper bound of the objective before the search */
+	protected final int initialUB;
+
+	/**
+	 * @param delegate
+	 *          the manager of a minimization objective
+	 * @param reducer
+	 *          the reducer to apply on the best solution value
+	 */
+	public ReducedObjManager(IObjectiveManager<IntVar> delegate, ObjectiveReducer reducer) {
+		if (delegate.getPolicy() != ResolutionPolicy.MINIMIZE) {
+			throw new UnsupportedOperationException("can only reduce a minimization objective, got " + delegate.getPolicy());
+		}
+		this.delegate = delegate;
+		this.reducer = reducer;
+		initialUB = delegate.getObjective().getUB();
+	}
+
+	@Override
+	public void postDynamicCut() throws ContradictionException {
+		int ub = delegate.getBestUB().intValue();
+		// no solution yet while the best UB is the initial UB+1
+		if (ub <= initialUB) {
+			ub = Math.min(reducer.reduce(ub), ub);
+		}
+		delegate.getObjective().updateBounds(delegate.getBestLB().intValue(), ub - 1, this);
+	}
+
+	@Override
+	public IntVar getObjective() {
+		return delegate.getObjective();
+	}
+
+	@Override
+	public void updateBestSolution(Number n) {
+		delegate.updateBestSolution(n);
+	}
+
+	@Override
+	public void updateBestSolution() {
+		delegate.updateBestSolution();
+	}
+
+	@Override
+	public void setCutComputer(Function<Number, Number> cutComputer) {
+		throw new UnsupportedOperationException("the cut is computed by the reducer");
+	}
+
+	@Override
+	public void setStrictDynamicCut() {
+		throw new UnsupportedOperationException("the cut is computed by the reducer");
+	}
+
+	@Override
+	public void setWalkingDynamicCut() {
+		throw new UnsupportedOperationException("the cut is computed by the reducer");
+	}
+
+	@Override
+	public ResolutionPolicy getPolicy() {
+		return delegate.getPolicy();
+	}
+
+	@Override
+	public Number getBestLB() {
+		return delegate.getBestLB();
+	}
+
+	@Override
+	public Number getBestUB() {
+		return delegate.getBestUB();
+	}
+
+	@Override
+	public void updateBestLB(Number lb) {
+		delegate.updateBestLB(lb);
+	}
+
+	@Override
+	public void updateBestUB(Number ub) {
+		delegate.updateBestUB(ub);
+	}
+
+	@Override
+	public Number getBestSolutionValue() {
+		return delegate.getBestSolutionValue();
+	}
+
+	@Override
+	public void resetBestBounds() {
+		delegate.resetBestBounds();
+	}
+}
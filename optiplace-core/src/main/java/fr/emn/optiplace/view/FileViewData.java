@@ -5,13 +5,21 @@ package fr.emn.optiplace.view;
 
 import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.FileReader;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 /**
  * A {@link ProvidedData} based on a File Reader.
- * 
+ * <p>
+ * Keeps the readers which parsed it, as long as the file is not modified. The
+ * modification is detected from the last modification time and the length of
+ * the file.
+ * </p>
+ *
  * @author Guillaume Le Louët [guillaume.lelouet@gmail.com]2014
  */
 public class FileViewData implements ProvidedData {
@@ -23,6 +31,15 @@ public class FileViewData implements ProvidedData {
 
 	protected File f;
 
+	/** last modification time of the file when this was created */
+	protected final long lastModified;
+
+	/** length of the file when this was created */
+	protected final long length;
+
+	/** the readers which parsed this, by their class name */
+	protected final HashMap<String, ProvidedDataReader> parsed = new HashMap<>();
+
 	/**
 	 * @param name
 	 * @param f
@@ -30,6 +47,8 @@ public class FileViewData implements ProvidedData {
 	public FileViewData(String name, File f) {
 		this.name = name;
 		this.f = f;
+		lastModified = f.lastModified();
+		length = f.length();
 	}
 
 	@Override
@@ -37,14 +56,36 @@ public class FileViewData implements ProvidedData {
 		return name;
 	}
 
-	@SuppressWarnings("resource")
+	public File getFile() {
+		return f;
+	}
+
+	/**
+	 * @return true if the file was modified since this was created.
+	 */
+	public boolean isModified() {
+		return f.lastModified() != lastModified || f.length() != length;
+	}
+
 	@Override
 	public Stream<String> lines() {
-		try {
-			return new BufferedReader(new FileReader(f)).lines();
-		} catch (FileNotFoundException e) {
+		try (BufferedReader reader = new BufferedReader(new FileReader(f))) {
+			List<String> ret = reader.lines().collect(Collectors.toList());
+			return ret.stream();
+		} catch (IOException e) {
 			logger.warn("", e);
 			return null;
 		}
 	}
+
+	@Override
+	public synchronized ProvidedDataReader getParsed(Class<? extends ProvidedDataReader> clazz) {
+		ProvidedDataReader ret = parsed.get(clazz.getName());
+		return ret != null && ret.getClass() == clazz ? ret : null;
+	}
+
+	@Override
+	public synchronized void setParsed(ProvidedDataReader reader) {
+		parsed.put(reader.getClass().getName(), reader);
+	}
 }
@@ -0,0 +1,298 @@
+package fr.emn.optiplace.view;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * A {@link FileViewData} which maps its file in memory instead of reading it
+ * on each call to {@link #lines()}.
+ * <p>
+ * The offset of each line in the file is indexed on the first access to a line,
+ * or before with {@link #index()}. The lines can then be accessed directly with
+ * {@link #line(int)}, as {@link CharSequence} slices of the mapped file which
+ * do not copy the bytes until {@link Object#toString()} is called. This allows
+ * readers to skip the parts of the file they do not need, using
+ * {@link #find(String, int)} and {@link #slices(int, int)}, or to parse the
+ * lines in parallel with {@link #slices()}.
+ * </p>
+ * <p>
+ * The slices only use a byte per char if the file is ASCII. Otherwise the
+ * lines are decoded as UTF-8 strings.
+ * </p>
+ * <p>
+ * A mapped file must be replaced atomically, by writing a new file and renaming
+ * it over the previous one. Truncating or rewriting the file in place while it
+ * is mapped makes the next access to the buffer crash the JVM (SIGBUS) ; on
+ * Windows the mapped file can not be deleted nor replaced. The mapping is only
+ * released by the garbage collector, once this and the slices it returned are
+ * no more referenced, so {@link #release()} should be called when the data is
+ * no more used.
+ * </p>
+ *
+ * @author Guillaume Le Louët [guillaume.lelouet@gmail.com] 2017
+ *
+ */
+public class MappedViewData extends FileViewData {
+
+	private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(MappedViewData.class);
+
+	/** the mapped file, or null if not mapped yet */
+	protected volatile ByteBuffer buffer = null;
+
+	/**
+	 * the offset of the start of each line, with the length of the file as last
+	 * element. null if not indexed yet.
+	 */
+	protected volatile int[] lineStarts = null;
+
+	/** number of lines in the file, once indexed */
+	protected int nbLines = 0;
+
+	/** true if the file only contains ASCII chars, once indexed */
+	protected boolean ascii = true;
+
+	public MappedViewData(String name, File f) {
+		super(name, f);
+	}
+
+	/**
+	 * map the file in memory if not already done.
+	 *
+	 * @return the read-only buffer of the file
+	 */
+	protected ByteBuffer buffer() {
+		ByteBuffer ret = buffer;
+		if (ret == null) {
+			synchronized (this) {
+				ret = buffer;
+				if (ret == null) {
+					if (f.length() > Integer.MAX_VALUE) {
+						throw new UnsupportedOperationException("can't map file " + f + " of size " + f.length());
+					}
+					try (RandomAccessFile raf = new RandomAccessFile(f, "r"); FileChannel channel = raf.getChannel()) {
+						ret = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+					} catch (IOException e) {
+						throw new UnsupportedOperationException(e);
+					}
+					buffer = ret;
+				}
+			}
+		}
+		return ret;
+	}
+
+	/** @return true if the file is currently mapped in memory */
+	public boolean isMapped() {
+		return buffer != null;
+	}
+
+	/**
+	 * drop the mapping of the file and the index of its lines, so the mapping
+	 * can be released by the garbage collector. The slices already returned
+	 * still reference the mapping. A later access maps the file again.
+	 */
+	public synchronized void release() {
+		buffer = null;
+		lineStarts = null;
+		nbLines = 0;
+		ascii = true;
+	}
+
+	/**
+	 * build the index of the lines of the file if not already done. This can be
+	 * called before reading the data, to move the cost out of the parsing.
+	 *
+	 * @return this
+	 */
+	public MappedViewData index() {
+		if (lineStarts == null) {
+			synchronized (this) {
+				if (lineStarts == null) {
+					ByteBuffer buf = buffer();
+					int size = buf.limit();
+					int[] starts = new int[1024];
+					int nb = 0;
+					boolean onlyAscii = true;
+					int start = 0;
+					for (int i = 0; i < size; i++) {
+						byte b = buf.get(i);
+						if (b == '\n') {
+							if (nb + 1 >= starts.length) {
+								starts = Arrays.copyOf(starts, starts.length * 2);
+							}
+							starts[nb++] = start;
+							start = i + 1;
+						} else if (b < 0) {
+							onlyAscii = false;
+						}
+					}
+					// last line without end of line
+					if (start < size) {
+						if (nb + 1 >= starts.length) {
+							starts = Arrays.copyOf(starts, starts.length + 1);
+						}
+						starts[nb++] = start;
+					}
+					starts[nb] = size;
+					nbLines = nb;
+					ascii = onlyAscii;
+					lineStarts = starts;
+				}
+			}
+		}
+		return this;
+	}
+
+	/** @return the number of lines in the file */
+	public int nbLines() {
+		index();
+		return nbLines;
+	}
+
+	/**
+	 * @param idx
+	 *          the index of the line, starting from 0
+	 * @return the content of the line, without its end of line.
+	 */
+	public CharSequence line(int idx) {
+		int[] starts = index().lineStarts;
+		if (idx < 0 || idx >= nbLines) {
+			throw new IndexOutOfBoundsException("line " + idx + " out of " + nbLines);
+		}
+		int start = starts[idx];
+		int end = starts[idx + 1];
+		ByteBuffer buf = buffer();
+		if (end > start && buf.get(end - 1) == '\n') {
+			end--;
+		}
+		if (end > start && buf.get(end - 1) == '\r') {
+			end--;
+		}
+		if (ascii) {
+			return new Slice(buf, start, end);
+		}
+		byte[] bytes = new byte[end - start];
+		for (int i = start; i < end; i++) {
+			bytes[i - start] = buf.get(i);
+		}
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * @return the stream of the lines, which can be made parallel.
+	 */
+	public Stream<CharSequence> slices() {
+		return slices(0, nbLines());
+	}
+
+	/**
+	 * @param from
+	 *          the first line, inclusive
+	 * @param to
+	 *          the last line, exclusive
+	 * @return the stream of the lines in given range.
+	 */
+	public Stream<CharSequence> slices(int from, int to) {
+		index();
+		return IntStream.range(from, to).mapToObj(this::line);
+	}
+
+	/**
+	 * find the first line starting with a prefix.
+	 *
+	 * @param prefix
+	 *          the start of the line to find
+	 * @param from
+	 *          the index of the first line to check
+	 * @return the index of the first line after from that starts with prefix, or
+	 *         -1 if no such line.
+	 */
+	public int find(String prefix, int from) {
+		int nb = nbLines();
+		for (int i = Math.max(from, 0); i < nb; i++) {
+			CharSequence line = line(i);
+			if (startsWith(line, prefix)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	protected static boolean startsWith(CharSequence line, String prefix) {
+		if (line.length() < prefix.length()) {
+			return false;
+		}
+		for (int i = 0; i < prefix.length(); i++) {
+			if (line.charAt(i) != prefix.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public Stream<String> lines() {
+		try {
+			return slices().map(CharSequence::toString);
+		} catch (UnsupportedOperationException e) {
+			logger.warn("", e);
+			return null;
+		}
+	}
+
+	/**
+	 * A line of the mapped file, read as ASCII. The bytes are only copied when
+	 * the slice is transformed to a String.
+	 */
+	public static class Slice implements CharSequence {
+
+		protected final ByteBuffer buffer;
+
+		protected final int start;
+
+		protected final int end;
+
+		public Slice(ByteBuffer buffer, int start, int end) {
+			this.buffer = buffer;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		public int length() {
+			return end - start;
+		}
+
+		@Override
+		public char charAt(int index) {
+			if (index < 0 || index >= end - start) {
+				throw new IndexOutOfBoundsException("index " + index + " out of " + length());
+			}
+			return (char) buffer.get(start + index);
+		}
+
+		@Override
+		public Slice subSequence(int from, int to) {
+			if (from < 0 || to > end - start || from > to) {
+				throw new IndexOutOfBoundsException("range " + from + "-" + to + " out of " + length());
+			}
+			return new Slice(buffer, start + from, start + to);
+		}
+
+		@Override
+		public String toString() {
+			byte[] bytes = new byte[end - start];
+			for (int i = start; i < end; i++) {
+				bytes[i - start] = buffer.get(i);
+			}
+			return new String(bytes, StandardCharsets.ISO_8859_1);
+		}
+	}
+}
@@ -4,6 +4,8 @@
 
 package fr.emn.optiplace;
 
+import java.util.Arrays;
+
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -11,9 +13,13 @@ import fr.emn.optiplace.configuration.Computer;
 import fr.emn.optiplace.configuration.Configuration;
 import fr.emn.optiplace.configuration.Extern;
 import fr.emn.optiplace.configuration.IConfiguration;
+import fr.emn.optiplace.configuration.IConfiguration.VMSTATES;
 import fr.emn.optiplace.configuration.Site;
 import fr.emn.optiplace.configuration.VM;
 import fr.emn.optiplace.configuration.resources.ResourceSpecification;
+import fr.emn.optiplace.solver.SearchPolicy;
+import fr.emn.optiplace.solver.SearchPolicy.Restarts;
+import fr.emn.optiplace.view.EmptyView;
 
 
 /**
@@ -87,6 +93,244 @@ public class OptiplaceTest {
 		Assert.assertEquals(sp.getTarget().getDestination(), c);
 	}
 
+	/**
+	 * portfolio search without objective : the correct source configuration is
+	 * kept.
+	 */
+	@Test
+	public void testPortfolioNoObjective() {
+		Configuration c = new Configuration("R");
+		Computer n1 = c.addComputer("n1", 10);
+		Computer n2 = c.addComputer("n2", 10);
+		c.addVM("v1", n1, 1);
+		c.addVM("v2", n2, 1);
+		c.addVM("v3", null, 5);
+		Optiplace sp = new Optiplace(c);
+		sp.getStrat().setPortfolioSize(4);
+		IConfiguration dest = sp.solve().getDestination();
+		Assert.assertNotNull(dest);
+		Assert.assertEquals(dest.nbVMs(VMSTATES.RUNNING), 3);
+		Assert.assertEquals(sp.getTarget().getWorkersStats().size(), 4);
+		// solving again must not append to the stats of the previous search
+		for (int i = 0; i < 2; i++) {
+			sp.solve();
+			Assert.assertEquals(sp.getTarget().getWorkersStats().size(), 4);
+			Assert.assertTrue(sp.getTarget().getWinner() < 4);
+		}
+	}
+
+	/**
+	 * the first solution of any worker is kept without objective, so the random
+	 * workers must not let VMs waiting
+	 */
+	@Test
+	public void testPortfolioRandomPlacesVMs() {
+		Configuration c = new Configuration("R");
+		for (int i = 0; i < 5; i++) {
+			c.addComputer("n" + i, 10);
+		}
+		for (int i = 0; i < 8; i++) {
+			c.addVM("w" + i, null, 4);
+		}
+		Optiplace sp = new Optiplace(c);
+		sp.getStrat().setPortfolioSize(NB_RANDOM_PORTFOLIO + 4);
+		for (int i = 0; i < 10; i++) {
+			IConfiguration dest = sp.solve().getDestination();
+			Assert.assertNotNull(dest);
+			Assert.assertEquals(dest.nbVMs(VMSTATES.WAITING), 0, "" + dest);
+		}
+	}
+
+	@Test
+	public void testResolve() {
+		Configuration c = new Configuration("R");
+		Computer n1 = c.addComputer("n1", 10);
+		Computer n2 = c.addComputer("n2", 10);
+		c.addVM("v1", n1, 1);
+		c.addVM("v2", n2, 1);
+		c.addVM("v3", null, 5);
+		Optiplace sp = new Optiplace(c);
+		IConfiguration dest = sp.resolve(c).getDestination();
+		Assert.assertNotNull(dest);
+		Object first = sp.getProblem();
+		int nbCstrs = sp.getProblem().getModel().getNbCstrs(), nbVars = sp.getProblem().getModel().getNbVars();
+
+		// same configuration : the problem is reused, with the same search
+		IConfiguration dest2 = sp.resolve(c.clone()).getDestination();
+		Assert.assertSame(sp.getProblem(), first);
+		Assert.assertNotNull(dest2);
+		Assert.assertEquals(dest2.nbVMs(VMSTATES.RUNNING), 3);
+		Assert.assertEquals(sp.getProblem().getModel().getNbCstrs(), nbCstrs);
+		Assert.assertEquals(sp.getProblem().getModel().getNbVars(), nbVars);
+
+		// a new VM : the problem is rebuilt
+		c.addVM("v4", null, 2);
+		IConfiguration dest3 = sp.resolve(c).getDestination();
+		Assert.assertNotSame(sp.getProblem(), first);
+		Assert.assertNotNull(dest3);
+		Assert.assertEquals(dest3.nbVMs(VMSTATES.RUNNING), 4);
+		// the warm start keeps the VMs on their previous destination
+		Assert.assertEquals(dest3.getLocation(c.getElementByName("v3", VM.class)),
+				dest2.getLocation(c.getElementByName("v3", VM.class)));
+	}
+
+	/** the uses and the capacities are patched, VMs added are not */
+	@Test
+	public void testResolvePatch() {
+		Configuration c = new Configuration("R");
+		Computer n1 = c.addComputer("n1", 10);
+		Computer n2 = c.addComputer("n2", 10);
+		VM v1 = c.addVM("v1", n1, 4);
+		c.addVM("v2", n2, 4);
+		VM v3 = c.addVM("v3", null, 5);
+		Optiplace sp = new Optiplace(c);
+		Assert.assertNotNull(sp.resolve(c.clone()).getDestination());
+		Object first = sp.getProblem();
+		int nbCstrs = sp.getProblem().getModel().getNbCstrs();
+
+		// v3 can only be hosted once v1 is reduced
+		Configuration next = c.clone();
+		ResourceSpecification specs = next.resources().get("R");
+		specs.use(v3, 7);
+		specs.use(v1, 2);
+		IConfiguration dest = sp.resolve(next).getDestination();
+		Assert.assertSame(sp.getProblem(), first);
+		Assert.assertNotNull(dest);
+		Assert.assertEquals(dest.nbVMs(VMSTATES.RUNNING), 3);
+		Assert.assertEquals(dest.getLocation(v3), n1);
+		Assert.assertEquals(dest.resources().get("R").getUse(v3), 7);
+
+		// n1 is reduced, v3 goes on n2
+		next = c.clone();
+		next.resources().get("R").capacity(n1, 8);
+		dest = sp.resolve(next).getDestination();
+		Assert.assertSame(sp.getProblem(), first);
+		Assert.assertEquals(dest.getLocation(v3), n2);
+		Assert.assertEquals(dest.nbVMs(VMSTATES.RUNNING), 3);
+		Assert.assertTrue(dest.resources().get("R").getUse(dest, n2) <= 10);
+
+		// the same source again : the patch is removed
+		dest = sp.resolve(c.clone()).getDestination();
+		Assert.assertSame(sp.getProblem(), first);
+		Assert.assertEquals(dest.nbVMs(), 3);
+		Assert.assertEquals(sp.getProblem().getModel().getNbCstrs(), nbCstrs);
+
+		// a capacity over the first one : the problem is rebuilt
+		next = c.clone();
+		next.resources().get("R").capacity(n2, 12);
+		Assert.assertNotNull(sp.resolve(next).getDestination());
+		Assert.assertNotSame(sp.getProblem(), first);
+
+		// a VM added : the problem is rebuilt, and the VMs placed as by a solve
+		Object second = sp.getProblem();
+		next = c.clone();
+		VM v4 = next.addVM("v4", n2, 6);
+		dest = sp.resolve(next).getDestination();
+		Assert.assertNotSame(sp.getProblem(), second);
+		Assert.assertNotNull(dest);
+		Assert.assertEquals(dest.nbVMs(VMSTATES.RUNNING), 4);
+		Assert.assertEquals(dest.resources().get("R").getUse(v4), 6);
+		for (Computer n : new Computer[] { n1, n2 }) {
+			Assert.assertTrue(dest.resources().get("R").getUse(dest, n) <= 10);
+		}
+	}
+
+	@Test
+	public void testResolvePortfolio() {
+		Configuration c = new Configuration("R");
+		Computer n1 = c.addComputer("n1", 10);
+		c.addComputer("n2", 10);
+		c.addVM("v1", n1, 1);
+		c.addVM("v2", null, 5);
+		Optiplace sp = new Optiplace(c);
+		sp.getStrat().setPortfolioSize(2);
+		Assert.assertNotNull(sp.resolve(c).getDestination());
+		Object first = sp.getProblem();
+		DeducedTarget t = sp.resolve(c);
+		Assert.assertSame(sp.getProblem(), first);
+		Assert.assertNotNull(t.getDestination());
+		Assert.assertEquals(t.getWorkersStats().size(), 2);
+	}
+
+	@Test
+	public void testSearchPolicy() {
+		Configuration c = new Configuration("R");
+		Computer n1 = c.addComputer("n1", 10);
+		c.addComputer("n2", 10);
+		c.addComputer("n3", 10);
+		c.addVM("v1", n1, 1);
+		for (int i = 0; i < 6; i++) {
+			c.addVM("w" + i, null, 4);
+		}
+		Optiplace sp = new Optiplace(c);
+		SearchPolicy policy = sp.getStrat().getSearchPolicy();
+		Assert.assertEquals(policy.toString(), "default");
+		policy.setRestarts(Restarts.LUBY);
+		policy.setNogoods(true);
+		policy.setLastConflict(2);
+		policy.setDomOverWDeg(true);
+		policy.setSeed(42);
+		DeducedTarget t = sp.solve();
+		Assert.assertNotNull(t.getDestination());
+		Assert.assertEquals(t.getDestination().nbVMs(VMSTATES.RUNNING), 7);
+		Assert.assertEquals(policy.toString(), "luby(scale=nbVMs+1, limit=1000) nogoods lastConflict(2) domOverWDeg(seed=42)");
+		// the scale used is the number of VMs + 1
+		Assert.assertEquals(t.getSearchPolicy(), policy.toString(7));
+		Assert.assertEquals(t.getSearchPolicy(), "luby(scale=8, limit=1000) nogoods lastConflict(2) domOverWDeg(seed=42)");
+		policy.setRestartScale(20);
+		Assert.assertEquals(policy.toString(7), "luby(scale=20, limit=1000) nogoods lastConflict(2) domOverWDeg(seed=42)");
+		policy.setRestartScale(0);
+
+		policy.setRestarts(Restarts.GEOMETRIC);
+		sp.getStrat().setPortfolioSize(2);
+		Assert.assertNotNull(sp.solve().getDestination());
+	}
+
+	@Test
+	public void testBreakSymmetries() {
+		Configuration c = new Configuration("R");
+		Computer used = c.addComputer("n0", 10);
+		c.addVM("v0", used, 2);
+		Computer[] empty = new Computer[5];
+		for (int i = 0; i < empty.length; i++) {
+			empty[i] = c.addComputer("n" + (i + 1), 10);
+		}
+		c.addComputer("big", 20);
+		for (int i = 0; i < 8; i++) {
+			c.addVM("w" + i, null, 4);
+		}
+		Optiplace sp = new Optiplace(c);
+		sp.getStrat().setBreakSymmetries(true);
+		// this view distinguishes the last empty computer
+		sp.addView(new EmptyView() {
+			@Override
+			public boolean isInterchangeable(Computer first, Computer second) {
+				return first != empty[4] && second != empty[4];
+			}
+		});
+		IConfiguration d = sp.solve().getDestination();
+		Assert.assertNotNull(d);
+		Assert.assertEquals(d.nbVMs(VMSTATES.RUNNING), 9);
+		Assert.assertEquals(sp.getProblem().getStatistics().getInterchangeableNodes(),
+				Arrays.asList(Arrays.asList(empty[0], empty[1], empty[2], empty[3])));
+		for (int i = 1; i < 4; i++) {
+			Assert.assertTrue(d.nbHosted(empty[i - 1]) >= d.nbHosted(empty[i]), "" + d);
+		}
+
+		// the portfolio with random variants keeps the order. The selection of the
+		// random variants is tested in FirstEmptyHostSelectorTest
+		sp.getStrat().setPortfolioSize(NB_RANDOM_PORTFOLIO);
+		d = sp.solve().getDestination();
+		Assert.assertNotNull(d);
+		Assert.assertEquals(d.nbVMs(VMSTATES.RUNNING), 9, "" + d);
+		for (int i = 1; i < 4; i++) {
+			Assert.assertTrue(d.nbHosted(empty[i - 1]) >= d.nbHosted(empty[i]), "" + d);
+		}
+	}
+
+	/** enough searches in a portfolio to have random ones */
+	private static final int NB_RANDOM_PORTFOLIO = Optiplace.NB_HEURISTIC_VARIANTS + 2;
+
 	@Test
 	public void testBugSiteExternFull() {
 		Configuration cfg = new Configuration();
@@ -0,0 +1,53 @@
+package fr.emn.optiplace.configuration;
+
+import java.util.Collections;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * @author Guillaume Le Louët [guillaume.lelouet@gmail.com] 2017
+ *
+ */
+public class ConfigurationDeltaTest {
+
+	@SuppressWarnings("unused")
+	private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(ConfigurationDeltaTest.class);
+
+	@Test
+	public void testBetween() {
+		Configuration c = new Configuration("mem");
+		Computer n0 = c.addComputer("n0", 10);
+		Computer n1 = c.addComputer("n1", 10);
+		Computer n2 = c.addComputer("n2", 10);
+		VM v0 = c.addVM("v0", n0, 1);
+		VM v1 = c.addVM("v1", n0, 1);
+		VM v2 = c.addVM("v2", n1, 1);
+		VM v3 = c.addVM("v3", n1, 1);
+		Assert.assertTrue(ConfigurationDelta.between(c, c.clone()).isEmpty());
+
+		Configuration next = c.clone();
+		VM v4 = next.addVM("v4", null, 1);
+		next.remove(v0);
+		next.resource("mem").use(v1, 2);
+		next.setHost(v2, n0);
+		next.resource("mem").capacity(n1, 5);
+		next.remove(n2);
+		ConfigurationDelta d = ConfigurationDelta.between(c, next);
+		Assert.assertFalse(d.isEmpty());
+		Assert.assertEquals(d.addedVMs, Collections.singleton(v4));
+		Assert.assertEquals(d.removedVMs, Collections.singleton(v0));
+		Assert.assertEquals(d.resizedVMs, Collections.singleton(v1));
+		Assert.assertEquals(d.movedVMs, Collections.singleton(v2));
+		Assert.assertEquals(d.resizedLocations, Collections.singleton(n1));
+		Assert.assertEquals(d.removedLocations, Collections.singleton(n2));
+		Assert.assertFalse(d.hasOtherChanges());
+		Assert.assertFalse(d.movedVMs.contains(v3));
+
+		next = c.clone();
+		next.tag(v3, "tag");
+		d = ConfigurationDelta.between(c, next);
+		Assert.assertTrue(d.hasOtherChanges());
+		Assert.assertFalse(d.isEmpty());
+	}
+}
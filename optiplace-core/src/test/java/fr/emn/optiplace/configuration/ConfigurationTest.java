@@ -37,6 +37,21 @@ public class ConfigurationTest {
 		Assert.assertEquals(mem.getUse(vm2), 20);
 	}
 
+	@Test
+	public void testRegistry() {
+		Assert.assertEquals(new Configuration().addVM("v0", null).getId(), -1);
+		ElementRegistry registry = new ElementRegistry();
+		Configuration test = new Configuration(registry);
+		Computer n0 = test.addComputer("n0");
+		VM v0 = test.addVM("v0", n0);
+		Assert.assertSame(registry.vm("v0"), v0);
+		Assert.assertSame(test.clone().getRegistry(), registry);
+		test.remove(v0);
+		test.remove(n0);
+		Assert.assertNull(registry.vm(v0.getId()));
+		Assert.assertNull(registry.computer(n0.getId()));
+	}
+
 	@Test
 	public void testSameElements() {
 		Configuration c1 = new Configuration();
@@ -147,4 +162,49 @@ public class ConfigurationTest {
 		c.getElementByName("vm", Computer.class);
 	}
 
+	@Test
+	public void testCloneCopyOnWrite() {
+		Configuration c = new Configuration("mem");
+		Computer n0 = c.addComputer("n0", 4);
+		Computer n1 = c.addComputer("n1", 4);
+		Site s = c.addSite("s", n1);
+		VM v0 = c.addVM("v0", n0, 1);
+		VM v1 = c.addVM("v1", n0, 2);
+		c.tagVM(v0, "t");
+		Configuration copy = c.clone();
+		Configuration ref = c.clone();
+		Assert.assertEquals(copy, c);
+
+		copy.setHost(v1, n1);
+		copy.setMigTarget(v0, n1);
+		copy.tagVM(v1, "t");
+		copy.delTagVM(v0, "t");
+		copy.resource("mem").use(v0, 3);
+		copy.addVM("v2", null);
+		copy.addSite("s2", n1);
+		// c is unchanged
+		Assert.assertEquals(c, ref);
+		Assert.assertEquals(c.getHosted(n0).collect(Collectors.toSet()), new HashSet<>(Arrays.asList(v0, v1)));
+		Assert.assertEquals(c.getHosted(n1).count(), 0);
+		Assert.assertNull(c.getMigTarget(v0));
+		Assert.assertEquals(c.getVmsTagged("t").collect(Collectors.toList()), Arrays.asList(v0));
+		Assert.assertEquals(c.resource("mem").getUse(v0), 1);
+		Assert.assertNull(c.getElementByName("v2"));
+		Assert.assertEquals(c.getSite(n1), s);
+
+		// and modifying c does not change the copy
+		c.remove(v0);
+		Assert.assertTrue(copy.hasVM(v0));
+		Assert.assertEquals(copy.getMigTarget(v0), n1);
+		Assert.assertEquals(copy.resource("mem").getUse(v0), 3);
+		Assert.assertEquals(copy.getVmsTagged("t").collect(Collectors.toList()), Arrays.asList(v1));
+		Assert.assertEquals(ref.getVmsTagged("t").collect(Collectors.toList()), Arrays.asList(v0));
+
+		// the sets c owned before the clones are shared too
+		c.addVM("v3", n0);
+		c.tagVM(v1, "t");
+		Assert.assertEquals(ref.getHosted(n0).collect(Collectors.toSet()), new HashSet<>(Arrays.asList(v0, v1)));
+		Assert.assertEquals(ref.getVmsTagged("t").collect(Collectors.toList()), Arrays.asList(v0));
+	}
+
 }
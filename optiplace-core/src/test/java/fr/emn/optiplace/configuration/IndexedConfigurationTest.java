@@ -0,0 +1,136 @@
+package fr.emn.optiplace.configuration;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.stream.Collectors;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import fr.emn.optiplace.Optiplace;
+import fr.emn.optiplace.configuration.IConfiguration.VMSTATES;
+
+/**
+ * @author Guillaume Le Louët [guillaume.lelouet@gmail.com] 2017
+ *
+ */
+public class IndexedConfigurationTest {
+
+	@SuppressWarnings("unused")
+	private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(IndexedConfigurationTest.class);
+
+	protected Configuration makeConfiguration() {
+		Configuration c = new Configuration("cpu", "mem");
+		Computer n0 = c.addComputer("n0", 4, 8);
+		Computer n1 = c.addComputer("n1", 4, 8);
+		Extern e = c.addExtern("e", 10, 20);
+		c.addSite("s", n1, e);
+		VM v0 = c.addVM("v0", n0, 1, 2);
+		c.addVM("v1", n0, 1, 2);
+		VM v2 = c.addVM("v2", e, 2, 2);
+		c.addVM("v3", null, 3, 1);
+		c.setMigTarget(v0, n1);
+		c.tagVM(v2, "big");
+		c.tagComputer(n1, "new");
+		c.tagSite(c.getSite(n1), "remote");
+		return c;
+	}
+
+	@Test
+	public void testConversion() {
+		Configuration c = makeConfiguration();
+		IndexedConfiguration ic = new IndexedConfiguration(c);
+		Assert.assertEquals(ic.toConfiguration(), c);
+		Assert.assertTrue(IConfiguration.sameElements(c, ic));
+		Assert.assertEquals(ic.nbVMs(VMSTATES.RUNNING), 2);
+		Assert.assertEquals(ic.nbVMs(VMSTATES.EXTERN), 1);
+		Assert.assertEquals(ic.nbVMs(VMSTATES.WAITING), 1);
+		Assert.assertEquals(ic.resource("mem").getUse(ic, ic.getElementByName("n0", Computer.class)), 4);
+		Assert.assertEquals(ic.getElementByName("V3"), new VM("v3"));
+	}
+
+	@Test
+	public void testLocations() {
+		IndexedConfiguration ic = new IndexedConfiguration(makeConfiguration());
+		Computer n0 = new Computer("n0"), n1 = new Computer("n1");
+		Extern e = new Extern("e");
+		VM v0 = new VM("v0"), v1 = new VM("v1"), v2 = new VM("v2"), v3 = new VM("v3");
+		Assert.assertEquals(ic.getLocation(v0), n0);
+		Assert.assertEquals(ic.getExternHost(v2), e);
+		Assert.assertNull(ic.getExternHost(v0));
+		Assert.assertNull(ic.getLocation(v3));
+		Assert.assertEquals(ic.getSite(e), new Site("s"));
+		Assert.assertNull(ic.getSite(n0));
+		Assert.assertEquals(ic.getHosted(n0).collect(Collectors.toSet()), new HashSet<>(Arrays.asList(v0, v1)));
+		Assert.assertEquals(ic.getMigTarget(v0), n1);
+
+		Assert.assertTrue(ic.setHost(v3, n1));
+		Assert.assertTrue(ic.setHost(v0, n1));
+		Assert.assertNull(ic.getMigTarget(v0));
+		Assert.assertEquals(ic.nbHosted(n1), 2);
+		Assert.assertEquals(ic.getHosted(n0).collect(Collectors.toList()), Arrays.asList(v1));
+		Assert.assertTrue(ic.remove(n1));
+		Assert.assertTrue(ic.isWaiting(v0));
+		Assert.assertTrue(ic.isWaiting(v3));
+		Assert.assertEquals(ic.nbVMs(VMSTATES.WAITING), 2);
+		Assert.assertEquals(ic.getSiteLocations(new Site("s")).collect(Collectors.toList()), Arrays.asList(e));
+		Assert.assertNull(ic.getElementByName("n1"));
+		Assert.assertEquals(ic.getComputersTagged("new").count(), 0);
+	}
+
+	@Test
+	public void testTagsAndClone() {
+		IndexedConfiguration ic = new IndexedConfiguration(makeConfiguration());
+		VM v2 = new VM("v2");
+		IndexedConfiguration clone = ic.clone();
+		Assert.assertEquals(clone, ic);
+		Assert.assertTrue(clone.isTagged(v2, "big"));
+		clone.delTagVM(v2, "big");
+		clone.setWaiting(v2);
+		Assert.assertFalse(clone.isTagged(v2, "big"));
+		Assert.assertEquals(clone.getVmsTags().count(), 0);
+		Assert.assertTrue(ic.isTagged(v2, "big"));
+		Assert.assertTrue(ic.isExterned(v2));
+		Assert.assertNotEquals(clone, ic);
+		Assert.assertEquals(ic.getTags(new Site("s")).collect(Collectors.toList()), Arrays.asList("remote"));
+	}
+
+	@Test
+	public void testRegistryIds() {
+		ElementRegistry registry = new ElementRegistry();
+		IndexedConfiguration ic = new IndexedConfiguration(registry, "mem");
+		Computer n0 = ic.addComputer("n0", 4);
+		Extern e = ic.addExtern("e", 8);
+		VM v0 = ic.addVM("v0", n0, 1);
+		VM v1 = ic.addVM("v1", e, 2);
+		Assert.assertSame(registry.vm("v0"), v0);
+		Assert.assertEquals(e.getId(), 1);
+		Assert.assertEquals(v1.getId(), 1);
+		Assert.assertSame(ic.getLocation(v1), e);
+		Assert.assertEquals(ic.resource("mem").getUse(new VM("V1")), 2);
+
+		// the removed elements stay in the registry, for the clone
+		IndexedConfiguration clone = ic.clone();
+		Assert.assertSame(clone.getRegistry(), registry);
+		Assert.assertTrue(ic.remove(v0));
+		Assert.assertNull(ic.getElementByName("v0"));
+		Assert.assertSame(clone.getElementByName("v0"), v0);
+		Assert.assertSame(ic.addVM("v0", null), v0);
+		Assert.assertTrue(ic.isWaiting(v0));
+		Assert.assertSame(clone.getLocation(new VM("v0")), n0);
+		// a name can not be used by two types
+		Assert.assertNull(ic.addComputer("v1"));
+		Assert.assertSame(registry.registered("v1"), v1);
+	}
+
+	@Test
+	public void testSolve() {
+		Configuration c = makeConfiguration();
+		// VM tags restrict the locations of all the VMs
+		c.delTagVM(new VM("v2"), "big");
+		IConfiguration dest = new Optiplace(new IndexedConfiguration(c)).solve().getDestination();
+		Assert.assertNotNull(dest);
+		Assert.assertTrue(IConfiguration.sameElements(c, dest));
+		Assert.assertTrue(dest.isRunning(new VM("v3")) || dest.isExterned(new VM("v3")));
+	}
+}
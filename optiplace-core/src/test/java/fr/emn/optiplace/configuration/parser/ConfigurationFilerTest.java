@@ -3,6 +3,9 @@ package fr.emn.optiplace.configuration.parser;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Random;
 
 import org.testng.Assert;
 import org.testng.annotations.Test;
@@ -11,6 +14,9 @@ import fr.emn.optiplace.configuration.Computer;
 import fr.emn.optiplace.configuration.Configuration;
 import fr.emn.optiplace.configuration.Extern;
 import fr.emn.optiplace.configuration.IConfiguration;
+import fr.emn.optiplace.configuration.IndexedConfiguration;
+import fr.emn.optiplace.configuration.Site;
+import fr.emn.optiplace.configuration.VM;
 import fr.emn.optiplace.configuration.resources.MappedResourceSpecification;
 
 
@@ -78,4 +84,69 @@ public class ConfigurationFilerTest {
 		Assert.assertEquals(c2, c1);
 	}
 
+	/** a configuration with all the sections */
+	protected Configuration makeFullConfiguration(int nbComputers, int nbVMsPerComputer) {
+		Configuration c = new Configuration("CPU", "MEM");
+		Random r = new Random(nbComputers);
+		Extern e = c.addExtern("e", 100, 200);
+		Site s = c.addSite("s", e);
+		c.tagSite(s, "remote");
+		c.tagExtern(e, "cloud");
+		for (int i = 0; i < nbComputers; i++) {
+			Computer n = c.addComputer("n" + i, 10 + r.nextInt(10), 20);
+			if (i % 3 == 0) {
+				c.addSite("s", n);
+				c.tagComputer(n, "big");
+			}
+			for (int j = 0; j < nbVMsPerComputer; j++) {
+				VM v = c.addVM("v" + i + "_" + j, j == 0 && i % 2 == 0 ? null : n, 1 + r.nextInt(3), r.nextInt(5));
+				if (j == 1) {
+					c.tagVM(v, "first");
+					c.setMigTarget(v, e);
+				}
+			}
+		}
+		c.addVM("ve", e, 5, 5);
+		return c;
+	}
+
+	@Test
+	public void testStreamingWrite() throws IOException {
+		Configuration c = makeFullConfiguration(6, 3);
+		StringWriter w = new StringWriter();
+		ConfigurationFiler.write(c, w);
+		ConfigurationFiler f = new ConfigurationFiler(null);
+		f.read(new StringReader(w.toString()));
+		Assert.assertEquals(f.getCfg(), c);
+
+		// the toString format is read the same
+		f = new ConfigurationFiler(null);
+		f.read(new StringReader(c.toString()));
+		Assert.assertEquals(f.getCfg(), c);
+	}
+
+	@Test
+	public void testSnapshotRoundTrip() throws IOException {
+		Configuration c = makeFullConfiguration(50, 10);
+		File text = File.createTempFile("cfg", ".txt");
+		File snap = File.createTempFile("cfg", ".snap");
+		text.deleteOnExit();
+		snap.deleteOnExit();
+		new ConfigurationFiler(text).withConfiguration(c).write();
+		new ConfigurationFiler(snap).withConfiguration(c).writeSnapshot();
+		Assert.assertFalse(ConfigurationSnapshot.isSnapshot(text));
+		Assert.assertTrue(ConfigurationSnapshot.isSnapshot(snap));
+		Assert.assertTrue(snap.length() < text.length());
+
+		ConfigurationFiler fromText = new ConfigurationFiler(text);
+		fromText.read();
+		ConfigurationFiler fromSnap = new ConfigurationFiler(snap);
+		fromSnap.read();
+		Assert.assertEquals(fromSnap.getCfg(), c);
+		Assert.assertEquals(fromSnap.getCfg(), fromText.getCfg());
+
+		IndexedConfiguration indexed = ConfigurationSnapshot.read(snap, new IndexedConfiguration());
+		Assert.assertEquals(indexed.toConfiguration(), c);
+	}
+
 }
@@ -0,0 +1,103 @@
+package fr.emn.optiplace.configuration.resources;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import fr.emn.optiplace.Optiplace;
+import fr.emn.optiplace.configuration.Computer;
+import fr.emn.optiplace.configuration.Configuration;
+import fr.emn.optiplace.configuration.ElementRegistry;
+import fr.emn.optiplace.configuration.Extern;
+import fr.emn.optiplace.configuration.IConfiguration;
+import fr.emn.optiplace.configuration.IndexedConfiguration;
+import fr.emn.optiplace.configuration.VM;
+
+/**
+ * @author Guillaume Le Louët [guillaume.lelouet@gmail.com] 2017
+ *
+ */
+public class IndexedResourceSpecificationTest {
+
+	@SuppressWarnings("unused")
+	private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory
+			.getLogger(IndexedResourceSpecificationTest.class);
+
+	@Test
+	public void testParsing() {
+		IndexedResourceSpecification test = new IndexedResourceSpecification("test");
+		test.readLine("" + MappedResourceSpecification.START_NODE_CAPA + "nod = 25");
+		test.readLine("" + MappedResourceSpecification.START_VM_USE + "vma = 12");
+		Assert.assertEquals(test.getCapacity(new Computer("nod")), 25);
+		Assert.assertEquals(test.getUse(new VM("vma")), 12);
+		Assert.assertEquals(test.getUse(new VM("vmb")), 0);
+	}
+
+	@Test
+	public void testBulk() {
+		IndexedResourceSpecification test = new IndexedResourceSpecification("test");
+		VM[] vms = { new VM("v0"), new VM("v1"), new VM("v2") };
+		Computer[] nodes = { new Computer("n0"), new Computer("n1") };
+		test.with(vms[0], 1).with(vms[1], 2).with(vms[2], 3).with(nodes[0], 10).with(nodes[1], 20);
+		Assert.assertEquals(test.getUses(vms), new int[] { 1, 2, 3 });
+		Assert.assertEquals(test.getCapacities(nodes), new int[] { 10, 20 });
+		Assert.assertEquals(test.getUses(new VM("v2"), new VM("v0"), new VM("v3")), new int[] { 3, 1, 0 });
+		Assert.assertEquals(test.getCapacities(new Computer("n1")), new int[] { 20 });
+		int[] ids = test.vmIds(vms[2], new VM("v3"));
+		Assert.assertEquals(ids, new int[] { 2, -1 });
+		Assert.assertEquals(test.getUses(ids), new int[] { 3, 0 });
+
+		IndexedResourceSpecification clone = test.clone();
+		Assert.assertEquals(clone, test);
+		clone.remove(vms[1]);
+		Assert.assertEquals(clone.getUse(vms[1]), 0);
+		Assert.assertEquals(test.getUse(vms[1]), 2);
+		Assert.assertNotEquals(clone, test);
+	}
+
+	@Test
+	public void testRegistryIds() {
+		ElementRegistry registry = new ElementRegistry();
+		Configuration c = new Configuration(registry, "mem");
+		Computer n0 = c.addComputer("n0", 4);
+		Extern e0 = c.addExtern("e0", 8);
+		VM v0 = c.addVM("v0", n0, 3);
+		VM v1 = c.addVM("v1", e0, 2);
+		IndexedResourceSpecification mem = (IndexedResourceSpecification) c.resource("mem");
+		Assert.assertEquals(mem.vmIds(v0, v1), new int[] { v0.getId(), v1.getId() });
+		Assert.assertEquals(mem.locationIds(n0, e0), new int[] { 0, 1 });
+		Assert.assertEquals(mem.getUses(v1, new VM("V0")), new int[] { 2, 3 });
+		Assert.assertEquals(mem.getCapacity(e0), 8);
+
+		// same values as a mapped specification
+		MappedResourceSpecification mapped = new MappedResourceSpecification("mem");
+		mapped.with(v0, 3).with(v1, 2).with(n0, 4).with(e0, 8);
+		Assert.assertEquals(mem, mapped);
+		Assert.assertEquals(mapped, mem);
+		Assert.assertEquals(mem.hashCode(), mapped.hashCode());
+
+		// the clone still finds v0 once it is removed from the registry
+		Configuration clone = c.clone();
+		c.remove(v0);
+		VM other = c.addVM("v0", n0, 5);
+		Assert.assertNotSame(other, v0);
+		Assert.assertEquals(clone.resource("mem").getUse(other), 3);
+		Assert.assertEquals(clone.resource("mem").getUse(v0), 3);
+		Assert.assertEquals(c.resource("mem").getUse(v0), 5);
+	}
+
+	@Test
+	public void testInIndexedConfiguration() {
+		Configuration c = new Configuration("mem");
+		Computer n0 = c.addComputer("n0", 4);
+		c.addComputer("n1", 6);
+		c.addVM("v0", n0, 3);
+		c.addVM("v1", null, 2);
+		IndexedConfiguration ic = new IndexedConfiguration(c);
+		Assert.assertEquals(ic.resource("mem").getClass(), IndexedResourceSpecification.class);
+		Assert.assertEquals(ic.toConfiguration(), c);
+		IConfiguration dest = new Optiplace(ic).solve().getDestination();
+		Assert.assertNotNull(dest);
+		Assert.assertEquals(dest.resource("mem").getUse(dest, n0) + dest.resource("mem").getUse(dest, new Computer("n1")),
+				5);
+	}
+}
@@ -0,0 +1,101 @@
+package fr.emn.optiplace.core.heuristics;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.chocosolver.solver.Model;
+import org.chocosolver.solver.Solution;
+import org.chocosolver.solver.search.strategy.Search;
+import org.chocosolver.solver.variables.IntVar;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import fr.emn.optiplace.configuration.Computer;
+import fr.emn.optiplace.configuration.Configuration;
+import fr.emn.optiplace.core.ReconfigurationProblem;
+import fr.emn.optiplace.solver.choco.Bridge;
+
+/**
+ * @author Guillaume Le Louët [guillaume.lelouet@gmail.com] 2017
+ *
+ */
+public class Var2ValSelectorTest {
+
+	private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(Var2ValSelectorTest.class);
+
+	@Test
+	public void testSelection() {
+		Model m = new Model();
+		IntVar[] vars = m.intVarArray("x", 4, 0, 3);
+		// x1 can't take its value, so it is skipped and set by the default search
+		m.arithm(vars[1], "!=", 0).post();
+		m.arithm(vars[2], "!=", vars[3]).post();
+		Var2ValSelector sel = new Var2ValSelector(vars, new int[] { 3, 0, 1, 1 });
+		Assert.assertEquals(sel.selectValue(vars[2]), 1);
+		m.getSolver().setSearch(Search.intVarSearch(sel, sel, vars), Search.inputOrderLBSearch(vars));
+		Solution sol = m.getSolver().findSolution();
+		Assert.assertNotNull(sol);
+		Assert.assertEquals(sol.getIntVal(vars[0]), 3);
+		Assert.assertEquals(sol.getIntVal(vars[1]), 1);
+		Assert.assertEquals(sol.getIntVal(vars[2]), 1);
+		Assert.assertEquals(sol.getIntVal(vars[3]), 0);
+	}
+
+	/**
+	 * wrap a variable in a proxy which counts the calls to
+	 * {@link IntVar#isInstantiated()}
+	 */
+	protected static IntVar countChecks(IntVar var, AtomicLong nbChecked) {
+		return (IntVar) Proxy.newProxyInstance(IntVar.class.getClassLoader(), new Class<?>[] { IntVar.class },
+				(proxy, method, args) -> {
+					if (method.getName().equals("isInstantiated")) {
+						nbChecked.incrementAndGet();
+					}
+					try {
+						return method.invoke(var, args);
+					} catch (InvocationTargetException e) {
+						throw e.getCause();
+					}
+				});
+	}
+
+	/**
+	 * Place 20k VMs back on their host. Each variable should only be checked a
+	 * constant number of times, instead of all the variables before it being
+	 * checked again on each selection.
+	 */
+	@Test
+	public void testStickVMsChecks() {
+		int nbVMs = 20000;
+		int nbComputers = 100;
+		Configuration cfg = new Configuration();
+		Computer[] computers = new Computer[nbComputers];
+		for (int i = 0; i < nbComputers; i++) {
+			computers[i] = cfg.addComputer("c" + i);
+		}
+		for (int i = 0; i < nbVMs; i++) {
+			cfg.addVM("vm" + i, computers[i % nbComputers]);
+		}
+		ReconfigurationProblem p = new ReconfigurationProblem(cfg, new Bridge(cfg), true);
+		IntVar[] hosters = p.getVMLocations();
+		int[] srcLoc = new int[nbVMs];
+		for (int i = 0; i < nbVMs; i++) {
+			srcLoc[i] = p.b().location(computers[i % nbComputers]);
+		}
+		AtomicLong nbChecked = new AtomicLong();
+		IntVar[] spies = new IntVar[nbVMs];
+		for (int i = 0; i < nbVMs; i++) {
+			spies[i] = countChecks(hosters[i], nbChecked);
+		}
+		Var2ValSelector sel = new Var2ValSelector(spies, srcLoc);
+		p.getSolver().setSearch(Search.intVarSearch(sel, sel, spies));
+		Solution sol = p.getSolver().findSolution();
+		Assert.assertNotNull(sol);
+		Assert.assertEquals(sol.getIntVal(hosters[nbVMs - 1]), srcLoc[nbVMs - 1]);
+		logger.debug("checked " + nbChecked.get() + " variables to select " + nbVMs);
+		// the selected variable is checked again on the next selection, and once
+		// by the decision which instantiates it
+		Assert.assertTrue(nbChecked.get() <= 3 * nbVMs, "checked " + nbChecked.get() + " variables");
+	}
+}
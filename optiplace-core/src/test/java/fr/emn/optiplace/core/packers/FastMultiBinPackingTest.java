@@ -0,0 +1,31 @@
+package fr.emn.optiplace.core.packers;
+
+import org.chocosolver.solver.Model;
+import org.chocosolver.solver.constraints.Constraint;
+import org.chocosolver.solver.variables.IntVar;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * @author Guillaume Le Louët [guillaume.lelouet@gmail.com] 2017
+ *
+ */
+public class FastMultiBinPackingTest {
+
+	@SuppressWarnings("unused")
+	private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(FastMultiBinPackingTest.class);
+
+	@Test
+	public void testCrossDimensionFiltering() throws Exception {
+		Model m = new Model();
+		// item 0 fits on bin 0 on the first dim, but not on the second
+		IntVar[] bins = m.intVarArray("bins", 2, 0, 1, false);
+		IntVar[][] loads = new IntVar[][] { { m.intVar("a0", 0, 10), m.intVar("a1", 0, 10) },
+				{ m.intVar("b0", 0, 2), m.intVar("b1", 0, 10) } };
+		int[][] sizes = new int[][] { { 5, 5 }, { 5, 1 } };
+		m.post(new Constraint("multi", new FastMultiBinPacking(loads, sizes, bins, 0)));
+		m.getSolver().propagate();
+		Assert.assertEquals(bins[0].getValue(), 1);
+		Assert.assertEquals(loads[0][1].getLB(), 5);
+	}
+}
@@ -0,0 +1,131 @@
+package fr.emn.optiplace.core.packers;
+
+import java.util.Random;
+
+import org.chocosolver.solver.Model;
+import org.chocosolver.solver.constraints.Constraint;
+import org.chocosolver.solver.search.strategy.Search;
+import org.chocosolver.solver.variables.IntVar;
+import org.chocosolver.solver.variables.SetVar;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import fr.emn.optiplace.Optiplace;
+import fr.emn.optiplace.configuration.Computer;
+import fr.emn.optiplace.configuration.Configuration;
+import fr.emn.optiplace.configuration.IConfiguration;
+import fr.emn.optiplace.configuration.VM;
+import fr.emn.optiplace.solver.choco.ChocoResourcePacker;
+
+/**
+ * tests common to the packing constraints and their packers.
+ *
+ * @author Guillaume Le Louët [guillaume.lelouet@gmail.com] 2017
+ *
+ */
+public class PackingTest {
+
+	@SuppressWarnings("unused")
+	private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(PackingTest.class);
+
+	/** post a packing constraint of items in bins, on several dimensions */
+	public static interface PackingPoster {
+
+		void post(Model m, IntVar[] bins, IntVar[][] loads, int[][] sizes);
+	}
+
+	/** one choco bin packing per dimension, used as the reference */
+	protected static void postChocoPacking(Model m, IntVar[] bins, IntVar[][] loads, int[][] sizes) {
+		for (int d = 0; d < sizes.length; d++) {
+			m.binPacking(bins, sizes[d], loads[d], 0).post();
+		}
+	}
+
+	/** the FastMultiBinPacking on all the dimensions */
+	protected static void postFastMulti(Model m, IntVar[] bins, IntVar[][] loads, int[][] sizes) {
+		m.post(new Constraint("multi", new FastMultiBinPacking(loads, sizes, bins, 0)));
+	}
+
+	/** one SimpleBinPacking per dimension, on sets channeled to the bins */
+	protected static void postSimple(Model m, IntVar[] bins, IntVar[][] loads, int[][] sizes) {
+		SetVar[] sets = m.setVarArray("sets", loads[0].length, new int[] {}, SimplePacker.range(bins.length));
+		m.setsIntsChanneling(sets, bins).post();
+		for (int d = 0; d < sizes.length; d++) {
+			m.post(new Constraint("simple", new SimpleBinPacking(sets, loads[d], sizes[d], null, 0)));
+		}
+	}
+
+	@DataProvider(name = "packings")
+	public Object[][] packings() {
+		return new Object[][] { { "fastmulti", (PackingPoster) PackingTest::postFastMulti },
+				{ "simple", (PackingPoster) PackingTest::postSimple } };
+	}
+
+	@DataProvider(name = "packers")
+	public Object[][] packers() {
+		return new Object[][] { { new FastMultiPacker() }, { new SimplePacker() } };
+	}
+
+	/**
+	 * count the solutions of a multi dimension packing problem.
+	 */
+	protected long countSolutions(int[][] sizes, int[][] capas, PackingPoster poster) {
+		Model m = new Model();
+		int nbItems = sizes[0].length, nbBins = capas[0].length;
+		IntVar[] bins = m.intVarArray("bins", nbItems, 0, nbBins - 1, false);
+		IntVar[][] loads = new IntVar[sizes.length][nbBins];
+		for (int d = 0; d < sizes.length; d++) {
+			for (int b = 0; b < nbBins; b++) {
+				loads[d][b] = m.intVar("load_" + d + "_" + b, 0, capas[d][b], true);
+			}
+		}
+		poster.post(m, bins, loads, sizes);
+		m.getSolver().setSearch(Search.inputOrderLBSearch(bins));
+		long ret = 0;
+		while (m.getSolver().solve()) {
+			ret++;
+		}
+		return ret;
+	}
+
+	@Test(dataProvider = "packings")
+	public void testSameSolutionsAsBinPacking(String name, PackingPoster poster) {
+		Random r = new Random(42);
+		for (int test = 0; test < 20; test++) {
+			int nbItems = 4 + r.nextInt(4), nbBins = 2 + r.nextInt(3), nbDims = 1 + r.nextInt(3);
+			int[][] sizes = new int[nbDims][nbItems];
+			int[][] capas = new int[nbDims][nbBins];
+			for (int d = 0; d < nbDims; d++) {
+				for (int i = 0; i < nbItems; i++) {
+					sizes[d][i] = r.nextInt(5);
+				}
+				for (int b = 0; b < nbBins; b++) {
+					capas[d][b] = 2 + r.nextInt(8);
+				}
+			}
+			Assert.assertEquals(countSolutions(sizes, capas, poster),
+					countSolutions(sizes, capas, PackingTest::postChocoPacking), name + " test " + test);
+		}
+	}
+
+	@Test(dataProvider = "packers")
+	public void testPackerInOptiplace(ChocoResourcePacker packer) {
+		Configuration c = new Configuration("mem", "cpu");
+		Computer n0 = c.addComputer("n0", 4, 4);
+		Computer n1 = c.addComputer("n1", 4, 4);
+		VM[] vms = new VM[] { c.addVM("v0", n0, 3, 1), c.addVM("v1", n0, 3, 1), c.addVM("v2", n1, 1, 3),
+				c.addVM("v3", n1, 1, 3) };
+		Optiplace opl = new Optiplace(c);
+		opl.getStrat().setPacker(packer);
+		IConfiguration dest = opl.solve().getDestination();
+		Assert.assertNotNull(dest);
+		for (Computer n : new Computer[] { n0, n1 }) {
+			Assert.assertTrue(dest.resource("mem").getUse(dest, n) <= 4);
+			Assert.assertTrue(dest.resource("cpu").getUse(dest, n) <= 4);
+		}
+		for (VM v : vms) {
+			Assert.assertTrue(dest.isRunning(v));
+		}
+	}
+}
@@ -0,0 +1,34 @@
+package fr.emn.optiplace.core.packers;
+
+import org.chocosolver.solver.Model;
+import org.chocosolver.solver.constraints.Constraint;
+import org.chocosolver.solver.variables.IntVar;
+import org.chocosolver.solver.variables.SetVar;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * @author Guillaume Le Louët [guillaume.lelouet@gmail.com] 2017
+ *
+ */
+public class SimpleBinPackingTest {
+
+	@SuppressWarnings("unused")
+	private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(SimpleBinPackingTest.class);
+
+	@Test
+	public void testBoundNbNonEmpty() throws Exception {
+		Model m = new Model();
+		// 4 items of size 3 in bins of capacity 5 : the continuous bound requires
+		// at least 12/5 => 3 bins
+		int nbBins = 5;
+		IntVar[] bins = m.intVarArray("bins", 4, 0, nbBins - 1, false);
+		IntVar[] loads = m.intVarArray("loads", nbBins, 0, 5, true);
+		SetVar[] sets = m.setVarArray("sets", nbBins, new int[] {}, SimplePacker.range(bins.length));
+		m.setsIntsChanneling(sets, bins).post();
+		IntVar nbNonEmpty = m.intVar("nbNonEmpty", 0, nbBins, true);
+		m.post(new Constraint("simple", new SimpleBinPacking(sets, loads, new int[] { 3, 3, 3, 3 }, nbNonEmpty, nbBins)));
+		m.getSolver().propagate();
+		Assert.assertEquals(nbNonEmpty.getLB(), 3);
+	}
+}
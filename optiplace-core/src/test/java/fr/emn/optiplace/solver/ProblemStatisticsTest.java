@@ -0,0 +1,57 @@
+package fr.emn.optiplace.solver;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BiPredicate;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import fr.emn.optiplace.configuration.Computer;
+import fr.emn.optiplace.configuration.Configuration;
+import fr.emn.optiplace.configuration.VM;
+import fr.emn.optiplace.core.ReconfigurationProblem;
+
+/**
+ * @author Guillaume Le Louët [guillaume.lelouet@gmail.com] 2017
+ *
+ */
+public class ProblemStatisticsTest {
+
+	@SuppressWarnings("unused")
+	private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(ProblemStatisticsTest.class);
+
+	/** @return a predicate which only refuses to exchange first and second */
+	protected static BiPredicate<Computer, Computer> veto(Computer first, Computer second) {
+		List<Computer> vetoed = Arrays.asList(first, second);
+		return (c1, c2) -> c1 == c2 || !vetoed.contains(c1) || !vetoed.contains(c2);
+	}
+
+	@Test
+	public void testGetEmptyNodeClasses() {
+		Configuration c = new Configuration("R");
+		Computer[] n = new Computer[9];
+		for (int i = 0; i < n.length; i++) {
+			n[i] = c.addComputer("n" + i, i == 7 ? 20 : 10);
+		}
+		// n0 hosts a VM, n1 is the target of its migration
+		VM v0 = c.addVM("v0", n[0], 1);
+		c.setMigTarget(v0, n[1]);
+		c.addSite("s1", n[5], n[6]);
+		c.addSite("s2", n[8]);
+		// n7 is alone with its model, n8 alone on its site
+		ProblemStatistics stats = new ReconfigurationProblem(c).getStatistics();
+
+		Assert.assertEquals(stats.getEmptyNodeClasses((c1, c2) -> true),
+				Arrays.asList(Arrays.asList(n[2], n[3], n[4]), Arrays.asList(n[5], n[6])));
+		Assert.assertEquals(stats.getEmptyNodeClasses((c1, c2) -> false), Collections.emptyList());
+
+		// a non-transitive veto : each computer is compared to the first of the
+		// class
+		Assert.assertEquals(stats.getEmptyNodeClasses(veto(n[2], n[4])),
+				Arrays.asList(Arrays.asList(n[2], n[3]), Arrays.asList(n[5], n[6])));
+		Assert.assertEquals(stats.getEmptyNodeClasses(veto(n[2], n[3])),
+				Arrays.asList(Arrays.asList(n[2], n[4]), Arrays.asList(n[5], n[6])));
+	}
+}
@@ -0,0 +1,86 @@
+package fr.emn.optiplace.solver.choco;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import fr.emn.optiplace.configuration.Computer;
+import fr.emn.optiplace.configuration.Configuration;
+import fr.emn.optiplace.configuration.ElementRegistry;
+import fr.emn.optiplace.configuration.Extern;
+import fr.emn.optiplace.configuration.IndexedConfiguration;
+import fr.emn.optiplace.configuration.Site;
+import fr.emn.optiplace.configuration.VM;
+
+/**
+ * @author Guillaume Le Louët [guillaume.lelouet@gmail.com] 2017
+ *
+ */
+public class BridgeIndexTest {
+
+	@SuppressWarnings("unused")
+	private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(BridgeIndexTest.class);
+
+	protected Configuration makeConfiguration() {
+		Configuration c = new Configuration(new ElementRegistry(), "mem");
+		Computer n0 = c.addComputer("n0", 4);
+		Computer n1 = c.addComputer("n1", 4);
+		Extern e0 = c.addExtern("e0", 10);
+		c.addSite("s0", n1, e0);
+		c.addVM("v0", n0, 1);
+		c.addVM("v1", n1, 1);
+		c.addVM("v2", e0, 1);
+		c.addVM("v3", null, 1);
+		return c;
+	}
+
+	@Test
+	public void testLookups() {
+		Configuration c = makeConfiguration();
+		// remove an element so the ids are not the indexes
+		c.remove(c.getElementByName("v0", VM.class));
+		Bridge test = new Bridge(c);
+		for (int i = 0; i < test.vms().length; i++) {
+			VM v = test.vm(i);
+			Assert.assertTrue(v.getId() >= 0);
+			Assert.assertEquals(test.vm(v), i);
+			// elements not created by the registry
+			Assert.assertEquals(test.vm(new VM(v.getName().toUpperCase())), i);
+		}
+		Assert.assertEquals(test.vm(new VM("v0")), -1);
+		Assert.assertEquals(test.vm(c.getRegistry().vm("v0")), -1);
+		Assert.assertEquals(test.vm(new VM("unknown")), -1);
+		Assert.assertEquals(test.location(new Computer("n1")), 1);
+		Assert.assertEquals(test.location(c.getElementByName("e0", Extern.class)), test.firstExtIdx());
+		Assert.assertEquals(test.location(new Extern("n0")), -1);
+		Assert.assertEquals(test.location((Computer) null), -1);
+		Assert.assertEquals(test.site(new Site("s0")), 1);
+		Assert.assertEquals(test.site(new Site("unknown")), 0);
+		Assert.assertEquals(test.getCurrentLocation(test.vm(new VM("v1"))), 1);
+		Assert.assertEquals(test.getCurrentLocation(test.vm(new VM("v3"))), -1);
+		Assert.assertEquals(test.locationSites(), new int[] { 0, 1, 1 });
+
+		// a configuration with another registry
+		Bridge indexed = new Bridge(new IndexedConfiguration(c));
+		Assert.assertEquals(indexed.vm(new VM("v2")), test.vm(new VM("v2")));
+		Assert.assertEquals(indexed.location(new Extern("e0")), test.firstExtIdx());
+	}
+
+	@Test
+	public void testReuse() {
+		Configuration c = makeConfiguration();
+		Bridge first = new Bridge(c);
+		Configuration next = c.clone();
+		next.setHost(next.getElementByName("v3", VM.class), next.getElementByName("n0", Computer.class));
+		Bridge second = new Bridge(next, first);
+		Assert.assertSame(second.vms(), first.vms());
+		Assert.assertSame(second.locations(), first.locations());
+		Assert.assertEquals(first.getCurrentLocation(first.vm(new VM("v3"))), -1);
+		Assert.assertEquals(second.getCurrentLocation(second.vm(new VM("v3"))), 0);
+
+		next.addVM("v4", null, 1);
+		Bridge third = new Bridge(next, second);
+		Assert.assertNotSame(third.vms(), second.vms());
+		Assert.assertSame(third.locations(), second.locations());
+		Assert.assertEquals(third.vm(new VM("v4")), 4);
+	}
+}
@@ -1,6 +1,7 @@
 package fr.emn.optiplace.solver.choco;
 
 import org.chocosolver.solver.Solution;
+import org.chocosolver.solver.variables.IntVar;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -49,4 +50,41 @@ public class ReconfigurationProblemTest {
 		Assert.assertEquals(sol.getIntVal(p.getState(vm)), CoreView.VM_RUNEXT);
 	}
 
+	@Test
+	public void testLazyStates() {
+		Configuration sc = new Configuration();
+		Computer n = sc.addComputer("node");
+		Extern e = sc.addExtern("extern");
+		VM running = sc.addVM("running", n);
+		VM externed = sc.addVM("externed", e);
+		VM waiting = sc.addVM("waiting", null);
+
+		ReconfigurationProblem eager = new ReconfigurationProblem(sc);
+		ReconfigurationProblem p = new ReconfigurationProblem(sc, new Bridge(sc), true);
+		Assert.assertTrue(p.getModel().getNbVars() < eager.getModel().getNbVars());
+
+		// the states requested before the search are constrained by the location
+		IntVar state = p.getState(waiting);
+		Assert.assertSame(p.getState(waiting), state);
+		Assert.assertEquals(state.getDomainSize(), 3);
+		Solution sol = p.getSolver().findSolution();
+		Assert.assertNotNull(sol);
+		int location = sol.getIntVal(p.getVMLocation(waiting));
+		int expected = location == p.b().waitIdx() ? CoreView.VM_WAITING
+				: location == p.b().location(e) ? CoreView.VM_RUNEXT : CoreView.VM_RUNNODE;
+		Assert.assertEquals(sol.getIntVal(state), expected);
+
+		// forcing the state restricts the location
+		p = new ReconfigurationProblem(sc, new Bridge(sc), true);
+		p.getModel().arithm(p.getState(waiting), "=", CoreView.VM_RUNEXT).post();
+		p.getModel().arithm(p.getState(running), "=", CoreView.VM_WAITING).post();
+		Assert.assertNull(p.getSolver().findSolution());
+		p = new ReconfigurationProblem(sc, new Bridge(sc), true);
+		p.getModel().arithm(p.getState(waiting), "=", CoreView.VM_RUNEXT).post();
+		sol = p.getSolver().findSolution();
+		Assert.assertNotNull(sol);
+		Assert.assertEquals(sol.getIntVal(p.getVMLocation(waiting)), p.b().location(e));
+		Assert.assertEquals(p.getState(externed).getDomainSize(), 2);
+	}
+
 }
@@ -9,6 +9,7 @@ import org.testng.annotations.Test;
 import fr.emn.optiplace.configuration.Configuration;
 import fr.emn.optiplace.configuration.Extern;
 import fr.emn.optiplace.configuration.VM;
+import fr.emn.optiplace.configuration.resources.MappedResourceSpecification;
 import fr.emn.optiplace.core.ReconfigurationProblem;
 import fr.emn.optiplace.test.SolvingExample;
 import fr.emn.optiplace.view.access.CoreView;
@@ -47,4 +48,40 @@ public class TestExternPlacement extends SolvingExample {
 		Assert.assertEquals(sol.getIntVal(p.getVMLocation(vm2)), p.b().location(e));
 	}
 
+	@Test
+	public void testFilterExterns() {
+		Configuration cfg = new Configuration();
+		Extern small = cfg.addExtern("small");
+		Extern big = cfg.addExtern("big");
+		VM vm1 = cfg.addVM("vm1", null);
+		VM vm3 = cfg.addVM("vm3", null);
+		VM vm5 = cfg.addVM("vm5", null);
+		MappedResourceSpecification mem = new MappedResourceSpecification("mem");
+		mem.capacity(small, 2);
+		mem.capacity(big, 4);
+		mem.use(vm1, 1);
+		mem.use(vm3, 3);
+		mem.use(vm5, 5);
+		cfg.resources().put("mem", mem);
+
+		ReconfigurationProblem p = new ReconfigurationProblem(cfg);
+		Assert.assertTrue(p.getVMLocation(vm1).contains(p.b().location(small)));
+		Assert.assertTrue(p.getVMLocation(vm1).contains(p.b().location(big)));
+		Assert.assertFalse(p.getVMLocation(vm3).contains(p.b().location(small)));
+		Assert.assertTrue(p.getVMLocation(vm3).contains(p.b().location(big)));
+		Assert.assertFalse(p.getVMLocation(vm5).contains(p.b().location(small)));
+		Assert.assertFalse(p.getVMLocation(vm5).contains(p.b().location(big)));
+
+		// a resource added later only filters once filterExterns is called
+		MappedResourceSpecification cpu = new MappedResourceSpecification("cpu");
+		cpu.capacity(small, 2);
+		cpu.capacity(big, 1);
+		cpu.use(vm1, 2);
+		p.addResource(cpu);
+		Assert.assertTrue(p.getVMLocation(vm1).contains(p.b().location(big)));
+		p.filterExterns();
+		Assert.assertFalse(p.getVMLocation(vm1).contains(p.b().location(big)));
+		Assert.assertTrue(p.getVMLocation(vm1).contains(p.b().location(small)));
+	}
+
 }
@@ -0,0 +1,80 @@
+package fr.emn.optiplace.solver.heuristics;
+
+import java.util.Arrays;
+
+import org.chocosolver.solver.Cause;
+import org.chocosolver.solver.exception.ContradictionException;
+import org.chocosolver.solver.variables.IntVar;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import fr.emn.optiplace.configuration.Computer;
+import fr.emn.optiplace.configuration.Configuration;
+import fr.emn.optiplace.configuration.VM;
+import fr.emn.optiplace.core.ReconfigurationProblem;
+
+/**
+ * @author Guillaume Le Louët [guillaume.lelouet@gmail.com] 2017
+ *
+ */
+public class FirstEmptyHostSelectorTest {
+
+	@SuppressWarnings("unused")
+	private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(FirstEmptyHostSelectorTest.class);
+
+	@Test
+	public void testSelectValue() throws ContradictionException {
+		Configuration c = new Configuration("R");
+		Computer n0 = c.addComputer("n0", 10);
+		c.addVM("v0", n0, 1);
+		Computer[] empty = new Computer[4];
+		for (int i = 0; i < empty.length; i++) {
+			empty[i] = c.addComputer("n" + (i + 1), 10);
+		}
+		VM w0 = c.addVM("w0", null, 1);
+		VM w1 = c.addVM("w1", null, 1);
+		ReconfigurationProblem rp = new ReconfigurationProblem(c);
+		int[] loc = Arrays.stream(empty).mapToInt(rp.b()::location).toArray();
+		// post the number of VMs of the computers before the propagation
+		for (int idx : loc) {
+			rp.nbVMsOn(idx);
+		}
+		int n0Idx = rp.b().location(n0);
+		IntVar var = rp.getVMLocation(rp.b().vm(w0));
+
+		// the location selected by the stub is replaced
+		int[] selected = new int[1];
+		FirstEmptyHostSelector sel = new FirstEmptyHostSelector(rp, Arrays.asList(Arrays.asList(empty)),
+				v -> selected[0]);
+		selected[0] = loc[2];
+		Assert.assertEquals(sel.selectValue(var), loc[0]);
+		selected[0] = loc[0];
+		Assert.assertEquals(sel.selectValue(var), loc[0]);
+		// not in a class
+		selected[0] = n0Idx;
+		Assert.assertEquals(sel.selectValue(var), n0Idx);
+		selected[0] = rp.b().waitIdx();
+		Assert.assertEquals(sel.selectValue(var), rp.b().waitIdx());
+
+		// the first empty computer is not in the domain of the var
+		rp.getModel().getEnvironment().worldPush();
+		var.removeValue(loc[0], Cause.Null);
+		selected[0] = loc[2];
+		Assert.assertEquals(sel.selectValue(var), loc[1]);
+
+		// the second one hosts a VM : it is not empty anymore
+		rp.getVMLocation(rp.b().vm(w1)).instantiateTo(loc[1], Cause.Null);
+		rp.getSolver().propagate();
+		Assert.assertTrue(rp.nbVMsOn(loc[1]).getLB() > 0);
+		Assert.assertEquals(sel.selectValue(var), loc[2]);
+		selected[0] = loc[3];
+		Assert.assertEquals(sel.selectValue(var), loc[2]);
+		// a non-empty computer is kept
+		selected[0] = loc[1];
+		Assert.assertEquals(sel.selectValue(var), loc[1]);
+
+		rp.getModel().getEnvironment().worldPop();
+		selected[0] = loc[3];
+		Assert.assertEquals(sel.selectValue(var), loc[0]);
+	}
+}
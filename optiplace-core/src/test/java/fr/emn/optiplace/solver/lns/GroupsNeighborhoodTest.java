@@ -0,0 +1,87 @@
+package fr.emn.optiplace.solver.lns;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.chocosolver.solver.Solution;
+import org.chocosolver.solver.search.strategy.decision.DecisionPath;
+import org.chocosolver.solver.variables.IntVar;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import fr.emn.optiplace.configuration.Computer;
+import fr.emn.optiplace.configuration.Configuration;
+import fr.emn.optiplace.core.ReconfigurationProblem;
+
+/**
+ * @author Guillaume Le Louët [guillaume.lelouet@gmail.com] 2017
+ *
+ */
+public class GroupsNeighborhoodTest {
+
+	@SuppressWarnings("unused")
+	private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(GroupsNeighborhoodTest.class);
+
+	/** @return the index of the VMs not fixed by the neighborhood */
+	protected Set<Integer> freedVMs(ReconfigurationProblem rp, VMNeighborhood nb) {
+		DecisionPath dp = new DecisionPath(rp.getModel().getEnvironment());
+		nb.fixSomeVariables(dp);
+		Set<Integer> ret = new HashSet<>();
+		for (int i = 0; i < rp.b().vms().length; i++) {
+			ret.add(i);
+		}
+		// decision 0 is the root decision
+		for (int i = 1; i < dp.size(); i++) {
+			IntVar var = (IntVar) dp.getDecision(i).getDecisionVariable();
+			for (int v = 0; v < rp.getVMLocations().length; v++) {
+				if (rp.getVMLocation(v) == var) {
+					ret.remove(v);
+				}
+			}
+		}
+		return ret;
+	}
+
+	@Test
+	public void testByHost() {
+		Configuration c = new Configuration();
+		Computer n0 = c.addComputer("n0");
+		Computer n1 = c.addComputer("n1");
+		c.addComputer("n2");
+		c.addVM("v0", n0);
+		c.addVM("v1", n0);
+		c.addVM("v2", n1);
+		ReconfigurationProblem rp = new ReconfigurationProblem(c);
+		Solution s = rp.getSolver().findSolution();
+		Assert.assertNotNull(s);
+		GroupsNeighborhood nb = GroupsNeighborhood.byHost(rp, 0);
+		Assert.assertEquals(nb.nbGroups(), 4);
+		nb.loadFromSolution(s);
+		for (int test = 0; test < 10; test++) {
+			Set<Integer> freed = freedVMs(rp, nb);
+			// the VMs freed are all on the same location
+			Assert.assertTrue(freed.stream().mapToInt(v -> s.getIntVal(rp.getVMLocation(v))).distinct().count() <= 1,
+					"" + freed);
+		}
+		for (int i = 0; i < 3; i++) {
+			nb.restrictLess();
+		}
+		Assert.assertEquals(freedVMs(rp, nb).size(), 3);
+	}
+
+	@Test
+	public void testRandom() {
+		Configuration c = new Configuration();
+		Computer n0 = c.addComputer("n0");
+		for (int i = 0; i < 100; i++) {
+			c.addVM("v" + i, n0);
+		}
+		ReconfigurationProblem rp = new ReconfigurationProblem(c);
+		Solution s = rp.getSolver().findSolution();
+		RandomVMNeighborhood nb = new RandomVMNeighborhood(rp, 0);
+		nb.loadFromSolution(s);
+		Assert.assertEquals(freedVMs(rp, nb).size(), 2);
+		nb.restrictLess();
+		Assert.assertEquals(freedVMs(rp, nb).size(), 4);
+	}
+}
@@ -0,0 +1,60 @@
+package fr.emn.optiplace.view;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * @author Guillaume Le Louët [guillaume.lelouet@gmail.com] 2017
+ *
+ */
+public class MappedViewDataTest {
+
+	@SuppressWarnings("unused")
+	private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(MappedViewDataTest.class);
+
+	protected static File write(String content) throws IOException {
+		File f = File.createTempFile("mapped", ".txt");
+		f.deleteOnExit();
+		Files.write(f.toPath(), content.getBytes(StandardCharsets.UTF_8));
+		return f;
+	}
+
+	@Test
+	public void testLines() throws IOException {
+		File f = write("a = 1\r\n\nsection b\nb = 2\nlast");
+		MappedViewData test = new MappedViewData("test", f);
+		Assert.assertEquals(test.nbLines(), 5);
+		List<String> expected = Arrays.asList("a = 1", "", "section b", "b = 2", "last");
+		Assert.assertEquals(test.lines().collect(Collectors.toList()), expected);
+		Assert.assertEquals(test.lines().collect(Collectors.toList()),
+				new FileViewData("test", f).lines().collect(Collectors.toList()));
+		Assert.assertEquals(test.slices().parallel().map(CharSequence::toString).collect(Collectors.toList()), expected);
+
+		int section = test.find("section", 0);
+		Assert.assertEquals(section, 2);
+		Assert.assertEquals(test.slices(section + 1, test.nbLines()).map(CharSequence::toString).collect(Collectors.toList()),
+				Arrays.asList("b = 2", "last"));
+		Assert.assertEquals(test.find("section", section + 1), -1);
+
+		CharSequence line = test.line(0);
+		Assert.assertEquals(line.length(), 5);
+		Assert.assertEquals(line.charAt(4), '1');
+		Assert.assertEquals(line.subSequence(0, 1).toString(), "a");
+	}
+
+	@Test
+	public void testEmptyAndUTF8() throws IOException {
+		Assert.assertEquals(new MappedViewData("empty", write("")).nbLines(), 0);
+		MappedViewData test = new MappedViewData("test", write("température = 25°\n"));
+		Assert.assertEquals(test.nbLines(), 1);
+		Assert.assertEquals(test.line(0).toString(), "température = 25°");
+	}
+}
@@ -31,10 +31,17 @@ public class HAData implements ProvidedDataReader {
 
 	private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(HAData.class);
 
+	/**
+	 * tries the parser of each rule in sequence. {@link HAParser} selects the
+	 * parser from the keyword of the rule instead.
+	 */
 	public static ChainedParser HAPARSER = new ChainedParser(Among.PARSER, Ban.PARSER, Capacity.PARSER, Far.PARSER,
 			Fence.PARSER, Greedy.PARSER, Lazy.PARSER, LoadInc.PARSER, Near.PARSER, Quarantine.PARSER, Replication.PARSER,
 			Root.PARSER, SiteOff.PARSER, SiteOn.PARSER, Split.PARSER, Spread.PARSER, Together.PARSER);
 
+	/** parser of the rules, shared with the partial readers */
+	protected HAParser parser = new HAParser();
+
 	List<Rule> rules = new ArrayList<>();
 
 	public List<Rule> getRules() {
@@ -44,11 +51,12 @@ public class HAData implements ProvidedDataReader {
 	@Override
 	public void onNewConfig() {
 		rules.clear();
+		parser.clear();
 	}
 
 	@Override
 	public void readLine(String line) {
-		Rule r = HAPARSER.parse(line);
+		Rule r = parser.parse(line);
 		if (r != null) {
 			rules.add(r);
 		} else {
@@ -56,6 +64,18 @@ public class HAData implements ProvidedDataReader {
 		}
 	}
 
+	@Override
+	public HAData partial() {
+		HAData ret = new HAData();
+		ret.parser = parser;
+		return ret;
+	}
+
+	@Override
+	public void merge(ProvidedDataReader partial) {
+		rules.addAll(((HAData) partial).rules);
+	}
+
 	@Override
 	public String toString() {
 		StringBuilder sb = null;
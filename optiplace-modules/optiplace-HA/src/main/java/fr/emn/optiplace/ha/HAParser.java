@@ -0,0 +1,265 @@
+package fr.emn.optiplace.ha;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import fr.emn.optiplace.configuration.Computer;
+import fr.emn.optiplace.configuration.ElementRegistry;
+import fr.emn.optiplace.configuration.VM;
+import fr.emn.optiplace.ha.rules.Among;
+import fr.emn.optiplace.ha.rules.Ban;
+import fr.emn.optiplace.ha.rules.Capacity;
+import fr.emn.optiplace.ha.rules.Far;
+import fr.emn.optiplace.ha.rules.Fence;
+import fr.emn.optiplace.ha.rules.Greedy;
+import fr.emn.optiplace.ha.rules.Lazy;
+import fr.emn.optiplace.ha.rules.LoadInc;
+import fr.emn.optiplace.ha.rules.Near;
+import fr.emn.optiplace.ha.rules.Quarantine;
+import fr.emn.optiplace.ha.rules.Replication;
+import fr.emn.optiplace.ha.rules.Root;
+import fr.emn.optiplace.ha.rules.SiteOff;
+import fr.emn.optiplace.ha.rules.SiteOn;
+import fr.emn.optiplace.ha.rules.Split;
+import fr.emn.optiplace.ha.rules.Spread;
+import fr.emn.optiplace.ha.rules.Together;
+import fr.emn.optiplace.view.Rule;
+import fr.emn.optiplace.view.Rule.Parser;
+
+/**
+ * Parser of the HA rules which selects the rule from its keyword, the text
+ * before the first '['.
+ * <p>
+ * The arguments of the rule, between [] or (), are extracted once and given to
+ * the parser registered for the keyword. If the line does not have the
+ * arguments expected, it is parsed by the rule's own {@link Parser} instead, so
+ * the result is the same as with {@link HAData#HAPARSER}.
+ * </p>
+ * <p>
+ * The VMs and computers are interned in an {@link ElementRegistry} shared by
+ * all the rules parsed, so an element present in several rules is only created
+ * once. The registry is thread-safe, so the parser can be shared by readers
+ * parsing in parallel.
+ * </p>
+ *
+ * @author Guillaume Le Louët [guillaume.lelouet@gmail.com] 2017
+ *
+ */
+public class HAParser implements Parser {
+
+	@SuppressWarnings("unused")
+	private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(HAParser.class);
+
+	/** creates a rule from the arguments of its definition */
+	public static interface ArgsParser {
+
+		/**
+		 * @param args
+		 *          the content of each [] or () of the definition, in order
+		 * @param parser
+		 *          the parser, to intern the elements
+		 * @return a new rule.
+		 */
+		Rule parse(List<String> args, HAParser parser);
+	}
+
+	/** how to parse the rules of a keyword */
+	protected static class Entry {
+
+		/** the opening chars of the arguments expected, eg "[(" */
+		final String shape;
+
+		final ArgsParser args;
+
+		final Parser fallback;
+
+		Entry(String shape, ArgsParser args, Parser fallback) {
+			this.shape = shape;
+			this.args = args;
+			this.fallback = fallback;
+		}
+	}
+
+	protected final HashMap<String, Entry> entries = new HashMap<>();
+
+	protected ElementRegistry registry = new ElementRegistry();
+
+	/** create a parser of all the rules of the HA view */
+	public HAParser() {
+		with("among", "[[", (a, p) -> new Among(p.vms(a.get(0)), groups(a.get(1))), Among.PARSER);
+		with("ban", "[[", (a, p) -> new Ban(p.vms(a.get(0)), names(a.get(1))), Ban.PARSER);
+		with("capacity", "[(", (a, p) -> new Capacity(p.computers(a.get(0)), Integer.parseInt(a.get(1))),
+				Capacity.PARSER);
+		with("far", "[", (a, p) -> new Far(p.vms(a.get(0))), Far.PARSER);
+		with("fence", "[[", (a, p) -> new Fence(p.vms(a.get(0)), names(a.get(1))), Fence.PARSER);
+		with("greedy", "[((", (a, p) -> new Greedy(Integer.parseInt(a.get(1)), a.get(2), p.vms(a.get(0))),
+				Greedy.PARSER);
+		with("lazy", "[((", (a, p) -> new Lazy(a.get(1), Integer.parseInt(a.get(2)), p.computers(a.get(0))),
+				Lazy.PARSER);
+		with("ordnodesload", "[(", (a, p) -> {
+			List<Computer> nodes = new ArrayList<>();
+			for (String n : split(a.get(0), ", ")) {
+				nodes.add(p.registry.computer(n));
+			}
+			return new LoadInc(a.get(1), nodes);
+		}, LoadInc.PARSER);
+		with("near", "[", (a, p) -> new Near(p.vms(a.get(0))), Near.PARSER);
+		with("quarantine", "[", (a, p) -> new Quarantine(names(a.get(0))), Quarantine.PARSER);
+		with("replicating", "[", (a, p) -> new Replication(p.vms(a.get(0))), Replication.PARSER);
+		with("root", "[", (a, p) -> new Root(p.vms(a.get(0))), Root.PARSER);
+		with("siteoff", "[(", (a, p) -> new SiteOff(p.registry.site(a.get(0)), p.vms(a.get(1))), SiteOff.PARSER);
+		with("siteon", "[(", (a, p) -> new SiteOn(p.registry.site(a.get(0)), p.vms(a.get(1))), SiteOn.PARSER);
+		with("split", "[[", (a, p) -> new Split(p.vms(a.get(0)), p.vms(a.get(1))), Split.PARSER);
+		with("spread", "[", (a, p) -> new Spread(p.vms(a.get(0))), Spread.PARSER);
+		with("together", "[", (a, p) -> new Together(p.vms(a.get(0))), Together.PARSER);
+	}
+
+	/**
+	 * register the parsing of a rule
+	 *
+	 * @param keyword
+	 *          the text before the first '[' of the rules
+	 * @param shape
+	 *          the opening char of each argument of the rule
+	 * @param args
+	 *          the parser of the arguments
+	 * @param fallback
+	 *          the parser of the definitions which do not have this shape
+	 * @return this
+	 */
+	public HAParser with(String keyword, String shape, ArgsParser args, Parser fallback) {
+		entries.put(keyword, new Entry(shape, args, fallback));
+		return this;
+	}
+
+	@Override
+	public Rule parse(String def) {
+		int open = def.indexOf('[');
+		if (open < 1) {
+			return null;
+		}
+		Entry e = entries.get(def.substring(0, open));
+		if (e == null) {
+			return null;
+		}
+		List<String> args = arguments(def, open, e.shape);
+		return args == null ? e.fallback.parse(def) : e.args.parse(args, this);
+	}
+
+	/**
+	 * extract the arguments of a definition
+	 *
+	 * @param def
+	 *          the definition of the rule
+	 * @param from
+	 *          the position of the first argument
+	 * @param shape
+	 *          the opening char of each argument
+	 * @return the content of each argument, or null if the definition does not
+	 *         have exactly those arguments.
+	 */
+	protected static List<String> arguments(String def, int from, String shape) {
+		List<String> ret = new ArrayList<>(shape.length());
+		int pos = from;
+		for (int i = 0; i < shape.length(); i++) {
+			char open = shape.charAt(i);
+			char close = open == '[' ? ']' : ')';
+			if (pos >= def.length() || def.charAt(pos) != open) {
+				return null;
+			}
+			int depth = 1;
+			int end = pos + 1;
+			for (; end < def.length() && depth > 0; end++) {
+				char c = def.charAt(end);
+				if (c == open) {
+					depth++;
+				} else if (c == close) {
+					depth--;
+				}
+			}
+			if (depth != 0) {
+				return null;
+			}
+			ret.add(def.substring(pos + 1, end - 1));
+			pos = end;
+		}
+		return pos == def.length() ? ret : null;
+	}
+
+	/**
+	 * split a String around a separator, with the same result as
+	 * {@link String#split(String)} but without a regex.
+	 */
+	public static List<String> split(String s, String sep) {
+		List<String> ret = new ArrayList<>();
+		int start = 0;
+		int idx = s.indexOf(sep);
+		if (idx == -1) {
+			ret.add(s);
+			return ret;
+		}
+		while (idx != -1) {
+			ret.add(s.substring(start, idx));
+			start = idx + sep.length();
+			idx = s.indexOf(sep, start);
+		}
+		ret.add(s.substring(start));
+		// String.split removes the trailing empty strings
+		int size = ret.size();
+		while (size > 0 && ret.get(size - 1).isEmpty()) {
+			ret.remove(--size);
+		}
+		return ret;
+	}
+
+	/**
+	 * @param name
+	 *          the name of a VM
+	 * @return the VM with this name interned in this parser.
+	 */
+	public VM vm(String name) {
+		return registry.vm(name);
+	}
+
+	/** @return the set of interned VMs with given names, separated by ", " */
+	public Set<VM> vms(String arg) {
+		Set<VM> ret = new HashSet<>();
+		for (String n : split(arg, ", ")) {
+			ret.add(vm(n));
+		}
+		return ret;
+	}
+
+	/** forget the elements interned */
+	public void clear() {
+		registry = new ElementRegistry();
+	}
+
+	/** @return the set of names separated by ", " */
+	public static Set<String> names(String arg) {
+		return new HashSet<>(split(arg, ", "));
+	}
+
+	/** @return the set of interned computers with given names, separated by ", " */
+	public Set<Computer> computers(String arg) {
+		Set<Computer> ret = new HashSet<>();
+		for (String n : split(arg, ", ")) {
+			ret.add(registry.computer(n));
+		}
+		return ret;
+	}
+
+	/** @return the groups of names in the form "[a, b], [c]" */
+	public static Set<Set<String>> groups(String arg) {
+		Set<Set<String>> ret = new HashSet<>();
+		if (arg.length() > 1) {
+			for (String group : split(arg.substring(1, arg.length() - 1), "], [")) {
+				ret.add(names(group));
+			}
+		}
+		return ret;
+	}
+}
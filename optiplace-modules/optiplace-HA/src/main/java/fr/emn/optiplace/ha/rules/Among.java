@@ -24,6 +24,7 @@ import java.util.stream.Stream;
 import org.chocosolver.solver.variables.IntVar;
 import org.chocosolver.solver.variables.SetVar;
 
+import fr.emn.optiplace.configuration.Computer;
 import fr.emn.optiplace.configuration.IConfiguration;
 import fr.emn.optiplace.configuration.VM;
 import fr.emn.optiplace.configuration.VMLocation;
@@ -174,6 +175,18 @@ public class Among implements Rule {
 		core.post(core.getModel().member(possibleLocations, hosters));
 	}
 
+	/** the computers must belong to the same groups */
+	@Override
+	public boolean isInterchangeable(Computer first, Computer second) {
+		for (Set<String> group : groups) {
+			if (group.stream().anyMatch(first.getName()::equalsIgnoreCase) != group.stream()
+					.anyMatch(second.getName()::equalsIgnoreCase)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
 	/**
 	 * Check that the constraint is satisfied in a configuration.
 	 *
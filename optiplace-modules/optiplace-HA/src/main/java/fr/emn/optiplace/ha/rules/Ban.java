@@ -20,6 +20,7 @@ import java.util.stream.Collectors;
 import org.chocosolver.solver.Cause;
 import org.chocosolver.solver.variables.IntVar;
 
+import fr.emn.optiplace.configuration.Computer;
 import fr.emn.optiplace.configuration.IConfiguration;
 import fr.emn.optiplace.configuration.VM;
 import fr.emn.optiplace.configuration.VMLocation;
@@ -126,6 +127,13 @@ public class Ban implements Rule {
 		}
 	}
 
+	/** the computers must be both or none in the banned hosters */
+	@Override
+	public boolean isInterchangeable(Computer first, Computer second) {
+		return hosters.stream().anyMatch(first.getName()::equalsIgnoreCase) == hosters.stream()
+				.anyMatch(second.getName()::equalsIgnoreCase);
+	}
+
 	/**
 	 * Check that the constraint is satified in a configuration.
 	 *
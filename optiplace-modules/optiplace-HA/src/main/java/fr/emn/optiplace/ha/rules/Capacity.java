@@ -94,6 +94,12 @@ public class Capacity implements Rule {
 		}
 	}
 
+	/** the computers must be both or none in the capacity */
+	@Override
+	public boolean isInterchangeable(Computer first, Computer second) {
+		return nodes.contains(first) == nodes.contains(second);
+	}
+
 	/**
 	 * Check that the nodes does not host a number of VMs greater than the maximum
 	 * specified
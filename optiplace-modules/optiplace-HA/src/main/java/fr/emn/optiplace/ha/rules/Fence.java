@@ -23,6 +23,7 @@ import java.util.stream.Collectors;
 import org.chocosolver.solver.Cause;
 import org.chocosolver.solver.variables.IntVar;
 
+import fr.emn.optiplace.configuration.Computer;
 import fr.emn.optiplace.configuration.IConfiguration;
 import fr.emn.optiplace.configuration.VM;
 import fr.emn.optiplace.configuration.VMLocation;
@@ -135,6 +136,13 @@ public class Fence implements Rule {
 		}
 	}
 
+	/** the computers must be both or none in the fence */
+	@Override
+	public boolean isInterchangeable(Computer first, Computer second) {
+		return locations.stream().anyMatch(first.getName()::equalsIgnoreCase) == locations.stream()
+				.anyMatch(second.getName()::equalsIgnoreCase);
+	}
+
 	/**
 	 * Check that the constraint is satified in a configuration.
 	 *
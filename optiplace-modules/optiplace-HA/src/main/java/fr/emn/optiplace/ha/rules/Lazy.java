@@ -109,6 +109,12 @@ public class Lazy implements Rule {
 		}
 	}
 
+	/** the computers must be both or none in the lazy nodes */
+	@Override
+	public boolean isInterchangeable(Computer first, Computer second) {
+		return nodes.contains(first) == nodes.contains(second);
+	}
+
 	@Override
 	public boolean isSatisfied(IConfiguration cfg) {
 		ResourceSpecification res = cfg.resources().get(resName);
@@ -71,6 +71,12 @@ public class LoadInc implements Rule {
 		}
 	}
 
+	/** the load of the computers is ordered */
+	@Override
+	public boolean isInterchangeable(Computer first, Computer second) {
+		return !nodes.contains(first) && !nodes.contains(second);
+	}
+
 	@Override
 	public boolean isSatisfied(IConfiguration cfg) {
 		if (nodes != null && nodes.size() > 1) {
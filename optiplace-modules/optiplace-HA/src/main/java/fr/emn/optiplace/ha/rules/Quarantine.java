@@ -22,6 +22,7 @@ import org.chocosolver.solver.Cause;
 import org.chocosolver.solver.exception.ContradictionException;
 import org.chocosolver.solver.variables.IntVar;
 
+import fr.emn.optiplace.configuration.Computer;
 import fr.emn.optiplace.configuration.IConfiguration;
 import fr.emn.optiplace.configuration.ManagedElement;
 import fr.emn.optiplace.configuration.Site;
@@ -112,6 +113,13 @@ public class Quarantine implements Rule {
 		});
 	}
 
+	/** the computers must be both or none in the quarantined locations */
+	@Override
+	public boolean isInterchangeable(Computer first, Computer second) {
+		return locations.stream().anyMatch(first.getName()::equalsIgnoreCase) == locations.stream()
+				.anyMatch(second.getName()::equalsIgnoreCase);
+	}
+
 	@Override
 	public boolean isSatisfied(IConfiguration cfg) {
 		return true;
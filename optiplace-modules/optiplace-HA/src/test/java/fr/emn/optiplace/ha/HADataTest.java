@@ -20,6 +20,7 @@ import fr.emn.optiplace.ha.rules.Quarantine;
 import fr.emn.optiplace.ha.rules.Root;
 import fr.emn.optiplace.ha.rules.Split;
 import fr.emn.optiplace.ha.rules.Spread;
+import fr.emn.optiplace.view.BufferedData;
 import fr.emn.optiplace.view.Rule;
 
 /**
@@ -92,4 +93,20 @@ public class HADataTest {
 		created.getRules().addAll(parsed);
 		Assert.assertEquals(created, test);
 	}
+
+	@Test
+	public void testParallelParsing() {
+		BufferedData data = new BufferedData("ha");
+		for (int i = 0; i < 1000; i++) {
+			data.add("spread[vm" + i + ", vm" + (i + 1) + "]");
+			data.add("ban[vm" + i + "][n" + i + "]");
+			data.add("capacity[n" + i + "](" + i + ")");
+		}
+		HAData sequential = new HAData();
+		sequential.read(data);
+		HAData parallel = new HAData();
+		parallel.readParallel(data);
+		Assert.assertEquals(parallel.getRules().size(), 3000);
+		Assert.assertEquals(parallel.getRules(), sequential.getRules());
+	}
 }
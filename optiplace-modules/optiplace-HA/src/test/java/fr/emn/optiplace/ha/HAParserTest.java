@@ -0,0 +1,66 @@
+package fr.emn.optiplace.ha;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import fr.emn.optiplace.configuration.VM;
+import fr.emn.optiplace.ha.rules.Spread;
+import fr.emn.optiplace.view.Rule;
+
+/**
+ * @author Guillaume Le Louët [guillaume.lelouet@gmail.com] 2017
+ *
+ */
+public class HAParserTest {
+
+	@SuppressWarnings("unused")
+	private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(HAParserTest.class);
+
+	@Test
+	public void testSameAsChained() {
+		List<String> defs = Arrays.asList("among[vm1, vm2][[n1], [n2, n3]]", "among[vm1][]", "ban[vm1, vm2][n2, n3, n4]",
+				"capacity[n2, n3, n4](5)", "far[vm1, vm2]", "fence[vm1, vm2][n2, n3, n4]", "greedy[vm1, vm2](15)(CPU)",
+				"lazy[n1, n2](lol)(3)", "ordnodesload[n2, n3, n4](lol)", "near[vm1]", "quarantine[n1, n2]",
+				"replicating[vm1, vm2]", "root[vm1, vm2]", "siteoff[s1](vm1, vm2)", "siteon[s1](vm1)",
+				"split[vm1, vm2][vm3]", "spread[vm1, vm2]", "together[vm1, vm2]",
+				// not the expected arguments, parsed by the rules' regex
+				"quarantine[vm1, vm2][n2, n3, n4]", "root[vm1, vm2][n2, n3, n4]", "spread[vm1, vm2", "unknown[vm1]",
+				"spread", "");
+		HAParser test = new HAParser();
+		for (String def : defs) {
+			Rule expected = HAData.HAPARSER.parse(def);
+			Rule parsed = test.parse(def);
+			if (expected == null) {
+				Assert.assertNull(parsed, "parsing " + def);
+			} else {
+				// some rules do not implement equals
+				Assert.assertEquals(parsed.getClass(), expected.getClass(), "parsing " + def);
+				Assert.assertEquals(parsed.toString(), expected.toString(), "parsing " + def);
+			}
+		}
+	}
+
+	@Test
+	public void testInterned() {
+		HAParser test = new HAParser();
+		Set<VM> first = test.vms("vm1, vm2");
+		Set<VM> second = test.vms("vm2, vm3");
+		VM v2 = test.vm("vm2");
+		Assert.assertTrue(first.stream().anyMatch(v -> v == v2));
+		Assert.assertTrue(second.stream().anyMatch(v -> v == v2));
+		Assert.assertEquals(test.parse("spread[vm1, vm2]"), new Spread(first));
+		test.clear();
+		Assert.assertNotSame(test.vm("vm2"), v2);
+	}
+
+	@Test
+	public void testSplit() {
+		for (String s : Arrays.asList("", "a", "a, b", ", a", "a, ", ", ", "a, , b, , ")) {
+			Assert.assertEquals(HAParser.split(s, ", "), Arrays.asList(s.split(", ")), "splitting \"" + s + "\"");
+		}
+	}
+}
@@ -10,6 +10,7 @@ import java.util.stream.Collectors;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import fr.emn.optiplace.configuration.Computer;
 import fr.emn.optiplace.configuration.IConfiguration;
 import fr.emn.optiplace.configuration.VM;
 import fr.emn.optiplace.test.SolvingExample;
@@ -37,6 +38,14 @@ public class BanTest extends SolvingExample {
     }
   }
 
+  @Test
+  public void testInterchangeable() {
+    Ban b = new Ban(new HashSet<>(), "n1", "N2");
+    Assert.assertTrue(b.isInterchangeable(new Computer("n1"), new Computer("n2")));
+    Assert.assertTrue(b.isInterchangeable(new Computer("n3"), new Computer("n4")));
+    Assert.assertFalse(b.isInterchangeable(new Computer("n1"), new Computer("n3")));
+  }
+
   @Test
   public void testParsing() {
 		HashSet<String> nodes = new HashSet<>(Arrays.asList("n1", "n2"));
@@ -207,6 +207,21 @@ public class DistanceData implements ProvidedDataReader {
 		distances.clear();
 	}
 
+	@Override
+	public DistanceData sharedReader() {
+		return new DistanceData();
+	}
+
+	@Override
+	public void readFrom(ProvidedDataReader shared) {
+		onNewConfig();
+		DistanceData other = (DistanceData) shared;
+		distances.putAll(other.distances);
+		limits.putAll(other.limits);
+		groups.putAll(other.groups);
+		patLimits.putAll(other.patLimits);
+	}
+
 	@Override
 	public void readLine(String line) {
 		if (line.startsWith("distance ")) {
@@ -5,6 +5,7 @@ import java.util.stream.Collectors;
 
 import org.chocosolver.solver.variables.IntVar;
 
+import fr.emn.optiplace.configuration.Computer;
 import fr.emn.optiplace.configuration.VM;
 import fr.emn.optiplace.solver.choco.IReconfigurationProblem;
 import fr.emn.optiplace.view.EmptyView;
@@ -66,4 +67,9 @@ public class DistanceView extends EmptyView {
 		}, rp.getSourceConfiguration());
 	}
 
+	/** the distances depend on the position of each computer */
+	@Override
+	public boolean isInterchangeable(Computer first, Computer second) {
+		return false;
+	}
 }
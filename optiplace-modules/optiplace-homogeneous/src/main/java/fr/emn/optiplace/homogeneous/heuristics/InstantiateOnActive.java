@@ -3,9 +3,9 @@
  */
 package fr.emn.optiplace.homogeneous.heuristics;
 
-import java.util.Arrays;
 import java.util.stream.Collectors;
 
+import org.chocosolver.memory.IStateBitSet;
 import org.chocosolver.solver.search.strategy.assignments.DecisionOperatorFactory;
 import org.chocosolver.solver.search.strategy.decision.Decision;
 import org.chocosolver.solver.variables.BoolVar;
@@ -27,7 +27,8 @@ public class InstantiateOnActive extends ActivatedHeuristic<IntVar> {
 	@SuppressWarnings("unused")
 	private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(InstantiateOnActive.class);
 
-	boolean[] activateds;
+	/** the index of the nodes hosting VMs, restored on backtrack */
+	IStateBitSet activateds;
 	BoolVar[] isHosters;
 
 	/**
@@ -40,32 +41,32 @@ public class InstantiateOnActive extends ActivatedHeuristic<IntVar> {
 				.toArray(new IntVar[0]),
 				pb.isHosts());
 		isHosters = pb.isHosts();
-		activateds = new boolean[isHosters.length];
-		Arrays.fill(activateds, false);
+		activateds = pb.getModel().getEnvironment().makeBitSet(isHosters.length);
 	}
 
 	@Override
-	protected boolean checkActivated() {
-		boolean activated = false;
-		for (int i = 0; i < isHosters.length; i++) {
-			if (isHosters[i].isInstantiatedTo(1)) {
-				activateds[i] = true;
-				activated = true;
-			}
+	protected void onObservedChange(int idx, int mask) {
+		if (isHosters[idx].isInstantiatedTo(1)) {
+			activateds.set(idx);
+			dirty();
 		}
-		return activated;
+	}
+
+	@Override
+	protected boolean checkActivated() {
+		return !activateds.isEmpty();
 	}
 
 	@Override
 	public Decision<IntVar> getDecision() {
-		for (int i = 0; i < activateds.length; i++) {
-			if (activateds[i]) {
-				for (IntVar var : vars) {
-					if (var.contains(i) && !var.isInstantiated()) {
-						return decisions.makeIntDecision(var, DecisionOperatorFactory.makeIntEq(), i);
-					}
+		for (int i = activateds.nextSetBit(0); i >= 0; i = activateds.nextSetBit(i + 1)) {
+			for (IntVar var : vars) {
+				if (var.contains(i) && !var.isInstantiated()) {
+					return decisions.makeIntDecision(var, DecisionOperatorFactory.makeIntEq(), i);
 				}
 			}
+			// no more VM can go on this node in this branch
+			activateds.clear(i);
 		}
 		return null;
 	}
@@ -4,9 +4,9 @@
 
 package fr.emn.optiplace.homogeneous.heuristics;
 
-import java.util.Arrays;
 import java.util.stream.Collectors;
 
+import org.chocosolver.memory.IStateBitSet;
 import org.chocosolver.solver.search.strategy.assignments.DecisionOperatorFactory;
 import org.chocosolver.solver.search.strategy.decision.Decision;
 import org.chocosolver.solver.variables.IntVar;
@@ -17,6 +17,11 @@ import fr.emn.optiplace.solver.choco.IReconfigurationProblem;
 /**
  * When a Node is already hosting VMs, we make it host its VM in the source
  * configuration.
+ * <p>
+ * The nodes which must host VMs are added to the set of activated nodes when
+ * their number of VMs is modified, and removed when they have no more VM to
+ * host, so the nodes are not all checked at each decision.
+ * </p>
  *
  * @author Guillaume Le Louët [guillaume.lelouet@gmail.com]2014
  *
@@ -26,7 +31,8 @@ public class PackOnHoster extends ActivatedHeuristic<IntVar> {
 	@SuppressWarnings("unused")
 	private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(PackOnHoster.class);
 
-	boolean[] activateds;
+	/** the index of the nodes which must host VMs, restored on backtrack */
+	IStateBitSet activateds;
 	IntVar[] nbVMs;
 	IntVar[][] vmsToHost;
 
@@ -35,10 +41,9 @@ public class PackOnHoster extends ActivatedHeuristic<IntVar> {
 	 * @param observed
 	 */
 	public PackOnHoster(IReconfigurationProblem rp) {
-		super(rp.getVMLocations(), rp.isHosts());
+		super(rp.getVMLocations(), rp.nbVMsOn());
 		nbVMs = rp.nbVMsOn();
-		activateds = new boolean[nbVMs.length];
-		Arrays.fill(activateds, false);
+		activateds = rp.getModel().getEnvironment().makeBitSet(nbVMs.length);
 		vmsToHost = new IntVar[nbVMs.length][];
 		for (int i = 0; i < nbVMs.length; i++) {
 			vmsToHost[i] = rp.getSourceConfiguration().getHosted(rp.b().location(i)).map(rp::getVMLocation)
@@ -48,27 +53,30 @@ public class PackOnHoster extends ActivatedHeuristic<IntVar> {
 	}
 
 	@Override
-	protected boolean checkActivated() {
-		boolean activated = false;
-		for (int i = 0; i < nbVMs.length; i++) {
-			if (!nbVMs[i].isInstantiated() && !nbVMs[i].contains(0)) {
-				activateds[i] = true;
-				activated = true;
-			}
+	protected void onObservedChange(int idx, int mask) {
+		if (!nbVMs[idx].isInstantiated() && !nbVMs[idx].contains(0)) {
+			activateds.set(idx);
+			dirty();
 		}
-		return activated;
+	}
+
+	@Override
+	protected boolean checkActivated() {
+		return !activateds.isEmpty();
 	}
 
 	@Override
 	public Decision<IntVar> getDecision() {
-		for (int i = 0; i < activateds.length; i++) {
-			if (activateds[i]) {
+		for (int i = activateds.nextSetBit(0); i >= 0; i = activateds.nextSetBit(i + 1)) {
+			if (!nbVMs[i].isInstantiated()) {
 				for (IntVar v : vmsToHost[i]) {
 					if (v.contains(i) && !v.isInstantiated()) {
 						return decisions.makeIntDecision(v, DecisionOperatorFactory.makeIntEq(), i);
 					}
 				}
 			}
+			// the node has no more VM to host in this branch
+			activateds.clear(i);
 		}
 		return null;
 	}
@@ -170,6 +170,21 @@ public class CostData implements ProvidedDataReader {
 		bySiteName.clear();
 	}
 
+	@Override
+	public CostData sharedReader() {
+		return new CostData();
+	}
+
+	@Override
+	public void readFrom(ProvidedDataReader shared) {
+		onNewConfig();
+		CostData other = (CostData) shared;
+		byHosterName.putAll(other.byHosterName);
+		byHosterLike.putAll(other.byHosterLike);
+		bySiteName.putAll(other.bySiteName);
+		bySiteLike.putAll(other.bySiteLike);
+	}
+
 	static final Pattern HOSTNAMEPATTERN = Pattern.compile("host\\((.*)\\)=(.*)");
 	static final Pattern HOSTLIKEPATTERN = Pattern.compile("hostLike\\((.*)\\)=(.*)");
 	static final Pattern SITENAMEPATTERN = Pattern.compile("site\\((.*)\\)=(.*)");
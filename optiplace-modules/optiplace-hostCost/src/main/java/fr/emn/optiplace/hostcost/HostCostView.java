@@ -2,6 +2,8 @@ package fr.emn.optiplace.hostcost;
 
 import org.chocosolver.solver.variables.IntVar;
 
+import fr.emn.optiplace.configuration.Computer;
+import fr.emn.optiplace.configuration.ConfigurationDelta;
 import fr.emn.optiplace.configuration.VMLocation;
 import fr.emn.optiplace.hostcost.goals.TotalHostCostEvaluator;
 import fr.emn.optiplace.hostcost.heuristics.CloseWiderVMCostFirst;
@@ -133,4 +135,19 @@ public class HostCostView extends EmptyView {
 	 */
 	public boolean hostcostHeuristicPrevent = false;
 
+	/** the computers must have the same cost */
+	@Override
+	public boolean isInterchangeable(Computer first, Computer second) {
+		return data.getCost(first, c.getSite(first)) == data.getCost(second, c.getSite(second))
+				&& super.isInterchangeable(first, second);
+	}
+
+	/**
+	 * the costs only depend on the locations of the VMs, so they are not
+	 * modified by the uses and capacities patched.
+	 */
+	@Override
+	public boolean isPatchable(ConfigurationDelta delta) {
+		return !rulesStream().findAny().isPresent();
+	}
 }
@@ -11,10 +11,12 @@ import fr.emn.optiplace.DeducedTarget;
 import fr.emn.optiplace.Optiplace;
 import fr.emn.optiplace.configuration.Configuration;
 import fr.emn.optiplace.configuration.Extern;
+import fr.emn.optiplace.configuration.IConfiguration;
 import fr.emn.optiplace.configuration.VMLocation;
 import fr.emn.optiplace.core.ReconfigurationProblem;
 import fr.emn.optiplace.hostcost.HostCostView;
 import fr.emn.optiplace.hostcost.heuristics.PreventExpensiveHosts;
+import fr.emn.optiplace.solver.ObjectiveReducer;
 
 public class TotalHostCostEvaluatorTest {
 
@@ -50,6 +52,95 @@ public class TotalHostCostEvaluatorTest {
 		Assert.assertEquals(l, Arrays.asList(e3, e5, e4, e1, e2));
 	}
 
+	/**
+	 * make a new Optiplace reducing the host cost of 5 externs of capacity 3,
+	 * with a cost of 1 to 5, with 6 VMs on the two most expensive ones.
+	 */
+	protected static Optiplace makeCostOptiplace() {
+		Configuration cfg = new Configuration("CPU");
+		Extern[] externs = new Extern[5];
+		for (int e = 0; e < externs.length; e++) {
+			externs[e] = cfg.addExtern("e" + e, 3);
+		}
+		for (int v = 0; v < 6; v++) {
+			cfg.addVM("v" + v, externs[externs.length - 1 - v / 3], 1);
+		}
+		HostCostView hc = new HostCostView();
+		for (int e = 0; e < externs.length; e++) {
+			hc.getCostData().setHostCost(externs[e], e + 1);
+		}
+		Optiplace op = new Optiplace(cfg);
+		op.withGoal("hostcost");
+		op.with(hc);
+		return op;
+	}
+
+	/**
+	 * the portfolio and the LNS searches must find the same optimal cost as a
+	 * single search
+	 */
+	@Test
+	public void testPortfolioAndLNS() {
+		int[] objectives = new int[3];
+		for (int i = 0; i < 3; i++) {
+			Optiplace op = makeCostOptiplace();
+			if (i == 1) {
+				op.getStrat().setPortfolioSize(6);
+			} else if (i == 2) {
+				op.getStrat().setLNS(true);
+				op.getStrat().setMaxSearchTime(2000);
+			}
+			DeducedTarget dt = op.solve();
+			Assert.assertNotNull(dt.getDestination());
+			objectives[i] = dt.getObjective();
+			if (i == 1) {
+				Assert.assertEquals(dt.getWorkersStats().size(), 6);
+				Assert.assertTrue(dt.getWinner() >= 0);
+			}
+		}
+		Assert.assertEquals(objectives[1], objectives[0]);
+		Assert.assertEquals(objectives[2], objectives[0]);
+	}
+
+	/**
+	 * with a huge reducer, the first solution found is returned.
+	 */
+	@Test
+	public void testReducer() {
+		long[] nbSolutions = new long[2];
+		for (int i = 0; i < 2; i++) {
+			Optiplace op = makeCostOptiplace();
+			op.getStrat().setDisableCheckSource(true);
+			if (i == 1) {
+				op.getStrat().setReducer(ObjectiveReducer.absolute(1000));
+			}
+			DeducedTarget dt = op.solve();
+			Assert.assertNotNull(dt.getDestination());
+			nbSolutions[i] = dt.getSearchSolutions();
+		}
+		Assert.assertEquals(nbSolutions[1], 1);
+		Assert.assertTrue(nbSolutions[0] >= nbSolutions[1]);
+	}
+
+	/**
+	 * solving again the same configuration reuses the problem and finds the same
+	 * cost
+	 */
+	@Test
+	public void testResolve() {
+		Optiplace op = makeCostOptiplace();
+		IConfiguration cfg = op.source();
+		DeducedTarget first = op.resolve(cfg);
+		Object pb = op.getProblem();
+		int nbCstrs = op.getProblem().getModel().getNbCstrs();
+		DeducedTarget second = op.resolve(cfg.clone());
+		Assert.assertSame(op.getProblem(), pb);
+		// the objective and the heuristics are not posted again
+		Assert.assertEquals(op.getProblem().getModel().getNbCstrs(), nbCstrs);
+		Assert.assertEquals(second.getObjective(), first.getObjective());
+		Assert.assertEquals(first.getObjective(), makeCostOptiplace().solve().getObjective());
+	}
+
 	public static void main(String[] args) {
 		Configuration cfg = new Configuration();
 		Extern e0 = cfg.addExtern("e0");
@@ -150,4 +150,9 @@ public class HotSpotView extends EmptyView {
 		cachedRears = null;
 	}
 
+	/** the thermal impacts depend on the position of each computer */
+	@Override
+	public boolean isInterchangeable(Computer first, Computer second) {
+		return false;
+	}
 }
@@ -237,4 +237,9 @@ public class LinearPowerView extends EmptyView {
 		return new TotalPowerEvaluator(this);
 	}
 
+	/** the computers must share the same power model */
+	@Override
+	public boolean isInterchangeable(Computer first, Computer second) {
+		return data.getModel(first) == data.getModel(second) && super.isInterchangeable(first, second);
+	}
 }
@@ -19,6 +19,7 @@ import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
+import fr.emn.optiplace.configuration.ElementRegistry;
 import fr.emn.optiplace.configuration.IConfiguration;
 import fr.emn.optiplace.configuration.VM;
 import fr.emn.optiplace.configuration.VMLocation;
@@ -657,6 +658,9 @@ public class NetworkData implements ProvidedDataReader {
 
 	}
 
+	/** creates the VMs read, shared with the partial readers */
+	protected ElementRegistry registry = new ElementRegistry();
+
 	private static final Pattern GROUPSET_PAT = Pattern.compile("groups=\\{(.*)\\}");
 	private static final Pattern GROUP_PAT = Pattern.compile("(\\w+)\\((\\d+)\\)=\\[([ \\w,]*)\\]");
 
@@ -675,7 +679,7 @@ public class NetworkData implements ProvidedDataReader {
 			while (mg.find()) {
 				VMGroup created = addGroup(mg.group(1), Integer.parseInt(mg.group(2)));
 				for (String name : mg.group(3).split(", ")) {
-					addVM(created, new VM(name));
+					addVM(created, registry.vm(name));
 				}
 			}
 			return;
@@ -685,7 +689,7 @@ public class NetworkData implements ProvidedDataReader {
 		if (m.matches()) {
 			Matcher mg = COUPLE_PAT.matcher(m.group(1));
 			while (mg.find()) {
-				setUse(new VM(mg.group(1)), new VM(mg.group(2)), Integer.parseInt(mg.group(3)));
+				setUse(registry.vm(mg.group(1)), registry.vm(mg.group(2)), Integer.parseInt(mg.group(3)));
 			}
 			return;
 		}
@@ -700,6 +704,35 @@ public class NetworkData implements ProvidedDataReader {
 		}
 	}
 
+	@Override
+	public NetworkData partial() {
+		NetworkData ret = new NetworkData();
+		ret.registry = registry;
+		return ret;
+	}
+
+	@Override
+	public void merge(ProvidedDataReader partial) {
+		NetworkData other = (NetworkData) partial;
+		for (Map.Entry<VMGroup, Set<VM>> e : other.group2vms.entrySet()) {
+			VMGroup g = addGroup(e.getKey().name, e.getKey().use);
+			if (g != null) {
+				group2vms.get(g).addAll(e.getValue());
+			}
+		}
+		for (Map.Entry<VM, VMGroup> e : other.vm2group.entrySet()) {
+			VMGroup g = name2group.get(e.getValue().name);
+			if (g != null && g.use == e.getValue().use) {
+				vm2group.put(e.getKey(), g);
+			}
+		}
+		couple2use.putAll(other.couple2use);
+		other.link2capa.forEachEntry((l, capa) -> {
+			setLink(l.v0, l.v1, capa);
+			return true;
+		});
+	}
+
 	@Override
 	public String toString() {
 		StringBuilder sb = null;
@@ -1,17 +1,25 @@
 
 package fr.emn.optiplace.network;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 import org.chocosolver.solver.Cause;
 import org.chocosolver.solver.exception.ContradictionException;
+import org.chocosolver.solver.search.loop.lns.neighbors.INeighbor;
 import org.chocosolver.solver.variables.BoolVar;
 import org.chocosolver.solver.variables.IntVar;
 import org.chocosolver.solver.variables.SetVar;
 
+import fr.emn.optiplace.configuration.Computer;
+import fr.emn.optiplace.configuration.VM;
 import fr.emn.optiplace.configuration.VMLocation;
 import fr.emn.optiplace.network.NetworkData.NetworkDataBridge;
 import fr.emn.optiplace.network.NetworkData.VMCouple;
 import fr.emn.optiplace.network.data.Link;
 import fr.emn.optiplace.solver.choco.IReconfigurationProblem;
+import fr.emn.optiplace.solver.lns.GroupsNeighborhood;
 import fr.emn.optiplace.view.EmptyView;
 import fr.emn.optiplace.view.annotations.Parameter;
 import fr.emn.optiplace.view.annotations.ViewDesc;
@@ -161,9 +169,30 @@ public class NetworkView extends EmptyView {
 		}
 	}
 
+	/**
+	 * free the couples of communicating VMs together
+	 */
+	@Override
+	public List<INeighbor> getNeighborhoods(IReconfigurationProblem rp, long seed) {
+		if (bridge == null || bridge.nbCouples() == 0) {
+			return Collections.emptyList();
+		}
+		List<VM[]> couples = new ArrayList<>();
+		for (int i = 0; i < bridge.nbCouples(); i++) {
+			VMCouple c = bridge.vmCouple(i);
+			couples.add(new VM[] { c.v0, c.v1 });
+		}
+		return Collections.singletonList(GroupsNeighborhood.byVMs(rp, seed, couples));
+	}
+
 	@Override
 	public String toString() {
 		return data.toString();
 	}
 
+	/** the links used depend on the position of each computer */
+	@Override
+	public boolean isInterchangeable(Computer first, Computer second) {
+		return false;
+	}
 }
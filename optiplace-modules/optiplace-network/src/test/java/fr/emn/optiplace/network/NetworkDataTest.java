@@ -11,6 +11,7 @@ import fr.emn.optiplace.configuration.VM;
 import fr.emn.optiplace.network.data.Link;
 import fr.emn.optiplace.network.data.Router;
 import fr.emn.optiplace.network.data.VMGroup;
+import fr.emn.optiplace.view.BufferedData;
 
 /**
  * @author Guillaume Le Louët [guillaume.lelouet@gmail.com] 2015
@@ -97,4 +98,26 @@ public class NetworkDataTest {
 		Assert.assertEquals(newData.toString(), data);
 	}
 
+	@Test(dependsOnMethods = "testParsing")
+	public void testParallelParsing() {
+		NetworkData test = new NetworkData();
+		test.addLink("n0", "n1", 3);
+		test.addLink("n1", "e0", 4);
+		VMGroup g0 = test.addGroup("g0", 5);
+		test.addVM(g0, new VM("v0"), new VM("v1"));
+		test.setUse(new VM("v2"), new VM("v3"), 7);
+		BufferedData data = new BufferedData("network").withElem(test);
+		// later lines override the earlier ones
+		data.add("links={l[n1-n0]=6}");
+
+		NetworkData sequential = new NetworkData();
+		sequential.read(data);
+		NetworkData parallel = new NetworkData();
+		parallel.readParallel(data);
+		Assert.assertEquals(parallel.toString(), sequential.toString());
+		Assert.assertEquals(parallel.use(new VM("v1"), new VM("v0")), 5);
+		Assert.assertEquals(parallel.use(new VM("v3"), new VM("v2")), 7);
+		Assert.assertEquals(parallel.findPath("n0", "e0").stream().mapToInt(parallel::getCapacity).sum(), 10);
+	}
+
 }
@@ -151,6 +151,18 @@ public class PowerData extends HashMap<Computer, PowerModel> implements Provided
 
 	}
 
+	@Override
+	public PowerData sharedReader() {
+		return new PowerData();
+	}
+
+	/** the lines only set the models of the servers, the matchings are kept */
+	@Override
+	public void readFrom(ProvidedDataReader shared) {
+		onNewConfig();
+		putAll((PowerData) shared);
+	}
+
 	/**
 	 * gives the consumption of a node in a given {@link IConfiguration}, using
 	 * the linear interpolation.
@@ -311,4 +311,9 @@ public class PowerView extends EmptyView {
 		powerData.read(conf);
 	}
 
+	/** the computers must share the same power model */
+	@Override
+	public boolean isInterchangeable(Computer first, Computer second) {
+		return powerData.get(first) == powerData.get(second) && super.isInterchangeable(first, second);
+	}
 }
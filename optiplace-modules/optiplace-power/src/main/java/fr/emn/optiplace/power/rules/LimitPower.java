@@ -86,6 +86,12 @@ public class LimitPower implements Rule {
 		}
 	}
 
+	/** the computers must be both or none limited */
+	@Override
+	public boolean isInterchangeable(Computer first, Computer second) {
+		return nodes == null || nodes.isEmpty() || nodes.contains(first) == nodes.contains(second);
+	}
+
 	@Override
 	public void inject(IReconfigurationProblem core) {
 		getComputers(core.c()).forEach(n -> {
@@ -111,4 +111,9 @@ public class ThermalView extends EmptyView {
 		return rp -> getTotalImpactGoal();
 	}
 
+	/** the thermal impacts depend on the position of each computer */
+	@Override
+	public boolean isInterchangeable(Computer first, Computer second) {
+		return false;
+	}
 }
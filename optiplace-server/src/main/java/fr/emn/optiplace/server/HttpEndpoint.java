@@ -0,0 +1,347 @@
+package fr.emn.optiplace.server;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+import org.chocosolver.solver.variables.IntVar;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import fr.emn.optiplace.DeducedTarget;
+import fr.emn.optiplace.configuration.Configuration;
+import fr.emn.optiplace.configuration.ElementRegistry;
+import fr.emn.optiplace.configuration.IConfiguration;
+import fr.emn.optiplace.configuration.parser.ConfigurationFiler;
+import fr.emn.optiplace.core.ReconfigurationProblem;
+import fr.emn.optiplace.solver.ConfigStrat;
+import fr.emn.optiplace.view.BufferedData;
+import fr.emn.optiplace.view.ProvidedData;
+
+/**
+ * A local HTTP endpoint to solve problems with an {@link OptiplaceServer}.
+ * <p>
+ * A problem is solved by a POST on /solve. The body of the request is the
+ * source configuration, in the format of a {@link ConfigurationFiler}, followed
+ * by the data of the views. The data of a view start with a line
+ * "{@value #DATA_PREFIX}name" and end at the next data or at the end of the
+ * body. The query parameters can specify the goal, the timeout in ms, the
+ * portfolio size and the use of LNS, eg /solve?goal=hostcost&amp;timeout=1000
+ * </p>
+ * <p>
+ * The response is a stream of JSON objects, one per line. Each solution which
+ * improves the objective of the solutions already written is written as soon
+ * as found, with its objective value, the number of nodes and the time since
+ * the request. Then the result is written with the destination and the
+ * statistics of the search, including the time spent waiting for a worker.
+ * </p>
+ * <p>
+ * The requests are solved by the workers of a {@link SolveService}. When its
+ * workers are busy and its queue is full, the request is answered with a 503
+ * status.
+ * </p>
+ *
+ * @author Guillaume Le Louët [guillaume.lelouet@gmail.com] 2017
+ *
+ */
+public class HttpEndpoint implements AutoCloseable {
+
+	private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(HttpEndpoint.class);
+
+	public static final String DATA_PREFIX = "#data ";
+
+	protected final SolveService service;
+
+	protected final HttpServer http;
+
+	/**
+	 * create an endpoint on the loopback address. It must be
+	 * {@link #start() started} to accept requests.
+	 *
+	 * @param service
+	 *          the service to solve the problems with. It is not closed with
+	 *          this.
+	 * @param port
+	 *          the port to listen to, or 0 to use any free port
+	 * @throws IOException
+	 *           if the port can't be bound
+	 */
+	public HttpEndpoint(SolveService service, int port) throws IOException {
+		this.service = service;
+		http = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		http.createContext("/solve", this::handleSolve);
+	}
+
+	public void start() {
+		http.start();
+		logger.info("listening on " + http.getAddress());
+	}
+
+	/** @return the port this listens to */
+	public int getPort() {
+		return http.getAddress().getPort();
+	}
+
+	@Override
+	public void close() {
+		http.stop(0);
+	}
+
+	/**
+	 * read the request and submit its problem to the service, or answer it
+	 * directly if it is not a valid POST or the service rejects it. The
+	 * solutions and the result are written by the worker solving the problem.
+	 */
+	protected void handleSolve(HttpExchange ex) throws IOException {
+		long start = System.nanoTime();
+		if (!"POST".equals(ex.getRequestMethod())) {
+			ex.sendResponseHeaders(405, -1);
+			ex.close();
+			return;
+		}
+		// the resources of a configuration with a registry are read by id
+		IConfiguration source = new Configuration(new ElementRegistry());
+		List<ProvidedData> datas = new ArrayList<>();
+		ConfigStrat strat;
+		try {
+			readBody(ex, source, datas);
+			strat = makeStrat(parseQuery(ex.getRequestURI().getRawQuery()));
+		} catch (Exception e) {
+			logger.debug("bad request", e);
+			byte[] msg = ("" + e).getBytes(StandardCharsets.UTF_8);
+			ex.sendResponseHeaders(400, msg.length);
+			ex.getResponseBody().write(msg);
+			ex.close();
+			return;
+		}
+		SolutionStream stream = new SolutionStream(ex, start);
+		try {
+			service.submit(source, strat, stream, datas.toArray(new ProvidedData[0])).whenComplete(stream::writeResult);
+		} catch (RejectedExecutionException e) {
+			logger.debug("request rejected", e);
+			ex.sendResponseHeaders(503, -1);
+			ex.close();
+			return;
+		}
+		try {
+			stream.open();
+		} catch (IOException e) {
+			logger.debug("while answering a request", e);
+		}
+	}
+
+	/**
+	 * The response to a request, written by the worker solving its problem. The
+	 * solutions are only written when they improve the best objective written,
+	 * as the workers of a portfolio find their solutions concurrently.
+	 */
+	protected static class SolutionStream implements Consumer<ReconfigurationProblem> {
+
+		protected final HttpExchange ex;
+
+		protected final long start;
+
+		protected Writer w = null;
+
+		/** the objective of the last solution written, or null */
+		protected Integer best = null;
+
+		/** true once a solution is written */
+		protected boolean written = false;
+
+		public SolutionStream(HttpExchange ex, long start) {
+			this.ex = ex;
+			this.start = start;
+		}
+
+		/** send the headers of the response, if not sent yet */
+		protected synchronized void open() throws IOException {
+			if (w == null) {
+				ex.getResponseHeaders().set("Content-Type", "application/x-ndjson");
+				ex.sendResponseHeaders(200, 0);
+				w = new OutputStreamWriter(ex.getResponseBody(), StandardCharsets.UTF_8);
+			}
+		}
+
+		/** write a solution found if it is better than those written */
+		@Override
+		public synchronized void accept(ReconfigurationProblem pb) {
+			IntVar objective = pb.getObjective();
+			if (objective != null ? best != null && objective.getValue() >= best : written) {
+				return;
+			}
+			StringBuilder sb = new StringBuilder("{\"type\":\"solution\"");
+			if (objective != null) {
+				best = objective.getValue();
+				sb.append(",\"objective\":").append(best);
+			}
+			sb.append(",\"nodes\":").append(pb.getSolver().getMeasures().getNodeCount());
+			sb.append(",\"time\":").append(System.nanoTime() - start);
+			written = true;
+			try {
+				open();
+				writeLine(w, sb.append("}").toString());
+			} catch (IOException e) {
+				logger.debug("while writing a solution", e);
+			}
+		}
+
+		/** write the result of the problem and close the response */
+		protected synchronized void writeResult(DeducedTarget t, Throwable error) {
+			try {
+				open();
+				if (error != null) {
+					logger.warn("while solving", error);
+					writeLine(w, "{\"type\":\"error\",\"message\":" + quote("" + error) + "}");
+				} else {
+					writeLine(w, resultLine(t));
+				}
+			} catch (IOException e) {
+				logger.debug("while writing a result", e);
+			} finally {
+				ex.close();
+			}
+		}
+	}
+
+	/** @return the JSON line of the result of a problem */
+	protected static String resultLine(DeducedTarget t) {
+		StringBuilder sb = new StringBuilder("{\"type\":\"result\"");
+		sb.append(",\"solved\":").append(t.getDestination() != null);
+		if (t.getDestination() != null) {
+			sb.append(",\"objective\":").append(t.getObjective());
+		}
+		sb.append(",\"solutions\":").append(t.getSearchSolutions());
+		sb.append(",\"nodes\":").append(t.getSearchNodes());
+		sb.append(",\"backtracks\":").append(t.getSearchBacktracks());
+		sb.append(",\"queueTime\":").append(t.getQueueTime());
+		sb.append(",\"buildTime\":").append(t.getBuildTime());
+		sb.append(",\"configTime\":").append(t.getConfigTime());
+		sb.append(",\"searchTime\":").append(t.getSearchTime());
+		sb.append(",\"actions\":").append(t.getActions().nbActions());
+		if (t.getDestination() != null) {
+			sb.append(",\"destination\":").append(quote(t.getDestination().toString()));
+		}
+		return sb.append("}").toString();
+	}
+
+	/** write a line and flush it, so it is sent as a chunk */
+	protected static void writeLine(Writer w, String line) throws IOException {
+		synchronized (w) {
+			w.write(line);
+			w.write('\n');
+			w.flush();
+		}
+	}
+
+	/**
+	 * read the body of a request into the source configuration and the data of
+	 * the views
+	 */
+	protected static void readBody(HttpExchange ex, IConfiguration source, List<ProvidedData> datas)
+			throws IOException {
+		List<String> cfgLines = new ArrayList<>();
+		BufferedData data = null;
+		BufferedReader reader = new BufferedReader(new InputStreamReader(ex.getRequestBody(), StandardCharsets.UTF_8));
+		for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+			if (line.startsWith(DATA_PREFIX)) {
+				data = new BufferedData(line.substring(DATA_PREFIX.length()).trim());
+				datas.add(data);
+			} else if (data != null) {
+				data.add(line);
+			} else {
+				cfgLines.add(line);
+			}
+		}
+		new ConfigurationFiler(null).withConfiguration(source).read(cfgLines.stream());
+	}
+
+	/** @return the parameters of a raw query, decoded */
+	protected static Map<String, String> parseQuery(String query) throws UnsupportedEncodingException {
+		Map<String, String> ret = new HashMap<>();
+		if (query == null || query.isEmpty()) {
+			return ret;
+		}
+		for (String param : query.split("&")) {
+			int posEQUAL = param.indexOf('=');
+			if (posEQUAL == -1) {
+				ret.put(URLDecoder.decode(param, "UTF-8"), "true");
+			} else {
+				ret.put(URLDecoder.decode(param.substring(0, posEQUAL), "UTF-8"),
+						URLDecoder.decode(param.substring(posEQUAL + 1), "UTF-8"));
+			}
+		}
+		return ret;
+	}
+
+	/** @return a new strat from the parameters of a request */
+	protected static ConfigStrat makeStrat(Map<String, String> params) {
+		ConfigStrat ret = new ConfigStrat();
+		for (Map.Entry<String, String> e : params.entrySet()) {
+			switch (e.getKey()) {
+			case "goal":
+				ret.setGoalId(e.getValue());
+				break;
+			case "timeout":
+				ret.setMaxSearchTime(Long.parseLong(e.getValue()));
+				break;
+			case "portfolio":
+				ret.setPortfolioSize(Integer.parseInt(e.getValue()));
+				break;
+			case "lns":
+				ret.setLNS(Boolean.parseBoolean(e.getValue()));
+				break;
+			default:
+				throw new IllegalArgumentException("unknown parameter " + e.getKey() + ", accepted are "
+						+ Arrays.asList("goal", "timeout", "portfolio", "lns"));
+			}
+		}
+		return ret;
+	}
+
+	/** @return the JSON string of a String */
+	protected static String quote(String s) {
+		StringBuilder sb = new StringBuilder("\"");
+		for (char c : s.toCharArray()) {
+			switch (c) {
+			case '"':
+				sb.append("\\\"");
+				break;
+			case '\\':
+				sb.append("\\\\");
+				break;
+			case '\n':
+				sb.append("\\n");
+				break;
+			case '\r':
+				sb.append("\\r");
+				break;
+			case '\t':
+				sb.append("\\t");
+				break;
+			default:
+				if (c < 0x20) {
+					sb.append(String.format("\\u%04x", (int) c));
+				} else {
+					sb.append(c);
+				}
+			}
+		}
+		return sb.append('"').toString();
+	}
+}
@@ -5,6 +5,7 @@
 package fr.emn.optiplace.server;
 
 import java.io.File;
+import java.io.IOException;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.HelpFormatter;
@@ -28,7 +29,7 @@ public class Main {
 	 * @param args
 	 * @throws ParseException
 	 */
-	public static void main(String[] args) throws ParseException {
+	public static void main(String[] args) throws ParseException, IOException {
 		Options options = new Options();
 		options.addOption("b", "banviews", true, "the list of views names to disable");
 		options.addOption("c", "confpath", true, "the path to look after conf.conf file. Default is '.'.");
@@ -36,10 +37,15 @@ public class Main {
 				"the paths to look after for views data. Paths are separated by ':'. Default path is '.'.");
 		options.addOption("h", "help", false, "print this message and exit");
 		options.addOption("n", "nodyn", false, "disable the loading of views from jar(only static views can be used)");
+		options.addOption("p", "port", true,
+				"start a local HTTP server on this port to solve the configurations posted on /solve, instead of solving the conf.conf file.");
+		options.addOption("q", "queue", true,
+				"the number of requests waiting for a worker of the HTTP server, over which the requests are rejected. Default is 10.");
 		options.addOption("r", "required", true, "list of the views required to solve a problem.");
 		options.addOption("s", "separator", true, "the separator of the options in the args ; default is ':'");
 		options.addOption("v", "viewspath", true,
 				"the paths in which to look after views. In case of several paths, they must be separated by ':'. default is 'views'.");
+		options.addOption("w", "workers", true, "the number of requests solved at the same time by the HTTP server. Default is 1.");
 
 		CommandLine line = new org.apache.commons.cli.DefaultParser().parse(options, args);
 
@@ -50,15 +56,6 @@ public class Main {
 			return;
 		}
 
-		String confPath = line.hasOption('c') ? line.getOptionValue('c') : null;
-		File f = new File(confPath, "conf.conf");
-		if (!f.exists()) {
-			logger.error("error : no configuration found : " + f.getAbsolutePath());
-			return;
-		}
-		ConfigurationFiler cf = new ConfigurationFiler(f);
-		cf.read();
-		IConfiguration cfg = cf.getCfg();
 		OptiplaceServer server = new OptiplaceServer();
 		if (line.hasOption('s')) {
 			server.parse_FS(line.getOptionValue('s'));
@@ -76,6 +73,26 @@ public class Main {
 			server.parse_banViews(line.getOptionValue('b'));
 		}
 
+		if (line.hasOption('p')) {
+			int workers = Integer.parseInt(line.getOptionValue('w', "1"));
+			int queueSize = Integer.parseInt(line.getOptionValue('q', "10"));
+			SolveService service = new SolveService(server, workers, queueSize);
+			HttpEndpoint endpoint = new HttpEndpoint(service, Integer.parseInt(line.getOptionValue('p')));
+			endpoint.start();
+			System.out.println("listening on port " + endpoint.getPort());
+			return;
+		}
+
+		String confPath = line.hasOption('c') ? line.getOptionValue('c') : null;
+		File f = new File(confPath, "conf.conf");
+		if (!f.exists()) {
+			logger.error("error : no configuration found : " + f.getAbsolutePath());
+			return;
+		}
+		ConfigurationFiler cf = new ConfigurationFiler(f);
+		cf.read();
+		IConfiguration cfg = cf.getCfg();
+
 		System.out.println("solving");
 		DeducedTarget t = server.solve(cfg);
 		System.out.println(t.getDestination());
@@ -6,11 +6,13 @@ package fr.emn.optiplace.server;
 import java.io.File;
 import java.util.List;
 import java.util.Properties;
+import java.util.function.Consumer;
 
 import fr.emn.optiplace.DeducedTarget;
 import fr.emn.optiplace.IOptiplaceServer;
 import fr.emn.optiplace.Optiplace;
 import fr.emn.optiplace.configuration.IConfiguration;
+import fr.emn.optiplace.core.ReconfigurationProblem;
 import fr.emn.optiplace.server.viewDataProviders.FileDataProvider;
 import fr.emn.optiplace.server.viewDataProviders.MapConfigurationProvider;
 import fr.emn.optiplace.server.viewDataProviders.PlexerProvider;
@@ -56,6 +58,10 @@ public class OptiplaceServer implements IOptiplaceServer {
 		this.strat = strat;
 	}
 
+	/**
+	 * the data common to all the requests. The data of a request replace those,
+	 * which replace the data from the files.
+	 */
 	protected MapConfigurationProvider mapConfs = new MapConfigurationProvider();
 
 	protected FileDataProvider filesConfs = new FileDataProvider();
@@ -79,22 +85,68 @@ public class OptiplaceServer implements IOptiplaceServer {
 
 	@Override
 	public DeducedTarget solve(IConfiguration source, ProvidedData... configurations) {
+		return solve(source, strat, configurations);
+	}
+
+	/**
+	 * solve a problem with a specific strat. The state of this server is not
+	 * modified, so several problems can be solved concurrently as long as the
+	 * server is not configured at the same time.
+	 *
+	 * @param source
+	 *          the present state of the center
+	 * @param strat
+	 *          the strat of the solver, or null to use the default one
+	 * @param configurations
+	 *          information to provide to the views for this problem only.
+	 * @return a resolution of the reconfiguration problem.
+	 */
+	public DeducedTarget solve(IConfiguration source, ConfigStrat strat, ProvidedData... configurations) {
+		return solve(source, strat, null, configurations);
+	}
+
+	/**
+	 * solve a problem with a specific strat, following its solutions.
+	 *
+	 * @param source
+	 *          the present state of the center
+	 * @param strat
+	 *          the strat of the solver, or null to use the default one
+	 * @param onSolution
+	 *          called on each solution found, see
+	 *          {@link Optiplace#onSolution(Consumer)}. can be null.
+	 * @param configurations
+	 *          information to provide to the views for this problem only.
+	 * @return a resolution of the reconfiguration problem.
+	 */
+	public DeducedTarget solve(IConfiguration source, ConfigStrat strat, Consumer<ReconfigurationProblem> onSolution,
+			ProvidedData... configurations) {
+		Optiplace sp = makeOptiplace(source, strat, configurations);
+		sp.onSolution(onSolution);
+		sp.solve();
+		return sp.getTarget();
+	}
+
+	/**
+	 * create a new solver with fresh instances of the views, configured with the
+	 * data of this server and the data specific to this problem.
+	 */
+	protected Optiplace makeOptiplace(IConfiguration source, ConfigStrat strat, ProvidedData... configurations) {
 		filesConfs.load();
-		mapConfs.clear();
+		MapConfigurationProvider requestConfs = new MapConfigurationProvider();
 		if (configurations != null) {
 			for (ProvidedData vc : configurations) {
-				mapConfs.add(vc);
+				requestConfs.add(vc);
 			}
 		}
-		List<View> views = vm.getViews(getViewDataProvider());
+		List<View> views = vm.getViews(new PlexerProvider(requestConfs, confProvider));
 		Optiplace sp = new Optiplace();
 		sp.source(source);
 		sp.views(views);
 		if (strat != null) {
 			sp.strat(strat);
 		}
-		sp.solve();
-		return sp.getTarget();
+		return sp;
 	}
 
 	protected String field_sep = ":";
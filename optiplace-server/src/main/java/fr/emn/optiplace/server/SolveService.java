@@ -0,0 +1,153 @@
+package fr.emn.optiplace.server;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import fr.emn.optiplace.DeducedTarget;
+import fr.emn.optiplace.configuration.IConfiguration;
+import fr.emn.optiplace.core.ReconfigurationProblem;
+import fr.emn.optiplace.solver.ConfigStrat;
+import fr.emn.optiplace.view.ProvidedData;
+
+/**
+ * Solves the problems submitted concurrently, using an {@link OptiplaceServer}
+ * to load and configure the views.
+ * <p>
+ * The problems are solved by a fixed number of workers. When all the workers
+ * are busy, the problems are queued, up to a maximum number of queued problems
+ * over which the new problems are rejected.
+ * </p>
+ * <p>
+ * Each problem is solved with a copy of its source, its own data and strat,
+ * and new instances of the views. The time spent in the queue is set in the
+ * target of the problem, along with the build, config and search times.
+ * </p>
+ *
+ * @author Guillaume Le Louët [guillaume.lelouet@gmail.com] 2017
+ *
+ */
+public class SolveService implements AutoCloseable {
+
+	@SuppressWarnings("unused")
+	private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(SolveService.class);
+
+	protected final OptiplaceServer server;
+
+	protected final ThreadPoolExecutor executor;
+
+	/**
+	 * @param server
+	 *          the server to load the views and data from. It must not be
+	 *          configured while this is used.
+	 * @param nbWorkers
+	 *          the number of problems solved at the same time
+	 * @param queueSize
+	 *          the maximum number of problems waiting for a worker. 0 to reject
+	 *          the problems when all the workers are busy.
+	 */
+	public SolveService(OptiplaceServer server, int nbWorkers, int queueSize) {
+		if (nbWorkers < 1) {
+			throw new IllegalArgumentException("requires at least one worker, got " + nbWorkers);
+		}
+		this.server = server;
+		BlockingQueue<Runnable> queue = queueSize > 0 ? new ArrayBlockingQueue<>(queueSize) : new SynchronousQueue<>();
+		AtomicInteger nbThreads = new AtomicInteger();
+		ThreadFactory factory = r -> {
+			Thread t = new Thread(r, "optiplace-solver-" + nbThreads.getAndIncrement());
+			t.setDaemon(true);
+			return t;
+		};
+		executor = new ThreadPoolExecutor(nbWorkers, nbWorkers, 0, TimeUnit.MILLISECONDS, queue, factory,
+				new ThreadPoolExecutor.AbortPolicy());
+	}
+
+	/**
+	 * submit a problem to solve.
+	 *
+	 * @param source
+	 *          the present state of the center. It is copied before returning.
+	 * @param strat
+	 *          the strat to solve this problem with, or null to use the strat of
+	 *          the server. It is copied before returning.
+	 * @param datas
+	 *          information to provide to the views of this problem.
+	 * @return the future result of the problem.
+	 * @throws RejectedExecutionException
+	 *           if the workers are all busy and the queue is full, or this is
+	 *           closed.
+	 */
+	public Future<DeducedTarget> submit(IConfiguration source, ConfigStrat strat, ProvidedData... datas)
+			throws RejectedExecutionException {
+		return submit(source, strat, null, datas);
+	}
+
+	/**
+	 * submit a problem to solve, following its solutions.
+	 *
+	 * @param source
+	 *          the present state of the center. It is copied before returning.
+	 * @param strat
+	 *          the strat to solve this problem with, or null to use the strat of
+	 *          the server. It is copied before returning.
+	 * @param onSolution
+	 *          called by the worker on each solution found, see
+	 *          {@link fr.emn.optiplace.Optiplace#onSolution(Consumer)}. can be
+	 *          null.
+	 * @param datas
+	 *          information to provide to the views of this problem.
+	 * @return the future result of the problem, completed by the worker.
+	 * @throws RejectedExecutionException
+	 *           if the workers are all busy and the queue is full, or this is
+	 *           closed.
+	 */
+	public CompletableFuture<DeducedTarget> submit(IConfiguration source, ConfigStrat strat,
+			Consumer<ReconfigurationProblem> onSolution, ProvidedData... datas) throws RejectedExecutionException {
+		IConfiguration copy = source.clone();
+		ProvidedData[] dataCopy = datas == null ? new ProvidedData[0] : datas.clone();
+		ConfigStrat usedStrat = (strat != null ? strat : server.getStrat()).clone();
+		long submitted = System.nanoTime();
+		return CompletableFuture.supplyAsync(() -> {
+			long queueTime = System.nanoTime() - submitted;
+			DeducedTarget ret = server.solve(copy, usedStrat, onSolution, dataCopy);
+			ret.setQueueTime(queueTime);
+			return ret;
+		}, executor);
+	}
+
+	/** @return the number of problems waiting for a worker */
+	public int getQueueSize() {
+		return executor.getQueue().size();
+	}
+
+	/** @return the number of problems being solved */
+	public int getActiveCount() {
+		return executor.getActiveCount();
+	}
+
+	/**
+	 * stop accepting new problems. The problems already submitted are still
+	 * solved.
+	 */
+	@Override
+	public void close() {
+		executor.shutdown();
+	}
+
+	/**
+	 * wait for the problems submitted to be solved, after {@link #close()}
+	 *
+	 * @return true if all the problems were solved before the timeout
+	 */
+	public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+		return executor.awaitTermination(timeout, unit);
+	}
+}
@@ -4,7 +4,9 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileFilter;
 import java.io.InputStream;
+import java.io.IOException;
 import java.io.InputStreamReader;
+import java.lang.reflect.Constructor;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.util.ArrayList;
@@ -13,6 +15,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -56,14 +59,57 @@ public class ViewManager {
 		}
 	};
 
+	/**
+	 * a jar loaded, with its class loader and the constructor of its view. The
+	 * constructor is null if the jar contains no view.
+	 */
+	protected static class LoadedJar {
+
+		public final long lastModified;
+
+		public final URLClassLoader loader;
+
+		public final ViewDescription description;
+
+		public final Constructor<? extends View> constructor;
+
+		public LoadedJar(long lastModified, URLClassLoader loader, ViewDescription description,
+				Constructor<? extends View> constructor) {
+			this.lastModified = lastModified;
+			this.loader = loader;
+			this.description = description;
+			this.constructor = constructor;
+		}
+
+		public void close() {
+			if (loader != null) {
+				try {
+					loader.close();
+				} catch (IOException e) {
+					logger.warn("while closing the class loader of " + description, e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * the jars already loaded, by their path. A jar is loaded again only if it
+	 * was modified.
+	 */
+	protected final HashMap<File, LoadedJar> loadedJars = new HashMap<>();
+
 	/**
 	 * loads all the views possible from the jars in its dirs and the preloaded
 	 * views. The views are NOT configured, use
 	 * {@link #getViews(ViewDataProvider)} to make them configured
+	 * <p>
+	 * The jars are only opened when they are new or modified since the last
+	 * call, the class loaders of the jars removed or modified are closed.
+	 * </p>
 	 *
 	 * @return a sorted list of the views.
 	 */
-	public List<View> loadViews() {
+	public synchronized List<View> loadViews() {
 		ArrayList<View> ret = new ArrayList<>();
 		for (Class<? extends View> c : internalViews) {
 			try {
@@ -75,50 +121,115 @@ public class ViewManager {
 			}
 		}
 		if (!disableLoading) {
+			Set<File> present = new HashSet<>();
 			for (File f : jarDirs) {
 				if (!f.exists() || !f.isDirectory()) {
 					logger.debug("no jar directory " + f.getAbsolutePath() + " exists");
 				} else {
 					for (File c : f.listFiles(JARFILTER)) {
-						View v = extractViewFromJar(c);
+						present.add(c);
+						View v = makeView(loadJar(c));
 						if (v != null && !bannedViews.contains(v.getName())) {
 							ret.add(v);
 						}
 					}
 				}
 			}
+			for (Iterator<Entry<File, LoadedJar>> it = loadedJars.entrySet().iterator(); it.hasNext();) {
+				Entry<File, LoadedJar> e = it.next();
+				if (!present.contains(e.getKey())) {
+					logger.debug("jar " + e.getKey() + " removed");
+					e.getValue().close();
+					it.remove();
+				}
+			}
+		} else {
+			clearJars();
 		}
 		return ret;
 	}
 
 	/**
-	 * extract a view stored in a jar, built as a module for optiplace.
-	 *
-	 * @param jarF
-	 *          the file representing a jar.
+	 * get the loaded jar for a file, loading it if it was not loaded yet or was
+	 * modified since.
+	 */
+	protected LoadedJar loadJar(File jarF) {
+		long lastModified = jarF.lastModified();
+		LoadedJar ret = loadedJars.get(jarF);
+		if (ret != null && ret.lastModified == lastModified) {
+			return ret;
+		}
+		if (ret != null) {
+			logger.debug("jar " + jarF + " modified, reloading it");
+			ret.close();
+		}
+		ret = readJar(jarF, lastModified);
+		loadedJars.put(jarF, ret);
+		return ret;
+	}
+
+	/**
+	 * open a jar and find its view class. On error the returned jar has no
+	 * constructor, so the jar is not opened again until modified.
 	 */
-	@SuppressWarnings("resource")
-	protected View extractViewFromJar(File jarF) {
+	@SuppressWarnings("unchecked")
+	protected LoadedJar readJar(File jarF, long lastModified) {
+		URLClassLoader cl = null;
 		try {
-			URLClassLoader cl = new URLClassLoader(new URL[] { jarF.toURI().toURL() });
+			cl = new URLClassLoader(new URL[] { jarF.toURI().toURL() });
 			ViewDescription desc = new ViewDescription();
-			InputStream is = cl.getResourceAsStream(fr.emn.optiplace.view.PluginParser.DESCRIPTORFILENAME);
-			if (is == null) {
-				cl.close();
-				return null;
+			try (InputStream is = cl.getResourceAsStream(fr.emn.optiplace.view.PluginParser.DESCRIPTORFILENAME)) {
+				if (is == null) {
+					cl.close();
+					return new LoadedJar(lastModified, null, null, null);
+				}
+				desc.read(new BufferedReader(new InputStreamReader(is)));
 			}
-			BufferedReader reader = new BufferedReader(new InputStreamReader(is));
-			desc.read(reader);
-			@SuppressWarnings("unchecked")
 			Class<? extends View> c = (Class<? extends View>) cl.loadClass(desc.clazz);
-			is.close();
-			return c.newInstance();
+			return new LoadedJar(lastModified, cl, desc, c.getConstructor());
 		} catch (Exception e) {
 			logger.warn("", e);
+			if (cl != null) {
+				try {
+					cl.close();
+				} catch (IOException e1) {
+					logger.warn("", e1);
+				}
+			}
+			return new LoadedJar(lastModified, null, null, null);
+		}
+	}
+
+	/** @return a new instance of the view of a jar, or null */
+	protected View makeView(LoadedJar jar) {
+		if (jar.constructor == null) {
+			return null;
+		}
+		try {
+			return jar.constructor.newInstance();
+		} catch (Exception e) {
+			logger.warn("error when creating an instance of " + jar.description.clazz, e);
 			return null;
 		}
 	}
 
+	/** close the class loaders of the jars loaded */
+	public synchronized void clearJars() {
+		loadedJars.values().forEach(LoadedJar::close);
+		loadedJars.clear();
+	}
+
+	/**
+	 * extract a view stored in a jar, built as a module for optiplace.
+	 *
+	 * @param jarF
+	 *          the file representing a jar.
+	 * @return a new instance of the view of the jar, or null
+	 */
+	protected synchronized View extractViewFromJar(File jarF) {
+		return makeView(loadJar(jarF));
+	}
+
 	/**
 	 * Try to configure the resources of the views and inject their dependencies.
 	 *
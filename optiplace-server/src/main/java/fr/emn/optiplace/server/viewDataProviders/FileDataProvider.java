@@ -7,14 +7,26 @@ import java.io.File;
 import java.util.HashMap;
 
 import fr.emn.optiplace.view.FileViewData;
+import fr.emn.optiplace.view.MappedViewData;
 import fr.emn.optiplace.view.ProvidedData;
 import fr.emn.optiplace.view.ViewDataProvider;
 
-/** Load ViewData from specified directories
+/** Load ViewData from specified directories.
+ * <p>
+ * The data of the files not modified since the last load are kept, with the
+ * readers which parsed them, so unchanged files are not read again.
+ * </p>
+ * <p>
+ * The files bigger than {@link #setMapThreshold(long)} are mapped in memory
+ * with {@link MappedViewData}, the others are read on each access. Mapping is
+ * disabled by default. Mapped files must be replaced atomically (write then
+ * rename), not modified in place. The mappings of the files modified or
+ * removed are released on the next {@link #load()}.
+ * </p>
  * @author Guillaume Le Louët [guillaume.lelouet@gmail.com]2014 */
 public class FileDataProvider implements ViewDataProvider {
 
-  HashMap<String, FileViewData> loaded = new HashMap<String, FileViewData>();
+  protected volatile HashMap<String, FileViewData> loaded = new HashMap<String, FileViewData>();
 
   @SuppressWarnings("unused")
   private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory
@@ -26,9 +38,26 @@ public class FileDataProvider implements ViewDataProvider {
     this.directories = directories;
   }
 
-  /** clear any loaded config and re-load the specified directories */
-  public void load() {
-    loaded.clear();
+  /** minimum size of a file to map it in memory, negative to never map */
+  protected long mapThreshold = -1;
+
+  /** @param mapThreshold
+   *          the minimum size, in bytes, of the files to map in memory. A
+   *          negative value disables the mapping. Applies on the next
+   *          {@link #load()} */
+  public void setMapThreshold(long mapThreshold) {
+    this.mapThreshold = mapThreshold;
+  }
+
+  protected boolean shouldMap(File f) {
+    return mapThreshold >= 0 && f.length() >= mapThreshold;
+  }
+
+  /** re-load the specified directories. The data of the files which were not
+   * modified are kept */
+  public synchronized void load() {
+    HashMap<String, FileViewData> previous = loaded;
+    HashMap<String, FileViewData> next = new HashMap<String, FileViewData>();
     if (directories != null) {
       for (File d : directories) {
         if (d.exists() && d.isDirectory()) {
@@ -39,12 +68,24 @@ public class FileDataProvider implements ViewDataProvider {
               if (posDOT != -1) {
                 name = name.substring(0, posDOT);
               }
-              loaded.put(name, new FileViewData(name, f));
+              FileViewData old = previous.get(name);
+              boolean map = shouldMap(f);
+              if (old == null || !old.getFile().equals(f) || old.isModified()
+                  || old instanceof MappedViewData != map) {
+                old = map ? new MappedViewData(name, f) : new FileViewData(name, f);
+              }
+              next.put(name, old);
             }
           }
         }
       }
     }
+    loaded = next;
+    for (FileViewData data : previous.values()) {
+      if (data instanceof MappedViewData && next.get(data.name()) != data) {
+        ((MappedViewData) data).release();
+      }
+    }
   }
 
   @Override
@@ -0,0 +1,107 @@
+package fr.emn.optiplace.server;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Collectors;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import fr.emn.optiplace.configuration.Computer;
+import fr.emn.optiplace.configuration.Configuration;
+
+/**
+ * @author Guillaume Le Louët [guillaume.lelouet@gmail.com] 2017
+ *
+ */
+public class HttpEndpointTest {
+
+	@SuppressWarnings("unused")
+	private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(HttpEndpointTest.class);
+
+	/** post a body and return the lines of the response */
+	protected List<String> post(int port, String query, String body) throws Exception {
+		HttpURLConnection con = (HttpURLConnection) new URL("http://localhost:" + port + "/solve" + query)
+				.openConnection();
+		con.setRequestMethod("POST");
+		con.setDoOutput(true);
+		try (OutputStream os = con.getOutputStream()) {
+			os.write(body.getBytes(StandardCharsets.UTF_8));
+		}
+		Assert.assertEquals(con.getResponseCode(), 200);
+		try (BufferedReader br = new BufferedReader(new InputStreamReader(con.getInputStream(), StandardCharsets.UTF_8))) {
+			return br.lines().collect(Collectors.toList());
+		}
+	}
+
+	@Test
+	public void testSolve() throws Exception {
+		Configuration cfg = new Configuration("CPU", "MEM");
+		Computer n1 = cfg.addComputer("n1", 1, 20);
+		cfg.addComputer("n2", 20, 1);
+		cfg.addVM("vm1", n1, 1, 10);
+		cfg.addVM("vm2", n1, 10, 1);
+		OptiplaceServer server = new OptiplaceServer();
+		server.getViewManager().setDisableLoading(true);
+		try (SolveService service = new SolveService(server, 1, 1); HttpEndpoint endpoint = new HttpEndpoint(service, 0)) {
+			endpoint.start();
+			List<String> lines = post(endpoint.getPort(), "?timeout=5000", cfg.toString() + "\n"
+					+ HttpEndpoint.DATA_PREFIX + "unused\nsome data\n");
+			Assert.assertTrue(lines.size() >= 2, "" + lines);
+			Assert.assertTrue(lines.get(0).startsWith("{\"type\":\"solution\""), lines.get(0));
+			String result = lines.get(lines.size() - 1);
+			Assert.assertTrue(result.startsWith("{\"type\":\"result\",\"solved\":true"), result);
+			Assert.assertTrue(result.contains("\"destination\":\""), result);
+			Assert.assertTrue(result.contains("\"queueTime\":"), result);
+
+			// without objective, only the first solution of the workers is written
+			lines = post(endpoint.getPort(), "?timeout=5000&portfolio=3", cfg.toString());
+			Assert.assertEquals(lines.stream().filter(l -> l.startsWith("{\"type\":\"solution\"")).count(), 1, "" + lines);
+			Assert.assertTrue(lines.get(lines.size() - 1).startsWith("{\"type\":\"result\",\"solved\":true"), "" + lines);
+
+			HttpURLConnection con = (HttpURLConnection) new URL(
+					"http://localhost:" + endpoint.getPort() + "/solve?unknown=1").openConnection();
+			con.setRequestMethod("POST");
+			con.setDoOutput(true);
+			con.getOutputStream().close();
+			Assert.assertEquals(con.getResponseCode(), 400);
+		}
+	}
+
+	@Test
+	public void testRejectWhenSaturated() throws Exception {
+		OptiplaceServer server = new OptiplaceServer();
+		server.getViewManager().setDisableLoading(true);
+		CountDownLatch release = new CountDownLatch(1);
+		try (SolveService service = new SolveService(server, 1, 0); HttpEndpoint endpoint = new HttpEndpoint(service, 0)) {
+			endpoint.start();
+			// block the only worker
+			service.executor.execute(() -> {
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			});
+			HttpURLConnection con = (HttpURLConnection) new URL("http://localhost:" + endpoint.getPort() + "/solve")
+					.openConnection();
+			con.setRequestMethod("POST");
+			con.setDoOutput(true);
+			con.getOutputStream().close();
+			Assert.assertEquals(con.getResponseCode(), 503);
+		} finally {
+			release.countDown();
+		}
+	}
+
+	@Test
+	public void testQuote() {
+		Assert.assertEquals(HttpEndpoint.quote("a\"b\\c\nd"), "\"a\\\"b\\\\c\\nd\"");
+	}
+}
@@ -0,0 +1,91 @@
+package fr.emn.optiplace.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import fr.emn.optiplace.DeducedTarget;
+import fr.emn.optiplace.configuration.Computer;
+import fr.emn.optiplace.configuration.Configuration;
+import fr.emn.optiplace.configuration.IConfiguration.VMSTATES;
+import fr.emn.optiplace.solver.ConfigStrat;
+import fr.emn.optiplace.solver.SearchPolicy.Restarts;
+
+/**
+ * @author Guillaume Le Louët [guillaume.lelouet@gmail.com] 2017
+ *
+ */
+public class SolveServiceTest {
+
+	@SuppressWarnings("unused")
+	private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(SolveServiceTest.class);
+
+	protected Configuration makeConfig(int nbWaitings) {
+		Configuration cfg = new Configuration("CPU", "MEM");
+		Computer n1 = cfg.addComputer("n1", 20, 20);
+		cfg.addComputer("n2", 20, 20);
+		cfg.addVM("vm1", n1, 1, 10);
+		for (int i = 0; i < nbWaitings; i++) {
+			cfg.addVM("w" + i, null, 1, 1);
+		}
+		return cfg;
+	}
+
+	@Test
+	public void testConcurrentSolves() throws Exception {
+		OptiplaceServer server = new OptiplaceServer();
+		server.getViewManager().setDisableLoading(true);
+		try (SolveService service = new SolveService(server, 2, 10)) {
+			List<Future<DeducedTarget>> results = new ArrayList<>();
+			for (int i = 0; i < 6; i++) {
+				ConfigStrat strat = new ConfigStrat();
+				strat.setDisableCheckSource(i % 2 == 0);
+				results.add(service.submit(makeConfig(i), strat));
+			}
+			for (int i = 0; i < results.size(); i++) {
+				DeducedTarget t = results.get(i).get(10, TimeUnit.SECONDS);
+				Assert.assertNotNull(t.getDestination());
+				Assert.assertEquals(t.getDestination().nbVMs(VMSTATES.RUNNING), i + 1);
+				Assert.assertTrue(t.getQueueTime() >= 0);
+			}
+		}
+	}
+
+	@Test
+	public void testRejectWhenSaturated() throws Exception {
+		OptiplaceServer server = new OptiplaceServer();
+		server.getViewManager().setDisableLoading(true);
+		CountDownLatch release = new CountDownLatch(1);
+		try (SolveService service = new SolveService(server, 1, 1)) {
+			// block the only worker
+			service.executor.execute(() -> {
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			});
+			Future<DeducedTarget> queued = service.submit(makeConfig(1), null);
+			Assert.assertEquals(service.getQueueSize(), 1);
+			// the queued problem has its own copy of the strat of the server
+			server.getStrat().getSearchPolicy().setRestarts(Restarts.LUBY);
+			try {
+				service.submit(makeConfig(2), null);
+				Assert.fail("the request should be rejected");
+			} catch (RejectedExecutionException e) {
+				// expected
+			}
+			release.countDown();
+			DeducedTarget t = queued.get(10, TimeUnit.SECONDS);
+			Assert.assertNotNull(t.getDestination());
+			Assert.assertTrue(t.getQueueTime() > 0);
+			Assert.assertEquals(t.getSearchPolicy(), "default");
+		}
+	}
+}
@@ -3,15 +3,25 @@
  */
 package fr.emn.optiplace.server;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
 
 import org.mockito.Mockito;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import fr.emn.optiplace.view.EmptyView;
+import fr.emn.optiplace.view.PluginParser;
 import fr.emn.optiplace.view.View;
+import fr.emn.optiplace.view.ViewDescription;
 
 /**
  * @author Guillaume Le Louët [guillaume.lelouet@gmail.com]2015
@@ -63,4 +73,44 @@ public class ViewManagerTest {
 	Assert.assertEquals(l, target, "res = " + l + " expected " + target);
 
     }
+
+    /** write a jar containing only a view descriptor of given class */
+    protected void writeJar(File f, String clazz) throws IOException {
+	try (JarOutputStream jos = new JarOutputStream(new FileOutputStream(f))) {
+	    jos.putNextEntry(new JarEntry(PluginParser.DESCRIPTORFILENAME));
+	    jos.write((ViewDescription.CLASSPARAM + clazz + "\n").getBytes(StandardCharsets.UTF_8));
+	    jos.closeEntry();
+	}
+    }
+
+    @Test
+    public void testJarCache() throws IOException {
+	File dir = Files.createTempDirectory("views").toFile();
+	File jar = new File(dir, "empty.jar");
+	writeJar(jar, EmptyView.class.getName());
+	ViewManager vm = new ViewManager();
+	vm.setJarDir(dir);
+	List<View> first = vm.loadViews();
+	Assert.assertEquals(first.size(), 1);
+	ViewManager.LoadedJar loaded = vm.loadedJars.get(jar);
+	Assert.assertNotNull(loaded);
+
+	// same jar : no reload, but a new instance
+	List<View> second = vm.loadViews();
+	Assert.assertEquals(second.size(), 1);
+	Assert.assertNotSame(second.get(0), first.get(0));
+	Assert.assertSame(vm.loadedJars.get(jar), loaded);
+
+	// modified jar : reloaded
+	writeJar(jar, EmptyView.class.getName());
+	jar.setLastModified(loaded.lastModified + 2000);
+	Assert.assertEquals(vm.loadViews().size(), 1);
+	Assert.assertNotSame(vm.loadedJars.get(jar), loaded);
+
+	// removed jar : dropped
+	jar.delete();
+	Assert.assertEquals(vm.loadViews().size(), 0);
+	Assert.assertTrue(vm.loadedJars.isEmpty());
+	dir.delete();
+    }
 }
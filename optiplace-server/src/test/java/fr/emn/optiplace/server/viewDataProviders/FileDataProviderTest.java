@@ -0,0 +1,142 @@
+package fr.emn.optiplace.server.viewDataProviders;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import fr.emn.optiplace.view.EmptyView;
+import fr.emn.optiplace.view.MappedViewData;
+import fr.emn.optiplace.view.ProvidedData;
+import fr.emn.optiplace.view.ProvidedDataReader;
+import fr.emn.optiplace.view.annotations.Parameter;
+
+/**
+ * @author Guillaume Le Louët [guillaume.lelouet@gmail.com] 2017
+ *
+ */
+public class FileDataProviderTest {
+
+	@SuppressWarnings("unused")
+	private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(FileDataProviderTest.class);
+
+	/** counts the number of lines it parsed */
+	public static class CountingReader implements ProvidedDataReader {
+
+		static int nbParsed = 0;
+
+		List<String> lines = new ArrayList<>();
+
+		@Override
+		public void onNewConfig() {
+			lines.clear();
+		}
+
+		@Override
+		public void readLine(String line) {
+			nbParsed++;
+			lines.add(line);
+		}
+
+		@Override
+		public CountingReader sharedReader() {
+			return new CountingReader();
+		}
+
+		@Override
+		public void readFrom(ProvidedDataReader shared) {
+			onNewConfig();
+			lines.addAll(((CountingReader) shared).lines);
+		}
+	}
+
+	public static class CountingView extends EmptyView {
+
+		@Parameter(confName = "data")
+		CountingReader data = new CountingReader();
+	}
+
+	@Test
+	public void testUnchangedNotParsedAgain() throws IOException {
+		File dir = Files.createTempDirectory("data").toFile();
+		File f = new File(dir, "data.txt");
+		Files.write(f.toPath(), Arrays.asList("a", "b"));
+		FileDataProvider fdp = new FileDataProvider();
+		fdp.setPaths(dir);
+		CountingReader.nbParsed = 0;
+
+		fdp.load();
+		ProvidedData first = fdp.getData("data");
+		CountingView v1 = new CountingView();
+		Assert.assertTrue(v1.setConfs(fdp));
+		Assert.assertEquals(v1.data.lines, Arrays.asList("a", "b"));
+		Assert.assertEquals(CountingReader.nbParsed, 2);
+		// a view can modify its own reader
+		v1.data.lines.add("x");
+
+		// not modified : same data, not parsed again
+		fdp.load();
+		Assert.assertSame(fdp.getData("data"), first);
+		CountingView v2 = new CountingView();
+		Assert.assertTrue(v2.setConfs(fdp));
+		Assert.assertEquals(CountingReader.nbParsed, 2);
+		Assert.assertNotSame(v2.data, v1.data);
+		Assert.assertEquals(v2.data.lines, Arrays.asList("a", "b"));
+
+		// modified : read again
+		Files.write(f.toPath(), Arrays.asList("a", "b", "c"));
+		fdp.load();
+		Assert.assertNotSame(fdp.getData("data"), first);
+		CountingView v3 = new CountingView();
+		Assert.assertTrue(v3.setConfs(fdp));
+		Assert.assertEquals(CountingReader.nbParsed, 5);
+		Assert.assertEquals(v3.data.lines, Arrays.asList("a", "b", "c"));
+
+		// removed
+		f.delete();
+		fdp.load();
+		Assert.assertNull(fdp.getData("data"));
+		dir.delete();
+	}
+
+	@Test
+	public void testMapThreshold() throws IOException {
+		File dir = Files.createTempDirectory("data").toFile();
+		File small = new File(dir, "small.txt");
+		File big = new File(dir, "big.txt");
+		Files.write(small.toPath(), Arrays.asList("a"));
+		Files.write(big.toPath(), Arrays.asList("a", "b", "c", "d"));
+		FileDataProvider fdp = new FileDataProvider();
+		fdp.setPaths(dir);
+
+		// not mapped by default
+		fdp.load();
+		Assert.assertFalse(fdp.getData("small") instanceof MappedViewData);
+		Assert.assertFalse(fdp.getData("big") instanceof MappedViewData);
+
+		fdp.setMapThreshold(big.length());
+		fdp.load();
+		Assert.assertFalse(fdp.getData("small") instanceof MappedViewData);
+		MappedViewData mapped = (MappedViewData) fdp.getData("big");
+		Assert.assertEquals(mapped.nbLines(), 4);
+		Assert.assertTrue(mapped.isMapped());
+
+		// replaced : the previous mapping is released
+		File tmp = new File(dir, "big.tmp");
+		Files.write(tmp.toPath(), Arrays.asList("a", "b", "c", "d", "e"));
+		Files.move(tmp.toPath(), big.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		fdp.load();
+		Assert.assertFalse(mapped.isMapped());
+		Assert.assertEquals(((MappedViewData) fdp.getData("big")).nbLines(), 5);
+
+		small.delete();
+		big.delete();
+		dir.delete();
+	}
+}